@@ -0,0 +1,139 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.exactpro.th2.readlog;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import com.exactpro.th2.common.grpc.RawMessageBatch;
+import com.exactpro.th2.common.schema.message.MessageRouter;
+
+/**
+ * Synthetic log lines for the benchmarks. The lines are modeled on the files from the {@code examples} directory
+ */
+final class BenchmarkData {
+    /** The number of distinct lines generated for a benchmark. The lines are reused in a loop */
+    static final int LINES = 10_000;
+
+    private static final char SOH = '\u0001';
+
+    enum LineType {
+        /** Short text lines matched by the regular expression */
+        SHORT("Found message id = (\\d+) for message = (\\w+)", Collections.singletonList(2)),
+        /** Long lines with a FIX message inside */
+        FIX("8=FIXT\\.1\\.1\u0001.*?\u000110=\\d{3}\u0001", Collections.singletonList(0)),
+        /** Lines that are never matched. The literal prefilter rejects them */
+        NO_MATCH("8=FIXT\\.1\\.1\u0001.*?\u000110=\\d{3}\u0001", Collections.singletonList(0));
+
+        private final String regex;
+        private final List<Integer> groups;
+
+        LineType(String regex, List<Integer> groups) {
+            this.regex = regex;
+            this.groups = groups;
+        }
+
+        String getRegex() {
+            return regex;
+        }
+
+        List<Integer> getGroups() {
+            return groups;
+        }
+    }
+
+    private BenchmarkData() {
+    }
+
+    static byte[][] lines(LineType type) {
+        byte[][] lines = new byte[LINES][];
+        for (int i = 0; i < LINES; i++) {
+            lines[i] = line(type, i).getBytes(StandardCharsets.UTF_8);
+        }
+        return lines;
+    }
+
+    static String line(LineType type, int index) {
+        switch (type) {
+        case SHORT:
+            return "Found message id = " + index + " for message = NewOrderSingle";
+        case FIX:
+            return "send message [" + fixMessage(index) + ']';
+        case NO_MATCH:
+            return "Trying to get message with id = " + index;
+        default:
+            throw new IllegalArgumentException("Unknown line type " + type);
+        }
+    }
+
+    /**
+     * Writes the lines to the file {@code repeat} times. The file is compressed with gzip if its name ends with {@code .gz}
+     */
+    static void writeFile(Path file, byte[][] lines, int repeat) throws IOException {
+        OutputStream stream = Files.newOutputStream(file);
+        try (OutputStream out = file.toString().endsWith(".gz") ? new GZIPOutputStream(stream, 64 * 1024) : stream) {
+            for (int i = 0; i < repeat; i++) {
+                for (byte[] line : lines) {
+                    out.write(line);
+                    out.write('\n');
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the router that drops all batches
+     */
+    @SuppressWarnings("unchecked")
+    static MessageRouter<RawMessageBatch> noopRouter() {
+        return (MessageRouter<RawMessageBatch>)Proxy.newProxyInstance(BenchmarkData.class.getClassLoader(), new Class<?>[] { MessageRouter.class },
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "toString":
+                        return "no-op router";
+                    default:
+                        return null;
+                    }
+                });
+    }
+
+    private static String fixMessage(int index) {
+        String body = "35=D" + SOH + "34=" + index + SOH + "49=DEMO-CONN2" + SOH + "52=20201124-12:17:03.767" + SOH + "56=FGW" + SOH
+                + "11=" + (2711808 + index) + SOH + "22=8" + SOH + "38=100" + SOH + "40=2" + SOH + "44=34" + SOH + "48=INSTR2" + SOH
+                + "54=2" + SOH + "59=3" + SOH + "60=20201124-15:17:03.477" + SOH + "526=" + (15323 + index) + SOH + "528=A" + SOH
+                + "581=1" + SOH + "453=4" + SOH + "448=DEMO-CONN2" + SOH + "447=D" + SOH + "452=76" + SOH + "448=0" + SOH + "447=P" + SOH
+                + "452=3" + SOH + "448=0" + SOH + "447=P" + SOH + "452=122" + SOH + "448=3" + SOH + "447=P" + SOH + "452=12" + SOH;
+        String header = "8=FIXT.1.1" + SOH + "9=" + body.length() + SOH;
+        int checksum = 0;
+        for (char c : (header + body).toCharArray()) {
+            checksum += c;
+        }
+        return header + body + String.format("10=%03d", checksum % 256) + SOH;
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.exactpro.th2.readlog;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.exactpro.th2.common.grpc.Direction;
+import com.exactpro.th2.readlog.BenchmarkData.LineType;
+import com.exactpro.th2.readlog.cfg.LogReaderConfiguration;
+import com.google.protobuf.ByteString;
+
+/**
+ * Publishes a single parsed line per operation to the router that drops the batches
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LogPublisherBenchmark {
+    @Param({ "SHORT", "FIX" })
+    public LineType lineType;
+
+    private LogPublisher publisher;
+    private ByteString[] lines;
+    private int index;
+
+    @Setup
+    public void setup() {
+        byte[][] data = BenchmarkData.lines(lineType);
+        lines = new ByteString[data.length];
+        for (int i = 0; i < data.length; i++) {
+            lines[i] = ByteString.copyFrom(data[i]);
+        }
+        publisher = new LogPublisher("benchmark", Direction.FIRST, BenchmarkData.noopRouter(),
+                BatchLimits.fromConfiguration(new LogReaderConfiguration()), LogPublisher.firstSequence(),
+                LogPublisher.PublicationListener.NONE, null, null, null, null);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        publisher.close();
+    }
+
+    @Benchmark
+    public boolean publish(LineCounters counters) throws IOException {
+        ByteString line = lines[index];
+        index = (index + 1) % lines.length;
+        counters.add(line.size());
+        return publisher.publish(line);
+    }
+}
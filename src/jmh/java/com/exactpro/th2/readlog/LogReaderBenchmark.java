@@ -0,0 +1,82 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.exactpro.th2.readlog;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.exactpro.th2.readlog.BenchmarkData.LineType;
+
+/**
+ * Reads the whole file per operation
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LogReaderBenchmark {
+    @Param({ "SHORT", "FIX" })
+    public LineType lineType;
+
+    @Param({ "false", "true" })
+    public boolean compressed;
+
+    private Path directory;
+    private Path file;
+
+    @Setup
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("read-log-benchmark");
+        file = directory.resolve(compressed ? "test.log.gz" : "test.log");
+        BenchmarkData.writeFile(file, BenchmarkData.lines(lineType), 10);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public long readFile(LineCounters counters) throws IOException {
+        try (LogReader reader = new LogReader(file.toFile(), StandardCharsets.UTF_8)) {
+            while (reader.readNextLine()) {
+                counters.add(reader.getLineLength());
+            }
+            return reader.getPosition();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.exactpro.th2.readlog;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.exactpro.th2.readlog.BenchmarkData.LineType;
+import com.exactpro.th2.readlog.cfg.ParserType;
+
+/**
+ * Parses a single line per operation. The groups are not copied, so only the parser itself is measured
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParserBenchmark {
+    @Param({ "SHORT", "FIX", "NO_MATCH" })
+    public LineType lineType;
+
+    @Param({ "REGEX", "FIX" })
+    public ParserType parserType;
+
+    private LogParser parser;
+    private byte[][] lines;
+    private int index;
+
+    @Setup
+    public void setup() {
+        lines = BenchmarkData.lines(lineType);
+        parser = parserType == ParserType.FIX ? new FixLogParser() : new RegexLogParser(lineType.getRegex(), lineType.getGroups());
+    }
+
+    @Benchmark
+    public int parse(LineCounters counters, Blackhole blackhole) {
+        byte[] line = lines[index];
+        index = (index + 1) % lines.length;
+        counters.add(line.length);
+        return parser.parse(line, 0, line.length, (bytes, offset, length) -> blackhole.consume(length));
+    }
+}
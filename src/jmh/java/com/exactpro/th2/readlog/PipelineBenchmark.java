@@ -0,0 +1,130 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.exactpro.th2.readlog;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.exactpro.th2.common.grpc.Direction;
+import com.exactpro.th2.common.grpc.RawMessageBatch;
+import com.exactpro.th2.common.schema.message.MessageRouter;
+import com.exactpro.th2.readlog.BenchmarkData.LineType;
+import com.exactpro.th2.readlog.cfg.LogReaderConfiguration;
+
+/**
+ * Reads, parses and publishes the whole file per operation. The batches are dropped by the router
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PipelineBenchmark {
+    @Param({ "SHORT", "FIX", "NO_MATCH" })
+    public LineType lineType;
+
+    /** The number of threads parsing the lines. The lines are parsed by the reading thread if it is {@code 0} */
+    @Param({ "0", "4" })
+    public int parserThreads;
+
+    private Path directory;
+    private Path file;
+    private final LogReaderConfiguration configuration = new LogReaderConfiguration();
+    private LogParser parser;
+    private MessageRouter<RawMessageBatch> router;
+    private PublicationRateLimiter rateLimiter;
+    private ExecutorService parserExecutor;
+    private ReaderMetrics metrics;
+    private final Object space = new Object();
+
+    @Setup
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("read-log-benchmark");
+        file = directory.resolve("test.log");
+        BenchmarkData.writeFile(file, BenchmarkData.lines(lineType), 10);
+        parser = new RegexLogParser(lineType.getRegex(), lineType.getGroups());
+        router = BenchmarkData.noopRouter();
+        rateLimiter = new PublicationRateLimiter(configuration);
+        parserExecutor = parserThreads == 0 ? null : Executors.newFixedThreadPool(parserThreads);
+        metrics = new ReaderMetrics("benchmark");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException, InterruptedException {
+        if (parserExecutor != null) {
+            parserExecutor.shutdown();
+            parserExecutor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+        metrics.close();
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public long readFile(LineCounters counters) throws IOException, InterruptedException {
+        try (LogReader reader = new LogReader(file.toFile(), StandardCharsets.UTF_8);
+             LogPublisher publisher = new LogPublisher("benchmark", Direction.FIRST, router, BatchLimits.fromConfiguration(configuration),
+                     LogPublisher.firstSequence(), LogPublisher.PublicationListener.NONE, null, null, metrics, null)) {
+            ParsingPipeline pipeline = new ParsingPipeline(parser, publisher, rateLimiter, metrics, parserExecutor,
+                    configuration.getParserChunkLines(), configuration.getParserChunksInFlight(), this::onSpace);
+            while (reader.readNextLine()) {
+                awaitSpace(pipeline);
+                counters.add(reader.getLineLength());
+                metrics.onRead(1, reader.getLineLength());
+                pipeline.add(reader.getLineBytes(), reader.getLineLength(), reader.getPosition());
+            }
+            pipeline.drain();
+            pipeline.flush();
+            return reader.getPosition();
+        }
+    }
+
+    private void awaitSpace(ParsingPipeline pipeline) throws InterruptedException {
+        while (pipeline.isFull()) {
+            synchronized (space) {
+                // the pipeline can become free between the check and the wait, so the wait is limited
+                space.wait(1);
+            }
+        }
+    }
+
+    private void onSpace() {
+        synchronized (space) {
+            space.notifyAll();
+        }
+    }
+}
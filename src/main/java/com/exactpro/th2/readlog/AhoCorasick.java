@@ -0,0 +1,132 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.readlog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Finds all occurrences of several keywords in a single pass over the bytes.
+ *
+ * The keywords are compiled into a deterministic automaton: the trie of the keywords with the failure links resolved
+ * into the transition table, so each byte costs one table lookup regardless of the number of keywords.
+ * Each state keeps the keywords ending in it, including the keywords that are suffixes of other keywords.
+ *
+ * NOTE: The automaton is immutable and can be shared by several threads
+ */
+final class AhoCorasick {
+    private static final int ALPHABET = 256;
+    private static final int[] NO_MATCHES = new int[0];
+
+    /** The next state for each state and byte: {@code transitions[state * 256 + byte]} */
+    private final int[] transitions;
+    /** The indexes of the keywords recognized in each state */
+    private final int[][] matches;
+
+    AhoCorasick(List<byte[]> keywords) {
+        int maxStates = 1;
+        for (byte[] keyword : keywords) {
+            if (keyword.length == 0) {
+                throw new IllegalArgumentException("Keyword must not be empty");
+            }
+            maxStates += keyword.length;
+        }
+        int[] trie = new int[maxStates * ALPHABET];
+        Arrays.fill(trie, -1);
+        List<List<Integer>> keywordsByState = new ArrayList<>(maxStates);
+        keywordsByState.add(new ArrayList<>());
+        int states = 1;
+        for (int index = 0; index < keywords.size(); index++) {
+            int state = 0;
+            for (byte b : keywords.get(index)) {
+                int slot = state * ALPHABET + (b & 0xFF);
+                if (trie[slot] < 0) {
+                    trie[slot] = states++;
+                    keywordsByState.add(new ArrayList<>());
+                }
+                state = trie[slot];
+            }
+            keywordsByState.get(state).add(index);
+        }
+
+        // breadth-first order guarantees that the failure state is complete before the states referring to it
+        int[] failure = new int[states];
+        int[] queue = new int[states];
+        int head = 0;
+        int tail = 0;
+        for (int b = 0; b < ALPHABET; b++) {
+            int next = trie[b];
+            if (next < 0) {
+                trie[b] = 0;
+            } else {
+                failure[next] = 0;
+                queue[tail++] = next;
+            }
+        }
+        while (head < tail) {
+            int state = queue[head++];
+            keywordsByState.get(state).addAll(keywordsByState.get(failure[state]));
+            for (int b = 0; b < ALPHABET; b++) {
+                int slot = state * ALPHABET + b;
+                int fallback = trie[failure[state] * ALPHABET + b];
+                int next = trie[slot];
+                if (next < 0) {
+                    trie[slot] = fallback;
+                } else {
+                    failure[next] = fallback;
+                    queue[tail++] = next;
+                }
+            }
+        }
+
+        transitions = Arrays.copyOf(trie, states * ALPHABET);
+        matches = new int[states][];
+        for (int state = 0; state < states; state++) {
+            List<Integer> recognized = keywordsByState.get(state);
+            matches[state] = recognized.isEmpty() ? NO_MATCHES : recognized.stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    int getStateCount() {
+        return matches.length;
+    }
+
+    /**
+     * Passes the index of each keyword occurrence to the sink. A keyword occurring several times is passed several times
+     */
+    void search(byte[] bytes, int offset, int length, MatchSink sink) {
+        int[] transitions = this.transitions;
+        int[][] matches = this.matches;
+        int state = 0;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            state = transitions[state * ALPHABET + (bytes[i] & 0xFF)];
+            int[] recognized = matches[state];
+            for (int keyword : recognized) {
+                sink.onMatch(keyword);
+            }
+        }
+    }
+
+    /**
+     * Receives the keyword occurrences
+     */
+    @FunctionalInterface
+    interface MatchSink {
+        void onMatch(int keyword);
+    }
+}
@@ -0,0 +1,373 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.readlog;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.protobuf.ByteString;
+
+import net.logstash.logback.argument.StructuredArguments;
+
+/**
+ * Reads the existing content of an uncompressed log file in parallel.
+ *
+ * The content from the start position up to the end of the last complete line is split into byte ranges.
+ * Each range ends right after a line feed, so no line crosses the range boundary. The ranges are read and parsed
+ * concurrently by the fork-join pool, while the calling thread publishes the parsed ranges in the original order.
+ * Therefore, the sequences stay contiguous and the positions are marked in the same way as in the line-by-line reading.
+ * The number of ranges in flight is limited to bound the memory.
+ *
+ * The ranges are published in slices limited by time, so the caller can interleave the backfill with other work
+ * and stop it between the slices. The slice also ends before the next line when the caller asks to suspend the publication,
+ * e.g. when it is throttled or the sender is busy, so the thread is not blocked while waiting.
+ * The ranges not published yet are cancelled by {@link #close()}.
+ */
+class Backfill implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(Backfill.class);
+
+    private static final byte LF = '\n';
+    private static final byte CR = '\r';
+    private static final int SCAN_BUFFER_SIZE = 8 * 1024;
+
+    private final Path file;
+    private final LogParser parser;
+    private final ForkJoinPool pool;
+    private final int rangeBytes;
+    private final int rangesInFlight;
+    private final LineListener lineListener;
+    private final Deque<ForkJoinTask<Range>> inFlight = new ArrayDeque<>();
+
+    private FileChannel channel;
+    /** The position right after the last complete line present when the backfill started */
+    private long end;
+    /** The start of the next range to submit */
+    private long next;
+    private long startTime;
+    private boolean finished;
+
+    /**
+     * @param lineListener is notified about each published line. If it is {@code null} the lines are not reported
+     */
+    Backfill(Path file, LogParser parser, ForkJoinPool pool, int rangeBytes, int rangesInFlight, LineListener lineListener) {
+        this.file = Objects.requireNonNull(file, "'File' parameter");
+        this.parser = Objects.requireNonNull(parser, "'Parser' parameter");
+        this.pool = Objects.requireNonNull(pool, "'Pool' parameter");
+        if (rangeBytes <= 0) {
+            throw new IllegalArgumentException("'rangeBytes' must be a positive integer but was " + rangeBytes);
+        }
+        if (rangesInFlight <= 0) {
+            throw new IllegalArgumentException("'rangesInFlight' must be a positive integer but was " + rangesInFlight);
+        }
+        this.rangeBytes = rangeBytes;
+        this.rangesInFlight = rangesInFlight;
+        this.lineListener = lineListener;
+    }
+
+    /**
+     * Finds the end of the last complete line from the start position.
+     * The lines appended during the backfill are left for tailing
+     *
+     * @param start the position of the beginning of a line
+     */
+    void start(long start) throws IOException {
+        if (channel != null) {
+            throw new IllegalStateException("Backfill of " + file + " is already started");
+        }
+        startTime = System.nanoTime();
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        end = lastLineEnd(channel, start, channel.size());
+        next = start;
+        logger.info("Backfill {} from {} to {}", StructuredArguments.value("file", file),
+                StructuredArguments.value("start", start), StructuredArguments.value("end", end));
+    }
+
+    boolean isStarted() {
+        return channel != null;
+    }
+
+    /**
+     * @return the position right after the last line to publish
+     */
+    long getEnd() {
+        return end;
+    }
+
+    /**
+     * @return {@code true} if all lines up to {@link #getEnd()} are published and flushed
+     */
+    boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * Publishes the parsed lines in the original order until the time limit is exceeded, the suspension is requested
+     * or all lines are published. At least one line is published by each call unless the suspension is requested before it
+     *
+     * @param rateLimiter counts the published messages, bytes and batches
+     * @param metrics counts the read and parsed lines. If it is {@code null} the lines are not counted
+     * @param maxNanos the time limit of the call
+     * @param suspension is checked before each line. The publication stops if it returns a non-zero value
+     * @return the non-zero value of the suspension or {@code 0} if the time limit is exceeded or all lines are published
+     */
+    long publish(MessagePublisher publisher, PublicationRateLimiter rateLimiter, ReaderMetrics metrics, long maxNanos,
+                 LongSupplier suspension) throws IOException {
+        Objects.requireNonNull(publisher, "'Publisher' parameter");
+        Objects.requireNonNull(rateLimiter, "'Rate limiter' parameter");
+        Objects.requireNonNull(suspension, "'Suspension' parameter");
+        if (channel == null) {
+            throw new IllegalStateException("Backfill of " + file + " is not started");
+        }
+        long deadline = maxNanos == Long.MAX_VALUE ? Long.MAX_VALUE : System.nanoTime() + maxNanos;
+        try {
+            while (next < end || !inFlight.isEmpty()) {
+                while (next < end && inFlight.size() < rangesInFlight) {
+                    long rangeStart = next;
+                    long rangeEnd = rangeEnd(channel, rangeStart, end);
+                    FileChannel rangeChannel = channel;
+                    inFlight.addLast(pool.submit(() -> Range.read(rangeChannel, rangeStart, rangeEnd, parser)));
+                    next = rangeEnd;
+                }
+                Range head = inFlight.peekFirst().get();
+                long suspended = head.publish(publisher, rateLimiter, metrics, lineListener, deadline, suspension);
+                if (suspended != 0) {
+                    return suspended;
+                }
+                if (!head.isPublished()) {
+                    return 0;
+                }
+                inFlight.removeFirst();
+                if (deadline != Long.MAX_VALUE && System.nanoTime() - deadline >= 0 && (next < end || !inFlight.isEmpty())) {
+                    return 0;
+                }
+            }
+            publisher.flush();
+            finished = true;
+            logger.info("Backfill of {} finished in {} ms", StructuredArguments.value("file", file),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+            return 0;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while backfilling " + file);
+        } catch (ExecutionException e) {
+            throw new IOException("Cannot read or parse " + file, e.getCause());
+        }
+    }
+
+    /**
+     * Cancels the ranges in flight and closes the file
+     */
+    @Override
+    public void close() throws IOException {
+        inFlight.forEach(task -> task.cancel(true));
+        inFlight.clear();
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    /**
+     * @return the position after the first line feed at or after {@code start + rangeBytes}, or {@code end} if the range reaches it
+     */
+    private long rangeEnd(FileChannel channel, long start, long end) throws IOException {
+        long position = start + rangeBytes - 1;
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        while (position < end) {
+            buffer.clear().limit((int)Math.min(buffer.capacity(), end - position));
+            readFully(channel, buffer, position);
+            byte[] array = buffer.array();
+            for (int i = 0; i < buffer.limit(); i++) {
+                if (array[i] == LF) {
+                    return position + i + 1;
+                }
+            }
+            position += buffer.limit();
+        }
+        return end;
+    }
+
+    /**
+     * @return the position after the last line feed in the range or {@code start} if there is no line feed
+     */
+    private static long lastLineEnd(FileChannel channel, long start, long size) throws IOException {
+        long position = size;
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        while (position > start) {
+            int length = (int)Math.min(buffer.capacity(), position - start);
+            position -= length;
+            buffer.clear().limit(length);
+            readFully(channel, buffer, position);
+            byte[] array = buffer.array();
+            for (int i = length - 1; i >= 0; i--) {
+                if (array[i] == LF) {
+                    return position + i + 1;
+                }
+            }
+        }
+        return start;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of file at " + (position + buffer.position()));
+            }
+        }
+    }
+
+    /**
+     * Receives the positions of the published lines
+     */
+    @FunctionalInterface
+    interface LineListener {
+        /**
+         * @param start the position of the beginning of the line
+         * @param end the position right after the line terminator
+         */
+        void onLine(long start, long end) throws IOException;
+    }
+
+    /**
+     * The lines of a single range and their parsed groups
+     */
+    private static class Range {
+        private final long start;
+        private final int[] ends;
+        private final int[] groupEnds;
+        private final List<ByteString> groups;
+        private final int lines;
+        private final long bytes;
+        /** The index of the next line to publish */
+        private int published;
+        private int matched;
+
+        private Range(long start, int[] ends, int[] groupEnds, List<ByteString> groups, int lines, long bytes) {
+            this.start = start;
+            this.ends = ends;
+            this.groupEnds = groupEnds;
+            this.groups = groups;
+            this.lines = lines;
+            this.bytes = bytes;
+        }
+
+        private static Range read(FileChannel channel, long start, long end, LogParser parser) throws IOException {
+            byte[] data = new byte[(int)(end - start)];
+            readFully(channel, ByteBuffer.wrap(data), start);
+
+            int[] ends = new int[256];
+            int[] groupEnds = new int[256];
+            List<ByteString> groups = new ArrayList<>();
+            LogParser.GroupSink sink = (bytes, offset, length) -> groups.add(ByteString.copyFrom(bytes, offset, length));
+            int lines = 0;
+            long bytes = 0;
+            int lineStart = 0;
+            for (int i = 0; i < data.length; i++) {
+                if (data[i] != LF) {
+                    continue;
+                }
+                int length = i - lineStart;
+                if (length > 0 && data[i - 1] == CR) {
+                    length--;
+                }
+                parser.parse(data, lineStart, length, sink);
+                if (lines == ends.length) {
+                    ends = Arrays.copyOf(ends, lines * 2);
+                    groupEnds = Arrays.copyOf(groupEnds, lines * 2);
+                }
+                ends[lines] = i + 1;
+                groupEnds[lines] = groups.size();
+                lines++;
+                bytes += length;
+                lineStart = i + 1;
+            }
+            return new Range(start, ends, groupEnds, groups, lines, bytes);
+        }
+
+        /**
+         * Publishes the lines of the range until the deadline is passed or the suspension is requested.
+         * At least one line is published unless the suspension is requested before it
+         *
+         * @return the non-zero value of the suspension or {@code 0} otherwise
+         */
+        private long publish(MessagePublisher publisher, PublicationRateLimiter rateLimiter, ReaderMetrics metrics,
+                             LineListener lineListener, long deadline, LongSupplier suspension) throws IOException {
+            boolean rateLimited = rateLimiter.isEnabled();
+            int first = published;
+            int from = first == 0 ? 0 : groupEnds[first - 1];
+            int i = first;
+            long suspended = 0;
+            for (; i < lines; i++) {
+                if (i > first && deadline != Long.MAX_VALUE && System.nanoTime() - deadline >= 0) {
+                    break;
+                }
+                suspended = suspension.getAsLong();
+                if (suspended != 0) {
+                    break;
+                }
+                long groupBytes = 0;
+                int batches = 0;
+                for (int j = from; j < groupEnds[i]; j++) {
+                    ByteString group = groups.get(j);
+                    groupBytes += group.size();
+                    if (publisher.publish(group)) {
+                        batches++;
+                    }
+                }
+                publisher.markPosition(start + ends[i]);
+                if (lineListener != null) {
+                    lineListener.onLine(start + (i == 0 ? 0 : ends[i - 1]), start + ends[i]);
+                }
+                if (rateLimited) {
+                    rateLimiter.onPublished(groupEnds[i] - from, groupBytes, batches);
+                }
+                if (groupEnds[i] > from) {
+                    matched++;
+                }
+                from = groupEnds[i];
+            }
+            published = i;
+            if (published == lines && metrics != null) {
+                metrics.onRead(lines, bytes);
+                metrics.onParsed(matched, lines - matched);
+            }
+            return suspended;
+        }
+
+        private boolean isPublished() {
+            return published == lines;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.readlog;
+
+import com.exactpro.th2.readlog.cfg.LogReaderConfiguration;
+
+/**
+ * The limits of the batches published by {@link LogPublisher}.
+ *
+ * The batch is published when it reaches the number of lines or the serialized size,
+ * or when its first line is older than the maximum latency.
+ */
+public final class BatchLimits {
+    private final int maxLines;
+    private final int maxBytes;
+    private final long maxLatencyMillis;
+
+    /**
+     * @param maxLines the maximum number of lines in a batch
+     * @param maxBytes the maximum serialized size of a batch
+     * @param maxLatencyMillis the maximum time the first line of a batch waits for the batch to be published
+     */
+    public BatchLimits(int maxLines, int maxBytes, long maxLatencyMillis) {
+        if (maxLines <= 0) {
+            throw new IllegalArgumentException("'maxBatchLines' must be a positive integer but was " + maxLines);
+        }
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("'maxBatchBytes' must be a positive integer but was " + maxBytes);
+        }
+        if (maxLatencyMillis <= 0) {
+            throw new IllegalArgumentException("'maxBatchLatencyMs' must be a positive integer but was " + maxLatencyMillis);
+        }
+        this.maxLines = maxLines;
+        this.maxBytes = maxBytes;
+        this.maxLatencyMillis = maxLatencyMillis;
+    }
+
+    /**
+     * @throws IllegalArgumentException if a limit is not positive
+     */
+    public static BatchLimits fromConfiguration(LogReaderConfiguration configuration) {
+        return new BatchLimits(configuration.getMaxBatchLines(), configuration.getMaxBatchBytes(), configuration.getMaxBatchLatencyMs());
+    }
+
+    public int getMaxLines() {
+        return maxLines;
+    }
+
+    public int getMaxBytes() {
+        return maxBytes;
+    }
+
+    public long getMaxLatencyMillis() {
+        return maxLatencyMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchLimits{maxLines=" + maxLines + ", maxBytes=" + maxBytes + ", maxLatencyMillis=" + maxLatencyMillis + '}';
+    }
+}
@@ -0,0 +1,278 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.readlog;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Objects;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.exactpro.th2.common.grpc.RawMessageBatch;
+import com.exactpro.th2.common.schema.message.MessageRouter;
+import com.exactpro.th2.common.schema.message.QueueAttribute;
+import com.exactpro.th2.readlog.cfg.LogReaderConfiguration;
+
+import net.logstash.logback.argument.StructuredArguments;
+
+/**
+ * Sends the batches of a single publisher by the executor's threads in the order they were submitted.
+ *
+ * Only one batch of the sender is sent at a time, the rest wait in the queue. The number of batches in the queue is limited:
+ * {@link #submit} blocks while the queue is full, so the reader should check {@link #isFull()} and wait for the space listener.
+ * A failed batch is sent again with an exponential backoff while the batches behind it wait. Once the retries are exhausted
+ * the sender fails: the queued batches are dropped and all following calls throw the exception.
+ * The file is read again from the last checkpoint then, so the batches sent after the checkpoint are published twice.
+ *
+ * The callback of each entry is called after the entry is sent and before the next entry is sent,
+ * so the callbacks are called in the order of submission and never concurrently.
+ *
+ * NOTE: This class is thread-safe
+ */
+public class BatchSender implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(BatchSender.class);
+
+    private final String sessionAlias;
+    private final MessageRouter<RawMessageBatch> router;
+    private final ScheduledExecutorService executor;
+    private final int maxQueuedBatches;
+    private final int maxRetries;
+    private final long initialRetryDelayMillis;
+    private final long maxRetryDelayMillis;
+    private final Runnable spaceListener;
+
+    /** Guarded by this */
+    private final Deque<Entry> queue = new ArrayDeque<>();
+    /** The number of entries with a batch in the queue. Guarded by this */
+    private int queuedBatches;
+    /** {@code true} if a task sending the queue is scheduled. Guarded by this */
+    private boolean scheduled;
+    /** Accessed by the sending task only */
+    private int attempts;
+    private volatile Throwable failure;
+
+    /**
+     * @param executor sends the batches and schedules the retries. It must not execute the tasks that submit batches,
+     *                 otherwise the blocked submit can occupy the thread the sending needs
+     * @param spaceListener is called when the full queue can accept a batch again
+     */
+    public BatchSender(String sessionAlias, MessageRouter<RawMessageBatch> router, ScheduledExecutorService executor,
+                       LogReaderConfiguration configuration, Runnable spaceListener) {
+        this.sessionAlias = Objects.requireNonNull(sessionAlias, "'Session alias' parameter");
+        this.router = Objects.requireNonNull(router, "'Router' parameter");
+        this.executor = Objects.requireNonNull(executor, "'Executor' parameter");
+        this.spaceListener = Objects.requireNonNull(spaceListener, "'Space listener' parameter");
+        Objects.requireNonNull(configuration, "'Configuration' parameter");
+        maxQueuedBatches = configuration.getMaxQueuedBatches();
+        if (maxQueuedBatches <= 0) {
+            throw new IllegalArgumentException("'maxQueuedBatches' must be a positive integer but was " + maxQueuedBatches);
+        }
+        maxRetries = configuration.getSendMaxRetries();
+        if (maxRetries < 0 && maxRetries != LogReaderConfiguration.NO_LIMIT) {
+            throw new IllegalArgumentException("'sendMaxRetries' must not be negative but was " + maxRetries);
+        }
+        initialRetryDelayMillis = configuration.getSendRetryInitialDelayMs();
+        if (initialRetryDelayMillis <= 0) {
+            throw new IllegalArgumentException("'sendRetryInitialDelayMs' must be a positive integer but was " + initialRetryDelayMillis);
+        }
+        maxRetryDelayMillis = configuration.getSendRetryMaxDelayMs();
+        if (maxRetryDelayMillis < initialRetryDelayMillis) {
+            throw new IllegalArgumentException("'sendRetryMaxDelayMs' must not be less than 'sendRetryInitialDelayMs' but was " + maxRetryDelayMillis);
+        }
+    }
+
+    /**
+     * @return {@code true} if the next batch will block the submitting thread
+     */
+    public synchronized boolean isFull() {
+        return queuedBatches >= maxQueuedBatches;
+    }
+
+    /**
+     * Queues the batch. Blocks while the queue is full.
+     *
+     * @param batch the batch to send. If it is {@code null} only the callback is called when the entries before it are sent
+     * @param callback is called after the batch is sent. Can be {@code null}
+     */
+    public void submit(RawMessageBatch batch, SendCallback callback) throws IOException {
+        synchronized (this) {
+            checkFailure();
+            if (batch != null) {
+                try {
+                    while (queuedBatches >= maxQueuedBatches && failure == null) {
+                        wait();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for the space to send a batch for " + sessionAlias);
+                }
+                checkFailure();
+                queuedBatches++;
+            }
+            queue.addLast(new Entry(batch, callback));
+            if (scheduled) {
+                return;
+            }
+            scheduled = true;
+        }
+        execute(0);
+    }
+
+    /**
+     * Waits until all submitted entries are sent and their callbacks are called
+     */
+    public void awaitSent() throws IOException {
+        synchronized (this) {
+            try {
+                while (!queue.isEmpty() && failure == null) {
+                    wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the batches of " + sessionAlias + " to be sent");
+            }
+        }
+        checkFailure();
+    }
+
+    /**
+     * Throws the exception that stopped the sending, if any
+     */
+    public void checkFailure() throws IOException {
+        Throwable cause = failure;
+        if (cause != null) {
+            throw new IOException("Cannot send batches for " + sessionAlias + " session alias", cause);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        awaitSent();
+    }
+
+    private void sendHead() {
+        Entry entry;
+        synchronized (this) {
+            entry = queue.peekFirst();
+            if (entry == null || failure != null) {
+                scheduled = false;
+                return;
+            }
+        }
+        long sendNanos = 0;
+        if (entry.batch != null) {
+            long start = System.nanoTime();
+            try {
+                router.sendAll(entry.batch, QueueAttribute.PUBLISH.toString(), QueueAttribute.RAW.toString());
+            } catch (IOException | RuntimeException e) {
+                retry(e);
+                return;
+            }
+            sendNanos = System.nanoTime() - start;
+            attempts = 0;
+        }
+        try {
+            if (entry.callback != null) {
+                entry.callback.onSent(sendNanos);
+            }
+        } catch (IOException | RuntimeException e) {
+            fail(e);
+            return;
+        }
+        boolean hadNoSpace;
+        boolean empty;
+        synchronized (this) {
+            queue.removeFirst();
+            hadNoSpace = queuedBatches >= maxQueuedBatches;
+            if (entry.batch != null) {
+                queuedBatches--;
+            }
+            empty = queue.isEmpty();
+            if (empty) {
+                scheduled = false;
+            }
+            notifyAll();
+        }
+        if (hadNoSpace) {
+            spaceListener.run();
+        }
+        if (!empty) {
+            // the next batch is sent by a new task, so the senders of other files get the threads too
+            execute(0);
+        }
+    }
+
+    private void retry(Exception e) {
+        attempts++;
+        if (maxRetries != LogReaderConfiguration.NO_LIMIT && attempts > maxRetries) {
+            fail(e);
+            return;
+        }
+        long delay = Math.min(maxRetryDelayMillis, initialRetryDelayMillis << Math.min(attempts - 1, 30));
+        logger.warn("Cannot send batch for {} session alias. Attempt {} will be made in {} ms",
+                StructuredArguments.value("sessionAlias", sessionAlias), attempts + 1, delay, e);
+        execute(delay);
+    }
+
+    private void fail(Throwable e) {
+        logger.error("Sending batches for {} session alias is stopped", StructuredArguments.value("sessionAlias", sessionAlias), e);
+        synchronized (this) {
+            failure = e;
+            queue.clear();
+            queuedBatches = 0;
+            scheduled = false;
+            notifyAll();
+        }
+        // the reader waiting for the space must see the failure
+        spaceListener.run();
+    }
+
+    private void execute(long delayMillis) {
+        try {
+            if (delayMillis == 0) {
+                executor.execute(this::sendHead);
+            } else {
+                executor.schedule(this::sendHead, delayMillis, TimeUnit.MILLISECONDS);
+            }
+        } catch (RejectedExecutionException e) {
+            fail(e);
+        }
+    }
+
+    public interface SendCallback {
+        /**
+         * @param sendNanos the time the router took to send the batch
+         */
+        void onSent(long sendNanos) throws IOException;
+    }
+
+    private static class Entry {
+        private final RawMessageBatch batch;
+        private final SendCallback callback;
+
+        private Entry(RawMessageBatch batch, SendCallback callback) {
+            this.batch = batch;
+            this.callback = callback;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.readlog;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Presents the bytes as characters in ISO-8859-1 encoding without decoding them.
+ * The index of each character is equal to the index of its byte, so the matched regions can be copied as bytes.
+ *
+ * The sequence does not copy the bytes. The bytes must not be changed while the sequence is in use.
+ */
+final class ByteCharSequence implements CharSequence {
+    private byte[] bytes;
+    private int offset;
+    private int length;
+
+    ByteCharSequence() {
+        this(new byte[0], 0, 0);
+    }
+
+    ByteCharSequence(byte[] bytes, int offset, int length) {
+        wrap(bytes, offset, length);
+    }
+
+    ByteCharSequence wrap(byte[] bytes, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > bytes.length) {
+            throw new IndexOutOfBoundsException("offset: " + offset + ", length: " + length + ", array length: " + bytes.length);
+        }
+        this.bytes = bytes;
+        this.offset = offset;
+        this.length = length;
+        return this;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("index: " + index + ", length: " + length);
+        }
+        return (char)(bytes[offset + index] & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (start < 0 || end > length || start > end) {
+            throw new IndexOutOfBoundsException("start: " + start + ", end: " + end + ", length: " + length);
+        }
+        return new ByteCharSequence(bytes, offset + start, end - start);
+    }
+
+    @Override
+    public String toString() {
+        return new String(bytes, offset, length, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * @return {@code true} if all bytes are in ASCII range.
+     * In that case the sequence represents the same characters as the bytes decoded in any ASCII-compatible charset
+     */
+    static boolean isAscii(byte[] bytes, int offset, int length) {
+        for (int i = offset, end = offset + length; i < end; i++) {
+            if (bytes[i] < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.readlog;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.text.ParsePosition;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalAccessor;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses the timestamps of the consecutive log lines.
+ *
+ * The timestamps of the consecutive lines usually differ only in seconds and fractions. If the pattern has fixed width
+ * and ends with the seconds and the optional fraction (e.g. {@code yyyyMMdd-HH:mm:ss.SSS}), the epoch time of the part
+ * before the seconds is cached and only the seconds and fraction digits are parsed while that part stays the same.
+ * Otherwise each timestamp is parsed by {@link DateTimeFormatter}.
+ *
+ * NOTE: This class is not thread-safe
+ */
+public class CachedTimestampParser {
+    /** Returned if the text cannot be parsed */
+    public static final long INVALID = Long.MIN_VALUE;
+
+    private static final String FIXED_WIDTH_LETTERS = "yMdHms";
+    private static final int MAX_FRACTION_DIGITS = 9;
+
+    private final DateTimeFormatter formatter;
+    private final ZoneId zone;
+    /** The length of the text before the seconds or {@code -1} if the fast path is not possible */
+    private final int prefixLength;
+    /** The position of the fraction relatively to the seconds or {@code -1} if there is no fraction */
+    private final int fractionOffset;
+    private final int fractionDigits;
+    private final int width;
+
+    private final char[] cachedPrefix;
+    private boolean cached;
+    private long cachedPrefixNanos;
+
+    public CachedTimestampParser(String pattern, ZoneId zone) {
+        Objects.requireNonNull(pattern, "'Pattern' parameter");
+        this.zone = Objects.requireNonNull(zone, "'Zone' parameter");
+        formatter = DateTimeFormatter.ofPattern(pattern).withZone(zone);
+        int secondsIndex = fastPathSecondsIndex(pattern);
+        prefixLength = secondsIndex;
+        width = pattern.length();
+        if (secondsIndex >= 0 && secondsIndex + 2 < pattern.length()) {
+            fractionOffset = 3;
+            fractionDigits = pattern.length() - secondsIndex - fractionOffset;
+        } else {
+            fractionOffset = -1;
+            fractionDigits = 0;
+        }
+        cachedPrefix = new char[Math.max(secondsIndex, 0)];
+    }
+
+    /**
+     * @return {@code true} if the pattern allows parsing only the seconds and fraction digits
+     */
+    public boolean isFast() {
+        return prefixLength >= 0;
+    }
+
+    /**
+     * @return the nanoseconds since the epoch or {@link #INVALID} if the text does not match the pattern
+     */
+    public long parse(CharSequence text, int start, int end) {
+        if (prefixLength < 0 || end - start != width) {
+            return parseSlow(text, start, end);
+        }
+        long seconds = digits(text, start + prefixLength, 2);
+        long fraction = fractionOffset < 0 ? 0 : digits(text, start + prefixLength + fractionOffset, fractionDigits);
+        if (seconds < 0 || seconds > 59 || fraction < 0) {
+            return INVALID;
+        }
+        long fractionNanos = fraction * pow10(MAX_FRACTION_DIGITS - fractionDigits);
+        long secondsNanos = TimeUnit.SECONDS.toNanos(seconds) + fractionNanos;
+        if (!cached || !prefixEquals(text, start)) {
+            long full = parseSlow(text, start, end);
+            if (full == INVALID) {
+                cached = false;
+                return INVALID;
+            }
+            for (int i = 0; i < prefixLength; i++) {
+                cachedPrefix[i] = text.charAt(start + i);
+            }
+            cachedPrefixNanos = full - secondsNanos;
+            cached = true;
+            return full;
+        }
+        return cachedPrefixNanos + secondsNanos;
+    }
+
+    /**
+     * Parses the timestamp that starts at the position. The text after the timestamp is ignored,
+     * so the width of the timestamp does not have to be known.
+     *
+     * @return the nanoseconds since the epoch or {@link #INVALID} if the text does not match the pattern
+     */
+    public long parseFrom(CharSequence text, int start) {
+        if (start < 0 || start > text.length()) {
+            return INVALID;
+        }
+        if (prefixLength >= 0) {
+            // the fast path patterns have neither quotes nor text fields, so the width of the text is the pattern length
+            return start + width > text.length() ? INVALID : parse(text, start, start + width);
+        }
+        try {
+            return toNanos(formatter.parse(text, new ParsePosition(start)));
+        } catch (DateTimeException | ArithmeticException e) {
+            return INVALID;
+        }
+    }
+
+    private long parseSlow(CharSequence text, int start, int end) {
+        try {
+            return toNanos(formatter.parse(text.subSequence(start, end)));
+        } catch (DateTimeException | ArithmeticException e) {
+            return INVALID;
+        }
+    }
+
+    private long toNanos(TemporalAccessor parsed) {
+        Instant instant = parsed.isSupported(ChronoField.INSTANT_SECONDS)
+                ? Instant.from(parsed)
+                : LocalDateTime.from(parsed).atZone(zone).toInstant();
+        return TimeUnit.SECONDS.toNanos(instant.getEpochSecond()) + instant.getNano();
+    }
+
+    private boolean prefixEquals(CharSequence text, int start) {
+        for (int i = prefixLength - 1; i >= 0; i--) {
+            // the minutes are at the end of the prefix and change most often
+            if (cachedPrefix[i] != text.charAt(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the position of the seconds in the pattern or {@code -1} if the pattern is not suitable for the fast path
+     */
+    static int fastPathSecondsIndex(String pattern) {
+        int secondsIndex = pattern.indexOf("ss");
+        if (secondsIndex < 0 || pattern.indexOf('s', secondsIndex + 2) >= 0 || pattern.lastIndexOf('s', secondsIndex - 1) >= 0) {
+            return -1;
+        }
+        // the prefix must have fixed width, so the letters must be numeric fields without the text forms
+        for (int i = 0; i < secondsIndex; i++) {
+            char c = pattern.charAt(i);
+            if (c == '\'' || (Character.isLetter(c) && FIXED_WIDTH_LETTERS.indexOf(c) < 0)) {
+                return -1;
+            }
+        }
+        if (!isFixedWidth(pattern, secondsIndex)) {
+            return -1;
+        }
+        int rest = pattern.length() - secondsIndex - 2;
+        if (rest == 0) {
+            return secondsIndex;
+        }
+        // the optional fraction after a single separator
+        char separator = pattern.charAt(secondsIndex + 2);
+        if (rest < 2 || rest - 1 > MAX_FRACTION_DIGITS || Character.isLetter(separator) || separator == '\'') {
+            return -1;
+        }
+        for (int i = secondsIndex + 3; i < pattern.length(); i++) {
+            if (pattern.charAt(i) != 'S') {
+                return -1;
+            }
+        }
+        return secondsIndex;
+    }
+
+    /**
+     * The numeric fields have fixed width if they are two letters long, or four letters long for the year
+     */
+    private static boolean isFixedWidth(String pattern, int end) {
+        int i = 0;
+        while (i < end) {
+            char c = pattern.charAt(i);
+            int run = 1;
+            while (i + run < end && pattern.charAt(i + run) == c) {
+                run++;
+            }
+            if (Character.isLetter(c) && !(run == 2 || (c == 'y' && run == 4))) {
+                return false;
+            }
+            i += run;
+        }
+        return true;
+    }
+
+    private static long digits(CharSequence text, int start, int count) {
+        long value = 0;
+        for (int i = start, end = start + count; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static long pow10(int exponent) {
+        long value = 1;
+        for (int i = 0; i < exponent; i++) {
+            value *= 10;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.readlog;
+
+import java.util.Objects;
+
+/**
+ * The position in the log file that was durably published and the sequence of the last message published from it.
+ *
+ * For the compressed files the offset is the position in the decompressed data. The checkpoint also refers to the compressed
+ * member containing that position, so the reading can be resumed from the member instead of the beginning of the file.
+ */
+public final class Checkpoint {
+    private final String fileId;
+    private final long offset;
+    private final long sequence;
+    private final long memberOffset;
+    private final long memberPosition;
+
+    public Checkpoint(String fileId, long offset, long sequence) {
+        this(fileId, offset, sequence, 0, 0);
+    }
+
+    /**
+     * @param memberOffset the offset of the compressed member containing the position in the compressed file
+     * @param memberPosition the position of the member's first byte in the decompressed data
+     */
+    public Checkpoint(String fileId, long offset, long sequence, long memberOffset, long memberPosition) {
+        this.fileId = Objects.requireNonNull(fileId, "'File id' parameter");
+        if (offset < 0) {
+            throw new IllegalArgumentException("'offset' must not be negative but was " + offset);
+        }
+        if (memberOffset < 0 || memberPosition < 0 || memberPosition > offset) {
+            throw new IllegalArgumentException("Invalid member offset " + memberOffset + " or position " + memberPosition
+                    + " for the offset " + offset);
+        }
+        this.offset = offset;
+        this.sequence = sequence;
+        this.memberOffset = memberOffset;
+        this.memberPosition = memberPosition;
+    }
+
+    /**
+     * @return the identity of the file the checkpoint belongs to. See {@link LogReader#getFileId()}
+     */
+    public String getFileId() {
+        return fileId;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public long getMemberOffset() {
+        return memberOffset;
+    }
+
+    public long getMemberPosition() {
+        return memberPosition;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        Checkpoint that = (Checkpoint)o;
+        return offset == that.offset
+                && sequence == that.sequence
+                && memberOffset == that.memberOffset
+                && memberPosition == that.memberPosition
+                && fileId.equals(that.fileId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(fileId, offset, sequence, memberOffset, memberPosition);
+    }
+
+    @Override
+    public String toString() {
+        return "Checkpoint{fileId='" + fileId + "', offset=" + offset + ", sequence=" + sequence
+                + (memberOffset == 0 && memberPosition == 0 ? "" : ", memberOffset=" + memberOffset + ", memberPosition=" + memberPosition)
+                + '}';
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.readlog;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.exactpro.th2.readlog.cfg.CheckpointSyncPolicy;
+
+import net.logstash.logback.argument.StructuredArguments;
+
+/**
+ * Stores the {@link Checkpoint} in a local file.
+ *
+ * The file contains two fixed-size slots that are written in turn. Each slot holds a generation number and a checksum,
+ * so a torn write damages only one slot and the previous checkpoint is still available in the other one.
+ * Both saving and loading take a constant time regardless of the number of saved checkpoints.
+ *
+ * The slot layout: magic, generation, offset, sequence, file id length, file id, member offset, member position, CRC32.
+ *
+ * With the {@link CheckpointSyncPolicy#INTERVAL} policy the saved checkpoint is synced by the next save after the interval
+ * or by the timer, so the last checkpoint is not left unsynced when the saving stops. The pending checkpoint is also synced on close.
+ *
+ * NOTE: This class is thread-safe
+ */
+public class CheckpointStore implements AutoCloseable {
+    static final int SLOT_SIZE = 512;
+    private static final int MAGIC = 0x7468324C; // 'th2L'
+    // magic + generation + offset + sequence + id length
+    private static final int HEADER_SIZE = Integer.BYTES + Long.BYTES * 3 + Short.BYTES;
+    // member offset + member position
+    private static final int MEMBER_SIZE = Long.BYTES * 2;
+    static final int MAX_FILE_ID_LENGTH = SLOT_SIZE - HEADER_SIZE - MEMBER_SIZE - Integer.BYTES;
+
+    private static final Logger logger = LoggerFactory.getLogger(CheckpointStore.class);
+
+    private final File file;
+    private final CheckpointSyncPolicy syncPolicy;
+    private final long syncIntervalNanos;
+    private final FileChannel channel;
+    private final ByteBuffer slot = ByteBuffer.allocate(SLOT_SIZE);
+    private final CRC32 crc = new CRC32();
+    private final ScheduledFuture<?> syncTask;
+
+    private long generation;
+    private long lastSyncTime = System.nanoTime();
+    private boolean synced = true;
+    private Checkpoint last;
+
+    public CheckpointStore(File file, CheckpointSyncPolicy syncPolicy, long syncIntervalMillis) throws IOException {
+        this(file, syncPolicy, syncIntervalMillis, null);
+    }
+
+    /**
+     * @param timer syncs the saved checkpoint once the interval passes with the {@link CheckpointSyncPolicy#INTERVAL} policy.
+     *              If it is {@code null} the checkpoint is synced only by the next save or on close
+     */
+    public CheckpointStore(File file, CheckpointSyncPolicy syncPolicy, long syncIntervalMillis, ScheduledExecutorService timer)
+            throws IOException {
+        this.file = Objects.requireNonNull(file, "'File' parameter");
+        this.syncPolicy = Objects.requireNonNull(syncPolicy, "'Sync policy' parameter");
+        if (syncPolicy == CheckpointSyncPolicy.INTERVAL && syncIntervalMillis <= 0) {
+            throw new IllegalArgumentException("'syncIntervalMillis' must be a positive integer but was " + syncIntervalMillis);
+        }
+        syncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(syncIntervalMillis);
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        last = readLatest();
+        syncTask = syncPolicy == CheckpointSyncPolicy.INTERVAL && timer != null
+                ? timer.scheduleWithFixedDelay(this::syncPending, syncIntervalMillis, syncIntervalMillis, TimeUnit.MILLISECONDS)
+                : null;
+        logger.info("Checkpoint store {} opened with {} sync policy. Last checkpoint: {}",
+                StructuredArguments.value("file", file), syncPolicy, last);
+    }
+
+    /**
+     * @return the last saved checkpoint or {@code null} if there is no valid checkpoint in the file
+     */
+    public synchronized Checkpoint load() {
+        return last;
+    }
+
+    public synchronized void save(Checkpoint checkpoint) throws IOException {
+        Objects.requireNonNull(checkpoint, "'Checkpoint' parameter");
+        if (checkpoint.equals(last)) {
+            return;
+        }
+        byte[] id = checkpoint.getFileId().getBytes(StandardCharsets.UTF_8);
+        if (id.length > MAX_FILE_ID_LENGTH) {
+            throw new IllegalArgumentException("File id must not be longer than " + MAX_FILE_ID_LENGTH + " bytes but was " + id.length);
+        }
+        long nextGeneration = generation + 1;
+
+        slot.clear();
+        slot.putInt(MAGIC)
+                .putLong(nextGeneration)
+                .putLong(checkpoint.getOffset())
+                .putLong(checkpoint.getSequence())
+                .putShort((short)id.length)
+                .put(id)
+                .putLong(checkpoint.getMemberOffset())
+                .putLong(checkpoint.getMemberPosition());
+        crc.reset();
+        crc.update(slot.array(), 0, slot.position());
+        slot.putInt((int)crc.getValue());
+        slot.flip();
+
+        long slotPosition = (nextGeneration % 2) * SLOT_SIZE;
+        while (slot.hasRemaining()) {
+            slotPosition += channel.write(slot, slotPosition);
+        }
+        generation = nextGeneration;
+        last = checkpoint;
+        synced = false;
+
+        if (syncPolicy == CheckpointSyncPolicy.BATCH
+                || (syncPolicy == CheckpointSyncPolicy.INTERVAL && System.nanoTime() - lastSyncTime >= syncIntervalNanos)) {
+            sync();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (syncTask != null) {
+            syncTask.cancel(false);
+        }
+        try {
+            if (syncPolicy != CheckpointSyncPolicy.NEVER && !synced) {
+                sync();
+            }
+        } finally {
+            channel.close();
+        }
+        logger.info("Checkpoint store {} closed. Last checkpoint: {}", StructuredArguments.value("file", file), last);
+    }
+
+    synchronized boolean isSynced() {
+        return synced;
+    }
+
+    private synchronized void syncPending() {
+        if (synced || !channel.isOpen()) {
+            return;
+        }
+        try {
+            sync();
+        } catch (IOException e) {
+            logger.error("Cannot sync checkpoint store {}", file, e);
+        }
+    }
+
+    private void sync() throws IOException {
+        channel.force(false);
+        lastSyncTime = System.nanoTime();
+        synced = true;
+    }
+
+    private Checkpoint readLatest() throws IOException {
+        Checkpoint result = null;
+        for (int index = 0; index < 2; index++) {
+            slot.clear();
+            long slotPosition = (long)index * SLOT_SIZE;
+            int read;
+            while (slot.hasRemaining() && (read = channel.read(slot, slotPosition)) > 0) {
+                slotPosition += read;
+            }
+            slot.flip();
+            long slotGeneration = readGeneration();
+            if (slotGeneration > generation) {
+                generation = slotGeneration;
+                result = readCheckpoint();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the generation of the slot in the buffer or {@code -1} if the slot is empty or damaged
+     */
+    private long readGeneration() {
+        if (slot.remaining() < HEADER_SIZE + Integer.BYTES || slot.getInt(0) != MAGIC) {
+            return -1;
+        }
+        int idLength = slot.getShort(HEADER_SIZE - Short.BYTES);
+        if (idLength < 0 || idLength > MAX_FILE_ID_LENGTH) {
+            return -1;
+        }
+        int crcPosition = HEADER_SIZE + idLength + MEMBER_SIZE;
+        if (slot.remaining() < crcPosition + Integer.BYTES) {
+            // the slot was cut by a torn write
+            return -1;
+        }
+        crc.reset();
+        crc.update(slot.array(), 0, crcPosition);
+        if (slot.getInt(crcPosition) != (int)crc.getValue()) {
+            logger.warn("Damaged checkpoint slot found in {}", file);
+            return -1;
+        }
+        return slot.getLong(Integer.BYTES);
+    }
+
+    private Checkpoint readCheckpoint() {
+        int idLength = slot.getShort(HEADER_SIZE - Short.BYTES);
+        String id = new String(slot.array(), HEADER_SIZE, idLength, StandardCharsets.UTF_8);
+        long offset = slot.getLong(Integer.BYTES + Long.BYTES);
+        long sequence = slot.getLong(Integer.BYTES + Long.BYTES * 2);
+        int memberStart = HEADER_SIZE + idLength;
+        return new Checkpoint(id, offset, sequence, slot.getLong(memberStart), slot.getLong(memberStart + Long.BYTES));
+    }
+}
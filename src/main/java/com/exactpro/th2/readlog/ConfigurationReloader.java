@@ -0,0 +1,128 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.readlog;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.exactpro.th2.readlog.cfg.LogReaderConfiguration;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Watches the custom configuration file and passes the changed configuration to the listener.
+ *
+ * The file is polled rather than watched by the {@link java.nio.file.WatchService} because the mounted configurations
+ * are usually replaced by switching a symbolic link, which does not produce events for the file itself.
+ * The content is compared with the last read one, so the same configuration is not passed twice.
+ * A configuration that cannot be read or is rejected by the listener is reported once, and the file is checked again after the next change.
+ */
+public class ConfigurationReloader implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(ConfigurationReloader.class);
+
+    private final Path file;
+    private final long intervalMillis;
+    private final Predicate<LogReaderConfiguration> listener;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "config-reloader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /** Accessed by the executor's thread only */
+    private byte[] content;
+
+    /**
+     * @param listener applies the new configuration and returns {@code false} if it is rejected
+     */
+    public ConfigurationReloader(Path file, long intervalMillis, Predicate<LogReaderConfiguration> listener) {
+        this.file = Objects.requireNonNull(file, "'File' parameter");
+        if (intervalMillis <= 0) {
+            throw new IllegalArgumentException("'intervalMillis' must be a positive integer but was " + intervalMillis);
+        }
+        this.intervalMillis = intervalMillis;
+        this.listener = Objects.requireNonNull(listener, "'Listener' parameter");
+    }
+
+    /**
+     * Starts watching the file. The current content is considered applied already
+     */
+    public ConfigurationReloader start() {
+        executor.execute(() -> {
+            try {
+                content = Files.readAllBytes(file);
+            } catch (IOException e) {
+                logger.warn("Cannot read configuration {}", file, e);
+            }
+        });
+        executor.scheduleWithFixedDelay(this::check, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        logger.info("Watching configuration {} for changes every {} ms", file, intervalMillis);
+        return this;
+    }
+
+    /**
+     * Reads the file and passes the configuration to the listener if the file is changed
+     *
+     * @return {@code true} if the changed configuration is accepted by the listener
+     */
+    boolean check() {
+        byte[] newContent;
+        try {
+            newContent = Files.readAllBytes(file);
+        } catch (NoSuchFileException e) {
+            // the file is being replaced
+            return false;
+        } catch (IOException e) {
+            logger.error("Cannot read configuration {}", file, e);
+            return false;
+        }
+        if (Arrays.equals(content, newContent)) {
+            return false;
+        }
+        content = newContent;
+        LogReaderConfiguration configuration;
+        try {
+            configuration = mapper.readValue(newContent, LogReaderConfiguration.class);
+        } catch (IOException e) {
+            logger.error("Cannot parse changed configuration {}, the current one stays active", file, e);
+            return false;
+        }
+        logger.info("Configuration {} changed", file);
+        try {
+            return listener.test(configuration);
+        } catch (RuntimeException e) {
+            logger.error("Cannot apply changed configuration {}", file, e);
+            return false;
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.readlog;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.exactpro.th2.readlog.LogPublisher.PublicationListener;
+import com.google.protobuf.ByteString;
+
+import net.logstash.logback.argument.StructuredArguments;
+
+/**
+ * Drops the messages that were already published recently, e.g. the lines read again after the rotation or the copytruncate.
+ *
+ * Each message is identified by the 64-bit xxHash of its content kept in the bounded {@link FingerprintWindow}.
+ * A message is dropped if its fingerprint was added by an earlier line. The fingerprints of a line are added when its position
+ * is marked, so the equal messages of the same line are all published.
+ *
+ * If the snapshot file is specified the window is saved to it periodically and on close and loaded on start, so the duplicates
+ * are dropped after restart too. The snapshot contains only the messages before the last position reported by the delegate
+ * as published: the messages that might be lost on crash are never in the snapshot, so they are published again after restart.
+ *
+ * The methods adding messages must not be called concurrently. The delegate notifies about the published positions from any thread.
+ */
+public class DeduplicatingPublisher implements MessagePublisher {
+    private static final Logger logger = LoggerFactory.getLogger(DeduplicatingPublisher.class);
+
+    private static final int MAGIC = 0x74683244; // 'th2D'
+    private static final long SEED = 0;
+    /** The minimal interval between the sampled positions used to find the published messages */
+    private static final long MARK_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final String sessionAlias;
+    private final MessagePublisher delegate;
+    private final FingerprintWindow window;
+    private final boolean timed;
+    private final ReaderMetrics metrics;
+    /** It is {@code null} if the window is not saved */
+    private final File snapshotFile;
+    private final long snapshotIntervalNanos;
+
+    private byte[] buffer = new byte[1024];
+    /** The fingerprints of the messages published since the last mark */
+    private long[] pending = new long[16];
+    private int pendingCount;
+    /** The serial number of the last added fingerprint */
+    private long serial;
+    private long lastMarkNanos;
+
+    /** The sampled positions that are not reported as published yet. Guarded by itself */
+    private final Deque<Mark> marks = new ArrayDeque<>();
+    /** The serial number of the last message known to be published */
+    private volatile long publishedSerial;
+    /** Guarded by marks */
+    private long savedSerial;
+    /** Guarded by marks */
+    private long lastSnapshotNanos;
+
+    /**
+     * @param maxMessages the maximum number of fingerprints in the window
+     * @param maxAgeMillis the maximum age of a fingerprint. If it is {@code 0} the age is not limited
+     * @param snapshotFile the file to save the window to. If it is {@code null} the window is not saved
+     * @param snapshotIntervalMillis the minimal interval between the snapshots
+     * @param metrics counts the dropped messages. If it is {@code null} the messages are not counted
+     * @param listener is notified each time the messages up to the marked position are published
+     * @param factory creates the publisher the messages are passed to
+     */
+    public DeduplicatingPublisher(String sessionAlias, int maxMessages, long maxAgeMillis, File snapshotFile, long snapshotIntervalMillis,
+                                  ReaderMetrics metrics, PublicationListener listener, DelegateFactory factory) throws IOException {
+        this.sessionAlias = Objects.requireNonNull(sessionAlias, "'Session alias' parameter");
+        Objects.requireNonNull(listener, "'Listener' parameter");
+        Objects.requireNonNull(factory, "'Factory' parameter");
+        if (snapshotIntervalMillis <= 0) {
+            throw new IllegalArgumentException("'snapshotIntervalMillis' must be a positive integer but was " + snapshotIntervalMillis);
+        }
+        window = new FingerprintWindow(maxMessages, maxAgeMillis);
+        timed = maxAgeMillis > 0;
+        this.metrics = metrics;
+        this.snapshotFile = snapshotFile;
+        snapshotIntervalNanos = TimeUnit.MILLISECONDS.toNanos(snapshotIntervalMillis);
+        // the first snapshot is saved once the first messages are published
+        lastSnapshotNanos = System.nanoTime() - snapshotIntervalNanos;
+        if (snapshotFile != null) {
+            load();
+        }
+        delegate = Objects.requireNonNull(factory.create((offset, sequence) -> {
+            listener.onPublished(offset, sequence);
+            onPublished(offset);
+        }), "'Delegate' publisher");
+    }
+
+    @Override
+    public boolean publish(ByteString message) throws IOException {
+        int size = message.size();
+        if (buffer.length < size) {
+            buffer = new byte[Math.max(size, buffer.length * 2)];
+        }
+        message.copyTo(buffer, 0);
+        long fingerprint = XxHash64.hash(buffer, 0, size, SEED);
+        if (window.contains(fingerprint, timed ? System.currentTimeMillis() : 0)) {
+            if (metrics != null) {
+                metrics.onDuplicates(1);
+            }
+            return false;
+        }
+        if (pendingCount == pending.length) {
+            pending = Arrays.copyOf(pending, pendingCount * 2);
+        }
+        pending[pendingCount++] = fingerprint;
+        return delegate.publish(message);
+    }
+
+    @Override
+    public void markPosition(long offset) throws IOException {
+        if (pendingCount > 0) {
+            long now = timed ? System.currentTimeMillis() : 0;
+            for (int i = 0; i < pendingCount; i++) {
+                window.add(pending[i], now, ++serial);
+            }
+            pendingCount = 0;
+            long nanos = System.nanoTime();
+            synchronized (marks) {
+                // the position is sampled to keep the queue short. The mark is added before the delegate can report it
+                if (marks.isEmpty() || nanos - lastMarkNanos >= MARK_INTERVAL_NANOS) {
+                    marks.addLast(new Mark(offset, serial));
+                    lastMarkNanos = nanos;
+                }
+            }
+        }
+        delegate.markPosition(offset);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        delegate.flush();
+    }
+
+    @Override
+    public boolean isBusy() {
+        return delegate.isBusy();
+    }
+
+    @Override
+    public void awaitSent() throws IOException {
+        delegate.awaitSent();
+    }
+
+    @Override
+    public void checkFailure() throws IOException {
+        delegate.checkFailure();
+    }
+
+    @Override
+    public void setBatchLimits(BatchLimits limits) {
+        delegate.setBatchLimits(limits);
+    }
+
+    /**
+     * Closes the delegate and saves the fingerprints of the published messages
+     */
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+        if (snapshotFile != null) {
+            synchronized (marks) {
+                // the delegate is closed after all messages are published
+                save(serial);
+            }
+        }
+        logger.info("Deduplication for {} stopped with {} fingerprint(s)", StructuredArguments.value("sessionAlias", sessionAlias),
+                window.size());
+    }
+
+    /**
+     * The positions reported by the delegate do not decrease until the source is switched to another file. The source is switched
+     * only after all its messages are published, so all marks of the previous file are removed by then
+     */
+    private void onPublished(long offset) throws IOException {
+        synchronized (marks) {
+            Mark mark;
+            while ((mark = marks.peekFirst()) != null && mark.offset <= offset) {
+                marks.removeFirst();
+                publishedSerial = mark.serial;
+            }
+            if (snapshotFile != null && publishedSerial > savedSerial && System.nanoTime() - lastSnapshotNanos >= snapshotIntervalNanos) {
+                save(publishedSerial);
+            }
+        }
+    }
+
+    private void save(long maxSerial) throws IOException {
+        Path file = snapshotFile.toPath();
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        int count;
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+                new CheckedOutputStream(Files.newOutputStream(temporary), crc)))) {
+            output.writeInt(MAGIC);
+            count = window.writeTo(output, maxSerial);
+            output.flush();
+            output.writeInt((int)crc.getValue());
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        savedSerial = maxSerial;
+        lastSnapshotNanos = System.nanoTime();
+        if (logger.isDebugEnabled()) {
+            logger.debug("Saved {} fingerprint(s) to {}", count, snapshotFile);
+        }
+    }
+
+    private void load() throws IOException {
+        if (!snapshotFile.exists()) {
+            logger.info("No deduplication snapshot found for {}", sessionAlias);
+            return;
+        }
+        byte[] data = Files.readAllBytes(snapshotFile.toPath());
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, Math.max(0, data.length - Integer.BYTES));
+        if (data.length < Integer.BYTES * 2 || ByteBuffer.wrap(data, data.length - Integer.BYTES, Integer.BYTES).getInt() != (int)crc.getValue()) {
+            logger.warn("Deduplication snapshot {} is damaged and ignored", snapshotFile);
+            return;
+        }
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(data, 0, data.length - Integer.BYTES))) {
+            if (input.readInt() != MAGIC) {
+                logger.warn("Deduplication snapshot {} has unknown format and is ignored", snapshotFile);
+                return;
+            }
+            int count = window.readFrom(input);
+            logger.info("Loaded {} fingerprint(s) from {}", count, StructuredArguments.value("file", snapshotFile));
+        }
+    }
+
+    /**
+     * Creates the publisher receiving the messages that are not duplicates
+     */
+    @FunctionalInterface
+    public interface DelegateFactory {
+        MessagePublisher create(PublicationListener listener) throws IOException;
+    }
+
+    private static class Mark {
+        private final long offset;
+        private final long serial;
+
+        private Mark(long offset, long serial) {
+            this.offset = offset;
+            this.serial = serial;
+        }
+    }
+}
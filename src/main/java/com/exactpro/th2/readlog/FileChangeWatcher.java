@@ -0,0 +1,160 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.readlog;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.logstash.logback.argument.StructuredArguments;
+
+/**
+ * Notifies the listeners about changes in the watched files.
+ *
+ * A single {@link WatchService} and a single thread serve all files. Some file systems do not deliver the events,
+ * so the listeners must not rely on the notifications only and should poll the files as well.
+ */
+public class FileChangeWatcher implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(FileChangeWatcher.class);
+
+    private final WatchService watchService;
+    private final Thread thread;
+    private final Map<Path, WatchKey> directories = new HashMap<>();
+    private final Map<Path, Runnable> listeners = new HashMap<>();
+
+    public FileChangeWatcher() {
+        watchService = createWatchService();
+        if (watchService == null) {
+            thread = null;
+        } else {
+            thread = new Thread(this::dispatch, "file-change-watcher");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Registers the listener that is called each time the file is created or modified.
+     * The listener is called from the watcher's thread and must not block.
+     */
+    public synchronized void register(Path file, Runnable listener) {
+        Objects.requireNonNull(listener, "'Listener' parameter");
+        Path absolute = Objects.requireNonNull(file, "'File' parameter").toAbsolutePath().normalize();
+        if (watchService == null) {
+            return;
+        }
+        Path directory = absolute.getParent();
+        if (!directories.containsKey(directory)) {
+            try {
+                directories.put(directory, directory.register(watchService, ENTRY_MODIFY, ENTRY_CREATE));
+            } catch (IOException | UnsupportedOperationException e) {
+                logger.warn("Cannot watch {} directory. Only polling will be used", StructuredArguments.value("directory", directory), e);
+                return;
+            }
+        }
+        listeners.put(absolute, listener);
+    }
+
+    public synchronized void unregister(Path file) {
+        Path absolute = Objects.requireNonNull(file, "'File' parameter").toAbsolutePath().normalize();
+        if (listeners.remove(absolute) == null) {
+            return;
+        }
+        Path directory = absolute.getParent();
+        if (listeners.keySet().stream().noneMatch(path -> directory.equals(path.getParent()))) {
+            WatchKey key = directories.remove(directory);
+            if (key != null) {
+                key.cancel();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
+
+    private void dispatch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                Path directory = (Path)key.watchable();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == OVERFLOW) {
+                        notifyDirectory(directory);
+                    } else {
+                        notifyFile(directory.resolve((Path)event.context()));
+                    }
+                }
+                key.reset();
+            }
+        } catch (ClosedWatchServiceException e) {
+            logger.info("File change watcher closed");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.info("File change watcher interrupted");
+        }
+    }
+
+    private void notifyFile(Path file) {
+        Runnable listener;
+        synchronized (this) {
+            listener = listeners.get(file);
+        }
+        if (listener != null) {
+            listener.run();
+        }
+    }
+
+    private void notifyDirectory(Path directory) {
+        Runnable[] toNotify;
+        synchronized (this) {
+            toNotify = listeners.entrySet().stream()
+                    .filter(entry -> directory.equals(entry.getKey().getParent()))
+                    .map(Map.Entry::getValue)
+                    .toArray(Runnable[]::new);
+        }
+        for (Runnable listener : toNotify) {
+            listener.run();
+        }
+    }
+
+    private static WatchService createWatchService() {
+        try {
+            return FileSystems.getDefault().newWatchService();
+        } catch (IOException | UnsupportedOperationException e) {
+            logger.warn("Cannot create watch service. Only polling will be used", e);
+            return null;
+        }
+    }
+}
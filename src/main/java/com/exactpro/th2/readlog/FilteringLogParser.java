@@ -0,0 +1,261 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.readlog;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.exactpro.th2.readlog.cfg.FilterConfiguration;
+
+import io.prometheus.client.Counter;
+
+/**
+ * Passes to the parser only the lines selected by the include and exclude rules.
+ * A line is passed if it matches any include rule (or there are no include rules) and does not match any exclude rule.
+ *
+ * All keywords are found by a single scan of the line with {@link AhoCorasick} automaton. The regular expressions are applied
+ * only if the keywords do not decide the line: the exclude expressions unless an exclude keyword is found,
+ * then the include expressions unless an include keyword is found.
+ *
+ * Each rule counts the lines it matched. The keywords are counted for every line, the expressions only when they are applied.
+ * The control characters of the rules (e.g. SOH of FIX messages) are escaped in the metric labels.
+ * The parser replaced on reload must be passed to {@link #removeMetrics(LogParser)}, so the rules that are gone are not exported.
+ *
+ * NOTE: This class is thread-safe
+ */
+public class FilteringLogParser implements LogParser {
+    public static final String RULE_LABEL = "rule";
+
+    private static final Logger logger = LoggerFactory.getLogger(FilteringLogParser.class);
+
+    private static final Counter RULE_MATCHES = Counter.build()
+            .name("th2_read_log_filter_rule_matches_total")
+            .help("The number of lines matched by the filter rule")
+            .labelNames(RULE_LABEL)
+            .register();
+
+    private final LogParser parser;
+    private final Charset charset;
+    private final boolean asciiCompatible;
+    private final AhoCorasick keywords;
+    /** {@code true} for the exclude keywords. The index is the keyword index in the automaton */
+    private final boolean[] excludeKeyword;
+    private final Counter.Child[] keywordMatches;
+    private final List<Pattern> excludeRegexps;
+    private final Counter.Child[] excludeRegexpMatches;
+    private final List<Pattern> includeRegexps;
+    private final Counter.Child[] includeRegexpMatches;
+    private final boolean hasIncludeRules;
+    /** The labels of the rule counters */
+    private final Set<String> ruleLabels = new LinkedHashSet<>();
+    private final ThreadLocal<LineState> lineStates;
+
+    public FilteringLogParser(LogParser parser, FilterConfiguration configuration, Charset charset) {
+        this.parser = Objects.requireNonNull(parser, "'Parser' parameter");
+        Objects.requireNonNull(configuration, "'Configuration' parameter");
+        this.charset = Objects.requireNonNull(charset, "'Charset' parameter");
+        asciiCompatible = StandardCharsets.ISO_8859_1.equals(charset) || StandardCharsets.US_ASCII.equals(charset)
+                || StandardCharsets.UTF_8.equals(charset);
+
+        List<String> includeKeywords = Objects.requireNonNull(configuration.getIncludeKeywords(), "'Include keywords' configuration");
+        List<String> excludeKeywords = Objects.requireNonNull(configuration.getExcludeKeywords(), "'Exclude keywords' configuration");
+        List<byte[]> keywordBytes = new ArrayList<>();
+        excludeKeyword = new boolean[includeKeywords.size() + excludeKeywords.size()];
+        for (String keyword : includeKeywords) {
+            keywordBytes.add(keywordBytes(keyword));
+        }
+        for (String keyword : excludeKeywords) {
+            excludeKeyword[keywordBytes.size()] = true;
+            keywordBytes.add(keywordBytes(keyword));
+        }
+        keywords = new AhoCorasick(keywordBytes);
+        excludeRegexps = compile(Objects.requireNonNull(configuration.getExcludeRegexps(), "'Exclude regexps' configuration"));
+        includeRegexps = compile(Objects.requireNonNull(configuration.getIncludeRegexps(), "'Include regexps' configuration"));
+
+        // the counters are created after the validation, so a rejected configuration leaves no metrics behind
+        Counter.Child[] includeKeywordMatches = counters("include-keyword:", includeKeywords);
+        Counter.Child[] excludeKeywordMatches = counters("exclude-keyword:", excludeKeywords);
+        keywordMatches = Arrays.copyOf(includeKeywordMatches, excludeKeyword.length);
+        System.arraycopy(excludeKeywordMatches, 0, keywordMatches, includeKeywordMatches.length, excludeKeywordMatches.length);
+        excludeRegexpMatches = counters("exclude-regexp:", configuration.getExcludeRegexps());
+        includeRegexpMatches = counters("include-regexp:", configuration.getIncludeRegexps());
+        hasIncludeRules = !includeKeywords.isEmpty() || !includeRegexps.isEmpty();
+        lineStates = ThreadLocal.withInitial(LineState::new);
+
+        logger.info("Lines are filtered by {} keyword(s) compiled into {} state(s) and {} regular expression(s)",
+                keywordBytes.size(), keywords.getStateCount(), excludeRegexps.size() + includeRegexps.size());
+    }
+
+    /**
+     * @return {@code true} if the configuration has no rules, so the lines do not need filtering
+     */
+    public static boolean isEmpty(FilterConfiguration configuration) {
+        return configuration == null || (configuration.getIncludeKeywords().isEmpty() && configuration.getIncludeRegexps().isEmpty()
+                && configuration.getExcludeKeywords().isEmpty() && configuration.getExcludeRegexps().isEmpty());
+    }
+
+    @Override
+    public int parse(byte[] raw, int offset, int length, GroupSink sink) {
+        return accept(raw, offset, length) ? parser.parse(raw, offset, length, sink) : 0;
+    }
+
+    /**
+     * @return {@code true} if the line is selected by the rules
+     */
+    boolean accept(byte[] raw, int offset, int length) {
+        LineState state = lineStates.get();
+        state.reset();
+        keywords.search(raw, offset, length, state);
+        if (!state.excluded && !excludeRegexps.isEmpty() && state.findAny(state.excludeMatchers, excludeRegexpMatches, raw, offset, length)) {
+            state.excluded = true;
+        }
+        if (state.excluded) {
+            return false;
+        }
+        if (!hasIncludeRules || state.included) {
+            return true;
+        }
+        return state.findAny(state.includeMatchers, includeRegexpMatches, raw, offset, length);
+    }
+
+    /**
+     * Removes the counters of the rules the replacement does not have. The counters of the remaining rules keep their values
+     *
+     * @param replacement the parser used instead of this one
+     */
+    public void removeMetrics(LogParser replacement) {
+        Set<String> kept = replacement instanceof FilteringLogParser ? ((FilteringLogParser)replacement).ruleLabels : Collections.emptySet();
+        for (String label : ruleLabels) {
+            if (!kept.contains(label)) {
+                RULE_MATCHES.remove(label);
+            }
+        }
+    }
+
+    /**
+     * @return the labels of the rule counters in the order of the rules
+     */
+    Set<String> getRuleLabels() {
+        return Collections.unmodifiableSet(ruleLabels);
+    }
+
+    private byte[] keywordBytes(String keyword) {
+        if (keyword == null || keyword.isEmpty()) {
+            throw new IllegalArgumentException("Filter keyword must not be empty");
+        }
+        return keyword.getBytes(charset);
+    }
+
+    private static List<Pattern> compile(List<String> regexps) {
+        List<Pattern> patterns = new ArrayList<>(regexps.size());
+        for (String regexp : regexps) {
+            patterns.add(Pattern.compile(Objects.requireNonNull(regexp, "Filter regexp")));
+        }
+        return patterns;
+    }
+
+    private Counter.Child[] counters(String prefix, List<String> rules) {
+        Counter.Child[] counters = new Counter.Child[rules.size()];
+        for (int i = 0; i < counters.length; i++) {
+            String label = prefix + escape(rules.get(i));
+            ruleLabels.add(label);
+            counters[i] = RULE_MATCHES.labels(label);
+        }
+        return counters;
+    }
+
+    /**
+     * Replaces the control and invisible formatting characters with the Java unicode escapes of their codes
+     */
+    static String escape(String rule) {
+        StringBuilder result = null;
+        for (int i = 0; i < rule.length(); i++) {
+            char c = rule.charAt(i);
+            if (Character.isISOControl(c) || Character.getType(c) == Character.FORMAT) {
+                if (result == null) {
+                    result = new StringBuilder(rule.length() + 8).append(rule, 0, i);
+                }
+                result.append(String.format("\\u%04X", (int)c));
+            } else if (result != null) {
+                result.append(c);
+            }
+        }
+        return result == null ? rule : result.toString();
+    }
+
+    /**
+     * The matching state of the line processed by a single thread
+     */
+    private class LineState implements AhoCorasick.MatchSink {
+        private final ByteCharSequence sequence = new ByteCharSequence();
+        /** The number of the line in which each keyword was last counted, so a keyword is counted once per line */
+        private final long[] countedIn = new long[excludeKeyword.length];
+        private final Matcher[] excludeMatchers = excludeRegexps.stream().map(pattern -> pattern.matcher("")).toArray(Matcher[]::new);
+        private final Matcher[] includeMatchers = includeRegexps.stream().map(pattern -> pattern.matcher("")).toArray(Matcher[]::new);
+        private long line;
+        private boolean excluded;
+        private boolean included;
+
+        private void reset() {
+            line++;
+            excluded = false;
+            included = false;
+        }
+
+        @Override
+        public void onMatch(int keyword) {
+            if (countedIn[keyword] == line) {
+                return;
+            }
+            countedIn[keyword] = line;
+            keywordMatches[keyword].inc();
+            if (excludeKeyword[keyword]) {
+                excluded = true;
+            } else {
+                included = true;
+            }
+        }
+
+        /**
+         * Applies the expressions in order until the first match and counts it
+         */
+        private boolean findAny(Matcher[] matchers, Counter.Child[] counters, byte[] raw, int offset, int length) {
+            CharSequence input = asciiCompatible && ByteCharSequence.isAscii(raw, offset, length)
+                    ? sequence.wrap(raw, offset, length)
+                    : new String(raw, offset, length, charset);
+            for (int i = 0; i < matchers.length; i++) {
+                if (matchers[i].reset(input).find()) {
+                    counters[i].inc();
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
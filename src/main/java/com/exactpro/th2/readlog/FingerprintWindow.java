@@ -0,0 +1,290 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.readlog;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+
+/**
+ * The bounded set of 64-bit fingerprints of the recently published records.
+ *
+ * The set is split into stripes by the high bits of the fingerprint. Each stripe is an open addressing table of primitive longs
+ * with a ring of its fingerprints in the insertion order, so neither the lookup nor the insertion allocates.
+ * A stripe is locked only for a single operation, so the snapshot written by another thread blocks the lookups of one stripe at a time.
+ *
+ * The window is limited by the number of fingerprints and optionally by their age. The oldest fingerprint of the stripe
+ * is evicted when the stripe is full, so the limit is exact for each stripe and approximate for the whole set.
+ *
+ * Each fingerprint is stored with the serial number of its record. The snapshot contains only the records up to the specified
+ * serial number, i.e. the records that are already published.
+ *
+ * NOTE: This class is thread-safe
+ */
+final class FingerprintWindow {
+    /** Marks the free slot of the table. The fingerprint equal to it is replaced with {@link #ZERO_REPLACEMENT} */
+    private static final long FREE = 0;
+    private static final long ZERO_REPLACEMENT = 1;
+    private static final int STRIPES = 16;
+    private static final int STRIPE_SHIFT = Long.SIZE - Integer.numberOfTrailingZeros(STRIPES);
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final long maxAgeMillis;
+
+    /**
+     * @param maxRecords the maximum number of fingerprints
+     * @param maxAgeMillis the maximum age of a fingerprint. If it is {@code 0} the age is not limited
+     */
+    FingerprintWindow(int maxRecords, long maxAgeMillis) {
+        if (maxRecords <= 0) {
+            throw new IllegalArgumentException("'maxRecords' must be a positive integer but was " + maxRecords);
+        }
+        if (maxAgeMillis < 0) {
+            throw new IllegalArgumentException("'maxAgeMillis' must not be negative but was " + maxAgeMillis);
+        }
+        this.maxAgeMillis = maxAgeMillis;
+        int stripeCapacity = Math.max(1, (maxRecords + STRIPES - 1) / STRIPES);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(stripeCapacity);
+        }
+    }
+
+    /**
+     * @param nowMillis the current time. It is ignored if the age is not limited
+     * @return {@code true} if the fingerprint is in the window
+     */
+    boolean contains(long fingerprint, long nowMillis) {
+        long key = key(fingerprint);
+        Stripe stripe = stripe(key);
+        synchronized (stripe) {
+            stripe.expire(nowMillis - maxAgeMillis);
+            return stripe.indexOf(key) >= 0;
+        }
+    }
+
+    /**
+     * Adds the fingerprint if it is not in the window yet. The oldest fingerprint of the stripe is evicted if the stripe is full
+     *
+     * @param serial the serial number of the record. It must not decrease between the calls
+     */
+    void add(long fingerprint, long nowMillis, long serial) {
+        long key = key(fingerprint);
+        Stripe stripe = stripe(key);
+        synchronized (stripe) {
+            stripe.expire(nowMillis - maxAgeMillis);
+            stripe.add(key, nowMillis, serial);
+        }
+    }
+
+    int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Writes the fingerprints of the records up to the serial number inclusive: the number of fingerprints of each stripe
+     * followed by the fingerprints and their times in the insertion order
+     *
+     * @return the number of written fingerprints
+     */
+    int writeTo(DataOutputStream output, long maxSerial) throws IOException {
+        int written = 0;
+        output.writeInt(STRIPES);
+        for (Stripe stripe : stripes) {
+            long[] keys;
+            long[] times;
+            int count;
+            synchronized (stripe) {
+                count = stripe.countUpTo(maxSerial);
+                keys = new long[count];
+                times = new long[count];
+                stripe.copyTo(keys, times, count);
+            }
+            output.writeInt(count);
+            for (int i = 0; i < count; i++) {
+                output.writeLong(keys[i]);
+                output.writeLong(times[i]);
+            }
+            written += count;
+        }
+        return written;
+    }
+
+    /**
+     * Adds the fingerprints written by {@link #writeTo(DataOutputStream, long)}. The restored fingerprints get the serial number 0
+     *
+     * @return the number of the fingerprints read
+     */
+    int readFrom(DataInputStream input) throws IOException {
+        int stripeCount = input.readInt();
+        if (stripeCount != STRIPES) {
+            throw new IOException("Snapshot has " + stripeCount + " stripes instead of " + STRIPES);
+        }
+        int read = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            int count = input.readInt();
+            if (count < 0) {
+                throw new EOFException("Negative number of fingerprints " + count);
+            }
+            for (int j = 0; j < count; j++) {
+                long key = input.readLong();
+                long time = input.readLong();
+                Stripe stripe = stripe(key);
+                synchronized (stripe) {
+                    stripe.add(key, time, 0);
+                }
+                read++;
+            }
+        }
+        return read;
+    }
+
+    private Stripe stripe(long key) {
+        return stripes[(int)(key >>> STRIPE_SHIFT)];
+    }
+
+    private static long key(long fingerprint) {
+        return fingerprint == FREE ? ZERO_REPLACEMENT : fingerprint;
+    }
+
+    private final class Stripe {
+        /** The open addressing table with linear probing. The size is a power of two at least twice the capacity */
+        private final long[] table;
+        private final int mask;
+        /** The ring of the keys, their times and serial numbers in the insertion order */
+        private final long[] ringKeys;
+        private final long[] ringTimes;
+        private final long[] ringSerials;
+        private int head;
+        private int size;
+
+        private Stripe(int capacity) {
+            int tableSize = Integer.highestOneBit(Math.max(2, capacity * 2 - 1)) << 1;
+            table = new long[tableSize];
+            mask = tableSize - 1;
+            ringKeys = new long[capacity];
+            ringTimes = new long[capacity];
+            ringSerials = new long[capacity];
+        }
+
+        private int indexOf(long key) {
+            int index = slot(key);
+            long current;
+            while ((current = table[index]) != FREE) {
+                if (current == key) {
+                    return index;
+                }
+                index = (index + 1) & mask;
+            }
+            return -1;
+        }
+
+        private void add(long key, long time, long serial) {
+            int index = slot(key);
+            long current;
+            while ((current = table[index]) != FREE) {
+                if (current == key) {
+                    return;
+                }
+                index = (index + 1) & mask;
+            }
+            if (size == ringKeys.length) {
+                evictOldest();
+                // the eviction might have moved the keys, so the free slot is searched again
+                index = slot(key);
+                while (table[index] != FREE) {
+                    index = (index + 1) & mask;
+                }
+            }
+            table[index] = key;
+            int tail = (head + size) % ringKeys.length;
+            ringKeys[tail] = key;
+            ringTimes[tail] = time;
+            ringSerials[tail] = serial;
+            size++;
+        }
+
+        private void expire(long minTime) {
+            if (maxAgeMillis == 0) {
+                return;
+            }
+            while (size > 0 && ringTimes[head] < minTime) {
+                evictOldest();
+            }
+        }
+
+        private void evictOldest() {
+            remove(ringKeys[head]);
+            head = (head + 1) % ringKeys.length;
+            size--;
+        }
+
+        /**
+         * Removes the key with the backward shift, so the table stays without tombstones
+         */
+        private void remove(long key) {
+            int index = indexOf(key);
+            if (index < 0) {
+                return;
+            }
+            int next = index;
+            while (true) {
+                next = (next + 1) & mask;
+                long current = table[next];
+                if (current == FREE) {
+                    break;
+                }
+                int home = slot(current);
+                // the key stays if its home slot is cyclically between the free slot and its current slot
+                boolean stays = index <= next ? index < home && home <= next : index < home || home <= next;
+                if (!stays) {
+                    table[index] = current;
+                    index = next;
+                }
+            }
+            table[index] = FREE;
+        }
+
+        private int countUpTo(long maxSerial) {
+            int count = 0;
+            while (count < size && ringSerials[(head + count) % ringKeys.length] <= maxSerial) {
+                count++;
+            }
+            return count;
+        }
+
+        private void copyTo(long[] keys, long[] times, int count) {
+            for (int i = 0; i < count; i++) {
+                int index = (head + i) % ringKeys.length;
+                keys[i] = ringKeys[index];
+                times[i] = ringTimes[index];
+            }
+        }
+
+        private int slot(long key) {
+            // the high bits select the stripe, so the low bits are mixed to select the slot
+            long mixed = key * 0x9E3779B97F4A7C15L;
+            return (int)(mixed >>> 32) & mask;
+        }
+    }
+}
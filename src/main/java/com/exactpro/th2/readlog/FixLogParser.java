@@ -0,0 +1,231 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.readlog;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Objects;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.logstash.logback.argument.StructuredArguments;
+
+/**
+ * Extracts the FIX messages from the log records without regular expressions.
+ *
+ * A message starts with the {@code 8=FIX} field and ends with the delimiter after the {@code 10} (CheckSum) field.
+ * The record is scanned once: the fields are walked through byte by byte and the values are not copied,
+ * only the whole messages are passed to the sink. Several messages in a record are supported.
+ *
+ * The messages can be filtered by the {@code 35} (MsgType) field.
+ * If the validation is enabled the messages with the wrong {@code 9} (BodyLength) or {@code 10} (CheckSum) are skipped.
+ */
+public class FixLogParser implements LogParser {
+    public static final byte SOH = 0x01;
+
+    private static final Logger logger = LoggerFactory.getLogger(FixLogParser.class);
+    private static final byte[] BEGIN_STRING = "8=FIX".getBytes(StandardCharsets.US_ASCII);
+    private static final int BODY_LENGTH_TAG = 9;
+    private static final int MSG_TYPE_TAG = 35;
+    private static final int CHECKSUM_TAG = 10;
+    private static final int CHECKSUM_LENGTH = 3;
+    private static final int INCOMPLETE = 0;
+    private static final int MALFORMED = -1;
+
+    private final byte delimiter;
+    private final byte[][] messageTypes;
+    private final boolean validate;
+
+    public FixLogParser() {
+        this(SOH, Collections.emptyList(), false);
+    }
+
+    /**
+     * @param delimiter the delimiter of the fields
+     * @param messageTypes the values of the {@code 35} field to extract. All messages are extracted if it is empty
+     * @param validate whether {@code 9} and {@code 10} fields are checked
+     */
+    public FixLogParser(byte delimiter, Collection<String> messageTypes, boolean validate) {
+        this.delimiter = delimiter;
+        this.messageTypes = Objects.requireNonNull(messageTypes, "'Message types' parameter").stream()
+                .map(type -> type.getBytes(StandardCharsets.US_ASCII))
+                .toArray(byte[][]::new);
+        this.validate = validate;
+        logger.info("FIX messages with types {} are extracted. Validation is {}",
+                messageTypes.isEmpty() ? "any" : messageTypes, validate ? "enabled" : "disabled");
+    }
+
+    @Override
+    public int parse(byte[] raw, int offset, int length, GroupSink sink) {
+        int end = offset + length;
+        int count = 0;
+        int position = offset;
+        while ((position = findBeginString(raw, position, offset, end)) >= 0) {
+            int result = scanMessage(raw, position, end);
+            if (result == INCOMPLETE) {
+                // the record ends inside the message
+                break;
+            }
+            if (result == MALFORMED) {
+                // another message may start inside the broken one
+                position++;
+            } else if (result < 0) {
+                position = -result;
+            } else {
+                sink.accept(raw, position, result - position);
+                count++;
+                position = result;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Walks through the fields of the message starting at the {@code start} position.
+     *
+     * @return the position after the message if it must be extracted, {@link #INCOMPLETE} if the record ends before the message does,
+     * {@link #MALFORMED} if the message is broken, or the negated position after the message if it is filtered out or invalid
+     */
+    private int scanMessage(byte[] raw, int start, int end) {
+        int checksum = 0;
+        int bodyStart = -1;
+        int bodyLength = -1;
+        boolean typeAccepted = messageTypes.length == 0;
+        int fieldIndex = 0;
+        int position = start;
+        while (position < end) {
+            int fieldStart = position;
+            int fieldSum = 0;
+            int tag = 0;
+            byte b;
+            while ((b = raw[position]) != '=') {
+                if (b < '0' || b > '9') {
+                    return MALFORMED;
+                }
+                tag = tag * 10 + (b - '0');
+                fieldSum += b;
+                if (++position == end) {
+                    return INCOMPLETE;
+                }
+            }
+            fieldSum += b;
+            int valueStart = ++position;
+            while (position < end && (b = raw[position]) != delimiter) {
+                fieldSum += b & 0xFF;
+                position++;
+            }
+            if (position == end) {
+                return INCOMPLETE;
+            }
+            int valueEnd = position++;
+
+            if (tag == CHECKSUM_TAG) {
+                if (fieldIndex < 3) {
+                    return MALFORMED;
+                }
+                if (!typeAccepted || (validate && !isValid(raw, start, bodyStart, bodyLength, fieldStart, checksum, valueStart, valueEnd))) {
+                    return -position;
+                }
+                return position;
+            }
+            checksum += fieldSum + (delimiter & 0xFF);
+            if (fieldIndex == 1) {
+                if (tag != BODY_LENGTH_TAG) {
+                    return MALFORMED;
+                }
+                bodyLength = parseInt(raw, valueStart, valueEnd);
+                bodyStart = position;
+            } else if (fieldIndex == 2) {
+                if (tag != MSG_TYPE_TAG) {
+                    return MALFORMED;
+                }
+                typeAccepted = typeAccepted || isAcceptedType(raw, valueStart, valueEnd - valueStart);
+            }
+            fieldIndex++;
+        }
+        return INCOMPLETE;
+    }
+
+    private boolean isValid(byte[] raw, int start, int bodyStart, int bodyLength, int checksumStart, int checksum,
+                            int valueStart, int valueEnd) {
+        int actualLength = checksumStart - bodyStart;
+        if (actualLength != bodyLength) {
+            if (logger.isWarnEnabled()) {
+                logger.warn("FIX message with wrong body length {} (actual {}) skipped: {}", bodyLength, actualLength,
+                        StructuredArguments.value("message", new String(raw, start, valueEnd - start, StandardCharsets.US_ASCII)));
+            }
+            return false;
+        }
+        int expected = valueEnd - valueStart == CHECKSUM_LENGTH ? parseInt(raw, valueStart, valueEnd) : -1;
+        if (expected != (checksum & 0xFF)) {
+            if (logger.isWarnEnabled()) {
+                logger.warn("FIX message with wrong checksum {} (actual {}) skipped: {}", expected, checksum & 0xFF,
+                        StructuredArguments.value("message", new String(raw, start, valueEnd - start, StandardCharsets.US_ASCII)));
+            }
+            return false;
+        }
+        return true;
+    }
+
+    private boolean isAcceptedType(byte[] raw, int offset, int length) {
+        for (byte[] type : messageTypes) {
+            if (type.length == length && LiteralPrefilter.indexOf(raw, offset, length, type) == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the position of the {@code 8=FIX} that is not a part of another tag or {@code -1}
+     */
+    private static int findBeginString(byte[] raw, int from, int recordStart, int end) {
+        int position = from;
+        while (position < end) {
+            int index = LiteralPrefilter.indexOf(raw, position, end - position, BEGIN_STRING);
+            if (index < 0) {
+                return -1;
+            }
+            int found = position + index;
+            if (found == recordStart || raw[found - 1] < '0' || raw[found - 1] > '9') {
+                return found;
+            }
+            position = found + 1;
+        }
+        return -1;
+    }
+
+    /**
+     * @return the non-negative integer or {@code -1} if the value is not a number
+     */
+    private static int parseInt(byte[] raw, int from, int to) {
+        if (from == to || to - from > 9) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            byte b = raw[i];
+            if (b < '0' || b > '9') {
+                return -1;
+            }
+            value = value * 10 + (b - '0');
+        }
+        return value;
+    }
+}
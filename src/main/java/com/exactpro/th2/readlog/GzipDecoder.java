@@ -0,0 +1,289 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.readlog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Objects;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Decompresses the gzip file read from the channel, including the files made of several concatenated members.
+ *
+ * Unlike {@link java.util.zip.GZIPInputStream} the decoder reports where each member starts in the compressed file,
+ * so the reading can be resumed from the member containing the position instead of the beginning of the file.
+ * The decoder does not fail when the end of the file is reached in the middle of a member: it returns no data
+ * and continues when the file grows.
+ *
+ * NOTE: This class is not thread-safe
+ */
+final class GzipDecoder {
+    private static final Logger logger = LoggerFactory.getLogger(GzipDecoder.class);
+
+    private static final int HEADER_SIZE = 10;
+    private static final int TRAILER_SIZE = 8;
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+    /** {@link #headerLength()} result if there are not enough bytes in the buffer */
+    private static final int INCOMPLETE = -1;
+    /** {@link #headerLength()} result if the buffer does not start with a gzip header */
+    private static final int NOT_GZIP = -2;
+
+    private final FileChannel channel;
+    private final ByteBuffer input;
+    private final Inflater inflater = new Inflater(true);
+    private final CRC32 crc = new CRC32();
+    private final MemberListener listener;
+
+    private State state;
+    /** The offset in the file of the next byte to read into the input buffer */
+    private long channelPosition;
+    /** The number of decompressed bytes since the beginning of the file */
+    private long position;
+    private long memberSize;
+    private int members;
+
+    /**
+     * @param listener is notified when a member starts
+     */
+    GzipDecoder(FileChannel channel, int bufferSize, MemberListener listener) {
+        this.channel = Objects.requireNonNull(channel, "'Channel' parameter");
+        this.listener = Objects.requireNonNull(listener, "'Listener' parameter");
+        input = ByteBuffer.allocate(bufferSize);
+        reset(0, 0);
+    }
+
+    /**
+     * Starts decoding from the member at the specified offset
+     *
+     * @param position the position of the member's first byte in the decompressed data
+     */
+    void reset(long memberOffset, long position) {
+        channelPosition = memberOffset;
+        this.position = position;
+        input.clear().flip();
+        inflater.reset();
+        crc.reset();
+        memberSize = 0;
+        members = 0;
+        state = State.HEADER;
+    }
+
+    /**
+     * @return the number of bytes read from the file so far
+     */
+    long getChannelPosition() {
+        return channelPosition;
+    }
+
+    /**
+     * Decompresses the next bytes.
+     *
+     * @return the number of decompressed bytes or {@code 0} if the rest of the file is not written yet
+     */
+    int read(byte[] destination, int offset, int length) throws IOException {
+        while (true) {
+            switch (state) {
+            case HEADER:
+                if (!readHeader()) {
+                    return 0;
+                }
+                break;
+            case DATA:
+                if (inflater.needsInput()) {
+                    if (!input.hasRemaining() && fill() <= 0) {
+                        return 0;
+                    }
+                    inflater.setInput(input.array(), input.position(), input.remaining());
+                    input.position(input.limit());
+                }
+                int inflated = inflate(destination, offset, length);
+                if (inflated > 0) {
+                    crc.update(destination, offset, inflated);
+                    memberSize += inflated;
+                    position += inflated;
+                    return inflated;
+                }
+                if (inflater.finished()) {
+                    // the bytes after the end of the deflate stream belong to the trailer and the next members
+                    input.position(input.limit() - inflater.getRemaining());
+                    state = State.TRAILER;
+                } else if (inflater.needsDictionary()) {
+                    throw new IOException("Gzip member at the position " + position + " requires a preset dictionary");
+                }
+                break;
+            case TRAILER:
+                if (!readTrailer()) {
+                    return 0;
+                }
+                break;
+            default:
+                return 0;
+            }
+        }
+    }
+
+    private int inflate(byte[] destination, int offset, int length) throws IOException {
+        try {
+            return inflater.inflate(destination, offset, length);
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupted gzip data at the decompressed position " + position, e);
+        }
+    }
+
+    private boolean readHeader() throws IOException {
+        while (true) {
+            int length = headerLength();
+            if (length == NOT_GZIP) {
+                if (members == 0) {
+                    throw new IOException("Not in gzip format");
+                }
+                // the same as GZIPInputStream: the trailing garbage is ignored
+                logger.warn("Unexpected bytes after gzip member at the offset {} are ignored", channelPosition - input.remaining());
+                state = State.END;
+                return false;
+            }
+            if (length != INCOMPLETE) {
+                long memberOffset = channelPosition - input.remaining();
+                input.position(input.position() + length);
+                members++;
+                listener.onMember(memberOffset, position);
+                state = State.DATA;
+                return true;
+            }
+            if (input.remaining() == input.capacity()) {
+                throw new IOException("Gzip header is longer than the buffer of " + input.capacity() + " bytes");
+            }
+            if (fill() <= 0) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * @return the length of the header at the beginning of the buffer, {@link #INCOMPLETE} or {@link #NOT_GZIP}
+     */
+    private int headerLength() throws IOException {
+        int start = input.position();
+        int available = input.remaining();
+        if (available < 2) {
+            return available == 1 && (input.get(start) & 0xFF) != 0x1F ? NOT_GZIP : INCOMPLETE;
+        }
+        if ((input.get(start) & 0xFF) != 0x1F || (input.get(start + 1) & 0xFF) != 0x8B) {
+            return NOT_GZIP;
+        }
+        if (available < HEADER_SIZE) {
+            return INCOMPLETE;
+        }
+        if (input.get(start + 2) != 8) {
+            throw new IOException("Unsupported gzip compression method " + input.get(start + 2));
+        }
+        int flags = input.get(start + 3) & 0xFF;
+        int length = HEADER_SIZE;
+        if ((flags & FEXTRA) != 0) {
+            if (available < length + 2) {
+                return INCOMPLETE;
+            }
+            length += 2 + ((input.get(start + length) & 0xFF) | (input.get(start + length + 1) & 0xFF) << 8);
+        }
+        if ((flags & FNAME) != 0 && (length = skipString(start, length, available)) < 0) {
+            return INCOMPLETE;
+        }
+        if ((flags & FCOMMENT) != 0 && (length = skipString(start, length, available)) < 0) {
+            return INCOMPLETE;
+        }
+        if ((flags & FHCRC) != 0) {
+            length += 2;
+        }
+        return available < length ? INCOMPLETE : length;
+    }
+
+    /**
+     * @return the length of the header after the zero-terminated string or {@link #INCOMPLETE}
+     */
+    private int skipString(int start, int length, int available) {
+        int end = length;
+        while (end < available) {
+            if (input.get(start + end++) == 0) {
+                return end;
+            }
+        }
+        return INCOMPLETE;
+    }
+
+    private boolean readTrailer() throws IOException {
+        while (input.remaining() < TRAILER_SIZE) {
+            if (fill() <= 0) {
+                return false;
+            }
+        }
+        long expectedCrc = readIntLE() & 0xFFFF_FFFFL;
+        long expectedSize = readIntLE() & 0xFFFF_FFFFL;
+        if (expectedCrc != crc.getValue() || expectedSize != (memberSize & 0xFFFF_FFFFL)) {
+            throw new IOException("Corrupted gzip member ending at the decompressed position " + position);
+        }
+        inflater.reset();
+        crc.reset();
+        memberSize = 0;
+        state = State.HEADER;
+        return true;
+    }
+
+    private int readIntLE() {
+        return (input.get() & 0xFF) | (input.get() & 0xFF) << 8 | (input.get() & 0xFF) << 16 | (input.get() & 0xFF) << 24;
+    }
+
+    /**
+     * Reads the next bytes from the file keeping the unread ones
+     *
+     * @return the number of bytes read
+     */
+    private int fill() throws IOException {
+        input.compact();
+        int read = channel.read(input, channelPosition);
+        input.flip();
+        if (read > 0) {
+            channelPosition += read;
+        }
+        return read;
+    }
+
+    private enum State {
+        HEADER,
+        DATA,
+        TRAILER,
+        /** The rest of the file is not gzip data */
+        END
+    }
+
+    @FunctionalInterface
+    interface MemberListener {
+        /**
+         * @param offset the offset of the member in the compressed file
+         * @param position the position of the member's first byte in the decompressed data
+         */
+        void onMember(long offset, long position);
+    }
+}
@@ -0,0 +1,418 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.readlog;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.logstash.logback.argument.StructuredArguments;
+
+/**
+ * The sparse index of the line numbers of a plain log file. It keeps the offset of every N-th line,
+ * so the offset of any line or the number of the line at any offset is found by reading at most N lines.
+ *
+ * The index is extended incrementally: only the bytes appended after the last indexed line are scanned,
+ * and the lines read by the {@link LogReader} one by one are indexed without scanning them again.
+ *
+ * The index can be stored in a sidecar file and reused after restart. The file contains the header
+ * (magic, interval, file id length, file id, head length, CRC32 of the head of the log file) followed by the offsets.
+ * The offsets are only appended, so the index costs a single write per N lines. The stored index is discarded
+ * if it belongs to another file, the head of the log file has changed or the file is shorter than the last offset.
+ *
+ * NOTE: This class is not thread-safe
+ */
+public class LineIndex implements AutoCloseable {
+    public static final int DEFAULT_INTERVAL = 1_000;
+    private static final int MAGIC = 0x74683249; // 'th2I'
+    /** The number of bytes at the beginning of the log file that are compared to detect that the file was rewritten */
+    private static final int HEAD_SIZE = 256;
+    private static final int MAX_FILE_ID_LENGTH = 1024;
+    private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+    private static final byte LF = '\n';
+
+    private static final Logger logger = LoggerFactory.getLogger(LineIndex.class);
+
+    /** The sidecar file. It is {@code null} if the index is kept in memory only */
+    private final File file;
+    private final FileChannel storage;
+    private final int interval;
+    private final ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+    private final ByteBuffer entry = ByteBuffer.allocate(Long.BYTES);
+    /** Reads the head of the log file. Separate from {@link #buffer} because the header is written while the lines are scanned */
+    private final ByteBuffer head = ByteBuffer.allocate(HEAD_SIZE);
+
+    private FileChannel channel;
+    private String fileId;
+    /** The offset of the line {@code i * interval} at the index {@code i}. The offset of the line 0 is always 0 */
+    private long[] offsets = new long[16];
+    private int entries = 1;
+    /** The number of the complete lines before {@link #indexedOffset} */
+    private long lines;
+    /** The offset right after the last indexed line */
+    private long indexedOffset;
+    /** The number of entries in the sidecar file. It is {@code 0} if the header is not written yet */
+    private int storedEntries;
+    /** The position in the sidecar file to append the next entry to */
+    private long storagePosition;
+
+    /**
+     * Creates the index kept in memory only
+     */
+    public LineIndex(int interval) throws IOException {
+        this(null, interval);
+    }
+
+    /**
+     * @param file the sidecar file to store the index in. If it is {@code null} the index is kept in memory only
+     * @param interval the number of lines between the indexed offsets
+     */
+    public LineIndex(File file, int interval) throws IOException {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("'interval' must be a positive integer but was " + interval);
+        }
+        this.file = file;
+        this.interval = interval;
+        storage = file == null ? null
+                : FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Attaches the index to the opened log file. The stored index is loaded if it belongs to the same file
+     */
+    public void open(FileChannel channel, String fileId) throws IOException {
+        this.channel = Objects.requireNonNull(channel, "'Channel' parameter");
+        this.fileId = Objects.requireNonNull(fileId, "'File id' parameter");
+        reset();
+        if (storage != null && load()) {
+            logger.info("Line index {} loaded with {} lines", StructuredArguments.value("file", file), lines);
+        }
+    }
+
+    public int getInterval() {
+        return interval;
+    }
+
+    /**
+     * @return the number of complete lines in the file
+     */
+    public long getLineCount() throws IOException {
+        extend(Long.MAX_VALUE, Long.MAX_VALUE);
+        return lines;
+    }
+
+    /**
+     * @return the offset of the beginning of the line or {@code -1} if the file has less complete lines.
+     * The number of the first line is 0
+     */
+    public long getLineOffset(long lineNumber) throws IOException {
+        if (lineNumber < 0) {
+            throw new IllegalArgumentException("Line number must not be negative but was " + lineNumber);
+        }
+        extend(lineNumber, Long.MAX_VALUE);
+        if (lineNumber > lines) {
+            return -1;
+        }
+        if (lineNumber == lines) {
+            return indexedOffset;
+        }
+        int index = (int)(lineNumber / interval);
+        return skipLines(offsets[index], lineNumber - (long)index * interval);
+    }
+
+    /**
+     * @param offset the offset of the beginning of a line
+     * @return the number of complete lines before the offset or {@code -1} if the offset is beyond the last complete line
+     */
+    public long getLineNumber(long offset) throws IOException {
+        if (offset < 0) {
+            throw new IllegalArgumentException("Offset must not be negative but was " + offset);
+        }
+        extend(Long.MAX_VALUE, offset);
+        if (offset > indexedOffset) {
+            return -1;
+        }
+        if (offset == indexedOffset) {
+            return lines;
+        }
+        int index = Arrays.binarySearch(offsets, 0, entries, offset);
+        if (index >= 0) {
+            return (long)index * interval;
+        }
+        index = -index - 2;
+        return (long)index * interval + countLines(offsets[index], offset);
+    }
+
+    /**
+     * Indexes the line read by the reader if it follows the last indexed line, so the sequentially read lines are not scanned again
+     *
+     * @param start the offset of the beginning of the line
+     * @param end the offset right after the line terminator
+     */
+    public void onLine(long start, long end) throws IOException {
+        if (start != indexedOffset || end <= start) {
+            return;
+        }
+        lines++;
+        indexedOffset = end;
+        if (lines % interval == 0) {
+            addEntry(end);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (storage != null) {
+            storage.close();
+            logger.info("Line index {} closed with {} lines", StructuredArguments.value("file", file), lines);
+        }
+    }
+
+    /**
+     * Scans the lines after the last indexed one until the line number or the offset is reached or the end of the file
+     */
+    private void extend(long untilLine, long untilOffset) throws IOException {
+        long size = channel.size();
+        if (size < indexedOffset) {
+            logger.info("Log file is shorter than the line index. Rebuilding the index {}", file);
+            reset();
+            truncateStorage();
+        }
+        long readPosition = indexedOffset;
+        while (lines < untilLine && indexedOffset < untilOffset && readPosition < size) {
+            buffer.clear();
+            int read = channel.read(buffer, readPosition);
+            if (read <= 0) {
+                break;
+            }
+            byte[] array = buffer.array();
+            for (int i = 0; i < read; i++) {
+                if (array[i] != LF) {
+                    continue;
+                }
+                lines++;
+                indexedOffset = readPosition + i + 1;
+                if (lines % interval == 0) {
+                    addEntry(indexedOffset);
+                }
+                if (lines >= untilLine || indexedOffset >= untilOffset) {
+                    return;
+                }
+            }
+            readPosition += read;
+        }
+    }
+
+    /**
+     * @return the offset right after the {@code count}-th line terminator from the offset
+     */
+    private long skipLines(long offset, long count) throws IOException {
+        long readPosition = offset;
+        while (count > 0) {
+            buffer.clear();
+            int read = channel.read(buffer, readPosition);
+            if (read <= 0) {
+                throw new IOException("Log file ends before the indexed line at " + readPosition);
+            }
+            byte[] array = buffer.array();
+            for (int i = 0; i < read; i++) {
+                if (array[i] == LF && --count == 0) {
+                    return readPosition + i + 1;
+                }
+            }
+            readPosition += read;
+        }
+        return readPosition;
+    }
+
+    /**
+     * @return the number of line terminators between the offsets
+     */
+    private long countLines(long from, long to) throws IOException {
+        long count = 0;
+        long readPosition = from;
+        while (readPosition < to) {
+            buffer.clear().limit((int)Math.min(buffer.capacity(), to - readPosition));
+            int read = channel.read(buffer, readPosition);
+            if (read <= 0) {
+                break;
+            }
+            byte[] array = buffer.array();
+            for (int i = 0; i < read; i++) {
+                if (array[i] == LF) {
+                    count++;
+                }
+            }
+            readPosition += read;
+        }
+        return count;
+    }
+
+    private void addEntry(long offset) throws IOException {
+        if (entries == offsets.length) {
+            offsets = Arrays.copyOf(offsets, entries * 2);
+        }
+        offsets[entries++] = offset;
+        if (storage != null) {
+            store();
+        }
+    }
+
+    private void store() throws IOException {
+        if (storedEntries == 0) {
+            writeHeader();
+        }
+        for (; storedEntries < entries; storedEntries++) {
+            entry.clear();
+            entry.putLong(offsets[storedEntries]).flip();
+            while (entry.hasRemaining()) {
+                storagePosition += storage.write(entry, storagePosition);
+            }
+        }
+    }
+
+    private void writeHeader() throws IOException {
+        byte[] id = fileId.getBytes(StandardCharsets.UTF_8);
+        if (id.length > MAX_FILE_ID_LENGTH) {
+            throw new IOException("File id must not be longer than " + MAX_FILE_ID_LENGTH + " bytes but was " + id.length);
+        }
+        int headLength = (int)Math.min(HEAD_SIZE, offsets[1]);
+        ByteBuffer header = ByteBuffer.allocate(Integer.BYTES * 4 + Short.BYTES + id.length);
+        header.putInt(MAGIC)
+                .putInt(interval)
+                .putShort((short)id.length)
+                .put(id)
+                .putInt(headLength)
+                .putInt(headCrc(headLength))
+                .flip();
+        truncateStorage();
+        while (header.hasRemaining()) {
+            storagePosition += storage.write(header, storagePosition);
+        }
+        // the offset of the line 0 is not stored
+        storedEntries = 1;
+    }
+
+    /**
+     * @return {@code true} if the stored index belongs to the log file
+     */
+    private boolean load() throws IOException {
+        long storageSize = storage.size();
+        if (storageSize == 0) {
+            return false;
+        }
+        if (storageSize > Integer.MAX_VALUE) {
+            return discard("is too large");
+        }
+        ByteBuffer data = ByteBuffer.allocate((int)storageSize);
+        while (data.hasRemaining() && storage.read(data, data.position()) > 0) {
+            // read the whole file
+        }
+        data.flip();
+        if (data.remaining() < Integer.BYTES * 2 + Short.BYTES || data.getInt() != MAGIC) {
+            return discard("is damaged");
+        }
+        if (data.getInt() != interval) {
+            return discard("has another interval");
+        }
+        int idLength = data.getShort();
+        if (idLength < 0 || idLength > MAX_FILE_ID_LENGTH || data.remaining() < idLength + Integer.BYTES * 2) {
+            return discard("is damaged");
+        }
+        byte[] id = new byte[idLength];
+        data.get(id);
+        if (!fileId.equals(new String(id, StandardCharsets.UTF_8))) {
+            return discard("belongs to another file");
+        }
+        int headLength = data.getInt();
+        int crc = data.getInt();
+        if (headLength < 0 || headLength > HEAD_SIZE || headCrc(headLength) != crc) {
+            return discard("does not match the beginning of the file");
+        }
+        long headerSize = data.position();
+        long size = channel.size();
+        long previous = 0;
+        while (data.remaining() >= Long.BYTES) {
+            long offset = data.getLong();
+            if (offset <= previous || offset > size) {
+                break;
+            }
+            if (entries == offsets.length) {
+                offsets = Arrays.copyOf(offsets, entries * 2);
+            }
+            offsets[entries++] = offset;
+            previous = offset;
+        }
+        if (entries == 1 || !endsWithLf(offsets[entries - 1])) {
+            reset();
+            return discard("does not match the lines of the file");
+        }
+        lines = (long)(entries - 1) * interval;
+        indexedOffset = offsets[entries - 1];
+        storedEntries = entries;
+        storagePosition = headerSize + (long)(entries - 1) * Long.BYTES;
+        // drops the torn or invalid tail
+        storage.truncate(storagePosition);
+        return true;
+    }
+
+    private boolean discard(String reason) throws IOException {
+        logger.info("Line index {} {} and is rebuilt", StructuredArguments.value("file", file), reason);
+        truncateStorage();
+        return false;
+    }
+
+    private boolean endsWithLf(long offset) throws IOException {
+        buffer.clear().limit(1);
+        return channel.read(buffer, offset - 1) == 1 && buffer.get(0) == LF;
+    }
+
+    private int headCrc(int length) throws IOException {
+        head.clear().limit(length);
+        while (head.hasRemaining() && channel.read(head, head.position()) > 0) {
+            // read the whole head
+        }
+        CRC32 crc = new CRC32();
+        crc.update(head.array(), 0, head.position());
+        return (int)crc.getValue();
+    }
+
+    private void reset() {
+        entries = 1;
+        lines = 0;
+        indexedOffset = 0;
+        storedEntries = 0;
+        storagePosition = 0;
+    }
+
+    private void truncateStorage() throws IOException {
+        if (storage != null) {
+            storage.truncate(0);
+        }
+        storedEntries = 0;
+        storagePosition = 0;
+    }
+}
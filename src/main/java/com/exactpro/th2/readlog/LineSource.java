@@ -0,0 +1,67 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.readlog;
+
+import java.io.IOException;
+
+/**
+ * The source of log lines read by {@link LogTailer}: a log file, a pipe or a network listener.
+ *
+ * The lines are read without blocking: {@link #readNextLine()} returns {@code false} if no complete line is available yet.
+ * The bytes of the current line are valid until the next call of {@link #readNextLine()}.
+ */
+public interface LineSource extends AutoCloseable {
+    /**
+     * Reads the next complete line without the line terminator
+     *
+     * @return {@code false} if no complete line is available now
+     */
+    boolean readNextLine() throws IOException;
+
+    /**
+     * @return the buffer containing the current line from its beginning
+     */
+    byte[] getLineBytes();
+
+    int getLineLength();
+
+    /**
+     * @return the position in the source right after the current line
+     */
+    long getPosition();
+
+    /**
+     * @return the number of bytes available in the source but not read yet
+     */
+    long getLag() throws IOException;
+
+    /**
+     * @return {@code true} if the source will not provide more lines, e.g. the standard input is closed
+     */
+    default boolean isFinished() {
+        return false;
+    }
+
+    /**
+     * Sets the listener called when new lines become available. The sources polled by the caller do not call it
+     */
+    default void setDataListener(Runnable listener) {
+    }
+
+    @Override
+    void close() throws IOException;
+}
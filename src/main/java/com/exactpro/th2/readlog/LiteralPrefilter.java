@@ -0,0 +1,302 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.readlog;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Rejects the lines that cannot match the regular expression because they lack a literal required by the expression.
+ * A byte search for a few literals is much cheaper than running the expression on a line that does not match.
+ *
+ * The literals are extracted conservatively: only the ASCII characters that must be present in any match are taken,
+ * so the filter never rejects a line the expression would match. The expressions with inline flags are not filtered at all
+ * because the flags (e.g. case insensitivity) change the meaning of the literals.
+ */
+final class LiteralPrefilter {
+    static final LiteralPrefilter ACCEPT_ALL = new LiteralPrefilter(Collections.emptyList());
+
+    /** The literals shorter than this are too common to reject anything */
+    private static final int MIN_LITERAL_LENGTH = 2;
+    private static final int MAX_LITERALS = 3;
+    private static final String META_CHARACTERS = "\\^$.|?*+()[]{}";
+
+    private final byte[][] literals;
+
+    private LiteralPrefilter(List<String> literals) {
+        this.literals = literals.stream()
+                .map(literal -> literal.getBytes(StandardCharsets.US_ASCII))
+                .toArray(byte[][]::new);
+    }
+
+    static LiteralPrefilter forRegex(String regex) {
+        List<String> literals = requiredLiterals(regex);
+        if (literals.isEmpty()) {
+            return ACCEPT_ALL;
+        }
+        // the longest literals are the most selective
+        literals.sort(Comparator.comparingInt(String::length).reversed());
+        return new LiteralPrefilter(literals.subList(0, Math.min(MAX_LITERALS, literals.size())));
+    }
+
+    boolean isEmpty() {
+        return literals.length == 0;
+    }
+
+    /**
+     * @return {@code false} if the line definitely does not match the expression.
+     * The bytes must be in an ASCII-compatible charset
+     */
+    boolean mayMatch(byte[] bytes, int offset, int length) {
+        for (byte[] literal : literals) {
+            if (indexOf(bytes, offset, length, literal) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static int indexOf(byte[] bytes, int offset, int length, byte[] literal) {
+        byte first = literal[0];
+        int last = offset + length - literal.length;
+        for (int i = offset; i <= last; i++) {
+            if (bytes[i] != first) {
+                continue;
+            }
+            int j = 1;
+            while (j < literal.length && bytes[i + j] == literal[j]) {
+                j++;
+            }
+            if (j == literal.length) {
+                return i - offset;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the literals that are present in any match of the expression
+     */
+    static List<String> requiredLiterals(String regex) {
+        List<String> literals = new ArrayList<>();
+        try {
+            Parser parser = new Parser(regex);
+            if (parser.parseSequence(literals) && parser.position == regex.length()) {
+                literals.removeIf(literal -> literal.length() < MIN_LITERAL_LENGTH);
+                return literals;
+            }
+        } catch (UnsupportedOperationException e) {
+            // the construct is not supported by the extraction, so the expression is not filtered
+        }
+        return new ArrayList<>();
+    }
+
+    /**
+     * Walks through the expression and collects the runs of literal characters that are not optional
+     */
+    private static class Parser {
+        private final String regex;
+        private int position;
+
+        private Parser(String regex) {
+            this.regex = regex;
+        }
+
+        /**
+         * Parses the sequence of atoms till the end of the expression or the end of the enclosing group
+         *
+         * @return {@code false} if the sequence contains an alternation, so its literals are not required
+         */
+        private boolean parseSequence(List<String> literals) {
+            StringBuilder run = new StringBuilder();
+            boolean required = true;
+            while (position < regex.length()) {
+                char c = regex.charAt(position);
+                if (c == ')') {
+                    break;
+                }
+                if (c == '|') {
+                    required = false;
+                    position++;
+                    endRun(run, literals);
+                    continue;
+                }
+                if (c == '(') {
+                    endRun(run, literals);
+                    parseGroup(literals);
+                    continue;
+                }
+                char literal = parseAtom();
+                Quantifier quantifier = parseQuantifier();
+                if (literal == 0 || quantifier == Quantifier.OPTIONAL) {
+                    endRun(run, literals);
+                    continue;
+                }
+                run.append(literal);
+                if (quantifier == Quantifier.REPEATED) {
+                    // the character is required but the next one does not have to follow it
+                    endRun(run, literals);
+                }
+            }
+            endRun(run, literals);
+            if (!required) {
+                literals.clear();
+            }
+            return required;
+        }
+
+        private void parseGroup(List<String> literals) {
+            position++; // (
+            boolean extract = true;
+            if (regex.startsWith("?", position)) {
+                if (regex.startsWith("?:", position) || regex.startsWith("?>", position)) {
+                    position += 2;
+                } else if (regex.startsWith("?=", position) || regex.startsWith("?!", position)
+                        || regex.startsWith("?<=", position) || regex.startsWith("?<!", position)) {
+                    // the lookaround does not consume the characters
+                    position += regex.charAt(position + 1) == '<' ? 3 : 2;
+                    extract = false;
+                } else if (regex.startsWith("?<", position)) {
+                    int end = regex.indexOf('>', position);
+                    if (end < 0) {
+                        throw new UnsupportedOperationException("Unclosed group name");
+                    }
+                    position = end + 1;
+                } else {
+                    throw new UnsupportedOperationException("Inline flags");
+                }
+            }
+            List<String> groupLiterals = new ArrayList<>();
+            boolean required = parseSequence(groupLiterals);
+            if (position >= regex.length()) {
+                throw new UnsupportedOperationException("Unclosed group");
+            }
+            position++; // )
+            Quantifier quantifier = parseQuantifier();
+            if (extract && required && quantifier != Quantifier.OPTIONAL) {
+                literals.addAll(groupLiterals);
+            }
+        }
+
+        /**
+         * @return the literal character or {@code 0} if the atom is not a literal ASCII character
+         */
+        private char parseAtom() {
+            char c = regex.charAt(position++);
+            if (c == '\\') {
+                if (position >= regex.length()) {
+                    throw new UnsupportedOperationException("Trailing escape");
+                }
+                char escaped = regex.charAt(position++);
+                if (escaped == 'Q') {
+                    throw new UnsupportedOperationException("Quotation");
+                }
+                if (Character.isLetterOrDigit(escaped)) {
+                    // a character class, a boundary, a back reference or a code point. The parameters are skipped as literals
+                    // would be wrongly taken from them, so they are not supported
+                    if ("pPxuck0NgkR".indexOf(escaped) >= 0) {
+                        throw new UnsupportedOperationException("Escape with parameters");
+                    }
+                    return 0;
+                }
+                return escaped < 0x80 ? escaped : 0;
+            }
+            if (c == '[') {
+                skipCharacterClass();
+                return 0;
+            }
+            if (META_CHARACTERS.indexOf(c) >= 0) {
+                // '.', '^', '$' and the unexpected quantifiers
+                return 0;
+            }
+            return c < 0x80 ? c : 0;
+        }
+
+        private void skipCharacterClass() {
+            int depth = 1;
+            if (regex.startsWith("^", position)) {
+                position++;
+            }
+            if (regex.startsWith("]", position)) {
+                position++;
+            }
+            while (position < regex.length()) {
+                char c = regex.charAt(position++);
+                if (c == '\\') {
+                    position++;
+                } else if (c == '[') {
+                    depth++;
+                } else if (c == ']' && --depth == 0) {
+                    return;
+                }
+            }
+            throw new UnsupportedOperationException("Unclosed character class");
+        }
+
+        private Quantifier parseQuantifier() {
+            if (position >= regex.length()) {
+                return Quantifier.ONCE;
+            }
+            Quantifier quantifier;
+            char c = regex.charAt(position);
+            if (c == '?' || c == '*') {
+                position++;
+                quantifier = Quantifier.OPTIONAL;
+            } else if (c == '+') {
+                position++;
+                quantifier = Quantifier.REPEATED;
+            } else if (c == '{') {
+                int end = regex.indexOf('}', position);
+                if (end < 0) {
+                    throw new UnsupportedOperationException("Unclosed quantifier");
+                }
+                String bounds = regex.substring(position + 1, end);
+                position = end + 1;
+                int min;
+                try {
+                    min = Integer.parseInt(bounds.split(",", -1)[0].trim());
+                } catch (NumberFormatException e) {
+                    throw new UnsupportedOperationException("Invalid quantifier", e);
+                }
+                quantifier = min == 0 ? Quantifier.OPTIONAL : Quantifier.REPEATED;
+            } else {
+                return Quantifier.ONCE;
+            }
+            // lazy and possessive modifiers
+            if (position < regex.length() && (regex.charAt(position) == '?' || regex.charAt(position) == '+')) {
+                position++;
+            }
+            return quantifier;
+        }
+
+        private static void endRun(StringBuilder run, List<String> literals) {
+            if (run.length() > 0) {
+                literals.add(run.toString());
+                run.setLength(0);
+            }
+        }
+    }
+
+    private enum Quantifier {
+        ONCE,
+        OPTIONAL,
+        REPEATED
+    }
+}
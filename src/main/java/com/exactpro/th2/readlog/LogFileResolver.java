@@ -0,0 +1,107 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.readlog;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+/**
+ * Resolves the configured patterns to the set of log files.
+ *
+ * Each pattern can be:
+ * <ul>
+ *     <li>a path to a file</li>
+ *     <li>a path to a directory. All regular files in the directory are matched (not recursively)</li>
+ *     <li>a glob pattern. See {@link java.nio.file.FileSystem#getPathMatcher(String)} for the syntax.
+ *     The {@code **} wildcard matches the files in the nested directories</li>
+ * </ul>
+ */
+public class LogFileResolver {
+    private static final String GLOB_CHARACTERS = "*?[{";
+
+    private final List<String> patterns;
+
+    public LogFileResolver(List<String> patterns) {
+        this.patterns = Collections.unmodifiableList(new ArrayList<>(Objects.requireNonNull(patterns, "'Patterns' parameter")));
+        if (this.patterns.isEmpty()) {
+            throw new IllegalArgumentException("At least one pattern must be specified");
+        }
+    }
+
+    /**
+     * @return the absolute paths of the files currently matching the patterns
+     */
+    public Set<Path> resolve() throws IOException {
+        Set<Path> result = new TreeSet<>();
+        for (String pattern : patterns) {
+            resolve(pattern, result);
+        }
+        return result;
+    }
+
+    private static void resolve(String pattern, Set<Path> result) throws IOException {
+        Path path = Paths.get(pattern).toAbsolutePath().normalize();
+        int globIndex = firstGlobElement(path);
+        if (globIndex < 0) {
+            if (Files.isDirectory(path)) {
+                collect(path, 1, file -> true, result);
+            } else if (Files.isRegularFile(path)) {
+                result.add(path);
+            }
+            return;
+        }
+        Path base = globIndex == 0 ? path.getRoot() : path.getRoot().resolve(path.subpath(0, globIndex));
+        if (!Files.isDirectory(base)) {
+            return;
+        }
+        String glob = path.toString();
+        int depth = glob.contains("**") ? Integer.MAX_VALUE : path.getNameCount() - globIndex;
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+        collect(base, depth, matcher, result);
+    }
+
+    private static void collect(Path directory, int depth, PathMatcher matcher, Set<Path> result) throws IOException {
+        try (Stream<Path> files = Files.walk(directory, depth)) {
+            files.filter(Files::isRegularFile)
+                    .filter(matcher::matches)
+                    .forEach(result::add);
+        }
+    }
+
+    private static int firstGlobElement(Path path) {
+        for (int index = 0; index < path.getNameCount(); index++) {
+            String name = path.getName(index).toString();
+            for (int i = 0; i < name.length(); i++) {
+                if (GLOB_CHARACTERS.indexOf(name.charAt(i)) >= 0) {
+                    return index;
+                }
+            }
+        }
+        return -1;
+    }
+}
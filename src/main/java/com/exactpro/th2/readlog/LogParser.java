@@ -0,0 +1,43 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.readlog;
+
+/**
+ * Extracts the messages from a log record.
+ *
+ * NOTE: The implementations must be thread-safe because a single parser is shared by all log files and parser threads
+ */
+public interface LogParser {
+    /**
+     * Passes the messages found in the record to the sink as bytes in the log's charset.
+     * The sink must copy the bytes if it needs them after the call.
+     *
+     * @return the number of messages passed to the sink
+     */
+    int parse(byte[] raw, int offset, int length, GroupSink sink);
+
+    /**
+     * Receives the extracted messages
+     */
+    @FunctionalInterface
+    interface GroupSink {
+        /**
+         * @param bytes the array containing the message. It is valid only during the call
+         */
+        void accept(byte[] bytes, int offset, int length);
+    }
+}
@@ -17,11 +17,14 @@
 package com.exactpro.th2.readlog;
 
 import java.io.IOException;
-import java.time.Clock;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
@@ -36,71 +39,162 @@ import com.exactpro.th2.common.grpc.RawMessageMetadata;
 import com.exactpro.th2.common.schema.message.MessageRouter;
 import com.exactpro.th2.common.schema.message.QueueAttribute;
 import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedOutputStream;
 import com.google.protobuf.Timestamp;
 import com.google.protobuf.util.JsonFormat;
 
 /**
  * Accumulates lines in batches and publishes them.
  *
- * NOTE: This class is not thread-safe
+ * The batch is published when it is full or when its first line is older than the maximum batch latency.
+ * The batch is full when it reaches the line limit or when the next line would make the serialized batch larger than the byte limit.
+ * The serialized size is estimated incrementally from the size of each line and the upper bound of the metadata size,
+ * so the batch is never serialized to check its size, and the number of lines in a batch follows the size of the lines.
+ * A line that alone exceeds the byte limit is published in a separate batch.
+ * If the timer is specified the batch is published by the timer even if no more lines are added.
+ * The methods are synchronized, so the timer does not interfere with the thread adding the lines.
+ * A batch that cannot be sent stays pending and keeps its sequences. If the timer cannot send it, the failure is thrown
+ * by the next call, so the marked position is never reported past the lines that were not sent.
+ *
+ * If the sender is specified the batches are sent asynchronously by the sender, and the listener is notified
+ * once the batches before the marked position are actually sent. The reader should not add lines while {@link #isBusy()}.
+ *
+ * The timestamp of a message is taken from the message itself if the timestamp extractor is specified.
+ * Otherwise, or if the timestamp is not found, the time of the publication is used.
  */
-public class LogPublisher implements AutoCloseable {
+public class LogPublisher implements MessagePublisher {
 
     private static final Logger logger = LoggerFactory.getLogger(LogPublisher.class);
-    private static final int CHARACTER_BATCH_LIMIT = 100000000;
-    private final int characterBatchLimit;
-    static final int LINES_BATCH_LIMIT = 100;
-    private final int linesBatchLimit;
+    /** Guarded by this */
+    private int maxBatchBytes;
+    /** The maximum size of the varint encoded 64-bit number */
+    private static final int MAX_VARINT_SIZE = 10;
+    /** The maximum size of the varint encoded non-negative 32-bit number */
+    private static final int MAX_VARINT32_SIZE = 5;
+    /** The size of a field tag. All fields of the batch have the numbers below 16 */
+    private static final int TAG_SIZE = 1;
+    /** The upper bound of the serialized size of the message without its body. Depends on the session alias only */
+    private final int messageOverhead;
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+    /** Guarded by this */
+    private int linesBatchLimit;
     private final MessageRouter<RawMessageBatch> batchMessageRouter;
     private final String sessionAlias;
-
-	private long sequence = firstSequence();
-	private final List<String> listOfLines = new ArrayList<>();
+    private final Direction direction;
+    private final PublicationListener listener;
+    /** Guarded by this */
+    private long maxBatchLatencyNanos;
+    private final ScheduledExecutorService timer;
+    private final TimestampExtractor timestampExtractor;
+    private final ReaderMetrics metrics;
+    private final BatchSender sender;
+
+	private long sequence;
+	private final List<ByteString> listOfLines = new ArrayList<>();
+	/** The sequences of the lines in the batch */
+	private long[] lineSequences = new long[16];
+	/** The sequence of the last added line. Equals to the sequence when the batch is empty */
+	private long lastAdded;
+	/** The estimated serialized size of the batch */
 	private long size = 0;
-	private long lastPublishTs = Clock.systemDefaultZone().instant().getEpochSecond();
+    /** The {@link System#nanoTime()} when the first line of the current batch was added */
+    private long batchStartTime;
+    private ScheduledFuture<?> flushTask;
+
+    private long markOffset;
+    private long markSequence;
+    private boolean markChanged;
+    /** The exception that stopped the publication by the timer */
+    private volatile Throwable failure;
+
+    /**
+     * @param direction the direction of all published messages
+     * @param limits the limits of the batches. They can be changed later by {@link #setBatchLimits(BatchLimits)}
+     * @param firstSequence the sequence of the last published message. The next message will have the next sequence
+     * @param listener is notified each time the lines up to the marked position are published
+     * @param timer publishes the pending batch once it is older than the maximum latency.
+     *              If it is {@code null} the latency is checked only when a line is added
+     * @param timestampExtractor takes the timestamps from the messages. If it is {@code null} the time of the publication is used
+     * @param metrics collects the size of the batches and the time of sending. If it is {@code null} the metrics are not collected
+     * @param sender sends the batches asynchronously. If it is {@code null} the batches are sent by the router in the publishing thread
+     */
+    public LogPublisher(String sessionAlias, Direction direction, MessageRouter<RawMessageBatch> batchMessageRouter, BatchLimits limits,
+                        long firstSequence, PublicationListener listener, ScheduledExecutorService timer,
+                        TimestampExtractor timestampExtractor, ReaderMetrics metrics, BatchSender sender) {
+        this.sessionAlias = Objects.requireNonNull(sessionAlias, "'Session alias' parameter");
+        this.direction = Objects.requireNonNull(direction, "'Direction' parameter");
+        this.batchMessageRouter = Objects.requireNonNull(batchMessageRouter, "'Batch message router' parameter");
+        this.listener = Objects.requireNonNull(listener, "'Listener' parameter");
+        this.timer = timer;
+        this.timestampExtractor = timestampExtractor;
+        this.metrics = metrics;
+        this.sender = sender;
+        applyLimits(Objects.requireNonNull(limits, "'Limits' parameter"));
+        sequence = firstSequence;
+        lastAdded = firstSequence;
+        markSequence = firstSequence;
+        messageOverhead = messageOverhead(sessionAlias);
+    }
 
-    public LogPublisher(String sessionAlias, MessageRouter<RawMessageBatch> batchMessageRouter) {
-        this(sessionAlias, batchMessageRouter, LINES_BATCH_LIMIT, CHARACTER_BATCH_LIMIT);
+    /**
+     * The metadata contains the session alias, the direction, the sequence and the timestamp.
+     * The numbers are counted with their maximum size, so the estimation is never less than the actual size
+     */
+    private static int messageOverhead(String sessionAlias) {
+        int alias = field(sessionAlias.getBytes(StandardCharsets.UTF_8).length);
+        int id = field(alias) + TAG_SIZE + MAX_VARINT32_SIZE /* direction */ + TAG_SIZE + MAX_VARINT_SIZE /* sequence */;
+        int timestamp = TAG_SIZE + MAX_VARINT_SIZE /* seconds */ + TAG_SIZE + MAX_VARINT32_SIZE /* nanos */;
+        int metadata = field(id) + field(timestamp);
+        // the tag and the length of the body field are counted with the body
+        return field(metadata);
     }
 
-    LogPublisher(String sessionAlias, MessageRouter<RawMessageBatch> batchMessageRouter, int linesLimit, int charactersLimit) {
-        this.sessionAlias = Objects.requireNonNull(sessionAlias, "'Session alias' parameter");
-        this.batchMessageRouter = Objects.requireNonNull(batchMessageRouter, "'Batch message router' parameter");
-        if (linesLimit <= 0) {
-            throw new IllegalArgumentException("'linesLimit' must be a positive integer");
-        }
-        linesBatchLimit = linesLimit;
+    /**
+     * @return the size of the length-delimited field with the content of the specified size
+     */
+    private static int field(int contentSize) {
+        return TAG_SIZE + CodedOutputStream.computeUInt32SizeNoTag(contentSize) + contentSize;
+    }
 
-        if (charactersLimit <= 0) {
-            throw new IllegalArgumentException("'charactersLimit' must be a positive integer");
-        }
-        characterBatchLimit = charactersLimit;
+    /**
+     * @return the upper bound of the size the line adds to the serialized batch
+     */
+    private int batchEntrySize(int lineLength) {
+        return field(field(lineLength) + messageOverhead);
     }
 
-    private static long firstSequence() {
+    static long firstSequence() {
         Instant now = Instant.now();
         return TimeUnit.SECONDS.toNanos(now.getEpochSecond()) + now.getNano();
     }
 
 	private void publish() throws IOException {
+        if (flushTask != null) {
+            flushTask.cancel(false);
+            flushTask = null;
+        }
 		RawMessageBatch.Builder builder = RawMessageBatch.newBuilder();
-
-		for (String str: listOfLines) {
+		// the time of the publication is the same for the whole batch
+		Instant now = Instant.now();
+		// the lines and the sequence are committed only after the batch is sent, so a failed batch is not lost
+		for (int i = 0; i < listOfLines.size(); i++) {
+			ByteString body = listOfLines.get(i);
 			RawMessage.Builder msgBuilder = builder.addMessagesBuilder();
 
-			ByteString body = ByteString.copyFrom(str.getBytes());
-
 			msgBuilder.setBody(body);
 
 			RawMessageMetadata.Builder metaData = RawMessageMetadata.newBuilder();
 
 			Timestamp.Builder ts = Timestamp.newBuilder();
 
-			Clock clock = Clock.systemDefaultZone();
-			Instant instant = clock.instant();
-
-			ts.setSeconds(instant.getEpochSecond());
-			ts.setNanos(instant.getNano());
+			long timestamp = timestampExtractor == null ? CachedTimestampParser.INVALID : timestampExtractor.extract(body);
+			if (timestamp == CachedTimestampParser.INVALID) {
+				ts.setSeconds(now.getEpochSecond());
+				ts.setNanos(now.getNano());
+			} else {
+				ts.setSeconds(Math.floorDiv(timestamp, NANOS_PER_SECOND));
+				ts.setNanos((int)Math.floorMod(timestamp, NANOS_PER_SECOND));
+			}
 
 			metaData.setTimestamp(ts);
 
@@ -111,73 +205,243 @@ public class LogPublisher implements AutoCloseable {
 			connId.setSessionAlias(sessionAlias);
 
 			messageId.setConnectionId(connId);
-			messageId.setSequence(++sequence);
-			messageId.setDirection(Direction.FIRST);
+			messageId.setSequence(lineSequences[i]);
+			messageId.setDirection(direction);
 
 			metaData.setId(messageId);
 
 			msgBuilder.setMetadata(metaData);						
 		}
 
-		listOfLines.clear();
-
         RawMessageBatch batch = builder.build();
 
         if (batch.getMessagesCount() > 0) {
-            batchMessageRouter.sendAll(batch, QueueAttribute.PUBLISH.toString(), QueueAttribute.RAW.toString());
+            if (sender == null) {
+                long sendStart = System.nanoTime();
+                batchMessageRouter.sendAll(batch, QueueAttribute.PUBLISH.toString(), QueueAttribute.RAW.toString());
+                onBatchSent(batch, System.nanoTime() - sendStart);
+            } else {
+                sender.submit(batch, metrics == null ? null : sendNanos -> onBatchSent(batch, sendNanos));
+            }
 
             logger.trace("Raw batch published: {}", JsonFormat.printer().omittingInsignificantWhitespace().print(batch));
         } else {
             logger.trace("Skip publishing empty batch");
         }
+        listOfLines.clear();
+        size = 0;
+        sequence = lastAdded;
+        notifyPublished();
+    }
+
+    /**
+     * Marks the position in the source right after all lines passed to {@link #publish(String)} so far.
+     * The listener is notified with the marked position once all those lines are published.
+     */
+    @Override
+    public synchronized void markPosition(long offset) {
+        markOffset = offset;
+        markSequence = lastAdded;
+        markChanged = true;
+    }
+
+    private void onBatchSent(RawMessageBatch batch, long sendNanos) {
+        if (metrics != null) {
+            // the serialized size is cached by the batch, so the router does not calculate it again
+            metrics.onBatchSent(batch.getMessagesCount(), batch.getSerializedSize(), sendNanos);
+        }
+    }
+
+    private void notifyPublished() throws IOException {
+        // the batch is cut only while the lines of the current source line are added,
+        // so all lines before the last mark are already published
+        if (markChanged && markSequence <= sequence) {
+            markChanged = false;
+            if (sender == null) {
+                listener.onPublished(markOffset, markSequence);
+            } else {
+                // the listener is notified after the batches submitted before are sent
+                long offset = markOffset;
+                long lastSequence = markSequence;
+                sender.submit(null, sendNanos -> listener.onPublished(offset, lastSequence));
+            }
+        }
+    }
+
+    /**
+     * @return {@code true} if the sender cannot accept more batches without blocking
+     */
+    @Override
+    public boolean isBusy() {
+        return sender != null && sender.isFull();
+    }
+
+    /**
+     * Waits until the published batches are sent and the listener is notified about them
+     */
+    @Override
+    public void awaitSent() throws IOException {
+        if (sender != null) {
+            sender.awaitSent();
+        }
+    }
+
+    /**
+     * Throws the exception that stopped the asynchronous sending, if any
+     */
+    @Override
+    public void checkFailure() throws IOException {
+        Throwable cause = failure;
+        if (cause != null) {
+            throw new IOException("Cannot publish batch by timeout for " + sessionAlias + " session alias", cause);
+        }
+        if (sender != null) {
+            sender.checkFailure();
+        }
+    }
+
+    public synchronized boolean publish(String line) throws IOException {
+        return publish(ByteString.copyFrom(line.getBytes()));
     }
 
-    public boolean publish(String line) throws IOException {
-        int lineLength = line.getBytes().length;
-        if (lineLength > characterBatchLimit) {
-            throw new IllegalArgumentException("The input line must not be longer than " + characterBatchLimit + " but was " + lineLength);
+    /**
+     * Adds the line to the batch and publishes the batch if it is full
+     *
+     * @return {@code true} if a batch was published
+     */
+    @Override
+    public synchronized boolean publish(ByteString line) throws IOException {
+        return publish(line, lastAdded + 1);
+    }
+
+    /**
+     * Adds the line with the specified sequence to the batch and publishes the batch if it is full.
+     * The sequences may have gaps, for example, if several publishers share the sequences of one source
+     *
+     * @param lineSequence the sequence of the line. Must be greater than the sequence of the previous line
+     * @return {@code true} if a batch was published
+     */
+    synchronized boolean publish(ByteString line, long lineSequence) throws IOException {
+        if (lineSequence <= lastAdded) {
+            throw new IllegalArgumentException("The sequence " + lineSequence + " must be greater than the previous sequence " + lastAdded);
+        }
+        checkFailure();
+        int entrySize = batchEntrySize(line.size());
+        if (entrySize > maxBatchBytes) {
+            logger.warn("The line of {} bytes exceeds the batch size limit of {} bytes and is published in a separate batch",
+                    line.size(), maxBatchBytes);
         }
 
         boolean published = false;
 
-        if (size + lineLength > characterBatchLimit) {
-            resetAndPublish();
+        if (!listOfLines.isEmpty() && size + entrySize > maxBatchBytes) {
+            publish();
             published = true;
         }
-		size += lineLength;
+        if (listOfLines.isEmpty()) {
+            startBatch();
+        }
+		size += entrySize;
 
+		if (listOfLines.size() == lineSequences.length) {
+			lineSequences = Arrays.copyOf(lineSequences, lineSequences.length * 2);
+		}
+		lineSequences[listOfLines.size()] = lineSequence;
+		lastAdded = lineSequence;
 		listOfLines.add(line);
 
 		if (	(listOfLines.size() >= linesBatchLimit) ||
-				(Clock.systemDefaultZone().instant().getEpochSecond() - lastPublishTs > 2)) {
+				(size >= maxBatchBytes) ||
+				(System.nanoTime() - batchStartTime >= maxBatchLatencyNanos)) {
 
-            resetAndPublish();
+            publish();
             return true;
         }
         return published;
 	}
 
-    private void resetAndPublish() throws IOException {
-        lastPublishTs = Clock.systemDefaultZone().instant().getEpochSecond();
-        size = 0;
+    private void startBatch() {
+        batchStartTime = System.nanoTime();
+        if (timer != null && !timer.isShutdown()) {
+            flushTask = timer.schedule(this::flushExpired, maxBatchLatencyNanos, TimeUnit.NANOSECONDS);
+        }
+    }
 
-        publish();
+    /**
+     * Publishes the pending batch if its first line is older than the maximum latency
+     */
+    private synchronized void flushExpired() {
+        if (listOfLines.isEmpty() || System.nanoTime() - batchStartTime < maxBatchLatencyNanos) {
+            return;
+        }
+        try {
+            logger.trace("Publish batch of {} line(s) by timeout", listOfLines.size());
+            publish();
+        } catch (IOException | RuntimeException e) {
+            // the lines stay pending, and the reader gets the failure from the next call instead of moving the checkpoint past them
+            logger.error("Cannot publish batch for {} session alias", sessionAlias, e);
+            failure = e;
+        }
+    }
+
+    /**
+     * The new latency applies to the batches started after the call
+     */
+    @Override
+    public synchronized void setBatchLimits(BatchLimits limits) {
+        applyLimits(Objects.requireNonNull(limits, "'Limits' parameter"));
+    }
+
+    private void applyLimits(BatchLimits limits) {
+        linesBatchLimit = limits.getMaxLines();
+        maxBatchBytes = limits.getMaxBytes();
+        maxBatchLatencyNanos = TimeUnit.MILLISECONDS.toNanos(limits.getMaxLatencyMillis());
     }
 
-    public void flush() throws IOException {
+    /**
+     * @return {@code true} if the pending batch has lines
+     */
+    synchronized boolean hasPendingLines() {
+        return !listOfLines.isEmpty();
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        checkFailure();
         if (listOfLines.isEmpty()) {
+            notifyPublished();
             return;
         }
-        resetAndPublish();
+        publish();
     }
 
     @Override
-    public void close() throws IOException {
+    public synchronized void close() throws IOException {
         if (!listOfLines.isEmpty()) {
             // we need to publish all data left
             publish();
+        } else {
+            notifyPublished();
+        }
+        if (sender != null) {
+            // the sender can be shared by several publishers, so it is only drained
+            sender.close();
         }
 
-        logger.info("Publisher closed");
+        logger.info("Publisher for {} session alias closed", sessionAlias);
+    }
+
+    /**
+     * Receives the position in the source that is fully published
+     */
+    @FunctionalInterface
+    public interface PublicationListener {
+        PublicationListener NONE = (offset, sequence) -> {};
+
+        /**
+         * @param offset the position marked with {@link #markPosition(long)}
+         * @param sequence the sequence of the last message published before the position
+         */
+        void onPublished(long offset, long sequence) throws IOException;
     }
 }
@@ -16,80 +16,533 @@
 
 package com.exactpro.th2.readlog;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Objects;
-import java.util.stream.Stream;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import net.logstash.logback.argument.StructuredArguments;
 
-public class LogReader implements AutoCloseable {
-	private final File file;
-	private BufferedReader reader;
-	private Logger logger = LoggerFactory.getLogger(LogReader.class);
+/**
+ * Reads the log file line by line and tracks the byte position of the last consumed line.
+ * Each read only touches the bytes appended since the previous one, so polling a growing file
+ * costs the size of the new data rather than the size of the whole file.
+ *
+ * A line is returned only when its line terminator has been written. The incomplete tail of the file
+ * is kept in the reader until the rest of the line appears.
+ *
+ * The files with {@code .gz} extension are decompressed on the fly. The positions of such files are the positions
+ * in the decompressed data. See {@link #checkpoint(long, long)} and {@link #seek(Checkpoint)} for resuming the reading.
+ *
+ * The lines of a plain file are numbered by the sparse {@link LineIndex}, so {@link #skip(long)}, {@link #seekLine(long)}
+ * and {@link #getLineCount()} read at most one index interval of lines plus the bytes appended since the previous call.
+ *
+ * NOTE: This class is not thread-safe
+ */
+public class LogReader implements LineSource {
+    static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    /** The number of bytes at the beginning of the file that are compared to detect that the file was rewritten */
+    static final int HEAD_SIZE = 256;
+    /** The size of the compressed data buffer. The gzip header must fit into it */
+    static final int DECODER_BUFFER_SIZE = 64 * 1024;
 
-	private boolean closeState;
-	private long processedLinesCount;
+    private static final Logger logger = LoggerFactory.getLogger(LogReader.class);
+    private static final byte LF = '\n';
+    private static final byte CR = '\r';
 
-	public LogReader(File file) throws FileNotFoundException {
-		this.file = Objects.requireNonNull(file, "'File' parameter");
-		open();
-	}
+    private final File file;
+    private final Charset charset;
+    private final ByteBuffer buffer;
+    private final boolean compressed;
+    /** Numbers the lines of the plain file. It is {@code null} for the compressed file */
+    private final LineIndex lineIndex;
+    private FileChannel channel;
+    /** Decompresses the file. It is {@code null} if the file is not compressed */
+    private GzipDecoder decoder;
+    /** The offsets of the compressed members by their positions in the decompressed data */
+    private final NavigableMap<Long, Long> members = new ConcurrentSkipListMap<>();
+    private String fileId;
+
+    private boolean closeState;
+    private long processedLinesCount;
+    /** The offset right after the last line returned to the caller */
+    private long position;
+    /** The offset of the next byte to read from the channel */
+    private long readPosition;
+
+    private final byte[] head = new byte[HEAD_SIZE];
+    private int headLength;
+    private final ByteBuffer headBuffer = ByteBuffer.allocate(HEAD_SIZE);
+
+    private byte[] line = new byte[256];
+    private int lineLength;
+    private boolean lineComplete;
+
+    public LogReader(File file) throws IOException {
+        this(file, StandardCharsets.UTF_8, DEFAULT_BUFFER_SIZE);
+    }
 
-    public void open() throws FileNotFoundException {
+    public LogReader(File file, Charset charset) throws IOException {
+        this(file, charset, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param lineIndex numbers the lines of the file. It is not closed by the reader.
+     * If it is {@code null} the index is kept in memory
+     */
+    public LogReader(File file, Charset charset, LineIndex lineIndex) throws IOException {
+        this(file, charset, DEFAULT_BUFFER_SIZE, lineIndex);
+    }
+
+    LogReader(File file, Charset charset, int bufferSize) throws IOException {
+        this(file, charset, bufferSize, null);
+    }
+
+    LogReader(File file, Charset charset, int bufferSize, LineIndex lineIndex) throws IOException {
+        this.file = Objects.requireNonNull(file, "'File' parameter");
+        this.charset = Objects.requireNonNull(charset, "'Charset' parameter");
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("'bufferSize' must be a positive integer");
+        }
+        buffer = ByteBuffer.allocate(bufferSize);
+        String name = file.getName().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".zst") || name.endsWith(".lz4")) {
+            throw new IOException("Compression of " + file + " is not supported. Only gzip files can be read");
+        }
+        compressed = name.endsWith(".gz");
+        if (compressed && lineIndex != null) {
+            logger.warn("Line index is not supported for compressed file {}", file);
+        }
+        this.lineIndex = compressed ? null : lineIndex == null ? new LineIndex(LineIndex.DEFAULT_INTERVAL) : lineIndex;
+        open();
+    }
+
+    public void open() throws IOException {
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        members.clear();
+        decoder = compressed ? new GzipDecoder(channel, DECODER_BUFFER_SIZE,
+                (offset, start) -> members.put(start, offset)) : null;
+        fileId = fileId(file.toPath());
+        if (lineIndex != null) {
+            lineIndex.open(channel, fileId);
+        }
         closeState = false;
-        reader = new BufferedReader(new FileReader(file));
         logger.info("Open log file {}", StructuredArguments.value("file", file));
         processedLinesCount = 0;
+        position = 0;
+        readPosition = 0;
+        headLength = 0;
+        lineLength = 0;
+        lineComplete = false;
+        buffer.clear().flip();
+    }
+
+    /**
+     * @return the number of complete lines in the file
+     */
+    public long getLineCount() throws IOException {
+        if (lineIndex != null) {
+            return lineIndex.getLineCount();
+        }
+        long count = 0;
+        ByteBuffer countBuffer = ByteBuffer.allocate(buffer.capacity());
+        GzipDecoder countDecoder = compressed ? new GzipDecoder(channel, DECODER_BUFFER_SIZE, (offset, position) -> {}) : null;
+        long offset = 0;
+        int read;
+        while ((read = countDecoder == null ? channel.read(countBuffer, offset) : countDecoder.read(countBuffer.array(), 0, countBuffer.capacity())) > 0) {
+            byte[] array = countBuffer.array();
+            for (int i = 0; i < read; i++) {
+                if (array[i] == LF) {
+                    count++;
+                }
+            }
+            offset += read;
+            countBuffer.clear();
+        }
+        return count;
+    }
+
+    /**
+     * Skips the lines after the current position. The reader stops after the last complete line if the file has less lines
+     */
+    public void skip(long lineNumber) throws IOException {
+        logger.trace("Skipping {}", StructuredArguments.value("LinesToSkip", lineNumber));
+
+        if (lineIndex != null && lineNumber > 0) {
+            long current = lineIndex.getLineNumber(position);
+            if (current >= 0) {
+                long target = Math.min(current + lineNumber, lineIndex.getLineCount());
+                moveTo(lineIndex.getLineOffset(target));
+                processedLinesCount += target - current;
+                return;
+            }
+        }
+        for (long i = 0; i < lineNumber; ++i) {
+            if (!readLine()) {
+                break;
+            }
+            ++processedLinesCount;
+        }
+    }
+
+    /**
+     * Moves the reader to the specified offset. The offset must point to the beginning of a line.
+     */
+    public void seek(long offset) throws IOException {
+        if (compressed) {
+            throw new IllegalStateException("Compressed file " + file + " can be positioned only with a checkpoint");
+        }
+        if (offset < 0 || offset > channel.size()) {
+            throw new IllegalArgumentException("Offset must be in range [0, " + channel.size() + "] but was " + offset);
+        }
+        logger.info("Seek log file {} to {}", StructuredArguments.value("file", file), StructuredArguments.value("offset", offset));
+        moveTo(offset);
+    }
+
+    /**
+     * Moves the reader to the beginning of the line. The number of the first line is 0.
+     *
+     * @return {@code false} if the file has less complete lines. The reader is moved after the last complete line in that case
+     */
+    public boolean seekLine(long lineNumber) throws IOException {
+        if (compressed) {
+            throw new IllegalStateException("Compressed file " + file + " can be positioned only with a checkpoint");
+        }
+        long offset = lineIndex.getLineOffset(lineNumber);
+        boolean found = offset >= 0;
+        if (!found) {
+            offset = lineIndex.getLineOffset(lineIndex.getLineCount());
+        }
+        logger.info("Seek log file {} to line {} at {}", StructuredArguments.value("file", file),
+                StructuredArguments.value("line", lineNumber), StructuredArguments.value("offset", offset));
+        moveTo(offset);
+        return found;
+    }
+
+    /**
+     * @return the number of complete lines before the current position, i.e. the number of the next line to read
+     */
+    public long getLineNumber() throws IOException {
+        if (compressed) {
+            throw new IllegalStateException("Lines of compressed file " + file + " are not indexed");
+        }
+        long lineNumber = lineIndex.getLineNumber(position);
+        if (lineNumber < 0) {
+            throw new IOException("Position " + position + " is beyond the last line of " + file);
+        }
+        return lineNumber;
+    }
+
+    /**
+     * Indexes the line read bypassing the reader. The line is indexed only if it follows the last indexed one
+     *
+     * @param start the offset of the beginning of the line
+     * @param end the offset right after the line terminator
+     */
+    void indexLine(long start, long end) throws IOException {
+        if (lineIndex != null) {
+            lineIndex.onLine(start, end);
+        }
+    }
+
+    private void moveTo(long offset) throws IOException {
+        position = offset;
+        readPosition = offset;
+        headLength = readHead(head, (int)Math.min(offset, HEAD_SIZE));
+        lineLength = 0;
+        lineComplete = false;
+        buffer.clear().flip();
+    }
+
+    /**
+     * Moves the reader to the position of the checkpoint. For the compressed file the reading starts from the member
+     * containing the position and the decompressed bytes before the position are skipped.
+     *
+     * @return {@code false} if the file is shorter than the checkpoint. The reader is at the beginning of the file in that case
+     */
+    public boolean seek(Checkpoint checkpoint) throws IOException {
+        Objects.requireNonNull(checkpoint, "'Checkpoint' parameter");
+        if (!compressed) {
+            if (checkpoint.getOffset() > channel.size()) {
+                return false;
+            }
+            seek(checkpoint.getOffset());
+            return true;
+        }
+        logger.info("Seek compressed log file {} to {}", StructuredArguments.value("file", file), checkpoint);
+        if (checkpoint.getMemberOffset() > channel.size()) {
+            return false;
+        }
+        decoder.reset(checkpoint.getMemberOffset(), checkpoint.getMemberPosition());
+        long toSkip = checkpoint.getOffset() - checkpoint.getMemberPosition();
+        byte[] array = buffer.array();
+        while (toSkip > 0) {
+            int read = decoder.read(array, 0, (int)Math.min(array.length, toSkip));
+            if (read <= 0) {
+                close();
+                open();
+                return false;
+            }
+            toSkip -= read;
+        }
+        position = checkpoint.getOffset();
+        readPosition = position;
+        lineLength = 0;
+        lineComplete = false;
+        buffer.clear().flip();
+        return true;
+    }
+
+    /**
+     * Creates the checkpoint for the position returned by {@link #getPosition()} earlier.
+     * Can be called by another thread. The positions must not decrease between the calls
+     */
+    public Checkpoint checkpoint(long offset, long sequence) {
+        if (!compressed) {
+            return new Checkpoint(fileId, offset, sequence);
+        }
+        Map.Entry<Long, Long> member = members.floorEntry(offset);
+        if (member == null) {
+            return new Checkpoint(fileId, offset, sequence);
+        }
+        // the earlier members are not needed anymore
+        members.headMap(member.getKey()).clear();
+        return new Checkpoint(fileId, offset, sequence, member.getValue(), member.getKey());
     }
 
-	public long getLineCount() throws IOException {
-
-	    try (Stream<String> lines = Files.lines(file.toPath())) {
-	        return lines.count();
-	    }
-	}
-
-	public void skip(long lineNumber) throws IOException {
-		logger.trace("Skipping {}",StructuredArguments.value("LinesToSkip",lineNumber));
-
-		for (long i=0; i<lineNumber; ++i) {
-			reader.readLine();
-			++processedLinesCount;
-		}
-	}
-
-	public long getProcessedLinesCount() {
-		return processedLinesCount;
-	}
-
-	public String getNextLine() throws IOException {
-		String result = reader.readLine();
-		logger.trace("RawLogLine {}",StructuredArguments.value("RawLogLine",result));
-		if (result != null) {
-			++processedLinesCount;
-		}
-		return result;
-	}
-
-
-	public boolean isClosed() {
-		return closeState;
-	}
-
-	@Override
-	public void close() throws IOException {
-		if (reader != null) {
-			reader.close();
-			closeState=true;
-		}
-		logger.info("Close log file {}", StructuredArguments.value("fileName", file));
-	}
+    /**
+     * @return the number of bytes written to the file after the read position.
+     * The compressed bytes are counted for the compressed file
+     */
+    @Override
+    public long getLag() throws IOException {
+        if (compressed) {
+            return Math.max(0, channel.size() - decoder.getChannelPosition());
+        }
+        return Math.max(0, channel.size() - position);
+    }
+
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    /**
+     * @return the identity of the opened file. It stays the same while the file is appended or truncated
+     * and changes when another file is created under the same name
+     */
+    public String getFileId() {
+        return fileId;
+    }
+
+    public long getProcessedLinesCount() {
+        return processedLinesCount;
+    }
+
+    /**
+     * @return the offset in bytes right after the last line returned by {@link #getNextLine()}
+     */
+    @Override
+    public long getPosition() {
+        return position;
+    }
+
+    /**
+     * @return the current size of the file in bytes
+     */
+    public long size() throws IOException {
+        return channel.size();
+    }
+
+    /**
+     * The file is considered truncated when its current size is less than the number of bytes already read from it
+     * or when the beginning of the file differs from the one that was read. The latter happens when the file is truncated
+     * and then quickly grows beyond the read position (e.g. copytruncate rotation under load).
+     * In both cases the reader should be reopened to start from the beginning of the file.
+     */
+    public boolean isTruncated() throws IOException {
+        if (compressed) {
+            // the positions are in the decompressed data, so only the compressed size can be checked
+            return channel.size() < decoder.getChannelPosition();
+        }
+        if (channel.size() < readPosition) {
+            return true;
+        }
+        if (headLength == 0) {
+            return false;
+        }
+        byte[] current = headBuffer.array();
+        return readHead(current, headLength) != headLength || !Arrays.equals(current, 0, headLength, head, 0, headLength);
+    }
+
+    /**
+     * The file is considered rotated when its path refers to another file (e.g. the file was renamed and the new one was created).
+     * The reader continues reading the old file until it is reopened.
+     */
+    public boolean isRotated() throws IOException {
+        try {
+            return !fileId.equals(fileId(file.toPath()));
+        } catch (NoSuchFileException e) {
+            // the file is renamed but the new one is not created yet
+            return false;
+        }
+    }
+
+    /**
+     * @return the next complete line or {@code null} if there are no complete lines available yet
+     */
+    public String getNextLine() throws IOException {
+        if (!readNextLine()) {
+            return null;
+        }
+        return new String(line, 0, lineLength, charset);
+    }
+
+    /**
+     * Reads the next complete line without decoding it.
+     * The bytes of the line are available via {@link #getLineBytes()} and {@link #getLineLength()} until the next call.
+     *
+     * @return {@code true} if the line was read or {@code false} if there are no complete lines available yet
+     */
+    @Override
+    public boolean readNextLine() throws IOException {
+        if (!readLine()) {
+            return false;
+        }
+        ++processedLinesCount;
+        if (logger.isTraceEnabled()) {
+            logger.trace("RawLogLine {}", StructuredArguments.value("RawLogLine", new String(line, 0, lineLength, charset)));
+        }
+        return true;
+    }
+
+    /**
+     * @return the buffer containing the bytes of the last read line starting from the index 0.
+     * The buffer is reused for the next lines
+     */
+    @Override
+    public byte[] getLineBytes() {
+        return line;
+    }
+
+    @Override
+    public int getLineLength() {
+        return lineLength;
+    }
+
+    public boolean isClosed() {
+        return closeState;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            closeState = true;
+        }
+        logger.info("Close log file {}", StructuredArguments.value("fileName", file));
+    }
+
+    /**
+     * Reads the next complete line into {@link #line} buffer without the line terminator.
+     * The bytes of the incomplete line are kept between the calls.
+     *
+     * @return {@code true} if the complete line was read
+     */
+    private boolean readLine() throws IOException {
+        if (lineComplete) {
+            lineLength = 0;
+            lineComplete = false;
+        }
+        while (true) {
+            byte[] array = buffer.array();
+            int start = buffer.position();
+            int limit = buffer.limit();
+            for (int i = start; i < limit; i++) {
+                if (array[i] == LF) {
+                    append(array, start, i - start);
+                    buffer.position(i + 1);
+                    long lineStart = position;
+                    position += lineLength + 1;
+                    if (lineIndex != null) {
+                        lineIndex.onLine(lineStart, position);
+                    }
+                    if (lineLength > 0 && line[lineLength - 1] == CR) {
+                        lineLength--;
+                    }
+                    lineComplete = true;
+                    return true;
+                }
+            }
+            append(array, start, limit - start);
+            buffer.clear();
+            int read = readData();
+            buffer.flip();
+            if (read <= 0) {
+                return false;
+            }
+            if (!compressed && readPosition < HEAD_SIZE) {
+                int headPart = (int)Math.min(HEAD_SIZE - readPosition, read);
+                System.arraycopy(buffer.array(), 0, head, (int)readPosition, headPart);
+                headLength = (int)readPosition + headPart;
+            }
+            readPosition += read;
+        }
+    }
+
+    private int readData() throws IOException {
+        if (decoder == null) {
+            return channel.read(buffer, readPosition);
+        }
+        int read = decoder.read(buffer.array(), buffer.position(), buffer.remaining());
+        buffer.position(buffer.position() + read);
+        return read;
+    }
+
+    private int readHead(byte[] destination, int length) throws IOException {
+        headBuffer.clear().limit(length);
+        int read;
+        do {
+            read = channel.read(headBuffer, headBuffer.position());
+        } while (read > 0 && headBuffer.hasRemaining());
+        int total = headBuffer.position();
+        if (destination != headBuffer.array()) {
+            System.arraycopy(headBuffer.array(), 0, destination, 0, total);
+        }
+        return total;
+    }
+
+    static String fileId(Path path) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        Object fileKey = attributes.fileKey();
+        // file key is not available on some file systems. The creation time is the best we can use in that case
+        return fileKey == null ? String.valueOf(attributes.creationTime().toMillis()) : fileKey.toString();
+    }
+
+    private void append(byte[] src, int offset, int length) {
+        if (length == 0) {
+            return;
+        }
+        int required = lineLength + length;
+        if (required > line.length) {
+            line = Arrays.copyOf(line, Math.max(required, line.length * 2));
+        }
+        System.arraycopy(src, offset, line, lineLength, length);
+        lineLength = required;
+    }
 }
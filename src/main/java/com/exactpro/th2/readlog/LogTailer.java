@@ -0,0 +1,461 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.readlog;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.exactpro.th2.common.grpc.Direction;
+import com.exactpro.th2.common.grpc.RawMessageBatch;
+import com.exactpro.th2.common.schema.message.MessageRouter;
+import com.exactpro.th2.readlog.cfg.BackfillMode;
+import com.exactpro.th2.readlog.cfg.LogReaderConfiguration;
+
+import net.logstash.logback.argument.StructuredArguments;
+
+/**
+ * Reads a single log file or another {@link LineSource} and publishes the parsed lines under its own session alias.
+ *
+ * The work is done in steps by {@link #step()} method. Each step reads a limited number of lines and returns,
+ * so many tailers can share a small pool of threads.
+ *
+ * NOTE: This class is not thread-safe
+ */
+public class LogTailer implements AutoCloseable {
+    /** Returned by {@link #step()} when lines were read and the next step should be executed immediately */
+    public static final long DATA_READ = 0;
+    /** Returned by {@link #step()} when the end of the file is reached */
+    public static final long NO_DATA = -1;
+    /** Returned by {@link #step()} when the lines in flight are not published yet. The tailer calls the wake-up listener when it can continue */
+    public static final long BUSY = -2;
+    /**
+     * Returned by {@link #step()} when the file is read till the end in the {@link BackfillMode#EXIT} mode
+     * or the source has no more lines. The tailer must be closed
+     */
+    public static final long FINISHED = -3;
+
+    static final int MAX_LINES_PER_STEP = 10_000;
+    /** The backfill is published in slices, so the tailer can be closed and other tailers can run in the meantime */
+    private static final long MAX_BACKFILL_STEP_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private static final Logger logger = LoggerFactory.getLogger(LogTailer.class);
+
+    /** It is {@code null} if the lines are read from another source */
+    private final Path file;
+    /** The file or another source for logging */
+    private final Object sourceName;
+    private final String sessionAlias;
+    private final Deque<AutoCloseable> resources = new ArrayDeque<>();
+    private final LineSource source;
+    /** The reader of the file. It is {@code null} if the lines are read from another source */
+    private final LogReader reader;
+    private final MessagePublisher publisher;
+    private final ParsingPipeline pipeline;
+    /** Joins the lines into records. It is {@code null} if each line is a record */
+    private final RecordAssembler assembler;
+
+    private final PublicationRateLimiter rateLimiter;
+    private final ReaderMetrics metrics;
+    /** Reads the existing content in parallel on the first step. It is {@code null} if the backfill is done or not applicable */
+    private Backfill backfill;
+    /** The tailer finishes at the end of the file instead of waiting for new lines */
+    private final boolean exitAtEnd;
+
+    private boolean draining;
+    /** The {@link System#nanoTime()} the suspended time was last counted at or {@code -1} if the reading is not throttled */
+    private long throttledSince = -1;
+
+    /**
+     * @param parserExecutor parses the lines concurrently. If it is {@code null} the lines are parsed by the thread executing the steps
+     * @param rateLimiter limits the publication rate. It can be shared by several tailers
+     * @param timer publishes the batches that are not full once they are older than the maximum batch latency
+     * @param senderExecutor sends the batches asynchronously. If it is {@code null} the batches are sent by the publishing thread
+     * @param backfillPool reads the existing content in parallel. If it is {@code null} the content is read line by line
+     * @param wakeUpListener is called when the tailer that returned {@link #BUSY} from the {@link #step()} can continue
+     */
+    public LogTailer(Path file, String sessionAlias, LogParser logParser, MessageRouter<RawMessageBatch> router,
+                     LogReaderConfiguration configuration, PublicationRateLimiter rateLimiter, Executor parserExecutor,
+                     ScheduledExecutorService timer, ScheduledExecutorService senderExecutor, ForkJoinPool backfillPool,
+                     Runnable wakeUpListener) throws IOException {
+        this(Objects.requireNonNull(file, "'File' parameter"), null, sessionAlias, logParser, router, configuration, rateLimiter,
+                parserExecutor, timer, senderExecutor, backfillPool, wakeUpListener);
+    }
+
+    /**
+     * Reads the lines from the source instead of a file. The source is closed with the tailer or if the tailer cannot be created.
+     * The position of such source is not saved to the checkpoint and the existing content is not backfilled.
+     *
+     * @param wakeUpListener is called when the tailer that returned {@link #BUSY} from the {@link #step()} can continue
+     * or the source has new lines
+     */
+    public LogTailer(LineSource source, String sessionAlias, LogParser logParser, MessageRouter<RawMessageBatch> router,
+                     LogReaderConfiguration configuration, PublicationRateLimiter rateLimiter, Executor parserExecutor,
+                     ScheduledExecutorService timer, ScheduledExecutorService senderExecutor, Runnable wakeUpListener) throws IOException {
+        this(null, Objects.requireNonNull(source, "'Source' parameter"), sessionAlias, logParser, router, configuration, rateLimiter,
+                parserExecutor, timer, senderExecutor, null, wakeUpListener);
+    }
+
+    private LogTailer(Path file, LineSource lineSource, String sessionAlias, LogParser logParser, MessageRouter<RawMessageBatch> router,
+                      LogReaderConfiguration configuration, PublicationRateLimiter rateLimiter, Executor parserExecutor,
+                      ScheduledExecutorService timer, ScheduledExecutorService senderExecutor, ForkJoinPool backfillPool,
+                      Runnable wakeUpListener) throws IOException {
+        this.file = file;
+        sourceName = file == null ? lineSource : file;
+        this.sessionAlias = Objects.requireNonNull(sessionAlias, "'Session alias' parameter");
+        Objects.requireNonNull(logParser, "'Log parser' parameter");
+        Objects.requireNonNull(router, "'Router' parameter");
+        Objects.requireNonNull(configuration, "'Configuration' parameter");
+        this.rateLimiter = Objects.requireNonNull(rateLimiter, "'Rate limiter' parameter");
+        exitAtEnd = file != null && configuration.getBackfillMode() == BackfillMode.EXIT;
+
+        try {
+            metrics = new ReaderMetrics(sessionAlias);
+            resources.add(metrics);
+            if (file == null) {
+                reader = null;
+                source = lineSource;
+            } else {
+                LineIndex lineIndex = null;
+                File lineIndexDirectory = configuration.getLineIndexDirectory();
+                if (lineIndexDirectory != null) {
+                    Files.createDirectories(lineIndexDirectory.toPath());
+                    lineIndex = new LineIndex(new File(lineIndexDirectory, sessionAlias + ".index"), configuration.getLineIndexInterval());
+                    resources.add(lineIndex);
+                }
+                reader = new LogReader(file.toFile(), configuration.getCharset(), lineIndex);
+                source = reader;
+            }
+            resources.add(source);
+
+            BatchSender sender = senderExecutor == null ? null : new BatchSender(sessionAlias, router, senderExecutor, configuration, wakeUpListener);
+            long firstSequence = LogPublisher.firstSequence();
+            LogPublisher.PublicationListener listener = LogPublisher.PublicationListener.NONE;
+            File checkpointDirectory = configuration.getCheckpointDirectory();
+            if (checkpointDirectory != null && reader != null) {
+                Files.createDirectories(checkpointDirectory.toPath());
+                CheckpointStore checkpointStore = new CheckpointStore(new File(checkpointDirectory, sessionAlias + ".checkpoint"),
+                        configuration.getCheckpointSyncPolicy(), configuration.getCheckpointSyncIntervalMs(), timer);
+                resources.add(checkpointStore);
+                firstSequence = resume(checkpointStore.load());
+                listener = (offset, sequence) -> checkpointStore.save(reader.checkpoint(offset, sequence));
+            }
+            // the routes share the sender, so the checkpoint is sent after the batches of all routes
+            BatchLimits batchLimits = BatchLimits.fromConfiguration(configuration);
+            RoutingPublisher.PublisherFactory publisherFactory = (alias, direction, sequence, publicationListener) ->
+                    // each publisher has its own extractor because the extractor caches the last timestamp
+                    new LogPublisher(alias, direction, router, batchLimits, sequence, publicationListener, timer,
+                            TimestampExtractor.fromConfiguration(configuration), metrics, sender);
+            RouteResolver routeResolver = RouteResolver.fromConfiguration(configuration);
+            long startSequence = firstSequence;
+            DeduplicatingPublisher.DelegateFactory delegateFactory = publicationListener -> routeResolver == null
+                    ? publisherFactory.create(sessionAlias, Direction.FIRST, startSequence, publicationListener)
+                    : new RoutingPublisher(sessionAlias, startSequence, routeResolver, configuration.getRouting().getMaxAliases(),
+                            publicationListener, publisherFactory);
+            if (configuration.getDedupMaxMessages() > 0) {
+                // the fingerprints are saved next to the checkpoint, so they match the position the reading resumes from
+                File snapshotFile = checkpointDirectory == null || reader == null ? null : new File(checkpointDirectory, sessionAlias + ".dedup");
+                publisher = new DeduplicatingPublisher(sessionAlias, configuration.getDedupMaxMessages(), configuration.getDedupMaxAgeMs(),
+                        snapshotFile, configuration.getDedupSnapshotIntervalMs(), metrics, listener, delegateFactory);
+            } else {
+                publisher = delegateFactory.create(listener);
+            }
+            resources.add(publisher);
+            pipeline = new ParsingPipeline(logParser, publisher, rateLimiter, metrics, parserExecutor,
+                    configuration.getParserChunkLines(), configuration.getParserChunksInFlight(), wakeUpListener);
+            String recordStartRegexp = configuration.getRecordStartRegexp();
+            assembler = recordStartRegexp == null ? null : new RecordAssembler(recordStartRegexp, configuration.getCharset(),
+                    configuration.getRecordMaxLines(), configuration.getRecordMaxBytes(), configuration.getRecordFlushTimeoutMs(),
+                    pipeline::add);
+            if (backfillPool != null && reader != null && configuration.getBackfillMode() != BackfillMode.NONE) {
+                if (reader.isCompressed() || assembler != null) {
+                    logger.warn("Log file {} is read line by line because the parallel backfill does not support {}", file,
+                            reader.isCompressed() ? "compressed files" : "multi-line records");
+                } else {
+                    // the backfilled lines are not passed through the reader, so they are indexed from the ranges
+                    backfill = new Backfill(file, logParser, backfillPool, configuration.getBackfillRangeBytes(),
+                            configuration.getBackfillRangesInFlight(), reader::indexLine);
+                    resources.add(backfill);
+                }
+            }
+            source.setDataListener(wakeUpListener);
+        } catch (IOException | RuntimeException e) {
+            closeResources();
+            throw e;
+        }
+        logger.info("Tailer for {} started with {} session alias", StructuredArguments.value("source", sourceName),
+                StructuredArguments.value("sessionAlias", sessionAlias));
+    }
+
+    /**
+     * @return the file or {@code null} if the lines are read from another source
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    public String getSessionAlias() {
+        return sessionAlias;
+    }
+
+    /**
+     * Changes the batch limits of the publisher. The pending batches are kept
+     */
+    public void setBatchLimits(BatchLimits limits) {
+        publisher.setBatchLimits(limits);
+    }
+
+    /**
+     * Reads and publishes the next portion of lines.
+     *
+     * @return {@link #DATA_READ} if the lines were read, {@link #NO_DATA} if the end of the file is reached,
+     * {@link #BUSY} if the lines or batches in flight must be published first, {@link #FINISHED} if the file is read till the end
+     * and the tailer must not wait for new lines,
+     * or the delay in milliseconds before the next step if the publication is throttled
+     */
+    public long step() throws IOException {
+        pipeline.checkFailure();
+        publisher.checkFailure();
+        if (backfill != null) {
+            return backfill();
+        }
+        if (reader != null && reader.isTruncated()) {
+            logger.info("Log file {} was truncated. Reading from the beginning", file);
+            // the lines read before truncation must be published with the old positions
+            drainPipeline();
+            reader.close();
+            reader.open();
+        }
+
+        int linesRead = 0;
+        long bytesRead = 0;
+        boolean endOfFile = false;
+        long suspended = DATA_READ;
+        while (linesRead < MAX_LINES_PER_STEP) {
+            suspended = suspension();
+            if (suspended != DATA_READ) {
+                break;
+            }
+
+            if (!source.readNextLine()) {
+                endOfFile = true;
+                break;
+            }
+            linesRead++;
+            bytesRead += source.getLineLength();
+            if (assembler == null) {
+                pipeline.add(source.getLineBytes(), source.getLineLength(), source.getPosition());
+            } else {
+                assembler.add(source.getLineBytes(), source.getLineLength(), source.getPosition());
+            }
+        }
+        // the metrics are updated once per step to keep the reading loop cheap
+        metrics.onRead(linesRead, bytesRead);
+        metrics.setLag(source.getLag());
+        if (suspended != DATA_READ) {
+            return suspended;
+        }
+        if (endOfFile) {
+            if (assembler != null) {
+                // the last record is completed only by the next record or by the timeout
+                assembler.flushIfExpired();
+            }
+            // do not wait for the chunk to be filled if there are no more lines
+            pipeline.submit();
+        }
+
+        if (linesRead > 0) {
+            return DATA_READ;
+        }
+        if (switchIfRotated()) {
+            return DATA_READ;
+        }
+        if (!pipeline.flush()) {
+            return BUSY;
+        }
+        if (exitAtEnd || source.isFinished()) {
+            drainPipeline();
+            return FINISHED;
+        }
+        return NO_DATA;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            drainPipeline();
+        } finally {
+            closeResources();
+        }
+        logger.info("Tailer for {} stopped", StructuredArguments.value("source", sourceName));
+    }
+
+    /**
+     * Switches to the new file if the old one was rotated.
+     * The old file is read until it stays without changes for one poll interval because the writer might still append to it
+     * right after the rotation. The sequence continues in the new file.
+     *
+     * @return {@code true} if the reader is switched to the new file
+     */
+    private boolean switchIfRotated() throws IOException {
+        if (reader == null || !reader.isRotated()) {
+            draining = false;
+            return false;
+        }
+        if (!draining) {
+            logger.info("Log file {} was rotated. Draining the old file", file);
+            draining = true;
+            return false;
+        }
+        draining = false;
+        // the checkpoint of the lines from the old file must refer to the old file
+        drainPipeline();
+        reader.close();
+        reader.open();
+        logger.info("Switched to the new log file {}", file);
+        return true;
+    }
+
+    /**
+     * Publishes the next slice of the existing content in parallel.
+     * Once the content is published the reader is moved right after the last published line
+     *
+     * @return the result of the step
+     */
+    private long backfill() throws IOException {
+        if (!backfill.isStarted()) {
+            backfill.start(reader.getPosition());
+        }
+        long suspended = backfill.publish(publisher, rateLimiter, metrics, MAX_BACKFILL_STEP_NANOS, this::suspension);
+        if (!backfill.isFinished()) {
+            return suspended;
+        }
+        long end = backfill.getEnd();
+        backfill.close();
+        backfill = null;
+        publisher.awaitSent();
+        reader.seek(end);
+        metrics.setLag(reader.getLag());
+        return DATA_READ;
+    }
+
+    private void drainPipeline() throws IOException {
+        if (assembler != null) {
+            assembler.flush();
+        }
+        try {
+            pipeline.drain();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the lines of " + sourceName + " to be published");
+        }
+        pipeline.flush();
+        publisher.awaitSent();
+    }
+
+    /**
+     * @return {@link #DATA_READ} if the reading can continue, {@link #BUSY} if the lines or batches in flight must be published first,
+     * or the delay in milliseconds before the next step if the publication is throttled
+     */
+    private long suspension() {
+        long throttleDelay = throttleDelay();
+        if (throttleDelay > 0) {
+            return throttleDelay;
+        }
+        if (pipeline.isFull() || publisher.isBusy()) {
+            return BUSY;
+        }
+        return DATA_READ;
+    }
+
+    /**
+     * @return the delay in milliseconds rounded up or {@code 0} if the reading can continue
+     */
+    private long throttleDelay() {
+        long delayNanos = rateLimiter.isEnabled() ? rateLimiter.getDelayNanos() : 0;
+        countThrottled(delayNanos > 0);
+        if (delayNanos == 0) {
+            return 0;
+        }
+        if (logger.isTraceEnabled()) {
+            logger.trace("Suspend reading {} for {} ns", sourceName, delayNanos);
+        }
+        return TimeUnit.NANOSECONDS.toMillis(delayNanos + TimeUnit.MILLISECONDS.toNanos(1) - 1);
+    }
+
+    /**
+     * Counts the time actually spent suspended rather than the requested delays, because the reading is usually
+     * suspended again several times before the limiter allows it to continue
+     */
+    private void countThrottled(boolean throttled) {
+        if (throttledSince < 0 && !throttled) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (throttledSince >= 0) {
+            metrics.onThrottled(now - throttledSince);
+        }
+        throttledSince = throttled ? now : -1;
+    }
+
+    /**
+     * Moves the reader to the checkpoint if it belongs to the same file.
+     *
+     * @return the sequence to continue from
+     */
+    private long resume(Checkpoint checkpoint) throws IOException {
+        if (checkpoint == null) {
+            logger.info("No checkpoint found for {}. Reading from the beginning", file);
+            return LogPublisher.firstSequence();
+        }
+        if (!checkpoint.getFileId().equals(reader.getFileId()) || !reader.seek(checkpoint)) {
+            logger.info("Checkpoint {} does not match the log file {}. Reading from the beginning", checkpoint, reader.getFileId());
+            return checkpoint.getSequence();
+        }
+        logger.info("Resume reading {} from {}", file, checkpoint);
+        return checkpoint.getSequence();
+    }
+
+    private void closeResources() throws IOException {
+        IOException exception = null;
+        while (!resources.isEmpty()) {
+            try {
+                resources.removeLast().close();
+            } catch (Exception e) {
+                if (exception == null) {
+                    exception = new IOException("Cannot close resources of " + sourceName);
+                }
+                exception.addSuppressed(e);
+            }
+        }
+        if (exception != null) {
+            throw exception;
+        }
+    }
+}
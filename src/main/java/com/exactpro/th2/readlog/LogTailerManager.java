@@ -0,0 +1,674 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.readlog;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.exactpro.th2.common.grpc.RawMessageBatch;
+import com.exactpro.th2.common.schema.message.MessageRouter;
+import com.exactpro.th2.readlog.cfg.BackfillMode;
+import com.exactpro.th2.readlog.cfg.LogReaderConfiguration;
+import com.exactpro.th2.readlog.cfg.ParserType;
+import com.exactpro.th2.readlog.cfg.RateLimitScope;
+import com.exactpro.th2.readlog.cfg.SourceConfiguration;
+import com.exactpro.th2.readlog.cfg.SourceType;
+
+import net.logstash.logback.argument.StructuredArguments;
+
+/**
+ * Starts a {@link LogTailer} for each file matching the configured patterns and runs them on a shared bounded pool of threads.
+ *
+ * The patterns are rescanned periodically. The tailers for new files are started. The tailers for removed files are stopped
+ * once they read the files till the end.
+ * A tailer that reached the end of its file is woken up by the {@link FileChangeWatcher} or by the poll interval.
+ * The interval starts from the minimal value and doubles while the file stays unchanged.
+ *
+ * The configured sources other than files (standard input, named pipes and syslog listeners) are started once
+ * and woken up by the sources themselves when they receive new lines.
+ *
+ * In the {@link BackfillMode#EXIT} mode each file is read once and the manager terminates when all started tailers are finished.
+ * Without log files the manager terminates when all sources are finished.
+ *
+ * The parser, the filter, the rate limits and the batch limits can be replaced by {@link #reconfigure(LogReaderConfiguration)}
+ * without stopping the tailers. The other options are applied on restart.
+ */
+public class LogTailerManager implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(LogTailerManager.class);
+
+    private final LogReaderConfiguration configuration;
+    private final MessageRouter<RawMessageBatch> router;
+    private final ReloadableLogParser logParser;
+    /** It is {@code null} if only the sources other than files are configured */
+    private final LogFileResolver resolver;
+    private final ScheduledExecutorService executor;
+    private final ExecutorService parserExecutor;
+    /** Sends the batches if the sending is asynchronous. The tailers must not run on it because the publishing blocks while the sender is full */
+    private final ScheduledExecutorService senderExecutor;
+    /** Reads the existing content of the files in parallel. It is {@code null} if the backfill is disabled */
+    private final ForkJoinPool backfillPool;
+    /** Shared by all tailers if the rate limit scope is {@link RateLimitScope#GLOBAL} */
+    private final PublicationRateLimiter globalRateLimiter;
+    private final FileChangeWatcher watcher = new FileChangeWatcher();
+    private final CountDownLatch closed = new CountDownLatch(1);
+
+    /** Guarded by this */
+    private final Map<Path, Worker> workers = new HashMap<>();
+    /** The workers of the sources other than files. Guarded by this */
+    private final List<Worker> sourceWorkers = new ArrayList<>();
+    /** The file or the source that uses the session alias. Guarded by this */
+    private final Map<String, Object> aliases = new HashMap<>();
+    /** The files read till the end in the {@link BackfillMode#EXIT} mode. Guarded by this */
+    private final Set<Path> finishedFiles = new HashSet<>();
+    private volatile boolean allFinished;
+    /** The last configuration applied by {@link #reconfigure(LogReaderConfiguration)}. Guarded by this */
+    private LogReaderConfiguration reloaded;
+
+    public LogTailerManager(LogReaderConfiguration configuration, MessageRouter<RawMessageBatch> router) {
+        this.configuration = Objects.requireNonNull(configuration, "'Configuration' parameter");
+        this.router = Objects.requireNonNull(router, "'Router' parameter");
+        verifyPositive(configuration.getMinPollIntervalMs(), "'minPollIntervalMs' must be a positive integer");
+        verifyPositive(configuration.getMaxPollIntervalMs() - configuration.getMinPollIntervalMs() + 1,
+                "'maxPollIntervalMs' must not be less than 'minPollIntervalMs'");
+        BatchLimits.fromConfiguration(configuration);
+        verifyPositive(configuration.getDirectoryScanIntervalMs(), "'directoryScanIntervalMs' must be a positive integer");
+        int threads = configuration.getMaxThreads();
+        verifyPositive(threads, "'maxThreads' must be a positive integer");
+        int parserThreads = configuration.getParserThreads();
+        verifyPositive(parserThreads + 1, "'parserThreads' must not be negative");
+        if (configuration.isAsyncSend()) {
+            verifyPositive(configuration.getSendThreads(), "'sendThreads' must be a positive integer");
+        }
+        BackfillMode backfillMode = Objects.requireNonNull(configuration.getBackfillMode(), "'Backfill mode' configuration");
+        int backfillThreads = configuration.getBackfillThreads();
+        if (backfillMode != BackfillMode.NONE) {
+            verifyPositive(backfillThreads + 1, "'backfillThreads' must not be negative");
+            verifyPositive(configuration.getBackfillRangeBytes(), "'backfillRangeBytes' must be a positive integer");
+            verifyPositive(configuration.getBackfillRangesInFlight(), "'backfillRangesInFlight' must be a positive integer");
+        }
+        if (configuration.getDedupMaxMessages() > 0) {
+            verifyPositive(configuration.getDedupMaxAgeMs() + 1, "'dedupMaxAgeMs' must not be negative");
+            verifyPositive(configuration.getDedupSnapshotIntervalMs(), "'dedupSnapshotIntervalMs' must be a positive integer");
+        }
+        if (configuration.getLineIndexDirectory() != null) {
+            verifyPositive(configuration.getLineIndexInterval(), "'lineIndexInterval' must be a positive integer");
+        }
+        List<SourceConfiguration> sources = Objects.requireNonNull(configuration.getSources(), "'Sources' configuration");
+        Set<String> sourceAliases = new HashSet<>();
+        for (SourceConfiguration source : sources) {
+            verifySource(source);
+            if (!sourceAliases.add(source.getSessionAlias())) {
+                throw new IllegalArgumentException("Session alias " + source.getSessionAlias() + " is used by several sources");
+            }
+        }
+
+        // validates the limits even if each file has its own limiter
+        PublicationRateLimiter rateLimiter = new PublicationRateLimiter(configuration);
+        globalRateLimiter = configuration.getRateLimit().getScope() == RateLimitScope.GLOBAL ? rateLimiter : null;
+        // validates the timestamp options before the tailers create their own extractors
+        TimestampExtractor.fromConfiguration(configuration);
+        // validates the routing rules before the tailers create their own resolvers
+        RouteResolver.fromConfiguration(configuration);
+        logParser = new ReloadableLogParser(createParser(configuration));
+        List<String> patterns = configuration.getLogFilePatterns();
+        resolver = patterns.isEmpty() && !sources.isEmpty() ? null : new LogFileResolver(patterns);
+        ScheduledThreadPoolExecutor pool = new ScheduledThreadPoolExecutor(threads, new DaemonThreadFactory("log-tailer-"));
+        pool.setRemoveOnCancelPolicy(true);
+        executor = pool;
+        // the number of tasks is limited by the number of chunks in flight for each file
+        parserExecutor = parserThreads == 0 ? null : Executors.newFixedThreadPool(parserThreads, new DaemonThreadFactory("log-parser-"));
+        senderExecutor = configuration.isAsyncSend()
+                ? new ScheduledThreadPoolExecutor(configuration.getSendThreads(), new DaemonThreadFactory("log-sender-"))
+                : null;
+        backfillPool = backfillMode == BackfillMode.NONE ? null
+                : new ForkJoinPool(backfillThreads == 0 ? Runtime.getRuntime().availableProcessors() : backfillThreads,
+                        new BackfillThreadFactory(), null, false);
+        logger.info("Log files {} and {} source(s) are read by {} thread(s) and parsed by {} thread(s)",
+                StructuredArguments.value("patterns", patterns), sources.size(), threads,
+                parserThreads == 0 ? "the same" : parserThreads);
+    }
+
+    public void start() {
+        synchronized (this) {
+            // the sources take their aliases before the files are found
+            for (SourceConfiguration source : configuration.getSources()) {
+                startSource(source);
+            }
+        }
+        if (resolver != null) {
+            executor.scheduleWithFixedDelay(this::rescan, 0, configuration.getDirectoryScanIntervalMs(), TimeUnit.MILLISECONDS);
+        } else {
+            // none of the sources may have started
+            terminateIfFinished();
+        }
+    }
+
+    /**
+     * Blocks until the manager is closed or, in the {@link BackfillMode#EXIT} mode, until all files are read
+     */
+    public void awaitTermination() throws InterruptedException {
+        closed.await();
+    }
+
+    /**
+     * @return {@code true} if all files are read in the {@link BackfillMode#EXIT} mode or all sources are finished.
+     * The manager must be closed
+     */
+    public boolean isFinished() {
+        return allFinished;
+    }
+
+    @Override
+    public void close() throws Exception {
+        List<Worker> toClose;
+        synchronized (this) {
+            toClose = new ArrayList<>(workers.values());
+            toClose.addAll(sourceWorkers);
+            workers.clear();
+            sourceWorkers.clear();
+            aliases.clear();
+        }
+        executor.shutdown();
+        for (Worker worker : toClose) {
+            worker.close();
+        }
+        if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+            logger.warn("Tailers are not stopped in time");
+            executor.shutdownNow();
+        }
+        if (parserExecutor != null) {
+            parserExecutor.shutdownNow();
+        }
+        if (senderExecutor != null) {
+            // the tailers wait for their batches to be sent when they are closed
+            senderExecutor.shutdownNow();
+        }
+        if (backfillPool != null) {
+            backfillPool.shutdownNow();
+        }
+        watcher.close();
+        closed.countDown();
+        logger.info("Tailer manager closed");
+    }
+
+    /**
+     * Applies the parser, the filter, the rate limits and the batch limits of the new configuration to the running tailers
+     * and to the tailers started later. Each record is parsed by either the old or the new parser, and the pending batches
+     * are kept and published according to the new limits. The other options are ignored until restart.
+     *
+     * @return {@code true} if the configuration is applied or {@code false} if it is invalid and the current one stays active
+     */
+    public synchronized boolean reconfigure(LogReaderConfiguration newConfiguration) {
+        LogParser parser;
+        try {
+            Objects.requireNonNull(newConfiguration, "'Configuration' parameter");
+            if (!Objects.equals(newConfiguration.getCharset(), configuration.getCharset())) {
+                throw new IllegalArgumentException("'charset' cannot be changed without restart");
+            }
+            BatchLimits.fromConfiguration(newConfiguration);
+            // validates the rate limits before any of them is replaced
+            new PublicationRateLimiter(newConfiguration);
+            parser = createParser(newConfiguration);
+        } catch (RuntimeException e) {
+            logger.error("New configuration is rejected, the current one stays active", e);
+            return false;
+        }
+        RateLimitScope scope = newConfiguration.getRateLimit().getScope();
+        if (scope != configuration.getRateLimit().getScope()) {
+            logger.warn("Rate limit scope {} is applied on restart, the limits are applied with the current scope", scope);
+        }
+
+        LogParser previous = logParser.getParser();
+        logParser.setParser(parser);
+        if (previous instanceof FilteringLogParser) {
+            ((FilteringLogParser)previous).removeMetrics(parser);
+        }
+        if (globalRateLimiter != null) {
+            globalRateLimiter.reconfigure(newConfiguration);
+        }
+        reloaded = newConfiguration;
+        workers.values().forEach(this::applyReloaded);
+        sourceWorkers.forEach(this::applyReloaded);
+        logger.info("New parser, filter, rate and batch limits are applied to {} tailer(s)", workers.size() + sourceWorkers.size());
+        return true;
+    }
+
+    /**
+     * Must be called under the lock of the manager
+     */
+    private void applyReloaded(Worker worker) {
+        if (reloaded == null) {
+            return;
+        }
+        if (worker.rateLimiter != globalRateLimiter) {
+            worker.rateLimiter.reconfigure(reloaded);
+        }
+        worker.tailer.setBatchLimits(BatchLimits.fromConfiguration(reloaded));
+    }
+
+    private void rescan() {
+        try {
+            Set<Path> files = resolver.resolve();
+            synchronized (this) {
+                if (executor.isShutdown()) {
+                    return;
+                }
+                workers.forEach((file, worker) -> worker.setFinishing(!files.contains(file)));
+                for (Path file : files) {
+                    if (!workers.containsKey(file) && !finishedFiles.contains(file)) {
+                        startWorker(file);
+                    }
+                }
+            }
+            // in the EXIT mode the manager terminates right away if no files are found
+            terminateIfFinished();
+        } catch (Exception e) {
+            logger.error("Cannot scan log files", e);
+        }
+    }
+
+    private void startWorker(Path file) {
+        String sessionAlias = file.getFileName().toString();
+        Object sameAlias = aliases.get(sessionAlias);
+        if (sameAlias != null) {
+            logger.warn("Log file {} is skipped because its session alias is already used for {}", file, sameAlias);
+            return;
+        }
+        try {
+            Worker worker = new Worker(file, sessionAlias);
+            applyReloaded(worker);
+            workers.put(file, worker);
+            aliases.put(sessionAlias, file);
+            watcher.register(file, worker::wakeUp);
+            worker.schedule(0);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Cannot start reading {}", file, e);
+        }
+    }
+
+    private void startSource(SourceConfiguration configuration) {
+        String sessionAlias = configuration.getSessionAlias();
+        LineSource source = null;
+        try {
+            source = createSource(configuration);
+            Worker worker = new Worker(source, sessionAlias);
+            applyReloaded(worker);
+            sourceWorkers.add(worker);
+            aliases.put(sessionAlias, source);
+            worker.schedule(0);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Cannot start reading {} source{}", configuration.getType(), source == null ? "" : " " + source, e);
+        }
+    }
+
+    private void remove(Worker worker) {
+        synchronized (this) {
+            Path file = worker.tailer.getFile();
+            if (file == null ? sourceWorkers.remove(worker) : workers.remove(file, worker)) {
+                aliases.remove(worker.tailer.getSessionAlias());
+            }
+        }
+        worker.close();
+    }
+
+    /**
+     * Removes the worker that read its file till the end in the {@link BackfillMode#EXIT} mode or whose source is finished.
+     * The manager terminates when no other workers remain and no new files are expected
+     */
+    private void finish(Worker worker) {
+        Path file = worker.tailer.getFile();
+        if (file != null) {
+            synchronized (this) {
+                finishedFiles.add(file);
+            }
+        }
+        remove(worker);
+        terminateIfFinished();
+    }
+
+    /**
+     * Terminates the manager if no workers remain and no new files are expected
+     */
+    private void terminateIfFinished() {
+        synchronized (this) {
+            boolean newFilesExpected = resolver != null && configuration.getBackfillMode() != BackfillMode.EXIT;
+            if (!workers.isEmpty() || !sourceWorkers.isEmpty() || newFilesExpected || allFinished || executor.isShutdown()) {
+                return;
+            }
+            allFinished = true;
+            logger.info("All {} log file(s) and sources are read till the end", finishedFiles.size());
+        }
+        closed.countDown();
+    }
+
+    private PublicationRateLimiter createRateLimiter() {
+        return globalRateLimiter == null ? new PublicationRateLimiter(configuration) : globalRateLimiter;
+    }
+
+    private static LineSource createSource(SourceConfiguration configuration) throws IOException {
+        int maxMessageBytes = configuration.getMaxMessageBytes();
+        int capacity = configuration.getQueueCapacity();
+        switch (configuration.getType()) {
+        case STDIN:
+            return PipeLineSource.stdin(maxMessageBytes, capacity).start();
+        case PIPE:
+            return PipeLineSource.namedPipe(configuration.getPath().toPath(), maxMessageBytes, capacity).start();
+        case SYSLOG_UDP:
+        case SYSLOG_TCP:
+            InetSocketAddress address = new InetSocketAddress(configuration.getHost(), configuration.getPort());
+            return new SyslogLineSource(configuration.getType() == SourceType.SYSLOG_TCP, address, maxMessageBytes, capacity).start();
+        default:
+            throw new IllegalArgumentException("Unsupported source " + configuration.getType());
+        }
+    }
+
+    private static void verifySource(SourceConfiguration source) {
+        SourceType type = Objects.requireNonNull(source.getType(), "'Type' source configuration");
+        Objects.requireNonNull(source.getSessionAlias(), "'Session alias' source configuration");
+        verifyPositive(source.getMaxMessageBytes(), "'maxMessageBytes' must be a positive integer");
+        verifyPositive(source.getQueueCapacity(), "'queueCapacity' must be a positive integer");
+        if (type == SourceType.PIPE && source.getPath() == null) {
+            throw new IllegalArgumentException("'path' must be specified for " + type + " source");
+        }
+        if (type == SourceType.SYSLOG_UDP || type == SourceType.SYSLOG_TCP) {
+            Objects.requireNonNull(source.getHost(), "'Host' source configuration");
+            if (source.getPort() < 0 || source.getPort() > 0xFFFF) {
+                throw new IllegalArgumentException("'port' must be between 0 and 65535 but was " + source.getPort());
+            }
+        }
+    }
+
+    private static LogParser createParser(LogReaderConfiguration configuration) {
+        LogParser parser = createMessageParser(configuration);
+        if (FilteringLogParser.isEmpty(configuration.getFilter())) {
+            return parser;
+        }
+        return new FilteringLogParser(parser, configuration.getFilter(), configuration.getCharset());
+    }
+
+    private static LogParser createMessageParser(LogReaderConfiguration configuration) {
+        ParserType type = Objects.requireNonNull(configuration.getParser(), "'Parser' configuration");
+        switch (type) {
+        case REGEX:
+            if (configuration.getRegexp() == null) {
+                throw new IllegalArgumentException("'regexp' must be specified for " + type + " parser");
+            }
+            return new RegexLogParser(configuration.getRegexp(), configuration.getRegexpGroups(), configuration.getCharset());
+        case FIX:
+            char delimiter = configuration.getFixDelimiter();
+            if (delimiter > 0x7F) {
+                throw new IllegalArgumentException("'fixDelimiter' must be an ASCII character but was " + delimiter);
+            }
+            return new FixLogParser((byte)delimiter, Objects.requireNonNull(configuration.getFixMessageTypes(), "'fixMessageTypes' configuration"),
+                    configuration.isFixValidate());
+        default:
+            throw new IllegalArgumentException("Unsupported parser " + type);
+        }
+    }
+
+    private static void verifyPositive(long value, String message) {
+        if (value <= 0) {
+            throw new IllegalArgumentException(message);
+        }
+    }
+
+    /**
+     * Runs the steps of a single tailer one at a time
+     */
+    private class Worker implements Runnable {
+        private final PublicationRateLimiter rateLimiter = createRateLimiter();
+        private final LogTailer tailer;
+        /** The file or the source for logging */
+        private final Object name;
+        /** Guarded by this */
+        private long intervalMillis = configuration.getMinPollIntervalMs();
+        /** Guarded by this */
+        private ScheduledFuture<?> future;
+        /** Guarded by this */
+        private boolean running;
+        /** Guarded by this */
+        private boolean wakeUpRequested;
+        /** Guarded by this */
+        private boolean stopped;
+        /** Guarded by this */
+        private boolean finishing;
+        /** Guarded by this */
+        private int idleSteps;
+
+        private Worker(Path file, String sessionAlias) throws IOException {
+            tailer = new LogTailer(file, sessionAlias, logParser, router, configuration, rateLimiter,
+                    parserExecutor, executor, senderExecutor, backfillPool, this::wakeUp);
+            name = file;
+        }
+
+        /**
+         * The source wakes the worker up when it receives new lines
+         */
+        private Worker(LineSource source, String sessionAlias) throws IOException {
+            tailer = new LogTailer(source, sessionAlias, logParser, router, configuration, rateLimiter,
+                    parserExecutor, executor, senderExecutor, this::wakeUp);
+            name = source;
+        }
+
+        @Override
+        public void run() {
+            synchronized (this) {
+                if (stopped) {
+                    return;
+                }
+                future = null;
+                running = true;
+            }
+            long stepResult;
+            try {
+                synchronized (tailer) {
+                    stepResult = tailer.step();
+                }
+            } catch (Exception e) {
+                logger.error("Cannot read {}", name, e);
+                if (!endStep()) {
+                    remove(this);
+                }
+                return;
+            }
+            if (stepResult == LogTailer.FINISHED) {
+                if (endStep()) {
+                    return;
+                }
+                logger.info("{} was read till the end", name);
+                finish(this);
+                return;
+            }
+            if (endStep()) {
+                return;
+            }
+            boolean finished;
+            synchronized (this) {
+                // the file is considered read till the end if it stays unchanged for one poll interval
+                if (stepResult != LogTailer.BUSY) {
+                    idleSteps = stepResult == LogTailer.NO_DATA ? idleSteps + 1 : 0;
+                }
+                finished = finishing && idleSteps > 1;
+                if (!finished) {
+                    long delay = nextDelay(stepResult);
+                    if (wakeUpRequested) {
+                        wakeUpRequested = false;
+                        delay = 0;
+                    }
+                    schedule(delay);
+                }
+            }
+            if (finished) {
+                logger.info("Log file {} disappeared and was read till the end", tailer.getFile());
+                remove(this);
+            }
+        }
+
+        /**
+         * The tailer of the disappeared file is stopped once it reads the file till the end.
+         * The rotated file stays open until then, so its last lines are not lost
+         */
+        public synchronized void setFinishing(boolean finishing) {
+            if (this.finishing != finishing) {
+                this.finishing = finishing;
+                if (finishing) {
+                    logger.info("Log file {} disappeared. Reading it till the end", name);
+                }
+            }
+        }
+
+        /**
+         * Executes the next step immediately if the tailer is waiting for the file changes
+         */
+        public synchronized void wakeUp() {
+            if (stopped) {
+                return;
+            }
+            intervalMillis = configuration.getMinPollIntervalMs();
+            if (running || future == null) {
+                // the step is running or has just finished and the next one is not scheduled yet
+                wakeUpRequested = true;
+            } else if (future != null && future.getDelay(TimeUnit.MILLISECONDS) > 0 && future.cancel(false)) {
+                schedule(0);
+            }
+        }
+
+        /**
+         * Stops the worker. The tailer is closed right away if no step is running, otherwise by the running step once it returns,
+         * so the caller does not wait for the step
+         */
+        public void close() {
+            boolean running;
+            synchronized (this) {
+                if (stopped) {
+                    return;
+                }
+                stopped = true;
+                if (future != null) {
+                    future.cancel(false);
+                }
+                running = this.running;
+            }
+            if (tailer.getFile() != null) {
+                watcher.unregister(tailer.getFile());
+            }
+            if (!running) {
+                closeTailer();
+            }
+        }
+
+        /**
+         * Completes the running step. The tailer is closed if the worker was stopped during the step
+         *
+         * @return {@code true} if the worker is stopped
+         */
+        private boolean endStep() {
+            synchronized (this) {
+                running = false;
+                if (!stopped) {
+                    return false;
+                }
+            }
+            closeTailer();
+            return true;
+        }
+
+        private void closeTailer() {
+            synchronized (tailer) {
+                try {
+                    tailer.close();
+                } catch (Exception e) {
+                    logger.error("Cannot close tailer for {}", name, e);
+                }
+            }
+        }
+
+        private synchronized void schedule(long delay) {
+            if (stopped || executor.isShutdown()) {
+                return;
+            }
+            future = executor.schedule(this, Math.max(delay, 0), TimeUnit.MILLISECONDS);
+        }
+
+        private synchronized long nextDelay(long stepResult) {
+            if (stepResult == LogTailer.DATA_READ) {
+                intervalMillis = configuration.getMinPollIntervalMs();
+                return 0;
+            }
+            if (stepResult == LogTailer.BUSY) {
+                // the tailer wakes the worker up when it can continue
+                return configuration.getMaxPollIntervalMs();
+            }
+            if (stepResult == LogTailer.NO_DATA) {
+                long delay = intervalMillis;
+                intervalMillis = Math.min(intervalMillis * 2, configuration.getMaxPollIntervalMs());
+                return delay;
+            }
+            // throttled
+            return stepResult;
+        }
+    }
+
+    private static class BackfillThreadFactory implements ForkJoinPool.ForkJoinWorkerThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("log-backfill-" + counter.incrementAndGet());
+            return thread;
+        }
+    }
+
+    private static class DaemonThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+        private final String prefix;
+
+        private DaemonThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
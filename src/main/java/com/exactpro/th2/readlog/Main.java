@@ -16,14 +16,13 @@
 
 package com.exactpro.th2.readlog;
 
-import static com.exactpro.th2.readlog.cfg.LogReaderConfiguration.NO_LIMIT;
-
-import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayDeque;
 import java.util.Deque;
-import java.util.List;
 import java.util.Properties;
 
 import org.slf4j.Logger;
@@ -36,12 +35,13 @@ import com.exactpro.th2.readlog.cfg.LogReaderConfiguration;
 public class Main extends Object  {
 
 	private static final Logger logger = LoggerFactory.getLogger(Main.class);
+    /** The defaults of th2 common */
+    private static final String DEFAULT_CONFIG_DIRECTORY = "/var/th2/config";
+    private static final String CUSTOM_CONFIG_FILE = "custom.json";
 
 	public static void main(String[] args) {
         Deque<AutoCloseable> toDispose = new ArrayDeque<>();
 
-        // Probably we should not use shutdown hook in application that does everything in the Main thread.
-        // But I believe that it will be changed soon the and reader will become multithreading-reader.
         Runtime.getRuntime().addShutdownHook(new Thread(() -> closeResources(toDispose), "Shutdown hook"));
 
         CommonMetrics.setLiveness(true);
@@ -60,79 +60,51 @@ public class Main extends Object  {
 
         LogReaderConfiguration configuration = commonFactory.getCustomConfiguration(LogReaderConfiguration.class);
 
-        File logFile = configuration.getLogFile();
-        LogPublisher publisher = new LogPublisher(logFile.getName(), commonFactory.getMessageRouterRawBatch());
-        toDispose.add(publisher);
-
-
-		RegexLogParser logParser = new RegexLogParser(configuration.getRegexp(), configuration.getRegexpGroups());
-		CommonMetrics.setReadiness(true);
-
-		try {
-            LogReader reader = new LogReader(logFile);
-            toDispose.add(reader);
-
-            int maxBatchesPerSecond = configuration.getMaxBatchesPerSecond();
-            boolean limited = maxBatchesPerSecond != NO_LIMIT;
-            if (limited) {
-                verifyPositive(maxBatchesPerSecond, "'maxBatchesPerSecond' must be a positive integer but was " + maxBatchesPerSecond);
-                logger.info("Publication is limited to {} batch(es) per second", maxBatchesPerSecond);
+        LogTailerManager manager = new LogTailerManager(configuration, commonFactory.getMessageRouterRawBatch());
+        toDispose.add(manager);
+        manager.start();
+        if (configuration.getConfigReloadIntervalMs() > 0) {
+            Path customConfiguration = customConfigurationPath(args);
+            if (Files.isRegularFile(customConfiguration)) {
+                toDispose.add(new ConfigurationReloader(customConfiguration, configuration.getConfigReloadIntervalMs(), manager::reconfigure).start());
             } else {
-                logger.info("Publication is unlimited");
+                logger.warn("Configuration is not reloaded because {} is not found", customConfiguration);
             }
+        }
+        CommonMetrics.setReadiness(true);
 
-            long lastResetTime = System.currentTimeMillis();
-            int batchesPublished = 0;
-
-            while (true) {
-                if (limited) {
-                    if (batchesPublished >= maxBatchesPerSecond) {
-                        long currentTime = System.currentTimeMillis();
-                        long timeSinceLastReset = Math.abs(currentTime - lastResetTime);
-                        if (timeSinceLastReset < 1_000) {
-                            logger.trace("Suspend reading. Last time: {} mills, current time: {} mills, batches published: {}", lastResetTime, currentTime,
-                                    batchesPublished);
-                            Thread.sleep(1_000 - timeSinceLastReset);
-                            continue;
-                        }
-                        lastResetTime = currentTime;
-                        batchesPublished = 0;
-                    }
-                }
-
-                String line = reader.getNextLine();
-
-				if (line != null) {
-					List<String> parsedLines = logParser.parse(line);
-					for (String parsedLine: parsedLines) {
-                        if (publisher.publish(parsedLine)) {
-                            batchesPublished++;
-                        }
-					}
-				} else {
-					long linesCount = reader.getLineCount();
-
-					long processedLinesCount = reader.getProcessedLinesCount();
-
-					if (linesCount > processedLinesCount) {
-						reader.close();
-						reader.open();
-						reader.skip(processedLinesCount);
-					} else if (linesCount < processedLinesCount) {
-						reader.close();
-						reader.open();
-					} else {
-					    publisher.flush();
-						Thread.sleep(5000);
-					}
-				}
-			}
-
-		} catch (IOException| InterruptedException e) {
-			logger.error("Cannot read log file: {}", logFile, e);
-		}
+        try {
+            manager.awaitTermination();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("Main thread interrupted", e);
+        }
+        if (manager.isFinished()) {
+            // the resources are closed by the shutdown hook
+            System.exit(0);
+        }
 	}
 
+    /**
+     * Resolves the custom configuration file from the same arguments th2 common reads it from
+     */
+    private static Path customConfigurationPath(String[] args) {
+        String directory = DEFAULT_CONFIG_DIRECTORY;
+        for (int i = 0; i < args.length - 1; i++) {
+            switch (args[i]) {
+            case "--customConfiguration":
+                return Paths.get(args[i + 1]);
+            case "-c":
+            case "--configs":
+                directory = args[i + 1];
+                break;
+            default:
+                break;
+            }
+        }
+        return Paths.get(directory, CUSTOM_CONFIG_FILE);
+    }
+
     private static void closeResources(Deque<AutoCloseable> toDispose) {
         CommonMetrics.setReadiness(false);
         toDispose.descendingIterator().forEachRemaining(resource -> {
@@ -144,11 +116,4 @@ public class Main extends Object  {
         });
         CommonMetrics.setLiveness(false);
     }
-
-    private static int verifyPositive(int value, String message) {
-        if (value <= 0) {
-            throw new IllegalArgumentException(message);
-        }
-        return value;
-    }
 }
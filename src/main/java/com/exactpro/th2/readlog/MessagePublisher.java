@@ -0,0 +1,72 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.readlog;
+
+import java.io.IOException;
+
+import com.google.protobuf.ByteString;
+
+/**
+ * Publishes the messages parsed from a single log file and reports the positions in the file that are fully published.
+ *
+ * The messages and the positions must be passed in the order of the file. The position marked after a message
+ * refers to the end of the line containing it.
+ */
+public interface MessagePublisher extends AutoCloseable {
+    /**
+     * Adds the message to the pending batch and publishes the batch if it is full
+     *
+     * @return {@code true} if a batch was published
+     */
+    boolean publish(ByteString message) throws IOException;
+
+    /**
+     * Marks the position in the source right after all messages passed to {@link #publish(ByteString)} so far.
+     * The publication listener is notified with the marked position once all those messages are published.
+     */
+    void markPosition(long offset) throws IOException;
+
+    /**
+     * Publishes the pending batches
+     */
+    void flush() throws IOException;
+
+    /**
+     * @return {@code true} if the publisher cannot accept more messages without blocking
+     */
+    boolean isBusy();
+
+    /**
+     * Waits until the published batches are sent and the listener is notified about them
+     */
+    void awaitSent() throws IOException;
+
+    /**
+     * Throws the exception that stopped the asynchronous sending, if any
+     */
+    void checkFailure() throws IOException;
+
+    /**
+     * Changes the limits of the batches. The pending batch is kept and is published according to the new limits.
+     * Can be called from any thread
+     *
+     */
+    void setBatchLimits(BatchLimits limits);
+
+    @Override
+    void close() throws IOException;
+}
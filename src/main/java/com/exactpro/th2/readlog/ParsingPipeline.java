@@ -0,0 +1,340 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.readlog;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.google.protobuf.ByteString;
+
+/**
+ * Passes the lines of a single file through the parser to the publisher.
+ *
+ * If the parser executor is specified the lines are grouped into chunks and the chunks are parsed concurrently by the executor.
+ * The parsed chunks are published in the original order: the thread that finishes a chunk publishes all parsed chunks
+ * from the head of the queue, while other threads continue parsing. The number of chunks in flight is limited,
+ * so the reader must stop when {@link #isFull()} returns {@code true} and continue when the space listener is called.
+ *
+ * Without the executor each line is parsed and published by the caller's thread.
+ *
+ * The published messages, bytes and batches are reported to the rate limiter.
+ * The numbers of matched and dropped lines are reported to the metrics.
+ *
+ * The methods that add lines must be called by a single thread.
+ */
+public class ParsingPipeline {
+    private final LogParser parser;
+    private final MessagePublisher publisher;
+    private final PublicationRateLimiter rateLimiter;
+    private final ReaderMetrics metrics;
+    private final Executor executor;
+    private final int chunkLines;
+    private final int maxChunksInFlight;
+    private final Runnable spaceListener;
+
+    /** Keeps the lines of different chunks from interleaving in the publisher */
+    private final Lock publishLock = new ReentrantLock();
+    /** Guarded by this */
+    private final Deque<Chunk> inFlight = new ArrayDeque<>();
+    /** Guarded by this */
+    private final Deque<Chunk> free = new ArrayDeque<>();
+    private volatile Throwable failure;
+
+    private Chunk current;
+    /** The groups of the line parsed without the executor. Reused for each line */
+    private final List<ByteString> lineGroups = new ArrayList<>();
+    private final LogParser.GroupSink lineSink = (bytes, offset, length) -> lineGroups.add(ByteString.copyFrom(bytes, offset, length));
+
+    /**
+     * @param metrics counts the matched and dropped lines. If it is {@code null} the lines are not counted
+     * @param executor executes the parsing of chunks. If it is {@code null} the lines are parsed and published by the caller's thread
+     * @param spaceListener is called when a chunk in flight is published and the pipeline can accept more lines
+     */
+    public ParsingPipeline(LogParser parser, MessagePublisher publisher, PublicationRateLimiter rateLimiter, ReaderMetrics metrics,
+                           Executor executor, int chunkLines, int maxChunksInFlight, Runnable spaceListener) {
+        this.parser = Objects.requireNonNull(parser, "'Parser' parameter");
+        this.publisher = Objects.requireNonNull(publisher, "'Publisher' parameter");
+        this.rateLimiter = Objects.requireNonNull(rateLimiter, "'Rate limiter' parameter");
+        this.metrics = metrics;
+        this.executor = executor;
+        this.spaceListener = Objects.requireNonNull(spaceListener, "'Space listener' parameter");
+        if (chunkLines <= 0) {
+            throw new IllegalArgumentException("'chunkLines' must be a positive integer but was " + chunkLines);
+        }
+        if (maxChunksInFlight <= 0) {
+            throw new IllegalArgumentException("'maxChunksInFlight' must be a positive integer but was " + maxChunksInFlight);
+        }
+        this.chunkLines = chunkLines;
+        this.maxChunksInFlight = maxChunksInFlight;
+    }
+
+    /**
+     * @return {@code true} if the pipeline cannot accept more lines until the chunks in flight are published
+     */
+    public synchronized boolean isFull() {
+        return inFlight.size() >= maxChunksInFlight;
+    }
+
+    /**
+     * @return {@code true} if all added lines are published to the publisher
+     */
+    public synchronized boolean isIdle() {
+        return inFlight.isEmpty() && (current == null || current.lines == 0);
+    }
+
+    /**
+     * Adds the line to the pipeline. The bytes are copied if they are not processed immediately.
+     *
+     * @param endPosition the position in the source right after the line
+     */
+    public void add(byte[] line, int length, long endPosition) throws IOException {
+        checkFailure();
+        if (executor == null) {
+            lineGroups.clear();
+            parser.parse(line, 0, length, lineSink);
+            publishLine(lineGroups, 0, lineGroups.size(), endPosition);
+            if (metrics != null) {
+                boolean matched = !lineGroups.isEmpty();
+                metrics.onParsed(matched ? 1 : 0, matched ? 0 : 1);
+            }
+            return;
+        }
+        if (current == null) {
+            current = takeFree();
+        }
+        current.add(line, length, endPosition);
+        if (current.lines >= chunkLines) {
+            submit();
+        }
+    }
+
+    /**
+     * Submits the lines added so far for parsing without waiting for the chunk to be filled
+     */
+    public void submit() throws IOException {
+        checkFailure();
+        if (current == null || current.lines == 0) {
+            return;
+        }
+        Chunk chunk = current;
+        current = null;
+        synchronized (this) {
+            inFlight.addLast(chunk);
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    chunk.parse(parser);
+                } catch (Throwable e) {
+                    failure = e;
+                }
+                chunk.parsed = true;
+                publishParsed();
+            });
+        } catch (RejectedExecutionException e) {
+            synchronized (this) {
+                inFlight.removeLast();
+            }
+            failure = e;
+            throw new IOException("Cannot submit lines for parsing", e);
+        }
+    }
+
+    /**
+     * Flushes the publisher if all added lines are published
+     *
+     * @return {@code true} if the publisher was flushed
+     */
+    public boolean flush() throws IOException {
+        checkFailure();
+        if (!isIdle()) {
+            return false;
+        }
+        publishLock.lock();
+        try {
+            publisher.flush();
+        } finally {
+            publishLock.unlock();
+        }
+        return true;
+    }
+
+    /**
+     * Submits the lines added so far and waits until they are published
+     */
+    public void drain() throws IOException, InterruptedException {
+        submit();
+        synchronized (this) {
+            while (!inFlight.isEmpty() && failure == null) {
+                wait();
+            }
+        }
+        checkFailure();
+    }
+
+    /**
+     * Throws the exception that happened in the executor's thread, if any
+     */
+    public void checkFailure() throws IOException {
+        Throwable cause = failure;
+        if (cause != null) {
+            throw new IOException("Cannot parse or publish lines", cause);
+        }
+    }
+
+    private void publishParsed() {
+        boolean published = false;
+        do {
+            if (!publishLock.tryLock()) {
+                // another thread publishes the chunks and will recheck the queue after it is done
+                break;
+            }
+            try {
+                Chunk head;
+                while (failure == null && (head = parsedHead()) != null) {
+                    head.publish(this);
+                    release(head);
+                    published = true;
+                }
+            } catch (Throwable e) {
+                failure = e;
+            } finally {
+                publishLock.unlock();
+            }
+            // the chunk might be parsed after the last check but before the lock was released
+        } while (failure == null && parsedHead() != null);
+
+        if (published || failure != null) {
+            synchronized (this) {
+                notifyAll();
+            }
+            spaceListener.run();
+        }
+    }
+
+    /**
+     * Publishes the groups from {@code from} inclusive to {@code to} exclusive parsed from a single line
+     */
+    private void publishLine(List<ByteString> groups, int from, int to, long endPosition) throws IOException {
+        long bytes = 0;
+        int batches = 0;
+        for (int i = from; i < to; i++) {
+            ByteString group = groups.get(i);
+            bytes += group.size();
+            if (publisher.publish(group)) {
+                batches++;
+            }
+        }
+        publisher.markPosition(endPosition);
+        // the limits can be enabled by the reconfiguration at any time
+        if (rateLimiter.isEnabled()) {
+            rateLimiter.onPublished(to - from, bytes, batches);
+        }
+    }
+
+    private synchronized Chunk parsedHead() {
+        Chunk head = inFlight.peekFirst();
+        return head != null && head.parsed ? head : null;
+    }
+
+    private synchronized void release(Chunk chunk) {
+        inFlight.removeFirst();
+        chunk.clear();
+        free.addLast(chunk);
+    }
+
+    private synchronized Chunk takeFree() {
+        Chunk chunk = free.pollFirst();
+        return chunk == null ? new Chunk(chunkLines) : chunk;
+    }
+
+    /**
+     * The group of lines parsed by a single task. Chunks are reused after they are published
+     */
+    private static class Chunk {
+        private byte[] data = new byte[8 * 1024];
+        private int size;
+        private final int[] ends;
+        private final long[] positions;
+        /** The groups of all lines */
+        private final List<ByteString> groups;
+        /** The index in {@link #groups} after the last group of each line */
+        private final int[] groupEnds;
+        private final LogParser.GroupSink sink;
+        private int lines;
+        private volatile boolean parsed;
+
+        private Chunk(int capacity) {
+            ends = new int[capacity];
+            positions = new long[capacity];
+            groups = new ArrayList<>(capacity);
+            groupEnds = new int[capacity];
+            sink = (bytes, offset, length) -> groups.add(ByteString.copyFrom(bytes, offset, length));
+        }
+
+        private void add(byte[] line, int length, long endPosition) {
+            if (size + length > data.length) {
+                data = Arrays.copyOf(data, Math.max(size + length, data.length * 2));
+            }
+            System.arraycopy(line, 0, data, size, length);
+            size += length;
+            ends[lines] = size;
+            positions[lines] = endPosition;
+            lines++;
+        }
+
+        private void parse(LogParser parser) {
+            int start = 0;
+            for (int i = 0; i < lines; i++) {
+                parser.parse(data, start, ends[i] - start, sink);
+                groupEnds[i] = groups.size();
+                start = ends[i];
+            }
+        }
+
+        private void publish(ParsingPipeline pipeline) throws IOException {
+            int from = 0;
+            int matched = 0;
+            for (int i = 0; i < lines; i++) {
+                if (groupEnds[i] > from) {
+                    matched++;
+                }
+                pipeline.publishLine(groups, from, groupEnds[i], positions[i]);
+                from = groupEnds[i];
+            }
+            if (pipeline.metrics != null) {
+                pipeline.metrics.onParsed(matched, lines - matched);
+            }
+        }
+
+        private void clear() {
+            size = 0;
+            lines = 0;
+            groups.clear();
+            parsed = false;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.readlog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Objects;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.logstash.logback.argument.StructuredArguments;
+
+/**
+ * Reads the lines written to the standard input or to a named pipe (FIFO).
+ *
+ * The reading blocks until the data is written, so it is done by a separate daemon thread.
+ * The named pipe is opened again when its writer closes it, so the writers can come and go.
+ * The standard input is read till its end and then the source is finished.
+ * A line longer than the maximum length is split into several lines.
+ */
+public class PipeLineSource extends QueuedLineSource {
+    private static final Logger logger = LoggerFactory.getLogger(PipeLineSource.class);
+
+    private static final byte LF = '\n';
+    private static final byte CR = '\r';
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final String name;
+    private final ChannelOpener opener;
+    private final boolean reopen;
+    private final int maxLineBytes;
+    private final Thread thread;
+    private volatile ReadableByteChannel channel;
+    private volatile boolean closed;
+
+    private byte[] line = new byte[1024];
+    private int lineLength;
+
+    PipeLineSource(String name, ChannelOpener opener, boolean reopen, int maxLineBytes, int capacity) {
+        super(capacity);
+        this.name = Objects.requireNonNull(name, "'Name' parameter");
+        this.opener = Objects.requireNonNull(opener, "'Opener' parameter");
+        if (maxLineBytes <= 0) {
+            throw new IllegalArgumentException("'maxLineBytes' must be a positive integer but was " + maxLineBytes);
+        }
+        this.reopen = reopen;
+        this.maxLineBytes = maxLineBytes;
+        thread = new Thread(this::run, "pipe-reader-" + name);
+        thread.setDaemon(true);
+    }
+
+    /**
+     * @param capacity the maximum number of lines received but not read yet
+     */
+    public static PipeLineSource stdin(int maxLineBytes, int capacity) {
+        return new PipeLineSource("stdin", () -> Channels.newChannel(System.in), false, maxLineBytes, capacity);
+    }
+
+    /**
+     * @param capacity the maximum number of lines received but not read yet
+     */
+    public static PipeLineSource namedPipe(Path pipe, int maxLineBytes, int capacity) {
+        Objects.requireNonNull(pipe, "'Pipe' parameter");
+        return new PipeLineSource(pipe.toString(), () -> FileChannel.open(pipe, StandardOpenOption.READ), true, maxLineBytes, capacity);
+    }
+
+    /**
+     * Starts the reading thread
+     */
+    public PipeLineSource start() {
+        thread.start();
+        return this;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        thread.interrupt();
+        ReadableByteChannel current = channel;
+        if (current != null) {
+            current.close();
+        }
+        logger.info("Close pipe {}", StructuredArguments.value("pipe", name));
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    private void run() {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        try {
+            do {
+                // opening the named pipe blocks until a writer opens it
+                try (ReadableByteChannel current = opener.open()) {
+                    channel = current;
+                    logger.info("Pipe {} opened", StructuredArguments.value("pipe", name));
+                    while (!closed && current.read(buffer.clear()) >= 0) {
+                        split(buffer.array(), buffer.position());
+                    }
+                }
+                // the writer closed the pipe, so the last line is complete
+                if (lineLength > 0) {
+                    putLine();
+                }
+            } while (reopen && !closed);
+            finish();
+        } catch (ClosedByInterruptException | InterruptedException e) {
+            finish();
+        } catch (IOException | RuntimeException e) {
+            if (closed) {
+                finish();
+            } else {
+                fail(e);
+            }
+        }
+    }
+
+    private void split(byte[] bytes, int length) throws InterruptedException {
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            if (bytes[i] != LF) {
+                continue;
+            }
+            append(bytes, start, i - start);
+            if (lineLength > 0 && line[lineLength - 1] == CR) {
+                lineLength--;
+            }
+            putLine();
+            start = i + 1;
+        }
+        append(bytes, start, length - start);
+    }
+
+    private void append(byte[] bytes, int offset, int length) throws InterruptedException {
+        while (lineLength + length > maxLineBytes) {
+            int part = maxLineBytes - lineLength;
+            append(bytes, offset, part);
+            logger.warn("The line of pipe {} exceeds {} bytes and is split", name, maxLineBytes);
+            putLine();
+            offset += part;
+            length -= part;
+        }
+        if (lineLength + length > line.length) {
+            line = Arrays.copyOf(line, Math.min(maxLineBytes, Math.max(lineLength + length, line.length * 2)));
+        }
+        System.arraycopy(bytes, offset, line, lineLength, length);
+        lineLength += length;
+    }
+
+    private void putLine() throws InterruptedException {
+        put(line, 0, lineLength);
+        lineLength = 0;
+    }
+
+    /**
+     * Opens the channel to read
+     */
+    @FunctionalInterface
+    interface ChannelOpener {
+        ReadableByteChannel open() throws IOException;
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.readlog;
+
+import static com.exactpro.th2.readlog.cfg.LogReaderConfiguration.NO_LIMIT;
+
+import java.util.Objects;
+
+import com.exactpro.th2.readlog.cfg.LogReaderConfiguration;
+import com.exactpro.th2.readlog.cfg.RateLimitConfiguration;
+
+/**
+ * Limits the number of published messages, bytes and batches per second.
+ * Each limit is optional and is implemented by a separate {@link RateLimiter}.
+ *
+ * The limits can be replaced with {@link #reconfigure(LogReaderConfiguration)} while the messages are published.
+ *
+ * NOTE: This class is thread-safe
+ */
+public class PublicationRateLimiter {
+    private volatile Limits limits;
+
+    public PublicationRateLimiter(LogReaderConfiguration configuration) {
+        limits = new Limits(configuration, null);
+    }
+
+    /**
+     * Replaces the limits. The new limiters continue with the permits left in the current ones, up to the new burst sizes
+     *
+     * @throws IllegalArgumentException if the configuration is invalid. The current limits stay active in this case
+     */
+    public synchronized void reconfigure(LogReaderConfiguration configuration) {
+        limits = new Limits(configuration, limits);
+    }
+
+    /**
+     * @return {@code true} if at least one limit is set
+     */
+    public boolean isEnabled() {
+        Limits current = limits;
+        return current.messages != null || current.bytes != null || current.batches != null;
+    }
+
+    public void onPublished(long messageCount, long byteCount, long batchCount) {
+        Limits current = limits;
+        if (current.messages != null && messageCount > 0) {
+            current.messages.consume(messageCount);
+        }
+        if (current.bytes != null && byteCount > 0) {
+            current.bytes.consume(byteCount);
+        }
+        if (current.batches != null && batchCount > 0) {
+            current.batches.consume(batchCount);
+        }
+    }
+
+    /**
+     * @return the time in nanoseconds the publication must be suspended for or {@code 0} if it can continue
+     */
+    public long getDelayNanos() {
+        Limits current = limits;
+        long delay = 0;
+        if (current.messages != null) {
+            delay = current.messages.getDelayNanos();
+        }
+        if (current.bytes != null) {
+            delay = Math.max(delay, current.bytes.getDelayNanos());
+        }
+        if (current.batches != null) {
+            delay = Math.max(delay, current.batches.getDelayNanos());
+        }
+        return delay;
+    }
+
+    private static RateLimiter create(String name, long permitsPerSecond, long burst) {
+        if (permitsPerSecond == NO_LIMIT) {
+            return null;
+        }
+        if (permitsPerSecond <= 0) {
+            throw new IllegalArgumentException("'" + name + "PerSecond' must be a positive integer but was " + permitsPerSecond);
+        }
+        if (burst != NO_LIMIT && burst <= 0) {
+            throw new IllegalArgumentException("'" + name + "Burst' must be a positive integer but was " + burst);
+        }
+        // the burst of 100 milliseconds keeps the output smooth
+        return new RateLimiter(permitsPerSecond, burst == NO_LIMIT ? Math.max(1, permitsPerSecond / 10) : burst);
+    }
+
+    private static class Limits {
+        private final RateLimiter messages;
+        private final RateLimiter bytes;
+        private final RateLimiter batches;
+
+        @SuppressWarnings("deprecation")
+        private Limits(LogReaderConfiguration configuration, Limits previous) {
+            Objects.requireNonNull(configuration, "'Configuration' parameter");
+            RateLimitConfiguration rateLimit = Objects.requireNonNull(configuration.getRateLimit(), "'Rate limit' configuration");
+            messages = create("messages", rateLimit.getMessagesPerSecond(), rateLimit.getMessagesBurst());
+            bytes = create("bytes", rateLimit.getBytesPerSecond(), rateLimit.getBytesBurst());
+            long batchesPerSecond = rateLimit.getBatchesPerSecond() == NO_LIMIT ? configuration.getMaxBatchesPerSecond() : rateLimit.getBatchesPerSecond();
+            batches = create("batches", batchesPerSecond, rateLimit.getBatchesBurst());
+            if (previous != null) {
+                carryOver(messages, previous.messages);
+                carryOver(bytes, previous.bytes);
+                carryOver(batches, previous.batches);
+            }
+        }
+
+        private static void carryOver(RateLimiter limiter, RateLimiter previous) {
+            if (limiter != null && previous != null) {
+                limiter.carryOver(previous);
+            }
+        }
+    }
+}
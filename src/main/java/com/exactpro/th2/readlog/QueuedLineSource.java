@@ -0,0 +1,140 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.readlog;
+
+import java.io.IOException;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The source whose lines are received by a separate thread and passed to the reader through a bounded queue.
+ *
+ * The receiving thread blocks when the queue is full, so a slow reader slows down the receiving instead of losing the lines.
+ * The data listener is called when a line is added to the empty queue, so the reader does not have to poll the source.
+ *
+ * NOTE: The lines must be added by a single thread and read by a single thread
+ */
+abstract class QueuedLineSource implements LineSource {
+    private static final byte[] EMPTY = new byte[0];
+
+    private final BlockingQueue<byte[]> queue;
+    private final AtomicLong queuedBytes = new AtomicLong();
+    private volatile Runnable dataListener = () -> {};
+    private volatile boolean finished;
+    private volatile Throwable failure;
+
+    private byte[] line = EMPTY;
+    private long position;
+
+    protected QueuedLineSource(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("'capacity' must be a positive integer but was " + capacity);
+        }
+        queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    @Override
+    public boolean readNextLine() throws IOException {
+        byte[] next = queue.poll();
+        if (next == null) {
+            Throwable cause = failure;
+            if (cause != null) {
+                throw new IOException("Cannot receive lines from " + this, cause);
+            }
+            return false;
+        }
+        queuedBytes.addAndGet(-next.length);
+        line = next;
+        position += next.length;
+        return true;
+    }
+
+    @Override
+    public byte[] getLineBytes() {
+        return line;
+    }
+
+    @Override
+    public int getLineLength() {
+        return line.length;
+    }
+
+    /**
+     * @return the number of bytes of the lines received so far without the line terminators
+     */
+    @Override
+    public long getPosition() {
+        return position;
+    }
+
+    /**
+     * @return the number of bytes of the lines received but not read yet
+     */
+    @Override
+    public long getLag() {
+        return queuedBytes.get();
+    }
+
+    @Override
+    public boolean isFinished() {
+        return finished && queue.isEmpty();
+    }
+
+    @Override
+    public void setDataListener(Runnable listener) {
+        dataListener = Objects.requireNonNull(listener, "'Listener' parameter");
+    }
+
+    /**
+     * Copies the line to the queue. Blocks while the queue is full
+     */
+    protected void put(byte[] bytes, int offset, int length) throws InterruptedException {
+        byte[] copy = new byte[length];
+        System.arraycopy(bytes, offset, copy, 0, length);
+        put(copy);
+    }
+
+    /**
+     * Passes the line to the queue without copying. Blocks while the queue is full
+     */
+    protected void put(byte[] line) throws InterruptedException {
+        queuedBytes.addAndGet(line.length);
+        queue.put(line);
+        if (queue.size() == 1) {
+            // the reader might be waiting for the lines
+            dataListener.run();
+        }
+    }
+
+    /**
+     * Marks the source as finished. The reader reads the lines left in the queue first
+     */
+    protected void finish() {
+        finished = true;
+        dataListener.run();
+    }
+
+    /**
+     * Passes the receiving error to the reader. The reader reads the lines left in the queue first
+     */
+    protected void fail(Throwable cause) {
+        failure = cause;
+        dataListener.run();
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.readlog;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket limiting the rate of some units, e.g. messages or bytes.
+ *
+ * The bucket is refilled continuously with nanosecond precision up to the burst size.
+ * The permits are consumed after the work is done, so the bucket can go into debt.
+ * The caller must wait for {@link #getDelayNanos()} before the next piece of work.
+ *
+ * NOTE: This class is thread-safe, so a single limiter can be shared by several sources
+ */
+public class RateLimiter {
+    private final LongSupplier nanoClock;
+    private final double permitsPerNano;
+    private final double burst;
+
+    /** Guarded by this */
+    private double available;
+    /** Guarded by this */
+    private long lastRefillTime;
+
+    /**
+     * @param permitsPerSecond the rate the bucket is refilled with
+     * @param burst the maximum number of permits that can be consumed without waiting
+     */
+    public RateLimiter(long permitsPerSecond, long burst) {
+        this(permitsPerSecond, burst, System::nanoTime);
+    }
+
+    RateLimiter(long permitsPerSecond, long burst, LongSupplier nanoClock) {
+        if (permitsPerSecond <= 0) {
+            throw new IllegalArgumentException("'permitsPerSecond' must be a positive integer but was " + permitsPerSecond);
+        }
+        if (burst <= 0) {
+            throw new IllegalArgumentException("'burst' must be a positive integer but was " + burst);
+        }
+        this.nanoClock = nanoClock;
+        this.permitsPerNano = (double)permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.burst = burst;
+        available = burst;
+        lastRefillTime = nanoClock.getAsLong();
+    }
+
+    public synchronized void consume(long permits) {
+        refill();
+        available -= permits;
+    }
+
+    /**
+     * @return the time in nanoseconds until the debt is paid off or {@code 0} if the permits are available
+     */
+    public synchronized long getDelayNanos() {
+        refill();
+        return available >= 0 ? 0 : (long)Math.ceil(-available / permitsPerNano);
+    }
+
+    /**
+     * Takes over the permits left in the previous limiter, so replacing the limiter neither grants a new burst nor forgives the debt.
+     * The permits above the burst of this limiter are dropped
+     */
+    void carryOver(RateLimiter previous) {
+        double left = previous.getAvailable();
+        synchronized (this) {
+            refill();
+            available = Math.min(burst, left);
+        }
+    }
+
+    private synchronized double getAvailable() {
+        refill();
+        return available;
+    }
+
+    private void refill() {
+        long now = nanoClock.getAsLong();
+        available = Math.min(burst, available + (now - lastRefillTime) * permitsPerNano);
+        lastRefillTime = now;
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.exactpro.th2.readlog;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+import io.prometheus.client.Histogram;
+import io.prometheus.client.SimpleCollector;
+
+/**
+ * The metrics of a single log file labeled with its session alias.
+ *
+ * The collectors are registered in the default Prometheus registry exported by th2 common.
+ * The children for the session alias are resolved once, and their values are accumulated in striped adders,
+ * so an update costs a few nanoseconds and the threads parsing the lines do not contend on it.
+ *
+ * NOTE: This class is thread-safe
+ */
+public class ReaderMetrics implements AutoCloseable {
+    public static final String SESSION_ALIAS_LABEL = "session_alias";
+
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private static final Counter LINES_READ = Counter.build()
+            .name("th2_read_log_lines_read_total")
+            .help("The number of lines read from the log file")
+            .labelNames(SESSION_ALIAS_LABEL)
+            .register();
+    private static final Counter BYTES_READ = Counter.build()
+            .name("th2_read_log_bytes_read_total")
+            .help("The number of bytes read from the log file without line terminators")
+            .labelNames(SESSION_ALIAS_LABEL)
+            .register();
+    private static final Counter LINES_MATCHED = Counter.build()
+            .name("th2_read_log_lines_matched_total")
+            .help("The number of records the parser extracted at least one message from")
+            .labelNames(SESSION_ALIAS_LABEL)
+            .register();
+    private static final Counter LINES_DROPPED = Counter.build()
+            .name("th2_read_log_lines_dropped_total")
+            .help("The number of records the parser extracted no messages from")
+            .labelNames(SESSION_ALIAS_LABEL)
+            .register();
+    private static final Counter DUPLICATES = Counter.build()
+            .name("th2_read_log_duplicates_total")
+            .help("The number of messages dropped because they were published recently")
+            .labelNames(SESSION_ALIAS_LABEL)
+            .register();
+    private static final Histogram BATCH_MESSAGES = Histogram.build()
+            .name("th2_read_log_batch_messages")
+            .help("The number of messages in the published batch")
+            .labelNames(SESSION_ALIAS_LABEL)
+            .buckets(1, 10, 50, 100, 250, 500, 1_000, 5_000, 10_000)
+            .register();
+    private static final Histogram BATCH_BYTES = Histogram.build()
+            .name("th2_read_log_batch_bytes")
+            .help("The serialized size of the published batch")
+            .labelNames(SESSION_ALIAS_LABEL)
+            .buckets(1 << 10, 16 << 10, 64 << 10, 256 << 10, 512 << 10, 1 << 20, 4 << 20)
+            .register();
+    private static final Histogram SEND_SECONDS = Histogram.build()
+            .name("th2_read_log_send_seconds")
+            .help("The time the router takes to send the batch")
+            .labelNames(SESSION_ALIAS_LABEL)
+            .buckets(0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 5)
+            .register();
+    private static final Counter THROTTLED_SECONDS = Counter.build()
+            .name("th2_read_log_throttled_seconds_total")
+            .help("The time the reading was suspended by the rate limits")
+            .labelNames(SESSION_ALIAS_LABEL)
+            .register();
+    private static final Gauge LAG_BYTES = Gauge.build()
+            .name("th2_read_log_lag_bytes")
+            .help("The number of bytes between the read position and the end of the log file")
+            .labelNames(SESSION_ALIAS_LABEL)
+            .register();
+
+    private final String sessionAlias;
+    private final Counter.Child linesRead;
+    private final Counter.Child bytesRead;
+    private final Counter.Child linesMatched;
+    private final Counter.Child linesDropped;
+    private final Counter.Child duplicates;
+    private final Histogram.Child batchMessages;
+    private final Histogram.Child batchBytes;
+    private final Histogram.Child sendSeconds;
+    private final Counter.Child throttledSeconds;
+    private final Gauge.Child lagBytes;
+
+    public ReaderMetrics(String sessionAlias) {
+        this.sessionAlias = Objects.requireNonNull(sessionAlias, "'Session alias' parameter");
+        linesRead = LINES_READ.labels(sessionAlias);
+        bytesRead = BYTES_READ.labels(sessionAlias);
+        linesMatched = LINES_MATCHED.labels(sessionAlias);
+        linesDropped = LINES_DROPPED.labels(sessionAlias);
+        duplicates = DUPLICATES.labels(sessionAlias);
+        batchMessages = BATCH_MESSAGES.labels(sessionAlias);
+        batchBytes = BATCH_BYTES.labels(sessionAlias);
+        sendSeconds = SEND_SECONDS.labels(sessionAlias);
+        throttledSeconds = THROTTLED_SECONDS.labels(sessionAlias);
+        lagBytes = LAG_BYTES.labels(sessionAlias);
+    }
+
+    public void onRead(long lines, long bytes) {
+        if (lines > 0) {
+            linesRead.inc(lines);
+            bytesRead.inc(bytes);
+        }
+    }
+
+    public void onParsed(long matched, long dropped) {
+        if (matched > 0) {
+            linesMatched.inc(matched);
+        }
+        if (dropped > 0) {
+            linesDropped.inc(dropped);
+        }
+    }
+
+    public void onDuplicates(long messages) {
+        duplicates.inc(messages);
+    }
+
+    /**
+     * @param sendNanos the duration of the router call
+     */
+    public void onBatchSent(int messages, long bytes, long sendNanos) {
+        batchMessages.observe(messages);
+        batchBytes.observe(bytes);
+        sendSeconds.observe(sendNanos / NANOS_PER_SECOND);
+    }
+
+    public void onThrottled(long nanos) {
+        throttledSeconds.inc(nanos / NANOS_PER_SECOND);
+    }
+
+    public void setLag(long bytes) {
+        lagBytes.set(bytes);
+    }
+
+    /**
+     * Removes the metrics of the session alias, so the stopped readers are not exported
+     */
+    @Override
+    public void close() {
+        for (SimpleCollector<?> collector : new SimpleCollector<?>[] { LINES_READ, BYTES_READ, LINES_MATCHED, LINES_DROPPED, DUPLICATES,
+                BATCH_MESSAGES, BATCH_BYTES, SEND_SECONDS, THROTTLED_SECONDS, LAG_BYTES }) {
+            collector.remove(sessionAlias);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.readlog;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Joins the physical lines into records, e.g. a log message with its stack trace.
+ *
+ * A record starts with the line matching the start expression and continues till the next such line.
+ * The lines of the record are separated with the line feed. The record is also completed when it reaches the limit of lines or bytes,
+ * or when no lines were added for the flush timeout. The record is built in a buffer that is reused for the next records.
+ *
+ * NOTE: This class is not thread-safe
+ */
+public class RecordAssembler {
+    private static final byte LINE_SEPARATOR = '\n';
+
+    private final Matcher startMatcher;
+    private final ByteCharSequence view = new ByteCharSequence();
+    /** The line can be matched without decoding if all of its bytes are ASCII characters. See {@link ByteCharSequence} */
+    private final boolean asciiCompatible;
+    /** The line can always be matched without decoding */
+    private final boolean singleByte;
+    private final Charset charset;
+    private final int maxLines;
+    private final int maxBytes;
+    private final long flushTimeoutNanos;
+    private final RecordSink sink;
+
+    private byte[] buffer = new byte[1024];
+    private int length;
+    private int lines;
+    private long endPosition;
+    private long lastAppendTime;
+
+    /**
+     * @param startRegex matches the beginning of the first line of each record
+     * @param sink receives the complete records
+     */
+    public RecordAssembler(String startRegex, Charset charset, int maxLines, int maxBytes, long flushTimeoutMillis, RecordSink sink) {
+        startMatcher = Pattern.compile(Objects.requireNonNull(startRegex, "'Start regex' parameter")).matcher("");
+        this.charset = Objects.requireNonNull(charset, "'Charset' parameter");
+        singleByte = StandardCharsets.ISO_8859_1.equals(charset) || StandardCharsets.US_ASCII.equals(charset);
+        asciiCompatible = singleByte || StandardCharsets.UTF_8.equals(charset);
+        this.sink = Objects.requireNonNull(sink, "'Sink' parameter");
+        if (maxLines <= 0) {
+            throw new IllegalArgumentException("'maxLines' must be a positive integer but was " + maxLines);
+        }
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("'maxBytes' must be a positive integer but was " + maxBytes);
+        }
+        if (flushTimeoutMillis <= 0) {
+            throw new IllegalArgumentException("'flushTimeoutMillis' must be a positive integer but was " + flushTimeoutMillis);
+        }
+        this.maxLines = maxLines;
+        this.maxBytes = maxBytes;
+        flushTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(flushTimeoutMillis);
+    }
+
+    /**
+     * Adds the line to the current record. The previous record is passed to the sink if the line starts a new one
+     * or if the line does not fit into the limits.
+     *
+     * @param endPosition the position in the source right after the line
+     */
+    public void add(byte[] line, int lineLength, long endPosition) throws IOException {
+        if (lines > 0 && (lines >= maxLines || length + 1 + lineLength > maxBytes || isRecordStart(line, lineLength))) {
+            flush();
+        }
+        if (lines > 0) {
+            append(LINE_SEPARATOR);
+        }
+        ensureCapacity(length + lineLength);
+        System.arraycopy(line, 0, buffer, length, lineLength);
+        length += lineLength;
+        lines++;
+        this.endPosition = endPosition;
+        lastAppendTime = System.nanoTime();
+    }
+
+    /**
+     * Passes the current record to the sink if no lines were added to it for the flush timeout
+     *
+     * @return {@code true} if the record was passed to the sink
+     */
+    public boolean flushIfExpired() throws IOException {
+        if (lines == 0 || System.nanoTime() - lastAppendTime < flushTimeoutNanos) {
+            return false;
+        }
+        flush();
+        return true;
+    }
+
+    /**
+     * Passes the current record to the sink if it has any lines
+     */
+    public void flush() throws IOException {
+        if (lines == 0) {
+            return;
+        }
+        sink.accept(buffer, length, endPosition);
+        length = 0;
+        lines = 0;
+    }
+
+    public boolean isEmpty() {
+        return lines == 0;
+    }
+
+    private boolean isRecordStart(byte[] line, int lineLength) {
+        if (singleByte || (asciiCompatible && ByteCharSequence.isAscii(line, 0, lineLength))) {
+            return startMatcher.reset(view.wrap(line, 0, lineLength)).lookingAt();
+        }
+        return startMatcher.reset(new String(line, 0, lineLength, charset)).lookingAt();
+    }
+
+    private void append(byte value) {
+        ensureCapacity(length + 1);
+        buffer[length++] = value;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(capacity, buffer.length * 2));
+        }
+    }
+
+    /**
+     * Receives the assembled records
+     */
+    @FunctionalInterface
+    public interface RecordSink {
+        /**
+         * @param record the buffer containing the record. It is valid only during the call
+         * @param endPosition the position in the source right after the last line of the record
+         */
+        void accept(byte[] record, int length, long endPosition) throws IOException;
+    }
+}
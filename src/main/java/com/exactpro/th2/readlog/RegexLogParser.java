@@ -16,42 +16,138 @@
 
 package com.exactpro.th2.readlog;
 
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.protobuf.ByteString;
+
 import net.logstash.logback.argument.StructuredArguments;
 
-public class RegexLogParser {
-	private static final Logger logger = LoggerFactory.getLogger(LogReader.class);
+/**
+ * Applies the regular expression to the lines and emits the matched groups.
+ *
+ * The parser can be shared by several threads: each thread reuses its own {@link Matcher}.
+ * The lines that lack the literals required by the expression are rejected before the expression is applied. See {@link LiteralPrefilter}
+ */
+public class RegexLogParser implements LogParser {
+	private static final Logger logger = LoggerFactory.getLogger(RegexLogParser.class);
     private final Pattern pattern;
 	private final List<Integer> regexGroups;
+	private final Charset charset;
+	/** The bytes can be matched without decoding if all of them are ASCII characters */
+	private final boolean asciiCompatible;
+	/** The bytes can always be matched without decoding */
+	private final boolean singleByte;
+	private final LiteralPrefilter prefilter;
+	private final ThreadLocal<MatchState> matchStates;
 
 	public RegexLogParser(String regex, List<Integer> regexGroups) {
+		this(regex, regexGroups, StandardCharsets.UTF_8);
+	}
+
+	public RegexLogParser(String regex, List<Integer> regexGroups, Charset charset) {
 
 		this.regexGroups = regexGroups == null ? Collections.emptyList() : regexGroups;
+		this.charset = Objects.requireNonNull(charset, "'Charset' parameter");
+		singleByte = StandardCharsets.ISO_8859_1.equals(charset) || StandardCharsets.US_ASCII.equals(charset);
+		asciiCompatible = singleByte || StandardCharsets.UTF_8.equals(charset);
 		pattern = Pattern.compile(regex);
+		// the literals are searched as ASCII bytes
+		prefilter = asciiCompatible ? LiteralPrefilter.forRegex(regex) : LiteralPrefilter.ACCEPT_ALL;
+		matchStates = ThreadLocal.withInitial(() -> new MatchState(pattern));
 
 		logger.info("Regex expression '{}'", regex);
 		logger.info("Regex groups to output '{}'", regexGroups);
+		if (!prefilter.isEmpty()) {
+			logger.info("Lines without the literals {} are skipped without matching", LiteralPrefilter.requiredLiterals(regex));
+		}
+	}
+
+	/**
+	 * Matches the line and returns the matched groups as bytes in the parser's charset.
+	 * The line is decoded only if it cannot be matched as is. See {@link ByteCharSequence}
+	 */
+	List<ByteString> parse(byte[] raw, int length) {
+		return parse(raw, 0, length);
+	}
+
+	List<ByteString> parse(byte[] raw, int offset, int length) {
+		List<ByteString> result = new ArrayList<>();
+		parse(raw, offset, length, (bytes, groupOffset, groupLength) -> result.add(ByteString.copyFrom(bytes, groupOffset, groupLength)));
+		return result;
+	}
+
+	/**
+	 * Matches the line and passes the matched groups to the sink
+	 */
+	@Override
+	public int parse(byte[] raw, int offset, int length, GroupSink sink) {
+		if (!prefilter.mayMatch(raw, offset, length)) {
+			return 0;
+		}
+		if (singleByte || (asciiCompatible && ByteCharSequence.isAscii(raw, offset, length))) {
+			Matcher matcher = matchStates.get().reset(raw, offset, length);
+			int count = 0;
+			while (matcher.find()) {
+				if (regexGroups.isEmpty()) {
+					for (int i = 0; i <= matcher.groupCount(); ++i) {
+						count += emitGroup(raw, offset, matcher, i, sink);
+					}
+				} else {
+					for (int index : regexGroups) {
+						count += emitGroup(raw, offset, matcher, index, sink);
+					}
+				}
+			}
+			return count;
+		}
+		int count = 0;
+		for (String group : parse(new String(raw, offset, length, charset))) {
+			if (group != null) {
+				byte[] bytes = group.getBytes(charset);
+				sink.accept(bytes, 0, bytes.length);
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private static int emitGroup(byte[] raw, int offset, Matcher matcher, int index, GroupSink sink) {
+		int start = matcher.start(index);
+		if (start < 0) {
+			// the group did not participate in the match
+			return 0;
+		}
+		sink.accept(raw, offset + start, matcher.end(index) - start);
+		if (logger.isTraceEnabled()) {
+			logger.trace("ParsedLogLine: {}", StructuredArguments.value("ParsedLogLine", matcher.group(index)));
+		}
+		return 1;
 	}
 
 	List<String> parse (String raw) {
 		List<String> result = new ArrayList<>();
 
 		Matcher matcher = pattern.matcher(raw);
+		boolean trace = logger.isTraceEnabled();
 
 		if (regexGroups.isEmpty()) {
 			while (matcher.find()) {
 				for (int i = 0; i <= matcher.groupCount(); ++i) {
 					String res = matcher.group(i); 
 					result.add(res);
-					logger.trace("ParsedLogLine: {}",StructuredArguments.value("ParsedLogLine", res));
+					if (trace) {
+						logger.trace("ParsedLogLine: {}",StructuredArguments.value("ParsedLogLine", res));
+					}
 				}
 			}
 		} else {
@@ -59,7 +155,9 @@ public class RegexLogParser {
 				for (int index : regexGroups) {
 					String res = matcher.group(index);
 					result.add(res);
-					logger.trace("ParsedLogLine: {}",StructuredArguments.value("ParsedLogLine", res));
+					if (trace) {
+						logger.trace("ParsedLogLine: {}",StructuredArguments.value("ParsedLogLine", res));
+					}
 				}
 			}
 
@@ -67,4 +165,20 @@ public class RegexLogParser {
 
 		return result;
 	}
+
+	/**
+	 * The matcher reused by a single thread
+	 */
+	private static class MatchState {
+		private final ByteCharSequence sequence = new ByteCharSequence();
+		private final Matcher matcher;
+
+		private MatchState(Pattern pattern) {
+			matcher = pattern.matcher(sequence);
+		}
+
+		private Matcher reset(byte[] raw, int offset, int length) {
+			return matcher.reset(sequence.wrap(raw, offset, length));
+		}
+	}
 }
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.readlog;
+
+import java.util.Objects;
+
+/**
+ * Delegates to the parser that can be replaced while the records are parsed.
+ *
+ * Each record is parsed by a single parser: the records parsed after {@link #setParser(LogParser)} returns use the new parser,
+ * while the records being parsed at that moment are finished by the previous one.
+ */
+public class ReloadableLogParser implements LogParser {
+    private volatile LogParser parser;
+
+    public ReloadableLogParser(LogParser parser) {
+        this.parser = Objects.requireNonNull(parser, "'Parser' parameter");
+    }
+
+    public void setParser(LogParser parser) {
+        this.parser = Objects.requireNonNull(parser, "'Parser' parameter");
+    }
+
+    public LogParser getParser() {
+        return parser;
+    }
+
+    @Override
+    public int parse(byte[] raw, int offset, int length, GroupSink sink) {
+        return parser.parse(raw, offset, length, sink);
+    }
+}
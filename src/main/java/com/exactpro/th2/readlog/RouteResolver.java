@@ -0,0 +1,224 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.readlog;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.exactpro.th2.common.grpc.Direction;
+import com.exactpro.th2.readlog.cfg.LogReaderConfiguration;
+import com.exactpro.th2.readlog.cfg.RoutingRule;
+
+/**
+ * Chooses the session alias and the direction of a message by the routing rules. The first matching rule wins.
+ *
+ * The FIX tag is found by a byte search for the delimiter followed by the tag number. The regular expression is applied
+ * to the bytes of the message as ISO-8859-1 characters, so it can match any bytes, and the matched group is decoded with the charset.
+ *
+ * NOTE: This class is not thread-safe
+ */
+final class RouteResolver {
+    private final List<Rule> rules;
+    private final ByteCharSequence view = new ByteCharSequence();
+
+    RouteResolver(List<RoutingRule> rules, byte fixDelimiter, Charset charset) {
+        Objects.requireNonNull(rules, "'Rules' parameter");
+        Objects.requireNonNull(charset, "'Charset' parameter");
+        this.rules = new ArrayList<>(rules.size());
+        for (RoutingRule rule : rules) {
+            this.rules.add(createRule(Objects.requireNonNull(rule, "Routing rule"), fixDelimiter, charset));
+        }
+    }
+
+    /**
+     * @return the resolver for the configuration or {@code null} if the messages are not routed
+     */
+    static RouteResolver fromConfiguration(LogReaderConfiguration configuration) {
+        List<RoutingRule> rules = configuration.getRouting().getRules();
+        if (rules == null || rules.isEmpty()) {
+            return null;
+        }
+        if (configuration.getRouting().getMaxAliases() <= 0) {
+            throw new IllegalArgumentException("'maxAliases' must be a positive integer but was " + configuration.getRouting().getMaxAliases());
+        }
+        char delimiter = configuration.getFixDelimiter();
+        if (delimiter > 0x7F) {
+            throw new IllegalArgumentException("'fixDelimiter' must be an ASCII character but was " + delimiter);
+        }
+        return new RouteResolver(rules, (byte)delimiter, configuration.getCharset());
+    }
+
+    /**
+     * @return the route of the message or {@code null} if no rule matches it
+     */
+    Route resolve(byte[] message, int length) {
+        for (Rule rule : rules) {
+            String value = rule.find(message, length);
+            if (value != null && !value.isEmpty()) {
+                return new Route(String.format(rule.aliasFormat, value), rule.direction);
+            }
+        }
+        return null;
+    }
+
+    private Rule createRule(RoutingRule rule, byte fixDelimiter, Charset charset) {
+        Direction direction = Objects.requireNonNull(rule.getDirection(), "'Direction' of routing rule");
+        String aliasFormat = Objects.requireNonNull(rule.getAliasFormat(), "'Alias format' of routing rule");
+        if ((rule.getFixTag() > 0) == (rule.getRegexp() != null)) {
+            throw new IllegalArgumentException("Exactly one of 'fixTag' and 'regexp' must be specified for routing rule");
+        }
+        if (rule.getFixTag() > 0) {
+            return new FixTagRule(rule.getFixTag(), fixDelimiter, charset, direction, aliasFormat);
+        }
+        return new RegexRule(rule.getRegexp(), rule.getGroup(), charset, direction, aliasFormat);
+    }
+
+    /**
+     * The session alias and the direction of the messages
+     */
+    static final class Route {
+        private final String sessionAlias;
+        private final Direction direction;
+
+        Route(String sessionAlias, Direction direction) {
+            this.sessionAlias = Objects.requireNonNull(sessionAlias, "'Session alias' parameter");
+            this.direction = Objects.requireNonNull(direction, "'Direction' parameter");
+        }
+
+        String getSessionAlias() {
+            return sessionAlias;
+        }
+
+        Direction getDirection() {
+            return direction;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Route route = (Route)o;
+            return sessionAlias.equals(route.sessionAlias) && direction == route.direction;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * sessionAlias.hashCode() + direction.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return sessionAlias + '/' + direction;
+        }
+    }
+
+    private abstract static class Rule {
+        protected final Charset charset;
+        private final Direction direction;
+        private final String aliasFormat;
+
+        private Rule(Charset charset, Direction direction, String aliasFormat) {
+            this.charset = charset;
+            this.direction = direction;
+            this.aliasFormat = aliasFormat;
+        }
+
+        /**
+         * @return the value the session alias is made of or {@code null} if the message does not match the rule
+         */
+        protected abstract String find(byte[] message, int length);
+    }
+
+    private static class FixTagRule extends Rule {
+        private final byte delimiter;
+        /** The delimiter followed by the tag and the equals sign */
+        private final byte[] field;
+
+        private FixTagRule(int tag, byte delimiter, Charset charset, Direction direction, String aliasFormat) {
+            super(charset, direction, aliasFormat);
+            this.delimiter = delimiter;
+            byte[] tagBytes = (tag + "=").getBytes(StandardCharsets.US_ASCII);
+            field = new byte[tagBytes.length + 1];
+            field[0] = delimiter;
+            System.arraycopy(tagBytes, 0, field, 1, tagBytes.length);
+        }
+
+        @Override
+        protected String find(byte[] message, int length) {
+            int start;
+            if (startsWith(message, length)) {
+                // the first field has no delimiter before it
+                start = field.length - 1;
+            } else {
+                int index = LiteralPrefilter.indexOf(message, 0, length, field);
+                if (index < 0) {
+                    return null;
+                }
+                start = index + field.length;
+            }
+            int end = start;
+            while (end < length && message[end] != delimiter) {
+                end++;
+            }
+            return new String(message, start, end - start, charset);
+        }
+
+        private boolean startsWith(byte[] message, int length) {
+            if (length < field.length - 1) {
+                return false;
+            }
+            for (int i = 1; i < field.length; i++) {
+                if (message[i - 1] != field[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private class RegexRule extends Rule {
+        private final Matcher matcher;
+        private final int group;
+
+        private RegexRule(String regex, int group, Charset charset, Direction direction, String aliasFormat) {
+            super(charset, direction, aliasFormat);
+            matcher = Pattern.compile(regex).matcher("");
+            if (group < 0 || group > matcher.groupCount()) {
+                throw new IllegalArgumentException("Routing regexp '" + regex + "' has no group " + group);
+            }
+            this.group = group;
+        }
+
+        @Override
+        protected String find(byte[] message, int length) {
+            matcher.reset(view.wrap(message, 0, length));
+            if (!matcher.find() || matcher.start(group) < 0) {
+                return null;
+            }
+            return new String(message, matcher.start(group), matcher.end(group) - matcher.start(group), charset);
+        }
+    }
+}
@@ -0,0 +1,319 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.readlog;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.exactpro.th2.common.grpc.Direction;
+import com.exactpro.th2.readlog.LogPublisher.PublicationListener;
+import com.exactpro.th2.readlog.RouteResolver.Route;
+import com.google.protobuf.ByteString;
+
+import net.logstash.logback.argument.StructuredArguments;
+
+/**
+ * Distributes the messages of a single log file between several session aliases and directions chosen by the {@link RouteResolver}.
+ *
+ * Each route has its own {@link LogPublisher} with its own batch and flush timer. The messages matching no rule
+ * go to the default route: the session alias of the file with the {@code FIRST} direction.
+ * The number of open routes is limited: the least recently used route is flushed and dropped when a new one is opened.
+ *
+ * The sequences of all routes are taken from one counter of the file, so the sequences of each route grow with gaps.
+ * A position in the file is reported to the listener once the messages of all routes before the position are published,
+ * together with the counter at the position. So a reopened route and every route after restart continue their sequences.
+ *
+ * The routes are expected to share the sender of the file, so {@link #isBusy()}, {@link #awaitSent()} and {@link #checkFailure()}
+ * are delegated to the default route.
+ *
+ * The batch limits changed by {@link #setBatchLimits(BatchLimits)} are passed to the routes by the publishing thread
+ * with the next message and to the routes opened later.
+ *
+ * The methods adding messages must not be called concurrently. The routes notify about the published positions from any thread.
+ */
+public class RoutingPublisher implements MessagePublisher {
+    private static final Logger logger = LoggerFactory.getLogger(RoutingPublisher.class);
+
+    private final RouteResolver resolver;
+    private final int maxRoutes;
+    private final PublicationListener listener;
+    private final PublisherFactory factory;
+    private final RouteState defaultRoute;
+    /** The open routes in the access order */
+    private final Map<Route, RouteState> routes = new LinkedHashMap<>(16, 0.75f, true);
+    /** The routes that received messages since the last mark */
+    private final List<RouteState> dirty = new ArrayList<>();
+    private byte[] buffer = new byte[1024];
+    /** The limits to pass to the routes or {@code null} if they were not changed */
+    private volatile BatchLimits batchLimits;
+    /** The limits the open routes have. Accessed by the publishing thread only */
+    private BatchLimits appliedLimits;
+    /** The sequence of the last message of the file. Accessed by the publishing thread only */
+    private long lastSequence;
+
+    private final Object positionLock = new Object();
+    /** The routes with the messages not confirmed as published. Guarded by positionLock */
+    private final Set<RouteState> pending = new HashSet<>();
+    /** Guarded by positionLock */
+    private long lastMark = -1;
+    /** Guarded by positionLock */
+    private long notifiedOffset = -1;
+    /** The marked positions not reported yet with the sequence of the last message before each of them. Guarded by positionLock */
+    private final ArrayDeque<long[]> marks = new ArrayDeque<>();
+    /** The sequence reported with the last position. Guarded by positionLock */
+    private long notifiedSequence;
+
+    /**
+     * @param firstSequence the sequence reported with the position the file is read from
+     * @param maxRoutes the maximum number of open routes besides the default one
+     * @param listener is notified when the messages of all routes before the marked position are published
+     */
+    public RoutingPublisher(String sessionAlias, long firstSequence, RouteResolver resolver, int maxRoutes,
+                            PublicationListener listener, PublisherFactory factory) throws IOException {
+        Objects.requireNonNull(sessionAlias, "'Session alias' parameter");
+        this.resolver = Objects.requireNonNull(resolver, "'Resolver' parameter");
+        if (maxRoutes <= 0) {
+            throw new IllegalArgumentException("'maxRoutes' must be a positive integer but was " + maxRoutes);
+        }
+        this.maxRoutes = maxRoutes;
+        this.listener = Objects.requireNonNull(listener, "'Listener' parameter");
+        this.factory = Objects.requireNonNull(factory, "'Factory' parameter");
+        lastSequence = firstSequence;
+        notifiedSequence = firstSequence;
+        defaultRoute = open(new Route(sessionAlias, Direction.FIRST), firstSequence);
+    }
+
+    @Override
+    public boolean publish(ByteString message) throws IOException {
+        BatchLimits limits = batchLimits;
+        if (limits != appliedLimits) {
+            for (RouteState route : routes.values()) {
+                route.publisher.setBatchLimits(limits);
+            }
+            defaultRoute.publisher.setBatchLimits(limits);
+            appliedLimits = limits;
+        }
+        RouteState route = route(message);
+        if (!route.dirty) {
+            synchronized (positionLock) {
+                route.dirty = true;
+                if (pending.add(route)) {
+                    route.pendingFrom = lastMark;
+                }
+            }
+            dirty.add(route);
+        }
+        return route.publisher.publish(message, ++lastSequence);
+    }
+
+    @Override
+    public void markPosition(long offset) throws IOException {
+        synchronized (positionLock) {
+            for (RouteState route : dirty) {
+                // must be set before the route is marked because the route can confirm the mark right away
+                route.outstanding = offset;
+                route.dirty = false;
+            }
+            lastMark = offset;
+            marks.add(new long[] { offset, lastSequence });
+        }
+        for (RouteState route : dirty) {
+            route.publisher.markPosition(offset);
+            if (!route.publisher.hasPendingLines()) {
+                // the batch was cut at the last message, so the route is notified without waiting for its next message
+                route.publisher.flush();
+            }
+        }
+        dirty.clear();
+        // the position is published already if the routes of the line have no pending messages
+        synchronized (positionLock) {
+            notifyIfAdvanced();
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        for (RouteState route : routes.values()) {
+            route.publisher.flush();
+        }
+        defaultRoute.publisher.flush();
+    }
+
+    @Override
+    public boolean isBusy() {
+        return defaultRoute.publisher.isBusy();
+    }
+
+    @Override
+    public void awaitSent() throws IOException {
+        defaultRoute.publisher.awaitSent();
+    }
+
+    @Override
+    public void checkFailure() throws IOException {
+        defaultRoute.publisher.checkFailure();
+    }
+
+    @Override
+    public void setBatchLimits(BatchLimits limits) {
+        batchLimits = Objects.requireNonNull(limits, "'Limits' parameter");
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException exception = null;
+        for (RouteState route : routes.values()) {
+            try {
+                route.publisher.close();
+            } catch (IOException | RuntimeException e) {
+                if (exception == null) {
+                    exception = new IOException("Cannot close routes");
+                }
+                exception.addSuppressed(e);
+            }
+        }
+        routes.clear();
+        try {
+            defaultRoute.publisher.close();
+        } catch (IOException | RuntimeException e) {
+            if (exception == null) {
+                throw e;
+            }
+            exception.addSuppressed(e);
+        }
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+    /**
+     * @return the number of open routes besides the default one
+     */
+    int getRouteCount() {
+        return routes.size();
+    }
+
+    private RouteState route(ByteString message) throws IOException {
+        int length = message.size();
+        if (buffer.length < length) {
+            buffer = new byte[Math.max(length, buffer.length * 2)];
+        }
+        message.copyTo(buffer, 0);
+        Route key = resolver.resolve(buffer, length);
+        if (key == null || key.equals(defaultRoute.route)) {
+            return defaultRoute;
+        }
+        RouteState route = routes.get(key);
+        if (route == null) {
+            if (routes.size() >= maxRoutes) {
+                evictEldest();
+            }
+            // the route continues from the current sequence of the file, so its sequences keep growing after the eviction
+            route = open(key, lastSequence);
+            routes.put(key, route);
+        }
+        return route;
+    }
+
+    private RouteState open(Route key, long firstSequence) throws IOException {
+        RouteState route = new RouteState(key);
+        route.publisher = factory.create(key.getSessionAlias(), key.getDirection(), firstSequence,
+                (offset, sequence) -> confirm(route, offset));
+        BatchLimits limits = batchLimits;
+        if (limits != null) {
+            route.publisher.setBatchLimits(limits);
+        }
+        logger.debug("Route {} opened", StructuredArguments.value("route", key));
+        return route;
+    }
+
+    private void evictEldest() throws IOException {
+        Iterator<RouteState> iterator = routes.values().iterator();
+        RouteState eldest = iterator.next();
+        iterator.remove();
+        // the route stays pending until its messages are confirmed. The sender is shared, so it is not drained here
+        eldest.publisher.flush();
+        logger.debug("Route {} evicted", StructuredArguments.value("route", eldest.route));
+    }
+
+    private void confirm(RouteState route, long offset) throws IOException {
+        synchronized (positionLock) {
+            if (pending.contains(route)) {
+                if (offset < route.outstanding) {
+                    route.pendingFrom = Math.max(route.pendingFrom, offset);
+                } else if (route.dirty) {
+                    // the messages after the confirmed position are not marked yet
+                    route.pendingFrom = offset;
+                } else {
+                    pending.remove(route);
+                }
+            }
+            notifyIfAdvanced();
+        }
+    }
+
+    /**
+     * Reports the last position before which the messages of all routes are published. Must be called under positionLock
+     */
+    private void notifyIfAdvanced() throws IOException {
+        long offset = lastMark;
+        for (RouteState route : pending) {
+            offset = Math.min(offset, route.pendingFrom);
+        }
+        if (offset > notifiedOffset) {
+            notifiedOffset = offset;
+            while (!marks.isEmpty() && marks.peek()[0] <= offset) {
+                notifiedSequence = marks.poll()[1];
+            }
+            listener.onPublished(offset, notifiedSequence);
+        }
+    }
+
+    /**
+     * Creates the publisher of a single route. The publishers of all routes are expected to share the same sender
+     */
+    @FunctionalInterface
+    public interface PublisherFactory {
+        LogPublisher create(String sessionAlias, Direction direction, long firstSequence, PublicationListener listener) throws IOException;
+    }
+
+    private static class RouteState {
+        private final Route route;
+        private LogPublisher publisher;
+        /** The route received messages since the last mark. Changed under positionLock by the publishing thread only */
+        private boolean dirty;
+        /** The last position marked for the route. Guarded by positionLock */
+        private long outstanding = -1;
+        /** The position before the first message of the route not confirmed as published if the route is pending. Guarded by positionLock */
+        private long pendingFrom;
+
+        private RouteState(Route route) {
+            this.route = route;
+        }
+    }
+}
@@ -0,0 +1,343 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.readlog;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Objects;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.logstash.logback.argument.StructuredArguments;
+
+/**
+ * Receives syslog messages (RFC 5424) over UDP or TCP. Each message is passed to the reader as a single line.
+ *
+ * The channels are non-blocking and served by a single selector thread. The bytes are received into direct buffers
+ * and copied once to the line passed to the reader.
+ * + UDP (RFC 5426): each datagram is a message. The trailing line terminator is removed. The datagram longer than
+ * the maximum message size is truncated
+ * + TCP (RFC 6587): the message is either prefixed with its length and a space (octet counting) or terminated
+ * with a line feed (non-transparent framing). The framing is detected for each message: a message without the length
+ * starts with {@code <} of its priority. The message longer than the maximum size is skipped
+ *
+ * The selector thread stops receiving while the queue of the lines is full, so the TCP senders are slowed down
+ * and the UDP datagrams are dropped by the operating system.
+ */
+public class SyslogLineSource extends QueuedLineSource {
+    private static final Logger logger = LoggerFactory.getLogger(SyslogLineSource.class);
+
+    private static final byte LF = '\n';
+    private static final byte CR = '\r';
+    private static final byte SP = ' ';
+    /** The length of a message is a positive integer, so it cannot be longer than 10 digits */
+    private static final int MAX_LENGTH_DIGITS = 10;
+
+    private final boolean tcp;
+    private final int maxMessageBytes;
+    private final Selector selector;
+    private final DatagramChannel datagramChannel;
+    private final ServerSocketChannel serverChannel;
+    private final ByteBuffer datagram;
+    private final Thread thread;
+    private volatile boolean closed;
+
+    /**
+     * Binds the channel to the address. The messages are not received until the source is started
+     *
+     * @param tcp {@code true} to receive the messages over TCP, {@code false} to receive them over UDP
+     * @param capacity the maximum number of messages received but not read yet
+     */
+    public SyslogLineSource(boolean tcp, InetSocketAddress address, int maxMessageBytes, int capacity) throws IOException {
+        super(capacity);
+        Objects.requireNonNull(address, "'Address' parameter");
+        if (maxMessageBytes <= 0) {
+            throw new IllegalArgumentException("'maxMessageBytes' must be a positive integer but was " + maxMessageBytes);
+        }
+        this.tcp = tcp;
+        this.maxMessageBytes = maxMessageBytes;
+        selector = Selector.open();
+        try {
+            if (tcp) {
+                serverChannel = ServerSocketChannel.open();
+                serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+                serverChannel.bind(address);
+                serverChannel.configureBlocking(false);
+                serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+                datagramChannel = null;
+                datagram = null;
+            } else {
+                datagramChannel = DatagramChannel.open();
+                datagramChannel.bind(address);
+                datagramChannel.configureBlocking(false);
+                datagramChannel.register(selector, SelectionKey.OP_READ);
+                serverChannel = null;
+                datagram = ByteBuffer.allocateDirect(maxMessageBytes);
+            }
+        } catch (IOException | RuntimeException e) {
+            closeChannels();
+            throw e;
+        }
+        thread = new Thread(this::run, "syslog-listener-" + address.getPort());
+        thread.setDaemon(true);
+        logger.info("Syslog listener bound to {} {}", tcp ? "TCP" : "UDP", StructuredArguments.value("address", getLocalAddress()));
+    }
+
+    /**
+     * Starts the selector thread
+     */
+    public SyslogLineSource start() {
+        thread.start();
+        return this;
+    }
+
+    public SocketAddress getLocalAddress() {
+        try {
+            return tcp ? serverChannel.getLocalAddress() : datagramChannel.getLocalAddress();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        thread.interrupt();
+        closeChannels();
+        logger.info("Syslog listener {} closed", StructuredArguments.value("address", toString()));
+    }
+
+    @Override
+    public String toString() {
+        return (tcp ? "tcp://" : "udp://") + getLocalAddress();
+    }
+
+    private void run() {
+        try {
+            while (!closed) {
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else if (key.isReadable()) {
+                        if (tcp) {
+                            ((Connection)key.attachment()).read(key);
+                        } else {
+                            receiveDatagrams();
+                        }
+                    }
+                }
+            }
+            finish();
+        } catch (InterruptedException | ClosedSelectorException e) {
+            finish();
+        } catch (IOException | RuntimeException e) {
+            if (closed) {
+                finish();
+            } else {
+                logger.error("Syslog listener {} failed", this, e);
+                fail(e);
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.register(selector, SelectionKey.OP_READ, new Connection(channel));
+        logger.debug("Syslog connection accepted from {}", channel.getRemoteAddress());
+    }
+
+    private void receiveDatagrams() throws IOException, InterruptedException {
+        while (datagramChannel.receive(datagram.clear()) != null) {
+            datagram.flip();
+            int end = datagram.limit();
+            while (end > 0 && (datagram.get(end - 1) == LF || datagram.get(end - 1) == CR)) {
+                end--;
+            }
+            if (end > 0) {
+                put(datagram, 0, end);
+            }
+        }
+    }
+
+    /**
+     * Copies the bytes from the absolute position of the buffer to the queue
+     */
+    private void put(ByteBuffer buffer, int start, int length) throws InterruptedException {
+        byte[] message = new byte[length];
+        int position = buffer.position();
+        buffer.position(start);
+        buffer.get(message);
+        buffer.position(position);
+        put(message);
+    }
+
+    private void closeChannels() throws IOException {
+        try {
+            for (SelectionKey key : selector.keys()) {
+                key.channel().close();
+            }
+        } catch (ClosedSelectorException e) {
+            // already closed
+        }
+        if (serverChannel != null) {
+            serverChannel.close();
+        }
+        if (datagramChannel != null) {
+            datagramChannel.close();
+        }
+        selector.close();
+    }
+
+    /**
+     * The TCP connection and the bytes of the incomplete message
+     */
+    private class Connection {
+        private final SocketChannel channel;
+        /** Keeps the length prefix and the message */
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(maxMessageBytes + MAX_LENGTH_DIGITS + 1);
+        /** The number of bytes of the oversized message to skip */
+        private long skip;
+        /** The oversized message without the length is skipped till the line feed */
+        private boolean skipLine;
+
+        private Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        private void read(SelectionKey key) throws IOException, InterruptedException {
+            int read;
+            try {
+                read = channel.read(buffer);
+            } catch (IOException e) {
+                logger.warn("Syslog connection {} is broken", channel.getRemoteAddress(), e);
+                read = -1;
+            }
+            buffer.flip();
+            split();
+            if (read < 0) {
+                if (buffer.hasRemaining() && !skipLine && skip == 0) {
+                    // the last message without the line feed is complete when the sender closes the connection
+                    put(buffer, buffer.position(), buffer.remaining());
+                }
+                key.cancel();
+                channel.close();
+                return;
+            }
+            buffer.compact();
+        }
+
+        /**
+         * Passes the complete messages from the buffer to the queue. The buffer position is moved after the last complete message
+         */
+        private void split() throws IOException, InterruptedException {
+            while (buffer.hasRemaining()) {
+                int start = buffer.position();
+                int limit = buffer.limit();
+                if (skip > 0) {
+                    int skipped = (int)Math.min(skip, limit - start);
+                    buffer.position(start + skipped);
+                    skip -= skipped;
+                    continue;
+                }
+                if (skipLine || !isDigit(buffer.get(start))) {
+                    int lf = indexOf(LF, start, limit);
+                    if (lf < 0) {
+                        if (skipLine || limit - start >= maxMessageBytes) {
+                            if (!skipLine) {
+                                logger.warn("Syslog message from {} exceeds {} bytes and is skipped", channel.getRemoteAddress(), maxMessageBytes);
+                            }
+                            skipLine = true;
+                            buffer.position(limit);
+                        }
+                        return;
+                    }
+                    if (!skipLine) {
+                        int end = lf > start && buffer.get(lf - 1) == CR ? lf - 1 : lf;
+                        if (end > start) {
+                            put(buffer, start, end - start);
+                        }
+                    }
+                    skipLine = false;
+                    buffer.position(lf + 1);
+                    continue;
+                }
+                // octet counting: MSG-LEN SP SYSLOG-MSG
+                int space = indexOf(SP, start, Math.min(limit, start + MAX_LENGTH_DIGITS + 1));
+                if (space < 0) {
+                    if (limit - start > MAX_LENGTH_DIGITS) {
+                        throw new IOException("Invalid syslog message length from " + channel.getRemoteAddress());
+                    }
+                    return;
+                }
+                long length = 0;
+                for (int i = start; i < space; i++) {
+                    byte digit = buffer.get(i);
+                    if (!isDigit(digit)) {
+                        throw new IOException("Invalid syslog message length from " + channel.getRemoteAddress());
+                    }
+                    length = length * 10 + (digit - '0');
+                }
+                if (length > maxMessageBytes) {
+                    logger.warn("Syslog message of {} bytes from {} exceeds {} bytes and is skipped", length, channel.getRemoteAddress(), maxMessageBytes);
+                    skip = length;
+                    buffer.position(space + 1);
+                    continue;
+                }
+                if (limit - space - 1 < length) {
+                    return;
+                }
+                put(buffer, space + 1, (int)length);
+                buffer.position(space + 1 + (int)length);
+            }
+        }
+
+        private int indexOf(byte value, int from, int to) {
+            for (int i = from; i < to; i++) {
+                if (buffer.get(i) == value) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    private static boolean isDigit(byte value) {
+        return value >= '0' && value <= '9';
+    }
+}
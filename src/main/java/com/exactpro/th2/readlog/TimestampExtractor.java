@@ -0,0 +1,124 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.readlog;
+
+import static com.exactpro.th2.readlog.cfg.LogReaderConfiguration.NO_LIMIT;
+
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneId;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.exactpro.th2.readlog.cfg.LogReaderConfiguration;
+import com.google.protobuf.ByteString;
+
+/**
+ * Finds the timestamp in the published message and parses it with {@link CachedTimestampParser}.
+ *
+ * The timestamp is either the first group of the regular expression or the fixed column of the message.
+ * The message is accessed as ISO-8859-1 characters without copying, so the timestamp must consist of ASCII characters.
+ *
+ * NOTE: This class is not thread-safe
+ */
+public class TimestampExtractor {
+    private final Matcher matcher;
+    private final int column;
+    private final CachedTimestampParser parser;
+    private final ByteStringCharSequence view = new ByteStringCharSequence();
+
+    /**
+     * @param regex the expression that matches the timestamp with its first group. If it is {@code null} the column is used
+     * @param column the position of the timestamp in the message. The timestamp is parsed from it up to the end of the pattern
+     * @param format the pattern of {@link java.time.format.DateTimeFormatter}
+     */
+    public TimestampExtractor(String regex, int column, String format, ZoneId zone) {
+        Objects.requireNonNull(format, "'Format' parameter");
+        if (regex == null && column < 0) {
+            throw new IllegalArgumentException("Either regex or non-negative column must be specified but column was " + column);
+        }
+        matcher = regex == null ? null : Pattern.compile(regex).matcher("");
+        if (matcher != null && matcher.groupCount() < 1) {
+            throw new IllegalArgumentException("The timestamp regex must have a group: " + regex);
+        }
+        this.column = column;
+        parser = new CachedTimestampParser(format, zone);
+    }
+
+    /**
+     * @return the extractor for the configuration or {@code null} if the timestamp is not taken from the messages
+     */
+    public static TimestampExtractor fromConfiguration(LogReaderConfiguration configuration) {
+        String regex = configuration.getTimestampRegexp();
+        int column = configuration.getTimestampColumn();
+        if (regex == null && column == NO_LIMIT) {
+            return null;
+        }
+        if (configuration.getTimestampFormat() == null) {
+            throw new IllegalArgumentException("'timestampFormat' must be specified to take the timestamp from the messages");
+        }
+        return new TimestampExtractor(regex, column, configuration.getTimestampFormat(), ZoneId.of(configuration.getTimestampZone()));
+    }
+
+    /**
+     * @return the nanoseconds since the epoch or {@link CachedTimestampParser#INVALID} if the timestamp is not found
+     */
+    public long extract(ByteString message) {
+        view.wrap(message);
+        if (matcher == null) {
+            return parser.parseFrom(view, column);
+        }
+        matcher.reset(view);
+        if (!matcher.find() || matcher.start(1) < 0) {
+            return CachedTimestampParser.INVALID;
+        }
+        return parser.parse(view, matcher.start(1), matcher.end(1));
+    }
+
+    /**
+     * Presents the bytes of the message as ISO-8859-1 characters
+     */
+    private static class ByteStringCharSequence implements CharSequence {
+        private ByteString bytes = ByteString.EMPTY;
+
+        private void wrap(ByteString bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public int length() {
+            return bytes.size();
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char)(bytes.byteAt(index) & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            ByteStringCharSequence sequence = new ByteStringCharSequence();
+            sequence.wrap(bytes.substring(start, end));
+            return sequence;
+        }
+
+        @Override
+        public String toString() {
+            return bytes.toString(StandardCharsets.ISO_8859_1);
+        }
+    }
+}
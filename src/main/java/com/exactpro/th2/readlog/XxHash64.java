@@ -0,0 +1,98 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.readlog;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * The 64-bit xxHash (XXH64) of a byte range. The multi-byte values are read as little-endian as the reference implementation does.
+ */
+final class XxHash64 {
+    private static final long PRIME64_1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME64_2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME64_3 = 0x165667B19E3779F9L;
+    private static final long PRIME64_4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME64_5 = 0x27D4EB2F165667C5L;
+
+    private static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle INT = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private XxHash64() {
+    }
+
+    static long hash(byte[] data, int offset, int length, long seed) {
+        int end = offset + length;
+        int position = offset;
+        long hash;
+        if (length >= 32) {
+            long v1 = seed + PRIME64_1 + PRIME64_2;
+            long v2 = seed + PRIME64_2;
+            long v3 = seed;
+            long v4 = seed - PRIME64_1;
+            int limit = end - 32;
+            do {
+                v1 = round(v1, (long)LONG.get(data, position));
+                v2 = round(v2, (long)LONG.get(data, position + 8));
+                v3 = round(v3, (long)LONG.get(data, position + 16));
+                v4 = round(v4, (long)LONG.get(data, position + 24));
+                position += 32;
+            } while (position <= limit);
+            hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            hash = mergeRound(hash, v1);
+            hash = mergeRound(hash, v2);
+            hash = mergeRound(hash, v3);
+            hash = mergeRound(hash, v4);
+        } else {
+            hash = seed + PRIME64_5;
+        }
+        hash += length;
+
+        for (; position + 8 <= end; position += 8) {
+            hash ^= round(0, (long)LONG.get(data, position));
+            hash = Long.rotateLeft(hash, 27) * PRIME64_1 + PRIME64_4;
+        }
+        if (position + 4 <= end) {
+            hash ^= ((int)INT.get(data, position) & 0xFFFFFFFFL) * PRIME64_1;
+            hash = Long.rotateLeft(hash, 23) * PRIME64_2 + PRIME64_3;
+            position += 4;
+        }
+        for (; position < end; position++) {
+            hash ^= (data[position] & 0xFFL) * PRIME64_5;
+            hash = Long.rotateLeft(hash, 11) * PRIME64_1;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= PRIME64_2;
+        hash ^= hash >>> 29;
+        hash *= PRIME64_3;
+        hash ^= hash >>> 32;
+        return hash;
+    }
+
+    private static long round(long accumulator, long input) {
+        accumulator += input * PRIME64_2;
+        accumulator = Long.rotateLeft(accumulator, 31);
+        return accumulator * PRIME64_1;
+    }
+
+    private static long mergeRound(long accumulator, long value) {
+        accumulator ^= round(0, value);
+        return accumulator * PRIME64_1 + PRIME64_4;
+    }
+}
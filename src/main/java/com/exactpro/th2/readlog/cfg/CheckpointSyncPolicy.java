@@ -0,0 +1,29 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.readlog.cfg;
+
+/**
+ * Defines when the checkpoint file is flushed to the storage device.
+ */
+public enum CheckpointSyncPolicy {
+    /** The checkpoint is synced after each published batch */
+    BATCH,
+    /** The checkpoint is synced if the previous sync was earlier than the configured interval */
+    INTERVAL,
+    /** The checkpoint is never synced explicitly. The operation system decides when to write it */
+    NEVER
+}
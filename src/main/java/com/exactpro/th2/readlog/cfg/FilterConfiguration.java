@@ -0,0 +1,72 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.readlog.cfg;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * The rules selecting the lines passed to the parser.
+ * A line is passed if it matches any include rule (or there are no include rules) and does not match any exclude rule.
+ */
+public class FilterConfiguration {
+    @JsonProperty("include-keywords")
+    private List<String> includeKeywords = Collections.emptyList();
+
+    @JsonProperty("include-regexps")
+    private List<String> includeRegexps = Collections.emptyList();
+
+    @JsonProperty("exclude-keywords")
+    private List<String> excludeKeywords = Collections.emptyList();
+
+    @JsonProperty("exclude-regexps")
+    private List<String> excludeRegexps = Collections.emptyList();
+
+    public List<String> getIncludeKeywords() {
+        return includeKeywords;
+    }
+
+    public void setIncludeKeywords(List<String> includeKeywords) {
+        this.includeKeywords = includeKeywords;
+    }
+
+    public List<String> getIncludeRegexps() {
+        return includeRegexps;
+    }
+
+    public void setIncludeRegexps(List<String> includeRegexps) {
+        this.includeRegexps = includeRegexps;
+    }
+
+    public List<String> getExcludeKeywords() {
+        return excludeKeywords;
+    }
+
+    public void setExcludeKeywords(List<String> excludeKeywords) {
+        this.excludeKeywords = excludeKeywords;
+    }
+
+    public List<String> getExcludeRegexps() {
+        return excludeRegexps;
+    }
+
+    public void setExcludeRegexps(List<String> excludeRegexps) {
+        this.excludeRegexps = excludeRegexps;
+    }
+}
@@ -17,6 +17,10 @@
 package com.exactpro.th2.readlog.cfg;
 
 import java.io.File;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
@@ -24,18 +28,163 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 public class LogReaderConfiguration {
     public static final int NO_LIMIT = -1;
 
-    @JsonProperty(value = "log-file", required = true)
+    @JsonProperty("log-file")
     private File logFile;
 
-    @JsonProperty(required = true)
+    @JsonProperty("log-files")
+    private List<String> logFiles = Collections.emptyList();
+
+    @JsonProperty("directory-scan-interval-ms")
+    private long directoryScanIntervalMs = 5_000;
+
+    @JsonProperty("config-reload-interval-ms")
+    private long configReloadIntervalMs = 5_000;
+
+    @JsonProperty("max-threads")
+    private int maxThreads = Runtime.getRuntime().availableProcessors();
+
+    @JsonProperty("parser")
+    private ParserType parser = ParserType.REGEX;
+
+    @JsonProperty("regexp")
     private String regexp;
 
     @JsonProperty("regexp-groups")
     private List<Integer> regexpGroups;
 
+    @JsonProperty("fix-message-types")
+    private List<String> fixMessageTypes = Collections.emptyList();
+
+    @JsonProperty("fix-delimiter")
+    private char fixDelimiter = '\u0001';
+
+    @JsonProperty("fix-validate")
+    private boolean fixValidate;
+
+    @JsonProperty("timestamp-regexp")
+    private String timestampRegexp;
+
+    @JsonProperty("timestamp-column")
+    private int timestampColumn = NO_LIMIT;
+
+    @JsonProperty("timestamp-format")
+    private String timestampFormat;
+
+    @JsonProperty("timestamp-zone")
+    private String timestampZone = "UTC";
+
+    @JsonProperty("record-start-regexp")
+    private String recordStartRegexp;
+
+    @JsonProperty("record-max-lines")
+    private int recordMaxLines = 1_000;
+
+    @JsonProperty("record-max-bytes")
+    private int recordMaxBytes = 1024 * 1024;
+
+    @JsonProperty("record-flush-timeout-ms")
+    private long recordFlushTimeoutMs = 1_000;
+
+    @JsonProperty("charset")
+    private Charset charset = StandardCharsets.UTF_8;
+
+    @JsonProperty("rate-limit")
+    private RateLimitConfiguration rateLimit = new RateLimitConfiguration();
+
+    @JsonProperty("filter")
+    private FilterConfiguration filter = new FilterConfiguration();
+
+    @JsonProperty("routing")
+    private RoutingConfiguration routing = new RoutingConfiguration();
+
+    @JsonProperty("sources")
+    private List<SourceConfiguration> sources = Collections.emptyList();
+
+    /**
+     * @deprecated use {@code batches-per-second} in {@code rate-limit} instead
+     */
+    @Deprecated
     @JsonProperty("max-batches-per-second")
     private int maxBatchesPerSecond = NO_LIMIT;
 
+    @JsonProperty("max-batch-latency-ms")
+    private long maxBatchLatencyMs = 2_000;
+
+    @JsonProperty("max-batch-lines")
+    private int maxBatchLines = 10_000;
+
+    @JsonProperty("max-batch-bytes")
+    private int maxBatchBytes = 1024 * 1024;
+
+    @JsonProperty("async-send")
+    private boolean asyncSend;
+
+    @JsonProperty("max-queued-batches")
+    private int maxQueuedBatches = 8;
+
+    @JsonProperty("send-threads")
+    private int sendThreads = 1;
+
+    @JsonProperty("send-max-retries")
+    private int sendMaxRetries = 5;
+
+    @JsonProperty("send-retry-initial-delay-ms")
+    private long sendRetryInitialDelayMs = 100;
+
+    @JsonProperty("send-retry-max-delay-ms")
+    private long sendRetryMaxDelayMs = 10_000;
+
+    @JsonProperty("parser-threads")
+    private int parserThreads;
+
+    @JsonProperty("parser-chunk-lines")
+    private int parserChunkLines = 1_000;
+
+    @JsonProperty("parser-chunks-in-flight")
+    private int parserChunksInFlight = 4;
+
+    @JsonProperty("backfill-mode")
+    private BackfillMode backfillMode = BackfillMode.NONE;
+
+    @JsonProperty("backfill-threads")
+    private int backfillThreads;
+
+    @JsonProperty("backfill-range-bytes")
+    private int backfillRangeBytes = 1024 * 1024;
+
+    @JsonProperty("backfill-ranges-in-flight")
+    private int backfillRangesInFlight = 4;
+
+    @JsonProperty("min-poll-interval-ms")
+    private long minPollIntervalMs = 1;
+
+    @JsonProperty("max-poll-interval-ms")
+    private long maxPollIntervalMs = 1_000;
+
+    @JsonProperty("checkpoint-directory")
+    private File checkpointDirectory;
+
+    @JsonProperty("checkpoint-sync")
+    private CheckpointSyncPolicy checkpointSyncPolicy = CheckpointSyncPolicy.BATCH;
+
+    @JsonProperty("checkpoint-sync-interval-ms")
+    private long checkpointSyncIntervalMs = 1_000;
+
+    @JsonProperty("line-index-directory")
+    private File lineIndexDirectory;
+
+    @JsonProperty("line-index-interval")
+    private int lineIndexInterval = 1_000;
+
+    @JsonProperty("dedup-max-messages")
+    private int dedupMaxMessages;
+
+    @JsonProperty("dedup-max-age-ms")
+    private long dedupMaxAgeMs;
+
+    @JsonProperty("dedup-snapshot-interval-ms")
+    private long dedupSnapshotIntervalMs = 10_000;
+
     public File getLogFile() {
         return logFile;
     }
@@ -44,6 +193,84 @@ public class LogReaderConfiguration {
         this.logFile = logFile;
     }
 
+    public List<String> getLogFiles() {
+        return logFiles;
+    }
+
+    public void setLogFiles(List<String> logFiles) {
+        this.logFiles = logFiles;
+    }
+
+    /**
+     * @return the patterns from {@code log-files} and the {@code log-file} if it is specified
+     */
+    public List<String> getLogFilePatterns() {
+        List<String> patterns = new ArrayList<>();
+        if (logFile != null) {
+            patterns.add(logFile.getPath());
+        }
+        if (logFiles != null) {
+            patterns.addAll(logFiles);
+        }
+        return patterns;
+    }
+
+    public long getDirectoryScanIntervalMs() {
+        return directoryScanIntervalMs;
+    }
+
+    public void setDirectoryScanIntervalMs(long directoryScanIntervalMs) {
+        this.directoryScanIntervalMs = directoryScanIntervalMs;
+    }
+
+    public long getConfigReloadIntervalMs() {
+        return configReloadIntervalMs;
+    }
+
+    public void setConfigReloadIntervalMs(long configReloadIntervalMs) {
+        this.configReloadIntervalMs = configReloadIntervalMs;
+    }
+
+    public int getMaxThreads() {
+        return maxThreads;
+    }
+
+    public void setMaxThreads(int maxThreads) {
+        this.maxThreads = maxThreads;
+    }
+
+    public ParserType getParser() {
+        return parser;
+    }
+
+    public void setParser(ParserType parser) {
+        this.parser = parser;
+    }
+
+    public List<String> getFixMessageTypes() {
+        return fixMessageTypes;
+    }
+
+    public void setFixMessageTypes(List<String> fixMessageTypes) {
+        this.fixMessageTypes = fixMessageTypes;
+    }
+
+    public char getFixDelimiter() {
+        return fixDelimiter;
+    }
+
+    public void setFixDelimiter(char fixDelimiter) {
+        this.fixDelimiter = fixDelimiter;
+    }
+
+    public boolean isFixValidate() {
+        return fixValidate;
+    }
+
+    public void setFixValidate(boolean fixValidate) {
+        this.fixValidate = fixValidate;
+    }
+
     public String getRegexp() {
         return regexp;
     }
@@ -60,11 +287,325 @@ public class LogReaderConfiguration {
         this.regexpGroups = regexpGroups;
     }
 
+    public String getTimestampRegexp() {
+        return timestampRegexp;
+    }
+
+    public void setTimestampRegexp(String timestampRegexp) {
+        this.timestampRegexp = timestampRegexp;
+    }
+
+    public int getTimestampColumn() {
+        return timestampColumn;
+    }
+
+    public void setTimestampColumn(int timestampColumn) {
+        this.timestampColumn = timestampColumn;
+    }
+
+    public String getTimestampFormat() {
+        return timestampFormat;
+    }
+
+    public void setTimestampFormat(String timestampFormat) {
+        this.timestampFormat = timestampFormat;
+    }
+
+    public String getTimestampZone() {
+        return timestampZone;
+    }
+
+    public void setTimestampZone(String timestampZone) {
+        this.timestampZone = timestampZone;
+    }
+
+    public String getRecordStartRegexp() {
+        return recordStartRegexp;
+    }
+
+    public void setRecordStartRegexp(String recordStartRegexp) {
+        this.recordStartRegexp = recordStartRegexp;
+    }
+
+    public int getRecordMaxLines() {
+        return recordMaxLines;
+    }
+
+    public void setRecordMaxLines(int recordMaxLines) {
+        this.recordMaxLines = recordMaxLines;
+    }
+
+    public int getRecordMaxBytes() {
+        return recordMaxBytes;
+    }
+
+    public void setRecordMaxBytes(int recordMaxBytes) {
+        this.recordMaxBytes = recordMaxBytes;
+    }
+
+    public long getRecordFlushTimeoutMs() {
+        return recordFlushTimeoutMs;
+    }
+
+    public void setRecordFlushTimeoutMs(long recordFlushTimeoutMs) {
+        this.recordFlushTimeoutMs = recordFlushTimeoutMs;
+    }
+
+    public Charset getCharset() {
+        return charset;
+    }
+
+    public void setCharset(Charset charset) {
+        this.charset = charset;
+    }
+
+    public RateLimitConfiguration getRateLimit() {
+        return rateLimit;
+    }
+
+    public void setRateLimit(RateLimitConfiguration rateLimit) {
+        this.rateLimit = rateLimit;
+    }
+
+    public FilterConfiguration getFilter() {
+        return filter;
+    }
+
+    public void setFilter(FilterConfiguration filter) {
+        this.filter = filter;
+    }
+
+    public RoutingConfiguration getRouting() {
+        return routing;
+    }
+
+    public void setRouting(RoutingConfiguration routing) {
+        this.routing = routing;
+    }
+
+    public List<SourceConfiguration> getSources() {
+        return sources;
+    }
+
+    public void setSources(List<SourceConfiguration> sources) {
+        this.sources = sources;
+    }
+
+    @Deprecated
     public int getMaxBatchesPerSecond() {
         return maxBatchesPerSecond;
     }
 
+    @Deprecated
     public void setMaxBatchesPerSecond(int maxBatchesPerSecond) {
         this.maxBatchesPerSecond = maxBatchesPerSecond;
     }
+
+    public int getParserThreads() {
+        return parserThreads;
+    }
+
+    public void setParserThreads(int parserThreads) {
+        this.parserThreads = parserThreads;
+    }
+
+    public int getParserChunkLines() {
+        return parserChunkLines;
+    }
+
+    public void setParserChunkLines(int parserChunkLines) {
+        this.parserChunkLines = parserChunkLines;
+    }
+
+    public int getParserChunksInFlight() {
+        return parserChunksInFlight;
+    }
+
+    public void setParserChunksInFlight(int parserChunksInFlight) {
+        this.parserChunksInFlight = parserChunksInFlight;
+    }
+
+    public BackfillMode getBackfillMode() {
+        return backfillMode;
+    }
+
+    public void setBackfillMode(BackfillMode backfillMode) {
+        this.backfillMode = backfillMode;
+    }
+
+    public int getBackfillThreads() {
+        return backfillThreads;
+    }
+
+    public void setBackfillThreads(int backfillThreads) {
+        this.backfillThreads = backfillThreads;
+    }
+
+    public int getBackfillRangeBytes() {
+        return backfillRangeBytes;
+    }
+
+    public void setBackfillRangeBytes(int backfillRangeBytes) {
+        this.backfillRangeBytes = backfillRangeBytes;
+    }
+
+    public int getBackfillRangesInFlight() {
+        return backfillRangesInFlight;
+    }
+
+    public void setBackfillRangesInFlight(int backfillRangesInFlight) {
+        this.backfillRangesInFlight = backfillRangesInFlight;
+    }
+
+    public long getMaxBatchLatencyMs() {
+        return maxBatchLatencyMs;
+    }
+
+    public void setMaxBatchLatencyMs(long maxBatchLatencyMs) {
+        this.maxBatchLatencyMs = maxBatchLatencyMs;
+    }
+
+    public int getMaxBatchLines() {
+        return maxBatchLines;
+    }
+
+    public void setMaxBatchLines(int maxBatchLines) {
+        this.maxBatchLines = maxBatchLines;
+    }
+
+    public int getMaxBatchBytes() {
+        return maxBatchBytes;
+    }
+
+    public void setMaxBatchBytes(int maxBatchBytes) {
+        this.maxBatchBytes = maxBatchBytes;
+    }
+
+    public boolean isAsyncSend() {
+        return asyncSend;
+    }
+
+    public void setAsyncSend(boolean asyncSend) {
+        this.asyncSend = asyncSend;
+    }
+
+    public int getMaxQueuedBatches() {
+        return maxQueuedBatches;
+    }
+
+    public void setMaxQueuedBatches(int maxQueuedBatches) {
+        this.maxQueuedBatches = maxQueuedBatches;
+    }
+
+    public int getSendThreads() {
+        return sendThreads;
+    }
+
+    public void setSendThreads(int sendThreads) {
+        this.sendThreads = sendThreads;
+    }
+
+    public int getSendMaxRetries() {
+        return sendMaxRetries;
+    }
+
+    public void setSendMaxRetries(int sendMaxRetries) {
+        this.sendMaxRetries = sendMaxRetries;
+    }
+
+    public long getSendRetryInitialDelayMs() {
+        return sendRetryInitialDelayMs;
+    }
+
+    public void setSendRetryInitialDelayMs(long sendRetryInitialDelayMs) {
+        this.sendRetryInitialDelayMs = sendRetryInitialDelayMs;
+    }
+
+    public long getSendRetryMaxDelayMs() {
+        return sendRetryMaxDelayMs;
+    }
+
+    public void setSendRetryMaxDelayMs(long sendRetryMaxDelayMs) {
+        this.sendRetryMaxDelayMs = sendRetryMaxDelayMs;
+    }
+
+    public long getMinPollIntervalMs() {
+        return minPollIntervalMs;
+    }
+
+    public void setMinPollIntervalMs(long minPollIntervalMs) {
+        this.minPollIntervalMs = minPollIntervalMs;
+    }
+
+    public long getMaxPollIntervalMs() {
+        return maxPollIntervalMs;
+    }
+
+    public void setMaxPollIntervalMs(long maxPollIntervalMs) {
+        this.maxPollIntervalMs = maxPollIntervalMs;
+    }
+
+    public File getCheckpointDirectory() {
+        return checkpointDirectory;
+    }
+
+    public void setCheckpointDirectory(File checkpointDirectory) {
+        this.checkpointDirectory = checkpointDirectory;
+    }
+
+    public CheckpointSyncPolicy getCheckpointSyncPolicy() {
+        return checkpointSyncPolicy;
+    }
+
+    public void setCheckpointSyncPolicy(CheckpointSyncPolicy checkpointSyncPolicy) {
+        this.checkpointSyncPolicy = checkpointSyncPolicy;
+    }
+
+    public long getCheckpointSyncIntervalMs() {
+        return checkpointSyncIntervalMs;
+    }
+
+    public void setCheckpointSyncIntervalMs(long checkpointSyncIntervalMs) {
+        this.checkpointSyncIntervalMs = checkpointSyncIntervalMs;
+    }
+
+    public File getLineIndexDirectory() {
+        return lineIndexDirectory;
+    }
+
+    public void setLineIndexDirectory(File lineIndexDirectory) {
+        this.lineIndexDirectory = lineIndexDirectory;
+    }
+
+    public int getLineIndexInterval() {
+        return lineIndexInterval;
+    }
+
+    public void setLineIndexInterval(int lineIndexInterval) {
+        this.lineIndexInterval = lineIndexInterval;
+    }
+
+    public int getDedupMaxMessages() {
+        return dedupMaxMessages;
+    }
+
+    public void setDedupMaxMessages(int dedupMaxMessages) {
+        this.dedupMaxMessages = dedupMaxMessages;
+    }
+
+    public long getDedupMaxAgeMs() {
+        return dedupMaxAgeMs;
+    }
+
+    public void setDedupMaxAgeMs(long dedupMaxAgeMs) {
+        this.dedupMaxAgeMs = dedupMaxAgeMs;
+    }
+
+    public long getDedupSnapshotIntervalMs() {
+        return dedupSnapshotIntervalMs;
+    }
+
+    public void setDedupSnapshotIntervalMs(long dedupSnapshotIntervalMs) {
+        this.dedupSnapshotIntervalMs = dedupSnapshotIntervalMs;
+    }
 }
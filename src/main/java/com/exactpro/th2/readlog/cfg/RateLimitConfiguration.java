@@ -0,0 +1,104 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.readlog.cfg;
+
+import static com.exactpro.th2.readlog.cfg.LogReaderConfiguration.NO_LIMIT;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * The limits of the publication rate. Each limit allows the burst of the specified size.
+ * If the burst is not specified it is equal to the number of permits per 100 milliseconds.
+ */
+public class RateLimitConfiguration {
+    @JsonProperty("scope")
+    private RateLimitScope scope = RateLimitScope.FILE;
+
+    @JsonProperty("messages-per-second")
+    private long messagesPerSecond = NO_LIMIT;
+
+    @JsonProperty("messages-burst")
+    private long messagesBurst = NO_LIMIT;
+
+    @JsonProperty("bytes-per-second")
+    private long bytesPerSecond = NO_LIMIT;
+
+    @JsonProperty("bytes-burst")
+    private long bytesBurst = NO_LIMIT;
+
+    @JsonProperty("batches-per-second")
+    private long batchesPerSecond = NO_LIMIT;
+
+    @JsonProperty("batches-burst")
+    private long batchesBurst = NO_LIMIT;
+
+    public RateLimitScope getScope() {
+        return scope;
+    }
+
+    public void setScope(RateLimitScope scope) {
+        this.scope = scope;
+    }
+
+    public long getMessagesPerSecond() {
+        return messagesPerSecond;
+    }
+
+    public void setMessagesPerSecond(long messagesPerSecond) {
+        this.messagesPerSecond = messagesPerSecond;
+    }
+
+    public long getMessagesBurst() {
+        return messagesBurst;
+    }
+
+    public void setMessagesBurst(long messagesBurst) {
+        this.messagesBurst = messagesBurst;
+    }
+
+    public long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    public void setBytesPerSecond(long bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    public long getBytesBurst() {
+        return bytesBurst;
+    }
+
+    public void setBytesBurst(long bytesBurst) {
+        this.bytesBurst = bytesBurst;
+    }
+
+    public long getBatchesPerSecond() {
+        return batchesPerSecond;
+    }
+
+    public void setBatchesPerSecond(long batchesPerSecond) {
+        this.batchesPerSecond = batchesPerSecond;
+    }
+
+    public long getBatchesBurst() {
+        return batchesBurst;
+    }
+
+    public void setBatchesBurst(long batchesBurst) {
+        this.batchesBurst = batchesBurst;
+    }
+}
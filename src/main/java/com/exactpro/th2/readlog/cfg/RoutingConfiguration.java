@@ -0,0 +1,51 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.readlog.cfg;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * The rules distributing the messages of a log file between several session aliases and directions.
+ * The first matching rule defines the session alias and the direction of the message.
+ * The messages matching no rule are published under the session alias of the file with the {@code FIRST} direction.
+ */
+public class RoutingConfiguration {
+    @JsonProperty("rules")
+    private List<RoutingRule> rules = Collections.emptyList();
+
+    @JsonProperty("max-aliases")
+    private int maxAliases = 100;
+
+    public List<RoutingRule> getRules() {
+        return rules;
+    }
+
+    public void setRules(List<RoutingRule> rules) {
+        this.rules = rules;
+    }
+
+    public int getMaxAliases() {
+        return maxAliases;
+    }
+
+    public void setMaxAliases(int maxAliases) {
+        this.maxAliases = maxAliases;
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.readlog.cfg;
+
+import com.exactpro.th2.common.grpc.Direction;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Takes the session alias of the message from the value of a FIX tag or from a group of the regular expression.
+ * Exactly one of {@code fix-tag} and {@code regexp} must be specified.
+ */
+public class RoutingRule {
+    @JsonProperty("fix-tag")
+    private int fixTag;
+
+    @JsonProperty("regexp")
+    private String regexp;
+
+    @JsonProperty("group")
+    private int group = 1;
+
+    @JsonProperty("direction")
+    private Direction direction = Direction.FIRST;
+
+    /** The format of the session alias. The value is substituted for {@code %s} */
+    @JsonProperty("alias-format")
+    private String aliasFormat = "%s";
+
+    public int getFixTag() {
+        return fixTag;
+    }
+
+    public void setFixTag(int fixTag) {
+        this.fixTag = fixTag;
+    }
+
+    public String getRegexp() {
+        return regexp;
+    }
+
+    public void setRegexp(String regexp) {
+        this.regexp = regexp;
+    }
+
+    public int getGroup() {
+        return group;
+    }
+
+    public void setGroup(int group) {
+        this.group = group;
+    }
+
+    public Direction getDirection() {
+        return direction;
+    }
+
+    public void setDirection(Direction direction) {
+        this.direction = direction;
+    }
+
+    public String getAliasFormat() {
+        return aliasFormat;
+    }
+
+    public void setAliasFormat(String aliasFormat) {
+        this.aliasFormat = aliasFormat;
+    }
+}
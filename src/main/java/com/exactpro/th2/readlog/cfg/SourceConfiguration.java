@@ -0,0 +1,107 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.readlog.cfg;
+
+import java.io.File;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * The source of the lines other than a log file. The lines are published under the configured session alias.
+ */
+public class SourceConfiguration {
+    @JsonProperty("type")
+    private SourceType type;
+
+    @JsonProperty("session-alias")
+    private String sessionAlias;
+
+    /** The path to the named pipe of the {@link SourceType#PIPE} source */
+    @JsonProperty("path")
+    private File path;
+
+    /** The address the syslog listener is bound to */
+    @JsonProperty("host")
+    private String host = "0.0.0.0";
+
+    @JsonProperty("port")
+    private int port = 514;
+
+    /** The maximum size of a line or a syslog message. Longer lines are split, longer messages are truncated or skipped */
+    @JsonProperty("max-message-bytes")
+    private int maxMessageBytes = 64 * 1024;
+
+    /** The maximum number of lines received but not read yet */
+    @JsonProperty("queue-capacity")
+    private int queueCapacity = 10_000;
+
+    public SourceType getType() {
+        return type;
+    }
+
+    public void setType(SourceType type) {
+        this.type = type;
+    }
+
+    public String getSessionAlias() {
+        return sessionAlias;
+    }
+
+    public void setSessionAlias(String sessionAlias) {
+        this.sessionAlias = sessionAlias;
+    }
+
+    public File getPath() {
+        return path;
+    }
+
+    public void setPath(File path) {
+        this.path = path;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public void setHost(String host) {
+        this.host = host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public void setPort(int port) {
+        this.port = port;
+    }
+
+    public int getMaxMessageBytes() {
+        return maxMessageBytes;
+    }
+
+    public void setMaxMessageBytes(int maxMessageBytes) {
+        this.maxMessageBytes = maxMessageBytes;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.readlog.cfg;
+
+/**
+ * The kind of the line source other than a log file.
+ */
+public enum SourceType {
+    /** The standard input of the reader process. The source is finished at the end of the input */
+    STDIN,
+    /** The named pipe (FIFO). The pipe is reopened when the writer closes it */
+    PIPE,
+    /** The syslog messages received over UDP */
+    SYSLOG_UDP,
+    /** The syslog messages received over TCP with the octet counting or the line feed framing */
+    SYSLOG_TCP
+}
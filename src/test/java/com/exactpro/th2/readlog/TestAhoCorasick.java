@@ -0,0 +1,75 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.readlog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Keywords found")
+public class TestAhoCorasick {
+    @Test
+    @DisplayName("When keywords overlap")
+    void findsOverlappingKeywords() {
+        AhoCorasick automaton = automaton("he", "she", "his", "hers");
+
+        assertEquals(Arrays.asList(1, 0, 3), search(automaton, "ushers"));
+        assertEquals(Arrays.asList(2, 1, 0), search(automaton, "hishe"));
+    }
+
+    @Test
+    @DisplayName("When a keyword occurs several times")
+    void findsEachOccurrence() {
+        AhoCorasick automaton = automaton("35=0", "aa");
+
+        assertEquals(Arrays.asList(0, 0), search(automaton, "8=FIX|35=0|35=0|"));
+        assertEquals(Arrays.asList(1, 1), search(automaton, "aaa"));
+        assertEquals(Collections.emptyList(), search(automaton, "35=A"));
+        assertEquals(Collections.singletonList(0), search(automaton, "xx35=0xx", 2, 4));
+    }
+
+    @Test
+    @DisplayName("When a keyword is empty")
+    void rejectsEmptyKeyword() {
+        assertThrows(IllegalArgumentException.class, () -> automaton("a", ""));
+    }
+
+    private static AhoCorasick automaton(String... keywords) {
+        return new AhoCorasick(Arrays.stream(keywords)
+                .map(keyword -> keyword.getBytes(StandardCharsets.US_ASCII))
+                .collect(Collectors.toList()));
+    }
+
+    private static List<Integer> search(AhoCorasick automaton, String text) {
+        return search(automaton, text, 0, text.length());
+    }
+
+    private static List<Integer> search(AhoCorasick automaton, String text, int offset, int length) {
+        List<Integer> found = new ArrayList<>();
+        automaton.search(text.getBytes(StandardCharsets.US_ASCII), offset, length, found::add);
+        return found;
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.readlog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+
+import com.exactpro.th2.common.grpc.RawMessage;
+import com.exactpro.th2.common.grpc.RawMessageBatch;
+import com.exactpro.th2.common.schema.message.MessageRouter;
+import com.exactpro.th2.readlog.cfg.BackfillMode;
+import com.exactpro.th2.readlog.cfg.CheckpointSyncPolicy;
+import com.exactpro.th2.readlog.cfg.LogReaderConfiguration;
+
+@DisplayName("Existing content read in parallel")
+public class TestBackfill {
+    private static final PublicationRateLimiter NO_RATE_LIMIT = new PublicationRateLimiter(new LogReaderConfiguration());
+    @SuppressWarnings("unchecked")
+    private final MessageRouter<RawMessageBatch> routerMock = Mockito.mock(MessageRouter.class);
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+    private final RegexLogParser parser = new RegexLogParser("line (\\d+)", Collections.singletonList(1));
+
+    @TempDir
+    Path tempDir;
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("When ranges are parsed concurrently")
+    void publishesInOriginalOrder() throws Exception {
+        StringBuilder content = new StringBuilder();
+        int lines = 1000;
+        for (int i = 0; i < lines; i++) {
+            content.append("line ").append(i).append(i % 2 == 0 ? "\n" : "\r\n");
+        }
+        int completeLength = content.length();
+        // the incomplete line is left for tailing
+        content.append("line ").append(lines);
+        Path file = tempDir.resolve("backfill.log");
+        Files.write(file, content.toString().getBytes(StandardCharsets.UTF_8));
+        LogReaderConfiguration configuration = configuration(100, 3, 10);
+
+        try (LogTailer tailer = tailer(file, configuration, NO_RATE_LIMIT)) {
+            assertEquals(LogTailer.NO_DATA, readAvailable(tailer));
+        }
+
+        List<RawMessage> published = published(lines / 10);
+        assertEquals(IntStream.range(0, lines).mapToObj(String::valueOf).collect(Collectors.toList()),
+                published.stream().map(message -> message.getBody().toString(StandardCharsets.UTF_8)).collect(Collectors.toList()));
+        long firstSequence = sequence(published.get(0));
+        for (int i = 1; i < lines; i++) {
+            assertEquals(firstSequence + i, sequence(published.get(i)));
+        }
+        Checkpoint checkpoint = checkpoint(configuration);
+        assertEquals(completeLength, checkpoint.getOffset());
+        assertEquals(sequence(published.get(lines - 1)), checkpoint.getSequence());
+    }
+
+    @Test
+    @DisplayName("When the reading resumes in the middle of the file")
+    void readsFromCheckpoint() throws Exception {
+        String head = "line 0\nline 1\n";
+        Path file = tempDir.resolve("start.log");
+        Files.write(file, head.getBytes(StandardCharsets.UTF_8));
+        LogReaderConfiguration configuration = configuration(1, 2, 2);
+        try (LogTailer tailer = tailer(file, configuration, NO_RATE_LIMIT)) {
+            readAvailable(tailer);
+        }
+        long lastSequence = sequence(published(1).get(1));
+        Files.write(file, "line 2\nline 3\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        Mockito.reset(routerMock);
+
+        try (LogTailer tailer = tailer(file, configuration, NO_RATE_LIMIT)) {
+            readAvailable(tailer);
+        }
+
+        List<RawMessage> published = published(1);
+        assertEquals(2, published.size());
+        assertEquals("2", published.get(0).getBody().toString(StandardCharsets.UTF_8));
+        assertEquals(lastSequence + 1, sequence(published.get(0)));
+        assertEquals(head.length() + 14, checkpoint(configuration).getOffset());
+    }
+
+    @Test
+    @DisplayName("When the publication is throttled")
+    void releasesThreadWhenThrottled() throws Exception {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            content.append("line ").append(i).append('\n');
+        }
+        Path file = tempDir.resolve("throttled.log");
+        Files.write(file, content.toString().getBytes(StandardCharsets.UTF_8));
+        LogReaderConfiguration configuration = configuration(30, 2, 1);
+        configuration.getRateLimit().setMessagesPerSecond(1);
+        configuration.getRateLimit().setMessagesBurst(5);
+
+        try (LogTailer tailer = tailer(file, configuration, new PublicationRateLimiter(configuration))) {
+            long delay = tailer.step();
+            // the step returns the delay to the scheduler instead of sleeping on the worker thread
+            assertTrue(delay > 0 && delay <= 1_000, "delay " + delay);
+            // the burst and the line that exceeded it
+            Mockito.verify(routerMock, Mockito.times(6)).sendAll(ArgumentMatchers.any(), ArgumentMatchers.any());
+        }
+    }
+
+    private LogTailer tailer(Path file, LogReaderConfiguration configuration, PublicationRateLimiter rateLimiter) throws IOException {
+        return new LogTailer(file, "test", parser, routerMock, configuration, rateLimiter, null, null, null, pool, () -> {});
+    }
+
+    private LogReaderConfiguration configuration(int rangeBytes, int rangesInFlight, int batchLines) {
+        LogReaderConfiguration configuration = new LogReaderConfiguration();
+        configuration.setBackfillMode(BackfillMode.TAIL);
+        configuration.setBackfillRangeBytes(rangeBytes);
+        configuration.setBackfillRangesInFlight(rangesInFlight);
+        configuration.setMaxBatchLines(batchLines);
+        configuration.setCheckpointDirectory(tempDir.resolve("checkpoints").toFile());
+        return configuration;
+    }
+
+    /**
+     * @return the result of the first step that did not read lines
+     */
+    private static long readAvailable(LogTailer tailer) throws IOException {
+        long result;
+        do {
+            result = tailer.step();
+        } while (result == LogTailer.DATA_READ);
+        return result;
+    }
+
+    private List<RawMessage> published(int batches) throws IOException {
+        ArgumentCaptor<RawMessageBatch> captor = ArgumentCaptor.forClass(RawMessageBatch.class);
+        Mockito.verify(routerMock, Mockito.times(batches)).sendAll(captor.capture(), ArgumentMatchers.any());
+        return captor.getAllValues().stream()
+                .flatMap(batch -> batch.getMessagesList().stream())
+                .collect(Collectors.toList());
+    }
+
+    private static long sequence(RawMessage message) {
+        return message.getMetadata().getId().getSequence();
+    }
+
+    private static Checkpoint checkpoint(LogReaderConfiguration configuration) throws IOException {
+        try (CheckpointStore store = new CheckpointStore(new File(configuration.getCheckpointDirectory(), "test.checkpoint"),
+                CheckpointSyncPolicy.NEVER, 0)) {
+            return store.load();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.exactpro.th2.readlog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+
+import com.exactpro.th2.common.grpc.Direction;
+import com.exactpro.th2.common.grpc.RawMessageBatch;
+import com.exactpro.th2.common.schema.message.MessageRouter;
+import com.exactpro.th2.readlog.cfg.LogReaderConfiguration;
+
+@DisplayName("Batch sent asynchronously")
+public class TestBatchSender {
+    @SuppressWarnings("unchecked")
+    private final MessageRouter<RawMessageBatch> routerMock = Mockito.mock(MessageRouter.class);
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    private final List<String> events = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("When the router fails temporarily")
+    void retriesInOrder() throws IOException {
+        Mockito.doThrow(new IOException("broker is not available")).doNothing()
+                .when(routerMock).sendAll(ArgumentMatchers.any(RawMessageBatch.class), ArgumentMatchers.any());
+        BatchSender sender = new BatchSender("test", routerMock, executor, configuration(3), () -> {});
+
+        sender.submit(RawMessageBatch.newBuilder().build(), sendNanos -> events.add("first"));
+        sender.submit(RawMessageBatch.newBuilder().build(), sendNanos -> events.add("second"));
+        sender.submit(null, sendNanos -> events.add("mark"));
+        sender.awaitSent();
+
+        assertEquals(Arrays.asList("first", "second", "mark"), events);
+        Mockito.verify(routerMock, Mockito.times(3)).sendAll(ArgumentMatchers.any(RawMessageBatch.class), ArgumentMatchers.any());
+    }
+
+    @Test
+    @DisplayName("When the retries are exhausted")
+    void failsAfterRetries() throws IOException {
+        Mockito.doThrow(new IOException("broker is not available"))
+                .when(routerMock).sendAll(ArgumentMatchers.any(RawMessageBatch.class), ArgumentMatchers.any());
+        BatchSender sender = new BatchSender("test", routerMock, executor, configuration(2), () -> {});
+
+        sender.submit(RawMessageBatch.newBuilder().build(), sendNanos -> events.add("first"));
+        sender.submit(null, sendNanos -> events.add("mark"));
+
+        assertThrows(IOException.class, sender::awaitSent);
+        assertThrows(IOException.class, () -> sender.submit(RawMessageBatch.newBuilder().build(), null));
+        assertEquals(0, events.size());
+        Mockito.verify(routerMock, Mockito.times(3)).sendAll(ArgumentMatchers.any(RawMessageBatch.class), ArgumentMatchers.any());
+    }
+
+    @Test
+    @DisplayName("When the sender fails after some batches are sent")
+    void reportsPositionBeforeSentBatchesOnFailure() throws IOException {
+        Mockito.doNothing().doNothing().doThrow(new IOException("broker is not available"))
+                .when(routerMock).sendAll(ArgumentMatchers.any(RawMessageBatch.class), ArgumentMatchers.any());
+        BatchSender sender = new BatchSender("test", routerMock, executor, configuration(0), () -> {});
+        List<long[]> positions = new CopyOnWriteArrayList<>();
+        LogPublisher publisher = new LogPublisher("test", Direction.FIRST, routerMock, new BatchLimits(1, 1000, 60_000), 0,
+                (offset, sequence) -> positions.add(new long[] { offset, sequence }), null, null, null, sender);
+
+        publisher.publish("A");
+        publisher.markPosition(10);
+        publisher.publish("B");
+        publisher.publish("C");
+        publisher.markPosition(20);
+
+        assertThrows(IOException.class, publisher::awaitSent);
+        assertThrows(IOException.class, publisher::checkFailure);
+        Mockito.verify(routerMock, Mockito.times(3)).sendAll(ArgumentMatchers.any(RawMessageBatch.class), ArgumentMatchers.any());
+        // the queued entries are dropped, so the checkpoint stays before B although B is sent.
+        // The file is read again from there, and B is published twice with the same sequence
+        assertEquals(1, positions.size());
+        assertEquals(10, positions.get(0)[0]);
+        assertEquals(1, positions.get(0)[1]);
+    }
+
+    private static LogReaderConfiguration configuration(int maxRetries) {
+        LogReaderConfiguration configuration = new LogReaderConfiguration();
+        configuration.setSendMaxRetries(maxRetries);
+        configuration.setSendRetryInitialDelayMs(1);
+        configuration.setSendRetryMaxDelayMs(10);
+        return configuration;
+    }
+}
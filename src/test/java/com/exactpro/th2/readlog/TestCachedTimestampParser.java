@@ -0,0 +1,104 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.readlog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.google.protobuf.ByteString;
+
+@DisplayName("Timestamp parsed")
+public class TestCachedTimestampParser {
+    @Test
+    @DisplayName("When the minute prefix is cached")
+    void parsesSecondsWithCachedPrefix() {
+        CachedTimestampParser parser = new CachedTimestampParser("yyyyMMdd-HH:mm:ss.SSS", ZoneOffset.UTC);
+
+        assertTrue(parser.isFast());
+        assertEquals(nanos("2020-11-24T11:17:26.968Z"), parse(parser, "20201124-11:17:26.968"));
+        assertEquals(nanos("2020-11-24T11:17:59.001Z"), parse(parser, "20201124-11:17:59.001"));
+        assertEquals(nanos("2020-11-24T11:18:00Z"), parse(parser, "20201124-11:18:00.000"));
+        assertEquals(CachedTimestampParser.INVALID, parse(parser, "20201124-11:18:0x.000"));
+        assertEquals(CachedTimestampParser.INVALID, parse(parser, "20201124-11:18:61.000"));
+    }
+
+    @Test
+    @DisplayName("When the zone is not UTC")
+    void appliesZone() {
+        CachedTimestampParser parser = new CachedTimestampParser("yyyy-MM-dd HH:mm:ss,SSS", ZoneId.of("Europe/Moscow"));
+
+        assertEquals(nanos("2015-02-09T13:23:59.455Z"), parse(parser, "2015-02-09 16:23:59,455"));
+    }
+
+    @Test
+    @DisplayName("When the pattern does not have fixed width")
+    void parsesVariableWidthPatterns() {
+        CachedTimestampParser parser = new CachedTimestampParser("d MMM yyyy HH:mm:ss", ZoneOffset.UTC);
+
+        assertFalse(parser.isFast());
+        assertEquals(nanos("2020-11-04T11:17:26Z"), parse(parser, "4 Nov 2020 11:17:26"));
+    }
+
+    @Test
+    @DisplayName("When the timestamp is extracted from FIX message")
+    void extractsFromMessage() {
+        TimestampExtractor extractor = new TimestampExtractor("\u000152=([^\u0001]+)", -1, "yyyyMMdd-HH:mm:ss.SSS", ZoneOffset.UTC);
+        ByteString message = ByteString.copyFromUtf8("8=FIXT.1.1\u00019=229\u000135=f\u000152=20201124-11:17:26.968\u000156=DEMO\u0001");
+
+        assertEquals(nanos("2020-11-24T11:17:26.968Z"), extractor.extract(message));
+        assertEquals(CachedTimestampParser.INVALID, extractor.extract(ByteString.copyFromUtf8("8=FIXT.1.1\u000135=f\u0001")));
+    }
+
+    @Test
+    @DisplayName("When the timestamp is taken from the column")
+    void extractsFromColumn() {
+        TimestampExtractor quoted = new TimestampExtractor(null, 4, "yyyy-MM-dd'T'HH:mm:ss.SSS", ZoneOffset.UTC);
+
+        assertEquals(nanos("2020-11-24T11:17:26.968Z"), quoted.extract(ByteString.copyFromUtf8("INFO2020-11-24T11:17:26.968 message")));
+        assertEquals(nanos("2020-11-24T11:17:26.968Z"), quoted.extract(ByteString.copyFromUtf8("INFO2020-11-24T11:17:26.968")));
+        assertEquals(CachedTimestampParser.INVALID, quoted.extract(ByteString.copyFromUtf8("INFO2020-11-24T11:17")));
+
+        TimestampExtractor variable = new TimestampExtractor(null, 2, "d MMM yyyy HH:mm:ss", ZoneOffset.UTC);
+
+        assertEquals(nanos("2020-11-04T11:17:26Z"), variable.extract(ByteString.copyFromUtf8("> 4 Nov 2020 11:17:26 message")));
+        assertEquals(nanos("2020-11-14T11:17:26Z"), variable.extract(ByteString.copyFromUtf8("> 14 Nov 2020 11:17:26 message")));
+        assertEquals(CachedTimestampParser.INVALID, variable.extract(ByteString.copyFromUtf8("> ")));
+
+        TimestampExtractor fast = new TimestampExtractor(null, 0, "yyyyMMdd-HH:mm:ss.SSS", ZoneOffset.UTC);
+
+        assertEquals(nanos("2020-11-24T11:17:26.968Z"), fast.extract(ByteString.copyFromUtf8("20201124-11:17:26.968 message")));
+        assertEquals(CachedTimestampParser.INVALID, fast.extract(ByteString.copyFromUtf8("20201124-11:17:26")));
+    }
+
+    private static long parse(CachedTimestampParser parser, String text) {
+        return parser.parse(text, 0, text.length());
+    }
+
+    private static long nanos(String instant) {
+        Instant parsed = Instant.parse(instant);
+        return TimeUnit.SECONDS.toNanos(parsed.getEpochSecond()) + parsed.getNano();
+    }
+}
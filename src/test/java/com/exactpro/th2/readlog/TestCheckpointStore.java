@@ -0,0 +1,145 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.readlog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+
+import com.exactpro.th2.readlog.cfg.CheckpointSyncPolicy;
+
+@DisplayName("Checkpoint stored")
+public class TestCheckpointStore {
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("When the store is empty")
+    void loadsNothingFromEmptyFile() throws IOException {
+        try (CheckpointStore store = new CheckpointStore(file(), CheckpointSyncPolicy.BATCH, 0)) {
+            assertNull(store.load());
+        }
+    }
+
+    @Test
+    @DisplayName("When the store is reopened")
+    void loadsLastSavedCheckpoint() throws IOException {
+        try (CheckpointStore store = new CheckpointStore(file(), CheckpointSyncPolicy.INTERVAL, 1_000)) {
+            store.save(new Checkpoint("id", 10, 1));
+            store.save(new Checkpoint("id", 20, 2));
+            store.save(new Checkpoint("id", 30, 3));
+        }
+
+        try (CheckpointStore store = new CheckpointStore(file(), CheckpointSyncPolicy.NEVER, 0)) {
+            assertEquals(new Checkpoint("id", 30, 3), store.load());
+        }
+    }
+
+    @Test
+    @DisplayName("When the checkpoint refers to a compressed member")
+    void loadsMemberPosition() throws IOException {
+        try (CheckpointStore store = new CheckpointStore(file(), CheckpointSyncPolicy.BATCH, 0)) {
+            store.save(new Checkpoint("id", 100, 5, 42, 80));
+        }
+
+        try (CheckpointStore store = new CheckpointStore(file(), CheckpointSyncPolicy.BATCH, 0)) {
+            Checkpoint checkpoint = store.load();
+            assertEquals(new Checkpoint("id", 100, 5, 42, 80), checkpoint);
+            assertEquals(42, checkpoint.getMemberOffset());
+            assertEquals(80, checkpoint.getMemberPosition());
+        }
+    }
+
+    @Test
+    @DisplayName("When the interval passes or the store is closed without more checkpoints")
+    void syncsPendingCheckpointByTimer() throws IOException {
+        ScheduledExecutorService timer = Mockito.mock(ScheduledExecutorService.class);
+        CheckpointStore store = new CheckpointStore(file(), CheckpointSyncPolicy.INTERVAL, 60_000, timer);
+        ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+        Mockito.verify(timer).scheduleWithFixedDelay(task.capture(), ArgumentMatchers.eq(60_000L),
+                ArgumentMatchers.eq(60_000L), ArgumentMatchers.eq(TimeUnit.MILLISECONDS));
+
+        store.save(new Checkpoint("id", 10, 1));
+        assertFalse(store.isSynced());
+        task.getValue().run();
+        assertTrue(store.isSynced());
+
+        store.save(new Checkpoint("id", 20, 2));
+        assertFalse(store.isSynced());
+        store.close();
+        assertTrue(store.isSynced());
+    }
+
+    @Test
+    @DisplayName("When the last written slot is damaged")
+    void loadsPreviousCheckpointIfLastIsDamaged() throws IOException {
+        try (CheckpointStore store = new CheckpointStore(file(), CheckpointSyncPolicy.BATCH, 0)) {
+            store.save(new Checkpoint("id", 10, 1));
+            store.save(new Checkpoint("id", 20, 2));
+        }
+        // the second checkpoint is written to the first slot
+        try (RandomAccessFile raf = new RandomAccessFile(file(), "rw")) {
+            raf.seek(20);
+            raf.write(0xFF);
+        }
+
+        try (CheckpointStore store = new CheckpointStore(file(), CheckpointSyncPolicy.BATCH, 0)) {
+            assertEquals(new Checkpoint("id", 10, 1), store.load());
+            store.save(new Checkpoint("id", 40, 4));
+        }
+
+        try (CheckpointStore store = new CheckpointStore(file(), CheckpointSyncPolicy.BATCH, 0)) {
+            assertEquals(new Checkpoint("id", 40, 4), store.load());
+        }
+    }
+
+    @Test
+    @DisplayName("When the file is cut in the middle of the second slot")
+    void loadsCheckpointIfSlotIsTruncated() throws IOException {
+        try (CheckpointStore store = new CheckpointStore(file(), CheckpointSyncPolicy.BATCH, 0)) {
+            store.save(new Checkpoint("id", 10, 1));
+            store.save(new Checkpoint("id", 20, 2));
+        }
+        // the first checkpoint is written to the second slot. Its header is complete, but the checksum is cut
+        try (RandomAccessFile raf = new RandomAccessFile(file(), "rw")) {
+            raf.setLength(CheckpointStore.SLOT_SIZE + 40);
+        }
+
+        try (CheckpointStore store = new CheckpointStore(file(), CheckpointSyncPolicy.BATCH, 0)) {
+            assertEquals(new Checkpoint("id", 20, 2), store.load());
+        }
+    }
+
+    private File file() {
+        return dir.resolve("checkpoint").toFile();
+    }
+}
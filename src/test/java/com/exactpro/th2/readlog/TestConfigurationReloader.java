@@ -0,0 +1,89 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.readlog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.exactpro.th2.readlog.cfg.LogReaderConfiguration;
+
+@DisplayName("Configuration reloaded")
+public class TestConfigurationReloader {
+    @TempDir
+    Path directory;
+
+    private final List<LogReaderConfiguration> applied = new ArrayList<>();
+
+    @Test
+    @DisplayName("When file is changed")
+    void passesChangedConfiguration() throws IOException {
+        Path file = write("{\"regexp\": \"a\", \"max-batch-lines\": 10}");
+        ConfigurationReloader reloader = new ConfigurationReloader(file, 1_000, applied::add);
+
+        assertTrue(reloader.check());
+        assertFalse(reloader.check());
+        write("{\"regexp\": \"b\", \"max-batch-lines\": 20}");
+        assertTrue(reloader.check());
+
+        assertEquals(2, applied.size());
+        assertEquals("b", applied.get(1).getRegexp());
+        assertEquals(20, applied.get(1).getMaxBatchLines());
+    }
+
+    @Test
+    @DisplayName("When file is invalid")
+    void skipsInvalidConfiguration() throws IOException {
+        Path file = write("{\"regexp\": \"a\"");
+        ConfigurationReloader reloader = new ConfigurationReloader(file, 1_000, applied::add);
+
+        assertFalse(reloader.check());
+        assertFalse(reloader.check());
+        write("{\"unknown-option\": 1}");
+        assertFalse(reloader.check());
+        assertTrue(applied.isEmpty());
+
+        write("{\"regexp\": \"a\"}");
+        assertTrue(reloader.check());
+        assertEquals(1, applied.size());
+    }
+
+    @Test
+    @DisplayName("When configuration is rejected")
+    void reportsRejectedConfiguration() throws IOException {
+        Path file = write("{\"regexp\": \"a\"}");
+        ConfigurationReloader reloader = new ConfigurationReloader(file, 1_000, configuration -> false);
+
+        assertFalse(reloader.check());
+        assertFalse(reloader.check());
+    }
+
+    private Path write(String content) throws IOException {
+        return Files.write(directory.resolve("custom.json"), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
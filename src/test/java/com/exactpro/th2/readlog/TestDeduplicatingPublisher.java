@@ -0,0 +1,185 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.readlog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.exactpro.th2.readlog.LogPublisher.PublicationListener;
+import com.google.protobuf.ByteString;
+
+@DisplayName("Duplicates dropped")
+public class TestDeduplicatingPublisher {
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("When the lines are read again")
+    void dropsRepeatedMessages() throws IOException {
+        RecordingPublisher delegate = new RecordingPublisher();
+        try (DeduplicatingPublisher publisher = create(null, delegate)) {
+            publishLine(publisher, 10, "a", "a");
+            publishLine(publisher, 20, "b");
+            // the lines read again after copytruncate
+            publishLine(publisher, 10, "a", "a");
+            publishLine(publisher, 20, "b", "c");
+        }
+
+        assertEquals(List.of("a", "a", "b", "c"), delegate.messages);
+    }
+
+    @Test
+    @DisplayName("When the publisher is restarted")
+    void restoresFingerprintsOfPublishedMessages() throws IOException {
+        File snapshot = dir.resolve("test.dedup").toFile();
+        RecordingPublisher delegate = new RecordingPublisher();
+        try (DeduplicatingPublisher publisher = create(snapshot, delegate)) {
+            publishLine(publisher, 10, "a");
+            publishLine(publisher, 20, "b");
+        }
+        assertTrue(snapshot.exists());
+
+        RecordingPublisher restarted = new RecordingPublisher();
+        try (DeduplicatingPublisher publisher = create(snapshot, restarted)) {
+            publishLine(publisher, 10, "a");
+            publishLine(publisher, 20, "b");
+            publishLine(publisher, 30, "c");
+        }
+
+        assertEquals(List.of("c"), restarted.messages);
+    }
+
+    @Test
+    @DisplayName("When the snapshot is damaged")
+    void ignoresDamagedSnapshot() throws IOException {
+        File snapshot = dir.resolve("test.dedup").toFile();
+        try (DeduplicatingPublisher publisher = create(snapshot, new RecordingPublisher())) {
+            publishLine(publisher, 10, "a");
+        }
+        byte[] data = Files.readAllBytes(snapshot.toPath());
+        data[data.length / 2] ^= 1;
+        Files.write(snapshot.toPath(), data);
+
+        RecordingPublisher restarted = new RecordingPublisher();
+        try (DeduplicatingPublisher publisher = create(snapshot, restarted)) {
+            publishLine(publisher, 10, "a");
+        }
+
+        assertEquals(List.of("a"), restarted.messages);
+    }
+
+    @Test
+    @DisplayName("When the messages are not published before the snapshot")
+    void savesOnlyPublishedMessages() throws IOException {
+        File snapshot = dir.resolve("test.dedup").toFile();
+        RecordingPublisher delegate = new RecordingPublisher();
+        delegate.confirming = false;
+        DeduplicatingPublisher publisher = new DeduplicatingPublisher("test", 100, 0, snapshot, 1, null, PublicationListener.NONE, delegate);
+        publishLine(publisher, 10, "a");
+        publishLine(publisher, 20, "b");
+        // the line "a" is published, the line "b" is not
+        delegate.confirm(10);
+        // the process is killed, so the publisher is not closed
+
+        RecordingPublisher restarted = new RecordingPublisher();
+        try (DeduplicatingPublisher restartedPublisher = create(snapshot, restarted)) {
+            publishLine(restartedPublisher, 10, "a");
+            publishLine(restartedPublisher, 20, "b");
+        }
+
+        assertEquals(List.of("b"), restarted.messages);
+    }
+
+    private static DeduplicatingPublisher create(File snapshot, RecordingPublisher delegate) throws IOException {
+        return new DeduplicatingPublisher("test", 100, 0, snapshot, 60_000, null, PublicationListener.NONE, delegate);
+    }
+
+    private static void publishLine(MessagePublisher publisher, long position, String... messages) throws IOException {
+        for (String message : messages) {
+            publisher.publish(ByteString.copyFromUtf8(message));
+        }
+        publisher.markPosition(position);
+    }
+
+    /**
+     * Records the messages and reports each marked position as published unless the confirmation is disabled
+     */
+    private static class RecordingPublisher implements MessagePublisher, DeduplicatingPublisher.DelegateFactory {
+        private final List<String> messages = new ArrayList<>();
+        private PublicationListener listener;
+        private boolean confirming = true;
+
+        @Override
+        public MessagePublisher create(PublicationListener listener) {
+            this.listener = listener;
+            return this;
+        }
+
+        private void confirm(long position) throws IOException {
+            listener.onPublished(position, 0);
+        }
+
+        @Override
+        public boolean publish(ByteString message) {
+            messages.add(message.toStringUtf8());
+            return false;
+        }
+
+        @Override
+        public void markPosition(long offset) throws IOException {
+            if (confirming) {
+                confirm(offset);
+            }
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public boolean isBusy() {
+            return false;
+        }
+
+        @Override
+        public void awaitSent() {
+        }
+
+        @Override
+        public void checkFailure() {
+        }
+
+        @Override
+        public void setBatchLimits(BatchLimits limits) {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.readlog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.exactpro.th2.readlog.cfg.FilterConfiguration;
+
+import io.prometheus.client.CollectorRegistry;
+
+@DisplayName("Lines filtered")
+public class TestFilteringLogParser {
+    private static final LogParser WHOLE_LINE = (raw, offset, length, sink) -> {
+        sink.accept(raw, offset, length);
+        return 1;
+    };
+
+    @Test
+    @DisplayName("When only exclude rules are specified")
+    void dropsExcludedLines() {
+        FilterConfiguration configuration = new FilterConfiguration();
+        configuration.setExcludeKeywords(Arrays.asList("35=0", "DEBUG"));
+        configuration.setExcludeRegexps(Collections.singletonList("TRACE\\s+\\["));
+        FilteringLogParser parser = new FilteringLogParser(WHOLE_LINE, configuration, StandardCharsets.UTF_8);
+
+        assertTrue(accept(parser, "INFO 8=FIX.4.4|35=D|"));
+        assertFalse(accept(parser, "INFO 8=FIX.4.4|35=0|"));
+        assertFalse(accept(parser, "DEBUG connection"));
+        assertFalse(accept(parser, "TRACE  [main]"));
+        assertTrue(accept(parser, "TRACE main"));
+    }
+
+    @Test
+    @DisplayName("When include and exclude rules are specified")
+    void passesIncludedLinesOnly() {
+        FilterConfiguration configuration = new FilterConfiguration();
+        configuration.setIncludeKeywords(Collections.singletonList("8=FIX"));
+        configuration.setIncludeRegexps(Collections.singletonList("^\\d{4}-\\d{2}-\\d{2} ERROR"));
+        configuration.setExcludeKeywords(Collections.singletonList("35=0"));
+        FilteringLogParser parser = new FilteringLogParser(WHOLE_LINE, configuration, StandardCharsets.UTF_8);
+
+        assertTrue(accept(parser, "8=FIX.4.4|35=D|"));
+        assertFalse(accept(parser, "8=FIX.4.4|35=0|"));
+        assertTrue(accept(parser, "2020-10-01 ERROR connection lost"));
+        assertFalse(accept(parser, "2020-10-01 INFO connection restored"));
+        assertFalse(accept(parser, "2020-10-01 ERROR \u00e9chec 35=0"));
+        assertTrue(accept(parser, "2020-10-01 ERROR \u00e9chec"));
+    }
+
+    @Test
+    @DisplayName("When the line is passed to the parser")
+    void parsesAcceptedLines() {
+        FilterConfiguration configuration = new FilterConfiguration();
+        configuration.setExcludeKeywords(Collections.singletonList("35=0"));
+        FilteringLogParser parser = new FilteringLogParser(WHOLE_LINE, configuration, StandardCharsets.UTF_8);
+        byte[] heartbeat = "35=0".getBytes(StandardCharsets.UTF_8);
+        byte[] order = "35=D".getBytes(StandardCharsets.UTF_8);
+
+        assertEquals(0, parser.parse(heartbeat, 0, heartbeat.length, (bytes, offset, length) -> {}));
+        assertEquals(1, parser.parse(order, 0, order.length, (bytes, offset, length) -> {}));
+    }
+
+    @Test
+    @DisplayName("When the filter is replaced")
+    void removesMetricsOfReplacedRules() {
+        FilterConfiguration configuration = new FilterConfiguration();
+        configuration.setExcludeKeywords(Arrays.asList("35=0\u0001", "HEARTBEAT"));
+        FilteringLogParser parser = new FilteringLogParser(WHOLE_LINE, configuration, StandardCharsets.UTF_8);
+        assertEquals(Arrays.asList("exclude-keyword:35=0\\u0001", "exclude-keyword:HEARTBEAT"), new ArrayList<>(parser.getRuleLabels()));
+        assertFalse(accept(parser, "8=FIX.4.4\u000135=0\u0001"));
+        assertFalse(accept(parser, "HEARTBEAT"));
+
+        FilterConfiguration reloaded = new FilterConfiguration();
+        reloaded.setExcludeKeywords(Collections.singletonList("HEARTBEAT"));
+        parser.removeMetrics(new FilteringLogParser(WHOLE_LINE, reloaded, StandardCharsets.UTF_8));
+
+        assertNull(ruleMatches("exclude-keyword:35=0\\u0001"));
+        // the rule left in the filter keeps its value
+        assertEquals(Double.valueOf(1), ruleMatches("exclude-keyword:HEARTBEAT"));
+    }
+
+    private static Double ruleMatches(String rule) {
+        return CollectorRegistry.defaultRegistry.getSampleValue("th2_read_log_filter_rule_matches_total",
+                new String[] { FilteringLogParser.RULE_LABEL }, new String[] { rule });
+    }
+
+    private static boolean accept(FilteringLogParser parser, String line) {
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        return parser.accept(bytes, 0, bytes.length);
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.readlog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Fingerprint window")
+public class TestFingerprintWindow {
+    @Test
+    @DisplayName("When the stripe is full")
+    void evictsOldestFingerprints() {
+        // 16 stripes with 1 fingerprint each. The fingerprints below fall into the same stripe
+        FingerprintWindow window = new FingerprintWindow(16, 0);
+        window.add(0x1000L, 0, 1);
+        window.add(0x2000L, 0, 2);
+
+        assertFalse(window.contains(0x1000L, 0));
+        assertTrue(window.contains(0x2000L, 0));
+        assertEquals(1, window.size());
+    }
+
+    @Test
+    @DisplayName("When the fingerprints are random")
+    void keepsLastFingerprintsOfEachStripe() {
+        int capacity = 64;
+        FingerprintWindow window = new FingerprintWindow(capacity * 16, 0);
+        @SuppressWarnings("unchecked")
+        Deque<Long>[] expected = new Deque[16];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = new ArrayDeque<>();
+        }
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            // a small range of values makes repeated fingerprints
+            long fingerprint = (random.nextLong() & 0xF000_0000_0000_0FFFL) | (i % 3 == 0 ? 0 : random.nextInt(4096) << 16);
+            Deque<Long> stripe = expected[(int)(fingerprint >>> 60)];
+            window.add(fingerprint, 0, i);
+            if (!stripe.contains(fingerprint)) {
+                if (stripe.size() == capacity) {
+                    stripe.removeFirst();
+                }
+                stripe.addLast(fingerprint);
+            }
+            if (i % 1000 == 0) {
+                for (Deque<Long> fingerprints : expected) {
+                    for (long value : fingerprints) {
+                        assertTrue(window.contains(value, 0), "fingerprint " + value + " at " + i);
+                    }
+                }
+            }
+        }
+        Set<Long> all = new HashSet<>();
+        for (Deque<Long> fingerprints : expected) {
+            all.addAll(fingerprints);
+        }
+        assertEquals(all.size(), window.size());
+    }
+
+    @Test
+    @DisplayName("When the fingerprints are older than the maximum age")
+    void expiresOldFingerprints() {
+        FingerprintWindow window = new FingerprintWindow(100, 1_000);
+        window.add(1, 10_000, 1);
+        window.add(2, 10_500, 2);
+
+        assertTrue(window.contains(1, 11_000));
+        assertFalse(window.contains(1, 11_001));
+        assertTrue(window.contains(2, 11_001));
+    }
+
+    @Test
+    @DisplayName("When the fingerprint is 0")
+    void acceptsZeroFingerprint() {
+        FingerprintWindow window = new FingerprintWindow(100, 0);
+        assertFalse(window.contains(0, 0));
+
+        window.add(0, 0, 1);
+
+        assertTrue(window.contains(0, 0));
+    }
+
+    @Test
+    @DisplayName("When the snapshot is written and read")
+    void restoresFingerprintsUpToSerial() throws IOException {
+        // each stripe can keep all fingerprints
+        FingerprintWindow window = new FingerprintWindow(16 * 50, 0);
+        for (long serial = 1; serial <= 50; serial++) {
+            window.add(serial * 0x0123_4567_89AB_CDEFL, serial, serial);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            assertEquals(30, window.writeTo(output, 30));
+        }
+
+        FingerprintWindow restored = new FingerprintWindow(16 * 50, 0);
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            assertEquals(30, restored.readFrom(input));
+        }
+        for (long serial = 1; serial <= 50; serial++) {
+            assertEquals(serial <= 30, restored.contains(serial * 0x0123_4567_89AB_CDEFL, 0), "serial " + serial);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.readlog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("FIX messages extracted")
+public class TestFixLogParser {
+    private static final String LOGON = message("A", "34=1\u000149=NFT2_FIX1\u000156=FGW\u0001");
+    private static final String ORDER = message("D", "34=2\u000149=NFT2_FIX1\u000156=FGW\u000111=ord1\u0001");
+
+    @Test
+    @DisplayName("When the record contains several messages")
+    void extractsAllMessages() {
+        FixLogParser parser = new FixLogParser();
+
+        assertEquals(Arrays.asList(LOGON, ORDER), parse(parser, "6 2015-02-09 16:23:59,455 DEBUG - " + LOGON + " then " + ORDER + "\u0001"));
+    }
+
+    @Test
+    @DisplayName("When the messages are filtered by type")
+    void extractsSpecifiedTypes() {
+        FixLogParser parser = new FixLogParser(FixLogParser.SOH, Collections.singletonList("D"), false);
+
+        assertEquals(Collections.singletonList(ORDER), parse(parser, LOGON + ORDER));
+    }
+
+    @Test
+    @DisplayName("When the messages are validated")
+    void skipsInvalidMessages() {
+        FixLogParser parser = new FixLogParser(FixLogParser.SOH, Collections.emptyList(), true);
+        String wrongChecksum = LOGON.substring(0, LOGON.length() - 4) + "000\u0001";
+        String wrongLength = LOGON.replaceFirst("\u00019=\\d+", "\u00019=1");
+
+        assertEquals(Collections.singletonList(ORDER), parse(parser, wrongChecksum + wrongLength + ORDER));
+        assertEquals(Collections.emptyList(), parse(parser, ORDER.substring(0, ORDER.length() - 1)));
+    }
+
+    @Test
+    @DisplayName("When the example log is parsed")
+    void validatesExampleMessages() throws IOException {
+        FixLogParser parser = new FixLogParser(FixLogParser.SOH, Collections.singletonList("f"), true);
+        List<String> lines = Files.readAllLines(Paths.get("examples", "security_status.txt"), StandardCharsets.US_ASCII);
+
+        for (String line : lines) {
+            String trimmed = line.endsWith("\r") ? line.substring(0, line.length() - 1) : line;
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            assertEquals(Collections.singletonList(trimmed), parse(parser, trimmed));
+        }
+    }
+
+    private static List<String> parse(FixLogParser parser, String record) {
+        byte[] bytes = record.getBytes(StandardCharsets.US_ASCII);
+        List<String> result = new ArrayList<>();
+        parser.parse(bytes, 0, bytes.length, (raw, offset, length) -> result.add(new String(raw, offset, length, StandardCharsets.US_ASCII)));
+        return result;
+    }
+
+    private static String message(String type, String fields) {
+        String body = "35=" + type + "\u0001" + fields;
+        String header = "8=FIXT.1.1\u00019=" + body.length() + "\u0001";
+        int checksum = 0;
+        for (byte b : (header + body).getBytes(StandardCharsets.US_ASCII)) {
+            checksum += b;
+        }
+        return header + body + String.format("10=%03d\u0001", checksum & 0xFF);
+    }
+}
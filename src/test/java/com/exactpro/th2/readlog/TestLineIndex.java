@@ -0,0 +1,216 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.readlog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@DisplayName("Line index")
+public class TestLineIndex {
+    @TempDir
+    Path dir;
+
+    private Path file;
+    private File sidecar;
+    private FileChannel channel;
+
+    @BeforeEach
+    void setup() throws IOException {
+        file = dir.resolve("test.log");
+        Files.createFile(file);
+        sidecar = dir.resolve("test.index").toFile();
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        channel.close();
+    }
+
+    @Test
+    @DisplayName("When the file grows")
+    void extendsIndex() throws IOException {
+        try (LineIndex index = new LineIndex(3)) {
+            index.open(channel, "id");
+            append(lines(0, 7));
+            assertEquals(7, index.getLineCount());
+            append(lines(7, 10) + "partial");
+
+            assertEquals(10, index.getLineCount());
+            for (int line = 0; line <= 10; line++) {
+                assertEquals(offset(line), index.getLineOffset(line), "line " + line);
+                assertEquals(line, index.getLineNumber(offset(line)), "offset of line " + line);
+            }
+            assertEquals(-1, index.getLineOffset(11));
+            assertEquals(-1, index.getLineNumber(offset(10) + 1));
+        }
+    }
+
+    @Test
+    @DisplayName("When the lines are read one by one")
+    void indexesReadLines() throws IOException {
+        append(lines(0, 5));
+        try (LineIndex index = new LineIndex(sidecar, 2)) {
+            index.open(channel, "id");
+            for (int line = 0; line < 5; line++) {
+                index.onLine(offset(line), offset(line + 1));
+            }
+            // the line that does not follow the last indexed one is ignored
+            index.onLine(offset(2), offset(3));
+
+            assertEquals(5, index.getLineCount());
+            assertEquals(offset(4), index.getLineOffset(4));
+        }
+        // header and 2 offsets
+        assertEquals(4 * 4 + 2 + 2 + 2 * 8, sidecar.length());
+    }
+
+    @Test
+    @DisplayName("When the file is scanned from the middle")
+    void storesFirstEntryWhileScanningFromOffset() throws IOException {
+        StringBuilder longLine = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            longLine.append('x');
+        }
+        String head = longLine.append('\n').toString();
+        for (int line = 0; line < 5; line++) {
+            append(head);
+        }
+        StringBuilder tail = new StringBuilder();
+        for (int line = 0; line < 200; line++) {
+            tail.append("y\n");
+        }
+        append(tail.toString());
+
+        try (LineIndex index = new LineIndex(sidecar, 10)) {
+            index.open(channel, "id");
+            for (int line = 0; line < 5; line++) {
+                index.onLine(line * 301L, (line + 1) * 301L);
+            }
+            // the head of the file is read to store the first entry while the tail is scanned
+            assertEquals(205, index.getLineCount());
+            assertEquals(5 * 301 + 95 * 2, index.getLineOffset(100));
+            assertEquals(100, index.getLineNumber(5 * 301 + 95 * 2));
+        }
+        try (LineIndex index = new LineIndex(sidecar, 10)) {
+            index.open(channel, "id");
+            assertEquals(5 * 301 + 95 * 2, index.getLineOffset(100));
+            assertEquals(205, index.getLineCount());
+        }
+    }
+
+    @Test
+    @DisplayName("When the stored index is loaded")
+    void loadsStoredIndex() throws IOException {
+        append(lines(0, 9));
+        try (LineIndex index = new LineIndex(sidecar, 4)) {
+            index.open(channel, "id");
+            assertEquals(9, index.getLineCount());
+        }
+        long storedSize = sidecar.length();
+        append(lines(9, 12));
+
+        try (LineIndex index = new LineIndex(sidecar, 4)) {
+            index.open(channel, "id");
+            assertEquals(storedSize, sidecar.length());
+            assertEquals(offset(5), index.getLineOffset(5));
+            assertEquals(12, index.getLineCount());
+            assertEquals(storedSize + 8, sidecar.length());
+        }
+    }
+
+    @Test
+    @DisplayName("When the stored index belongs to another file")
+    void discardsStoredIndexOfAnotherFile() throws IOException {
+        append(lines(0, 9));
+        try (LineIndex index = new LineIndex(sidecar, 4)) {
+            index.open(channel, "id");
+            assertEquals(9, index.getLineCount());
+        }
+
+        try (LineIndex index = new LineIndex(sidecar, 4)) {
+            index.open(channel, "another");
+            assertEquals(0, sidecar.length());
+            assertEquals(9, index.getLineCount());
+            assertTrue(sidecar.length() > 0);
+        }
+    }
+
+    @Test
+    @DisplayName("When the file is rewritten")
+    void discardsStoredIndexOfRewrittenFile() throws IOException {
+        append(lines(0, 9));
+        try (LineIndex index = new LineIndex(sidecar, 4)) {
+            index.open(channel, "id");
+            assertEquals(9, index.getLineCount());
+        }
+        Files.write(file, ("x" + lines(0, 12)).getBytes(StandardCharsets.UTF_8), StandardOpenOption.TRUNCATE_EXISTING);
+
+        try (LineIndex index = new LineIndex(sidecar, 4)) {
+            index.open(channel, "id");
+            assertEquals(12, index.getLineCount());
+            assertEquals(offset(8) + 1, index.getLineOffset(8));
+        }
+    }
+
+    @Test
+    @DisplayName("When the file is truncated")
+    void rebuildsIndexAfterTruncation() throws IOException {
+        try (LineIndex index = new LineIndex(sidecar, 2)) {
+            index.open(channel, "id");
+            append(lines(0, 6));
+            assertEquals(6, index.getLineCount());
+
+            Files.write(file, lines(0, 3).getBytes(StandardCharsets.UTF_8), StandardOpenOption.TRUNCATE_EXISTING);
+            assertEquals(3, index.getLineCount());
+            assertEquals(offset(2), index.getLineOffset(2));
+        }
+    }
+
+    /**
+     * @return the lines "line00\n", "line01\n", ... from inclusive to exclusive. Each line takes 7 bytes
+     */
+    private static String lines(int from, int to) {
+        StringBuilder builder = new StringBuilder();
+        for (int line = from; line < to; line++) {
+            builder.append(String.format("line%02d\n", line));
+        }
+        return builder.toString();
+    }
+
+    private static long offset(int line) {
+        return line * 7L;
+    }
+
+    private void append(String data) throws IOException {
+        Files.write(file, data.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+    }
+}
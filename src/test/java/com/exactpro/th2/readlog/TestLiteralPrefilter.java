@@ -0,0 +1,59 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.readlog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Literals extracted")
+public class TestLiteralPrefilter {
+    @Test
+    @DisplayName("When the literals are required")
+    void extractsRequiredLiterals() {
+        assertEquals(Arrays.asList("8=FIX", "35=D", "10="), LiteralPrefilter.requiredLiterals("(8=FIX.+35=D.+10=\\d{3})"));
+        assertEquals(Arrays.asList("FixService", "(NFT"), LiteralPrefilter.requiredLiterals("FixService\\s+\\(NFT\\d\\)"));
+        assertEquals(Collections.singletonList("ab"), LiteralPrefilter.requiredLiterals("abc?(?:de)*[fg]h"));
+    }
+
+    @Test
+    @DisplayName("When the literals are optional")
+    void skipsOptionalLiterals() {
+        assertEquals(Collections.emptyList(), LiteralPrefilter.requiredLiterals("35=A|35=D"));
+        assertEquals(Collections.singletonList("abc"), LiteralPrefilter.requiredLiterals("abc(35=A|35=D)"));
+        assertEquals(Collections.emptyList(), LiteralPrefilter.requiredLiterals("(?i)35=a"));
+        assertEquals(Collections.emptyList(), LiteralPrefilter.requiredLiterals("(?=abc)\\w+"));
+    }
+
+    @Test
+    @DisplayName("When the line is filtered")
+    void rejectsLinesWithoutLiterals() {
+        LiteralPrefilter prefilter = LiteralPrefilter.forRegex("8=FIX.+35=D");
+        byte[] bytes = "8=FIX.4.4|9=10|35=D|".getBytes(StandardCharsets.US_ASCII);
+
+        assertTrue(prefilter.mayMatch(bytes, 0, bytes.length));
+        assertFalse(prefilter.mayMatch(bytes, 0, 16));
+        assertTrue(LiteralPrefilter.forRegex(".*").mayMatch(bytes, 0, 0));
+    }
+}
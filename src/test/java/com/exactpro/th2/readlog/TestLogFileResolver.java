@@ -0,0 +1,86 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.readlog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@DisplayName("Log files resolved")
+public class TestLogFileResolver {
+    @TempDir
+    Path dir;
+
+    private Path first;
+    private Path second;
+    private Path other;
+    private Path nested;
+
+    @BeforeEach
+    void setup() throws IOException {
+        first = Files.createFile(dir.resolve("first.log"));
+        second = Files.createFile(dir.resolve("second.log"));
+        other = Files.createFile(dir.resolve("other.txt"));
+        nested = Files.createFile(Files.createDirectory(dir.resolve("nested")).resolve("nested.log"));
+    }
+
+    @Test
+    @DisplayName("When the pattern is a file")
+    void resolvesFile() throws IOException {
+        assertEquals(paths(first), resolve(first.toString()));
+        assertEquals(paths(), resolve(dir.resolve("missing.log").toString()));
+    }
+
+    @Test
+    @DisplayName("When the pattern is a directory")
+    void resolvesDirectory() throws IOException {
+        assertEquals(paths(first, second, other), resolve(dir.toString()));
+    }
+
+    @Test
+    @DisplayName("When the pattern is a glob")
+    void resolvesGlob() throws IOException {
+        assertEquals(paths(first, second), resolve(dir.resolve("*.log").toString()));
+        assertEquals(paths(first, second, nested), resolve(dir.resolve("**.log").toString()));
+        assertEquals(paths(first, other), resolve(dir.resolve("{first,other}.*").toString()));
+    }
+
+    @Test
+    @DisplayName("When several patterns match the same file")
+    void resolvesEachFileOnce() throws IOException {
+        assertEquals(paths(first, second), new LogFileResolver(Arrays.asList(first.toString(), dir.resolve("*.log").toString())).resolve());
+    }
+
+    private static Set<Path> resolve(String pattern) throws IOException {
+        return new LogFileResolver(Collections.singletonList(pattern)).resolve();
+    }
+
+    private static Set<Path> paths(Path... paths) {
+        return new TreeSet<>(Arrays.asList(paths));
+    }
+}
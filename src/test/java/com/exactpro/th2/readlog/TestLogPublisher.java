@@ -18,8 +18,14 @@ package com.exactpro.th2.readlog;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 
 import org.apache.commons.lang3.StringUtils;
 import org.junit.jupiter.api.BeforeEach;
@@ -30,11 +36,14 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatchers;
 import org.mockito.Mockito;
 
+import com.exactpro.th2.common.grpc.Direction;
 import com.exactpro.th2.common.grpc.RawMessageBatch;
 import com.exactpro.th2.common.schema.message.MessageRouter;
+import com.exactpro.th2.readlog.cfg.LogReaderConfiguration;
 
 @DisplayName("Batch published")
 public class TestLogPublisher {
+    private static final int DEFAULT_LINES_LIMIT = new LogReaderConfiguration().getMaxBatchLines();
     @SuppressWarnings("unchecked")
     private final MessageRouter<RawMessageBatch> routerMock = Mockito.mock(MessageRouter.class);
 
@@ -46,13 +55,14 @@ public class TestLogPublisher {
 
         @BeforeEach
         void setup() {
-            publisher = new LogPublisher("test", routerMock);
+            publisher = new LogPublisher("test", Direction.FIRST, routerMock, BatchLimits.fromConfiguration(new LogReaderConfiguration()),
+                    LogPublisher.firstSequence(), LogPublisher.PublicationListener.NONE, null, null, null, null);
         }
 
         @Test
         @DisplayName("When lines count limit excited")
         void publishLinesCountLimit() throws IOException {
-            int bound = LogPublisher.LINES_BATCH_LIMIT + 1;
+            int bound = DEFAULT_LINES_LIMIT + 1;
             for (int it = 0; it < bound; it++) {
                 publisher.publish(String.valueOf(it));
             }
@@ -60,7 +70,7 @@ public class TestLogPublisher {
             ArgumentCaptor<RawMessageBatch> argumentCaptor = ArgumentCaptor.forClass(RawMessageBatch.class);
             Mockito.verify(routerMock).sendAll(argumentCaptor.capture(), ArgumentMatchers.any());
 
-            assertEquals(LogPublisher.LINES_BATCH_LIMIT, argumentCaptor.getValue().getMessagesCount());
+            assertEquals(DEFAULT_LINES_LIMIT, argumentCaptor.getValue().getMessagesCount());
         }
     }
 
@@ -72,7 +82,8 @@ public class TestLogPublisher {
 
         @BeforeEach
         void setup() {
-            publisher = new LogPublisher("test", routerMock, 10, 1000);
+            publisher = new LogPublisher("test", Direction.FIRST, routerMock, new BatchLimits(10, 1000, 2_000),
+                    LogPublisher.firstSequence(), LogPublisher.PublicationListener.NONE, null, null, null, null);
         }
 
         @Test
@@ -89,6 +100,21 @@ public class TestLogPublisher {
             assertEquals(10, argumentCaptor.getValue().getMessagesCount());
         }
 
+        @Test
+        @DisplayName("When lines count limit changed")
+        void keepsPendingLinesWhenLimitsChanged() throws IOException {
+            for (int it = 0; it < 5; it++) {
+                publisher.publish(String.valueOf(it));
+            }
+            publisher.setBatchLimits(new BatchLimits(3, 1000, 2_000));
+            publisher.publish("5");
+
+            ArgumentCaptor<RawMessageBatch> argumentCaptor = ArgumentCaptor.forClass(RawMessageBatch.class);
+            Mockito.verify(routerMock).sendAll(argumentCaptor.capture(), ArgumentMatchers.any());
+
+            assertEquals(6, argumentCaptor.getValue().getMessagesCount());
+        }
+
         @Test
         @DisplayName("When characters limit excited")
         void publishCharsCountLimit() throws IOException {
@@ -106,6 +132,24 @@ public class TestLogPublisher {
             assertArrayEquals(lineA.getBytes(), value.getMessages(0).getBody().toByteArray());
         }
 
+        @Test
+        @DisplayName("When line alone exceeds size limit")
+        void publishLongLineSeparately() throws IOException {
+            String shortLine = "short";
+            String longLine = StringUtils.repeat('L', 2000);
+            publisher.publish(shortLine);
+            publisher.publish(longLine);
+
+            ArgumentCaptor<RawMessageBatch> argumentCaptor = ArgumentCaptor.forClass(RawMessageBatch.class);
+            Mockito.verify(routerMock, Mockito.times(2)).sendAll(argumentCaptor.capture(), ArgumentMatchers.any());
+
+            List<RawMessageBatch> values = argumentCaptor.getAllValues();
+            assertEquals(1, values.get(0).getMessagesCount());
+            assertArrayEquals(shortLine.getBytes(), values.get(0).getMessages(0).getBody().toByteArray());
+            assertEquals(1, values.get(1).getMessagesCount());
+            assertArrayEquals(longLine.getBytes(), values.get(1).getMessages(0).getBody().toByteArray());
+        }
+
         @Test
         @DisplayName("When publisher is closed with lines in cache")
         void publishLeftLinesOnClose() throws IOException {
@@ -124,5 +168,83 @@ public class TestLogPublisher {
             assertEquals(1, value.getMessagesCount());
             assertArrayEquals(line.getBytes(), value.getMessages(0).getBody().toByteArray());
         }
+
+        @Test
+        @DisplayName("When marked position is published")
+        void notifiesPublishedPosition() throws IOException {
+            List<long[]> positions = new ArrayList<>();
+            publisher = new LogPublisher("test", Direction.FIRST, routerMock, new BatchLimits(2, 1000, 2_000), 0,
+                    (offset, sequence) -> positions.add(new long[] { offset, sequence }), null, null, null, null);
+
+            publisher.publish("A");
+            publisher.markPosition(10);
+            // the batch is published in the middle of the second source line
+            publisher.publish("B");
+            publisher.publish("C");
+            publisher.markPosition(20);
+
+            assertEquals(1, positions.size());
+            assertArrayEquals(new long[] { 10, 1 }, positions.get(0));
+
+            publisher.flush();
+
+            assertEquals(2, positions.size());
+            assertArrayEquals(new long[] { 20, 3 }, positions.get(1));
+        }
+
+        @Test
+        @DisplayName("When batch is older than max latency")
+        void publishByTimer() throws IOException {
+            ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+            try {
+                publisher = new LogPublisher("test", Direction.FIRST, routerMock, new BatchLimits(10, 1000, 50), 0,
+                        LogPublisher.PublicationListener.NONE, timer, null, null, null);
+                String line = "lonely line";
+                publisher.publish(line);
+
+                ArgumentCaptor<RawMessageBatch> argumentCaptor = ArgumentCaptor.forClass(RawMessageBatch.class);
+                Mockito.verify(routerMock, Mockito.timeout(1_000)).sendAll(argumentCaptor.capture(), ArgumentMatchers.any());
+
+                RawMessageBatch value = argumentCaptor.getValue();
+                assertEquals(1, value.getMessagesCount());
+                assertArrayEquals(line.getBytes(), value.getMessages(0).getBody().toByteArray());
+            } finally {
+                timer.shutdownNow();
+            }
+        }
+
+        @Test
+        @DisplayName("When batch cannot be published by timer")
+        void keepsPositionIfPublishByTimerFails() throws IOException {
+            ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+            try {
+                List<long[]> positions = new ArrayList<>();
+                publisher = new LogPublisher("test", Direction.FIRST, routerMock, new BatchLimits(10, 1000, 50), 0,
+                        (offset, sequence) -> positions.add(new long[] { offset, sequence }), timer, null, null, null);
+                Mockito.doThrow(new IOException("broker is not available")).doNothing()
+                        .when(routerMock).sendAll(ArgumentMatchers.any(RawMessageBatch.class), ArgumentMatchers.any());
+
+                publisher.publish("A");
+                publisher.markPosition(10);
+                Mockito.verify(routerMock, Mockito.timeout(1_000)).sendAll(ArgumentMatchers.any(RawMessageBatch.class), ArgumentMatchers.any());
+
+                // the failed batch stays pending and the failure stops the reading
+                assertTrue(publisher.hasPendingLines());
+                assertThrows(IOException.class, () -> publisher.publish("B"));
+                assertTrue(positions.isEmpty());
+
+                publisher.close();
+
+                ArgumentCaptor<RawMessageBatch> argumentCaptor = ArgumentCaptor.forClass(RawMessageBatch.class);
+                Mockito.verify(routerMock, Mockito.times(2)).sendAll(argumentCaptor.capture(), ArgumentMatchers.any());
+                RawMessageBatch value = argumentCaptor.getValue();
+                assertEquals(1, value.getMessagesCount());
+                assertEquals(1, value.getMessages(0).getMetadata().getId().getSequence());
+                assertEquals(1, positions.size());
+                assertArrayEquals(new long[] { 10, 1 }, positions.get(0));
+            } finally {
+                timer.shutdownNow();
+            }
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.readlog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@DisplayName("Log file read")
+public class TestLogReader {
+    @TempDir
+    Path dir;
+
+    private Path file;
+    private LogReader reader;
+
+    @BeforeEach
+    void setup() throws IOException {
+        file = dir.resolve("test.log");
+        Files.createFile(file);
+        // small buffer to check lines that cross the buffer boundaries
+        reader = new LogReader(file.toFile(), StandardCharsets.UTF_8, 4);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        reader.close();
+    }
+
+    @Test
+    @DisplayName("When lines are appended to the file")
+    void readsAppendedLines() throws IOException {
+        append("first line\nsecond line\r\n");
+
+        assertEquals("first line", reader.getNextLine());
+        assertEquals("second line", reader.getNextLine());
+        assertNull(reader.getNextLine());
+        assertEquals(24, reader.getPosition());
+
+        append("third line\n");
+
+        assertEquals("third line", reader.getNextLine());
+        assertNull(reader.getNextLine());
+        assertEquals(35, reader.getPosition());
+        assertEquals(3, reader.getProcessedLinesCount());
+    }
+
+    @Test
+    @DisplayName("When the last line is not completed yet")
+    void waitsForLineTerminator() throws IOException {
+        append("complete\nincomp");
+
+        assertEquals("complete", reader.getNextLine());
+        assertNull(reader.getNextLine());
+        assertEquals(9, reader.getPosition());
+
+        append("lete\n");
+
+        assertEquals("incomplete", reader.getNextLine());
+        assertEquals(20, reader.getPosition());
+    }
+
+    @Test
+    @DisplayName("When the file is truncated")
+    void detectsTruncation() throws IOException {
+        append("some long line\n");
+        assertEquals("some long line", reader.getNextLine());
+        assertNull(reader.getNextLine());
+        assertFalse(reader.isTruncated());
+
+        Files.write(file, "new\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.TRUNCATE_EXISTING);
+        assertTrue(reader.isTruncated());
+
+        reader.close();
+        reader.open();
+        assertEquals("new", reader.getNextLine());
+    }
+
+    @Test
+    @DisplayName("When the file is truncated and grows beyond the read position")
+    void detectsTruncationWithFastGrowth() throws IOException {
+        append("old line\n");
+        assertEquals("old line", reader.getNextLine());
+        assertFalse(reader.isTruncated());
+
+        Files.write(file, "new line that is longer than the old one\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.TRUNCATE_EXISTING);
+
+        assertTrue(reader.isTruncated());
+    }
+
+    @Test
+    @DisplayName("When the file is rotated")
+    void detectsRotation() throws IOException {
+        append("first\n");
+        assertFalse(reader.isRotated());
+
+        Path rotated = dir.resolve("test.log.1");
+        Files.move(file, rotated);
+        // the new file is not created yet
+        assertFalse(reader.isRotated());
+
+        Files.write(rotated, "second\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        Files.write(file, "third\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE_NEW);
+        assertTrue(reader.isRotated());
+
+        // the old file is still read
+        assertEquals("first", reader.getNextLine());
+        assertEquals("second", reader.getNextLine());
+        assertNull(reader.getNextLine());
+
+        reader.close();
+        reader.open();
+        assertFalse(reader.isRotated());
+        assertEquals("third", reader.getNextLine());
+    }
+
+    @Test
+    @DisplayName("When the file is compressed by several gzip members")
+    void readsCompressedMembers() throws IOException {
+        Path compressed = dir.resolve("test.log.gz");
+        appendMember(compressed, "first\nsec");
+        appendMember(compressed, "ond\n");
+
+        try (LogReader gzipReader = new LogReader(compressed.toFile(), StandardCharsets.UTF_8, 4)) {
+            assertTrue(gzipReader.isCompressed());
+            assertEquals(2, gzipReader.getLineCount());
+            assertEquals("first", gzipReader.getNextLine());
+            assertEquals("second", gzipReader.getNextLine());
+            assertNull(gzipReader.getNextLine());
+            assertFalse(gzipReader.isTruncated());
+
+            appendMember(compressed, "third\nfourth\n");
+            assertEquals("third", gzipReader.getNextLine());
+            assertEquals("fourth", gzipReader.getNextLine());
+            assertNull(gzipReader.getNextLine());
+            assertEquals(26, gzipReader.getPosition());
+        }
+    }
+
+    @Test
+    @DisplayName("When the reading of compressed file is resumed from a checkpoint")
+    void resumesCompressedFromCheckpoint() throws IOException {
+        Path compressed = dir.resolve("test.log.gz");
+        appendMember(compressed, "first\n");
+        appendMember(compressed, "second\nthird\n");
+
+        Checkpoint checkpoint;
+        try (LogReader gzipReader = new LogReader(compressed.toFile(), StandardCharsets.UTF_8, 4)) {
+            assertEquals("first", gzipReader.getNextLine());
+            assertEquals("second", gzipReader.getNextLine());
+            checkpoint = gzipReader.checkpoint(gzipReader.getPosition(), 2);
+        }
+        assertEquals(13, checkpoint.getOffset());
+        assertEquals(6, checkpoint.getMemberPosition());
+        assertTrue(checkpoint.getMemberOffset() > 0);
+
+        try (LogReader gzipReader = new LogReader(compressed.toFile(), StandardCharsets.UTF_8, 4)) {
+            assertTrue(gzipReader.seek(checkpoint));
+            assertEquals("third", gzipReader.getNextLine());
+            assertNull(gzipReader.getNextLine());
+        }
+    }
+
+    @Test
+    @DisplayName("When lines are skipped or sought by number")
+    void seeksLinesByNumber() throws IOException {
+        append("line0\nline1\nline2\nline3\nline4\npartial");
+        try (LineIndex index = new LineIndex(2);
+             LogReader indexedReader = new LogReader(file.toFile(), StandardCharsets.UTF_8, 4, index)) {
+            assertEquals(5, indexedReader.getLineCount());
+            assertEquals("line0", indexedReader.getNextLine());
+
+            indexedReader.skip(2);
+            assertEquals(3, indexedReader.getLineNumber());
+            assertEquals(3, indexedReader.getProcessedLinesCount());
+            assertEquals("line3", indexedReader.getNextLine());
+
+            assertTrue(indexedReader.seekLine(1));
+            assertEquals("line1", indexedReader.getNextLine());
+
+            assertFalse(indexedReader.seekLine(7));
+            assertEquals(5, indexedReader.getLineNumber());
+            assertNull(indexedReader.getNextLine());
+
+            append("\nline6\n");
+            assertEquals("partial", indexedReader.getNextLine());
+            indexedReader.skip(10);
+            assertEquals(7, indexedReader.getLineNumber());
+            assertEquals(7, indexedReader.getLineCount());
+        }
+    }
+
+    private static void appendMember(Path path, String data) throws IOException {
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND))) {
+            out.write(data.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private void append(String data) throws IOException {
+        Files.write(file, data.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.readlog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+
+import com.exactpro.th2.common.grpc.RawMessage;
+import com.exactpro.th2.common.grpc.RawMessageBatch;
+import com.exactpro.th2.common.schema.message.MessageRouter;
+import com.exactpro.th2.readlog.cfg.BackfillMode;
+import com.exactpro.th2.readlog.cfg.LogReaderConfiguration;
+
+@DisplayName("Log files read by manager")
+@Timeout(30)
+public class TestLogTailerManager {
+    private static final long TIMEOUT_MS = 10_000;
+
+    @SuppressWarnings("unchecked")
+    private final MessageRouter<RawMessageBatch> routerMock = Mockito.mock(MessageRouter.class);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("When no files match in the EXIT mode")
+    void terminatesWithoutFiles() throws Exception {
+        LogReaderConfiguration configuration = configuration(tempDir.resolve("*.log"), BackfillMode.EXIT);
+
+        try (LogTailerManager manager = new LogTailerManager(configuration, routerMock)) {
+            manager.start();
+            manager.awaitTermination();
+
+            assertTrue(manager.isFinished());
+        }
+        Mockito.verify(routerMock, Mockito.never()).sendAll(ArgumentMatchers.any(), ArgumentMatchers.any());
+    }
+
+    @Test
+    @DisplayName("When the file is read again after restart")
+    void resumesFromCheckpoint() throws Exception {
+        Path file = tempDir.resolve("resume.log");
+        Files.write(file, "line 0\nline 1\n".getBytes(StandardCharsets.UTF_8));
+        LogReaderConfiguration configuration = configuration(file, BackfillMode.EXIT);
+        configuration.setCheckpointDirectory(tempDir.resolve("checkpoints").toFile());
+
+        readTillEnd(configuration);
+        assertEquals(Arrays.asList("0", "1"), published());
+        long lastSequence = sequences().get(1);
+
+        Files.write(file, "line 2\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        Mockito.reset(routerMock);
+        readTillEnd(configuration);
+        assertEquals(Collections.singletonList("2"), published());
+        // the sequence continues from the checkpoint
+        assertEquals(Collections.singletonList(lastSequence + 1), sequences());
+    }
+
+    @Test
+    @DisplayName("When the file is truncated and rotated")
+    void followsTruncationAndRotation() throws Exception {
+        Path file = tempDir.resolve("app.log");
+        Files.write(file, "line 0\nline 1\n".getBytes(StandardCharsets.UTF_8));
+        LogTailerManager manager = new LogTailerManager(configuration(file, BackfillMode.NONE), routerMock);
+        try {
+            manager.start();
+            awaitPublished("0", "1");
+
+            Files.write(file, "line 2\n".getBytes(StandardCharsets.UTF_8));
+            awaitPublished("0", "1", "2");
+
+            Files.move(file, tempDir.resolve("app.log.1"));
+            Files.write(file, "line 3\nline 4\n".getBytes(StandardCharsets.UTF_8));
+            awaitPublished("0", "1", "2", "3", "4");
+        } finally {
+            manager.close();
+        }
+
+        // the manager is stopped rather than finished and nothing is published after that
+        manager.awaitTermination();
+        assertFalse(manager.isFinished());
+        Files.write(file, "line 5\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        Thread.sleep(100);
+        assertEquals(Arrays.asList("0", "1", "2", "3", "4"), published());
+    }
+
+    private void readTillEnd(LogReaderConfiguration configuration) throws Exception {
+        try (LogTailerManager manager = new LogTailerManager(configuration, routerMock)) {
+            manager.start();
+            manager.awaitTermination();
+            assertTrue(manager.isFinished());
+        }
+    }
+
+    private void awaitPublished(String... expected) throws InterruptedException {
+        List<String> lines = Arrays.asList(expected);
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (!lines.equals(published()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(lines, published());
+    }
+
+    private List<String> published() {
+        return messages().stream()
+                .map(message -> message.getBody().toString(StandardCharsets.UTF_8))
+                .collect(Collectors.toList());
+    }
+
+    private List<Long> sequences() {
+        return messages().stream()
+                .map(message -> message.getMetadata().getId().getSequence())
+                .collect(Collectors.toList());
+    }
+
+    private List<RawMessage> messages() {
+        return Mockito.mockingDetails(routerMock).getInvocations().stream()
+                .filter(invocation -> "sendAll".equals(invocation.getMethod().getName()))
+                .flatMap(invocation -> invocation.<RawMessageBatch>getArgument(0).getMessagesList().stream())
+                .collect(Collectors.toList());
+    }
+
+    private static LogReaderConfiguration configuration(Path pattern, BackfillMode backfillMode) {
+        LogReaderConfiguration configuration = new LogReaderConfiguration();
+        configuration.setLogFiles(Collections.singletonList(pattern.toString()));
+        configuration.setRegexp("line (\\d+)");
+        configuration.setRegexpGroups(Collections.singletonList(1));
+        configuration.setBackfillMode(backfillMode);
+        configuration.setDirectoryScanIntervalMs(10);
+        configuration.setMaxBatchLatencyMs(10);
+        configuration.setMaxThreads(2);
+        return configuration;
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.readlog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+
+import com.exactpro.th2.common.grpc.Direction;
+import com.exactpro.th2.common.grpc.RawMessage;
+import com.exactpro.th2.common.grpc.RawMessageBatch;
+import com.exactpro.th2.common.schema.message.MessageRouter;
+import com.exactpro.th2.readlog.cfg.LogReaderConfiguration;
+
+@DisplayName("Lines parsed by pipeline")
+public class TestParsingPipeline {
+    private static final PublicationRateLimiter NO_RATE_LIMIT = new PublicationRateLimiter(new LogReaderConfiguration());
+    @SuppressWarnings("unchecked")
+    private final MessageRouter<RawMessageBatch> routerMock = Mockito.mock(MessageRouter.class);
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    private final RegexLogParser parser = new RegexLogParser("line (\\d+)", Collections.singletonList(1));
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("When lines are parsed concurrently")
+    void publishesInOriginalOrder() throws Exception {
+        List<long[]> positions = new ArrayList<>();
+        LogPublisher publisher = new LogPublisher("test", Direction.FIRST, routerMock, new BatchLimits(10, 1000, 2_000), 0,
+                (offset, sequence) -> positions.add(new long[] { offset, sequence }), null, null, null, null);
+        ParsingPipeline pipeline = new ParsingPipeline(parser, publisher, NO_RATE_LIMIT, null, executor, 3, 2, () -> {});
+
+        int lines = 100;
+        for (int i = 0; i < lines; i++) {
+            while (pipeline.isFull()) {
+                Thread.sleep(1);
+            }
+            byte[] line = ("line " + i).getBytes(StandardCharsets.UTF_8);
+            pipeline.add(line, line.length, i + 1);
+        }
+        pipeline.drain();
+        assertTrue(pipeline.flush());
+
+        ArgumentCaptor<RawMessageBatch> captor = ArgumentCaptor.forClass(RawMessageBatch.class);
+        Mockito.verify(routerMock, Mockito.times(lines / 10)).sendAll(captor.capture(), ArgumentMatchers.any());
+        List<String> published = captor.getAllValues().stream()
+                .flatMap(batch -> batch.getMessagesList().stream())
+                .map(RawMessage::getBody)
+                .map(body -> body.toString(StandardCharsets.UTF_8))
+                .collect(Collectors.toList());
+        assertEquals(IntStream.range(0, lines).mapToObj(String::valueOf).collect(Collectors.toList()), published);
+        long[] last = positions.get(positions.size() - 1);
+        assertEquals(lines, last[0]);
+        assertEquals(lines, last[1]);
+    }
+
+    @Test
+    @DisplayName("When lines are parsed by the caller")
+    void publishesImmediatelyWithoutExecutor() throws IOException {
+        LogPublisher publisher = new LogPublisher("test", Direction.FIRST, routerMock, new BatchLimits(2, 1000, 2_000),
+                LogPublisher.firstSequence(), LogPublisher.PublicationListener.NONE, null, null, null, null);
+        ParsingPipeline pipeline = new ParsingPipeline(parser, publisher, NO_RATE_LIMIT, null, null, 3, 1, () -> {});
+
+        for (int i = 0; i < 2; i++) {
+            byte[] line = ("line " + i).getBytes(StandardCharsets.UTF_8);
+            pipeline.add(line, line.length, i + 1);
+        }
+
+        Mockito.verify(routerMock).sendAll(ArgumentMatchers.any(RawMessageBatch.class), ArgumentMatchers.any());
+        assertTrue(pipeline.isIdle());
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.readlog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Pipe line source")
+public class TestPipeLineSource {
+    @Test
+    @DisplayName("When the input is split into lines")
+    void splitsLines() throws Exception {
+        try (PipeLineSource source = start("first\nsecond\r\n\nlast", 100)) {
+            assertEquals(List.of("first", "second", "", "last"), readAll(source));
+            // the line terminators are not counted
+            assertEquals(15, source.getPosition());
+            assertTrue(source.isFinished());
+        }
+    }
+
+    @Test
+    @DisplayName("When the line is longer than the maximum")
+    void splitsLongLines() throws Exception {
+        try (PipeLineSource source = start("0123456789\nabc\n", 4)) {
+            assertEquals(List.of("0123", "4567", "89", "abc"), readAll(source));
+        }
+    }
+
+    @Test
+    @DisplayName("When the input cannot be opened")
+    void failsIfInputCannotBeOpened() throws Exception {
+        try (PipeLineSource source = new PipeLineSource("test", () -> {
+            throw new IOException("test");
+        }, false, 100, 10).start()) {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (true) {
+                try {
+                    assertFalse(source.readNextLine());
+                } catch (IOException e) {
+                    break;
+                }
+                assertTrue(System.nanoTime() < deadline, "The failure is not reported");
+                Thread.sleep(10);
+            }
+            assertFalse(source.isFinished());
+        }
+    }
+
+    private static PipeLineSource start(String input, int maxLineBytes) {
+        ByteArrayInputStream stream = new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8));
+        return new PipeLineSource("test", () -> Channels.newChannel(stream), false, maxLineBytes, 2).start();
+    }
+
+    private static List<String> readAll(LineSource source) throws IOException, InterruptedException {
+        List<String> lines = new ArrayList<>();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!source.isFinished()) {
+            if (source.readNextLine()) {
+                lines.add(new String(source.getLineBytes(), 0, source.getLineLength(), StandardCharsets.UTF_8));
+            } else {
+                assertTrue(System.nanoTime() < deadline, "The source is not finished in time");
+                Thread.sleep(1);
+            }
+        }
+        return lines;
+    }
+}
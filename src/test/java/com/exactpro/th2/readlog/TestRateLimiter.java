@@ -0,0 +1,91 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.readlog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Rate limited")
+public class TestRateLimiter {
+    private long now = 1_000;
+
+    @Test
+    @DisplayName("When burst is consumed")
+    void allowsBurstWithoutDelay() {
+        RateLimiter limiter = new RateLimiter(100, 10, () -> now);
+
+        limiter.consume(10);
+
+        assertEquals(0, limiter.getDelayNanos());
+    }
+
+    @Test
+    @DisplayName("When limiter is in debt")
+    void delaysUntilDebtIsPaid() {
+        RateLimiter limiter = new RateLimiter(100, 10, () -> now);
+
+        limiter.consume(15);
+        // 5 permits at 100 permits per second
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(50), limiter.getDelayNanos());
+
+        now += TimeUnit.MILLISECONDS.toNanos(20);
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(30), limiter.getDelayNanos());
+
+        now += TimeUnit.MILLISECONDS.toNanos(30);
+        assertEquals(0, limiter.getDelayNanos());
+    }
+
+    @Test
+    @DisplayName("When limiter is idle")
+    void doesNotAccumulateMoreThanBurst() {
+        RateLimiter limiter = new RateLimiter(100, 10, () -> now);
+
+        now += TimeUnit.SECONDS.toNanos(10);
+        limiter.consume(11);
+
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(10), limiter.getDelayNanos());
+    }
+
+    @Test
+    @DisplayName("When limiter is replaced")
+    void carriesOverPermitsUpToNewBurst() {
+        RateLimiter previous = new RateLimiter(100, 10, () -> now);
+        previous.consume(15);
+        RateLimiter replacement = new RateLimiter(100, 20, () -> now);
+
+        replacement.carryOver(previous);
+        // the debt of 5 permits is kept instead of the new burst
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(50), replacement.getDelayNanos());
+
+        now += TimeUnit.SECONDS.toNanos(10);
+        RateLimiter smaller = new RateLimiter(100, 5, () -> now);
+        smaller.carryOver(replacement);
+        smaller.consume(6);
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(10), smaller.getDelayNanos());
+    }
+
+    @Test
+    @DisplayName("When rate is not positive")
+    void rejectsInvalidRate() {
+        assertThrows(IllegalArgumentException.class, () -> new RateLimiter(0, 10));
+    }
+}
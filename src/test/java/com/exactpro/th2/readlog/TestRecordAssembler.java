@@ -0,0 +1,100 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.readlog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Record assembled")
+public class TestRecordAssembler {
+    private static final String START = "\\d{4}-\\d{2}-\\d{2} ";
+
+    private final List<String> records = new ArrayList<>();
+    private final List<Long> positions = new ArrayList<>();
+    private long position;
+
+    @Test
+    @DisplayName("When the next record starts")
+    void joinsContinuationLines() throws IOException {
+        RecordAssembler assembler = assembler(100, 1000, 60_000);
+
+        add(assembler, "2020-01-01 ERROR failed");
+        add(assembler, "java.lang.IllegalStateException: test");
+        add(assembler, "\tat com.example.Test.run(Test.java:10)");
+        add(assembler, "2020-01-01 INFO next");
+
+        assertEquals(Arrays.asList("2020-01-01 ERROR failed\njava.lang.IllegalStateException: test\n\tat com.example.Test.run(Test.java:10)"),
+                records);
+        assertEquals(Arrays.asList(3L), positions);
+        assertFalse(assembler.isEmpty());
+
+        assembler.flush();
+
+        assertEquals("2020-01-01 INFO next", records.get(1));
+        assertEquals(Arrays.asList(3L, 4L), positions);
+        assertTrue(assembler.isEmpty());
+    }
+
+    @Test
+    @DisplayName("When the record reaches the limits")
+    void splitsLongRecords() throws IOException {
+        RecordAssembler assembler = assembler(2, 12, 60_000);
+
+        add(assembler, "2020-01-01 ");
+        add(assembler, "a");
+        add(assembler, "b");
+        add(assembler, "0123456789abc");
+        assembler.flush();
+
+        assertEquals(Arrays.asList("2020-01-01 ", "a\nb", "0123456789abc"), records);
+    }
+
+    @Test
+    @DisplayName("When no lines are added for the timeout")
+    void flushesExpiredRecord() throws Exception {
+        RecordAssembler assembler = assembler(100, 1000, 1);
+
+        add(assembler, "2020-01-01 last");
+        Thread.sleep(10);
+
+        assertTrue(assembler.flushIfExpired());
+        assertEquals(Arrays.asList("2020-01-01 last"), records);
+        assertFalse(assembler.flushIfExpired());
+    }
+
+    private RecordAssembler assembler(int maxLines, int maxBytes, long timeout) {
+        return new RecordAssembler(START, StandardCharsets.UTF_8, maxLines, maxBytes, timeout, (record, length, endPosition) -> {
+            records.add(new String(record, 0, length, StandardCharsets.UTF_8));
+            positions.add(endPosition);
+        });
+    }
+
+    private void add(RecordAssembler assembler, String line) throws IOException {
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        assembler.add(bytes, bytes.length, ++position);
+    }
+}
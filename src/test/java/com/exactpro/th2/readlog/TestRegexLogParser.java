@@ -0,0 +1,94 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.readlog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.google.protobuf.ByteString;
+
+@DisplayName("Line parsed")
+public class TestRegexLogParser {
+    private static final String FIX_LINE = "6 2015-02-09 16:23:59,455 DEBUG   (FixService(NFT2)    ) - "
+            + "8=FIXT.1.1\u00019=66\u000135=A\u000134=1\u000149=NFT2_FIX1\u000156=FGW\u000110=027\u0001";
+    // the lazy quantifier in '10=.+?' matches a single character
+    private static final int MATCH_END = FIX_LINE.indexOf("10=") + 4;
+
+    @Test
+    @DisplayName("When all groups are published")
+    void publishesAllGroups() {
+        RegexLogParser parser = new RegexLogParser("(FixService.+)(8=FIX.+10=.+?)", null);
+
+        assertEquals(Arrays.asList(
+                FIX_LINE.substring(FIX_LINE.indexOf("FixService"), MATCH_END),
+                FIX_LINE.substring(FIX_LINE.indexOf("FixService"), FIX_LINE.indexOf("8=FIX")),
+                FIX_LINE.substring(FIX_LINE.indexOf("8=FIX"), MATCH_END)
+        ), parse(parser, FIX_LINE, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("When the specified groups are published")
+    void publishesSpecifiedGroups() {
+        RegexLogParser parser = new RegexLogParser("(FixService.+)(8=FIX.+10=.+?)", Collections.singletonList(2));
+
+        assertEquals(Collections.singletonList(FIX_LINE.substring(FIX_LINE.indexOf("8=FIX"), MATCH_END)),
+                parse(parser, FIX_LINE, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("When the line contains non-ASCII characters")
+    void decodesNonAsciiLines() {
+        String line = "\u0421\u043e\u043e\u0431\u0449\u0435\u043d\u0438\u0435: 35=A;";
+        RegexLogParser utf8Parser = new RegexLogParser("[^:]+: (35=\\w)", Collections.singletonList(1));
+        RegexLogParser latin1Parser = new RegexLogParser("[^:]+: (35=\\w)", Collections.singletonList(1), StandardCharsets.ISO_8859_1);
+
+        assertEquals(Collections.singletonList("35=A"), parse(utf8Parser, line, StandardCharsets.UTF_8));
+        assertEquals(Collections.singletonList("35=A"), parse(latin1Parser, "Nachricht \u00fc: 35=A;", StandardCharsets.ISO_8859_1));
+    }
+
+    @Test
+    @DisplayName("When the line lacks a required literal")
+    void skipsLinesWithoutLiterals() {
+        RegexLogParser parser = new RegexLogParser("(8=FIX.+35=D.+10=.+?)", null);
+        byte[] other = FIX_LINE.getBytes(StandardCharsets.UTF_8);
+        byte[] order = FIX_LINE.replace("35=A", "35=D").getBytes(StandardCharsets.UTF_8);
+        List<String> groups = new ArrayList<>();
+
+        assertEquals(0, parser.parse(other, 0, other.length, (bytes, offset, length) -> fail("Unexpected group")));
+        assertEquals(2, parser.parse(order, 0, order.length,
+                (bytes, offset, length) -> groups.add(new String(bytes, offset, length, StandardCharsets.UTF_8))));
+        assertEquals(groups.get(0), groups.get(1));
+    }
+
+    private static List<String> parse(RegexLogParser parser, String line, Charset charset) {
+        byte[] bytes = line.getBytes(charset);
+        return parser.parse(bytes, bytes.length).stream()
+                .map(it -> it.toString(charset))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.readlog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.exactpro.th2.common.grpc.Direction;
+import com.exactpro.th2.readlog.RouteResolver.Route;
+import com.exactpro.th2.readlog.cfg.LogReaderConfiguration;
+import com.exactpro.th2.readlog.cfg.RoutingRule;
+
+@DisplayName("Message route resolved")
+public class TestRouteResolver {
+    @Test
+    @DisplayName("When the alias is taken from FIX tags")
+    void resolvesByFixTag() {
+        RouteResolver resolver = new RouteResolver(Arrays.asList(fixTagRule(49, Direction.FIRST), fixTagRule(56, Direction.SECOND)),
+                (byte)'|', StandardCharsets.UTF_8);
+
+        assertEquals(new Route("GATEWAY", Direction.FIRST), resolve(resolver, "8=FIX.4.4|9=20|35=D|49=GATEWAY|56=CLIENT|10=000|"));
+        assertEquals(new Route("CLIENT", Direction.SECOND), resolve(resolver, "8=FIX.4.4|9=20|35=D|56=CLIENT|10=000|"));
+        assertEquals(new Route("CLIENT", Direction.SECOND), resolve(resolver, "56=CLIENT"));
+        // 156 is not 56
+        assertNull(resolve(resolver, "8=FIX.4.4|156=CLIENT|"));
+        assertNull(resolve(resolver, "8=FIX.4.4|56=|"));
+    }
+
+    @Test
+    @DisplayName("When the alias is taken from the regexp group")
+    void resolvesByRegexGroup() {
+        RoutingRule rule = new RoutingRule();
+        rule.setRegexp("session=(\\w+)");
+        rule.setAliasFormat("gw-%s");
+        rule.setDirection(Direction.SECOND);
+        RouteResolver resolver = new RouteResolver(Collections.singletonList(rule), (byte)1, StandardCharsets.UTF_8);
+
+        assertEquals(new Route("gw-FIX01", Direction.SECOND), resolve(resolver, "INFO session=FIX01 connected"));
+        assertNull(resolve(resolver, "INFO connected"));
+    }
+
+    @Test
+    @DisplayName("When the rule is invalid")
+    void rejectsInvalidRule() {
+        RoutingRule both = fixTagRule(56, Direction.FIRST);
+        both.setRegexp("56=(\\w+)");
+        RoutingRule noGroup = new RoutingRule();
+        noGroup.setRegexp("56=\\w+");
+
+        assertThrows(IllegalArgumentException.class, () -> new RouteResolver(Collections.singletonList(both), (byte)1, StandardCharsets.UTF_8));
+        assertThrows(IllegalArgumentException.class, () -> new RouteResolver(Collections.singletonList(new RoutingRule()), (byte)1, StandardCharsets.UTF_8));
+        assertThrows(IllegalArgumentException.class, () -> new RouteResolver(Collections.singletonList(noGroup), (byte)1, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("When the FIX delimiter is not an ASCII character")
+    void rejectsNonAsciiDelimiter() {
+        LogReaderConfiguration configuration = new LogReaderConfiguration();
+        configuration.getRouting().setRules(Collections.singletonList(fixTagRule(56, Direction.FIRST)));
+        configuration.setFixDelimiter('\u00A6');
+
+        assertThrows(IllegalArgumentException.class, () -> RouteResolver.fromConfiguration(configuration));
+    }
+
+    private static RoutingRule fixTagRule(int tag, Direction direction) {
+        RoutingRule rule = new RoutingRule();
+        rule.setFixTag(tag);
+        rule.setDirection(direction);
+        return rule;
+    }
+
+    private static Route resolve(RouteResolver resolver, String message) {
+        byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+        return resolver.resolve(bytes, bytes.length);
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.readlog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+
+import com.exactpro.th2.common.grpc.Direction;
+import com.exactpro.th2.common.grpc.MessageID;
+import com.exactpro.th2.common.grpc.RawMessageBatch;
+import com.exactpro.th2.common.schema.message.MessageRouter;
+import com.exactpro.th2.readlog.cfg.RoutingRule;
+import com.google.protobuf.ByteString;
+
+@DisplayName("Messages routed")
+public class TestRoutingPublisher {
+    @SuppressWarnings("unchecked")
+    private final MessageRouter<RawMessageBatch> routerMock = Mockito.mock(MessageRouter.class);
+    private final List<String> opened = new ArrayList<>();
+    private final List<long[]> positions = new ArrayList<>();
+
+    @Test
+    @DisplayName("When messages have different routes")
+    void publishesEachRouteSeparately() throws IOException {
+        RoutingPublisher publisher = publisher(10);
+
+        publisher.publish(message("8=FIX.4.4|56=A|"));
+        publisher.publish(message("8=FIX.4.4|56=B|"));
+        publisher.publish(message("8=FIX.4.4|56=A|"));
+        publisher.publish(message("heartbeat"));
+        publisher.flush();
+
+        assertEquals(Arrays.asList("file/FIRST", "A/SECOND", "B/SECOND"), opened);
+        assertEquals(2, publisher.getRouteCount());
+        ArgumentCaptor<RawMessageBatch> captor = ArgumentCaptor.forClass(RawMessageBatch.class);
+        Mockito.verify(routerMock, Mockito.times(3)).sendAll(captor.capture(), ArgumentMatchers.any());
+        for (RawMessageBatch batch : captor.getAllValues()) {
+            String alias = batch.getMessages(0).getMetadata().getId().getConnectionId().getSessionAlias();
+            assertEquals("A".equals(alias) ? 2 : 1, batch.getMessagesCount());
+        }
+    }
+
+    @Test
+    @DisplayName("When the number of routes exceeds the limit")
+    void flushesEvictedRoute() throws IOException {
+        RoutingPublisher publisher = publisher(1);
+
+        publisher.publish(message("8=FIX.4.4|56=A|"));
+        publisher.publish(message("8=FIX.4.4|56=B|"));
+
+        Mockito.verify(routerMock).sendAll(ArgumentMatchers.any(RawMessageBatch.class), ArgumentMatchers.any());
+        assertEquals(1, publisher.getRouteCount());
+        publisher.publish(message("8=FIX.4.4|56=A|"));
+        publisher.flush();
+        assertEquals(Arrays.asList("file/FIRST", "A/SECOND", "B/SECOND", "A/SECOND"), opened);
+        // the reopened route continues its sequence
+        assertEquals(Arrays.asList(1L, 3L), sequences("A"));
+    }
+
+    @Test
+    @DisplayName("When the position is marked")
+    void reportsPositionPublishedByAllRoutes() throws IOException {
+        RoutingPublisher publisher = publisher(10);
+
+        publisher.publish(message("8=FIX.4.4|56=A|"));
+        publisher.markPosition(10);
+        publisher.publish(message("heartbeat"));
+        publisher.markPosition(20);
+        assertTrue(positions.isEmpty());
+
+        publisher.flush();
+        long[] last = positions.get(positions.size() - 1);
+        assertEquals(20, last[0]);
+        // the sequence of the last message of the file before the position
+        assertEquals(2, last[1]);
+    }
+
+    @Test
+    @DisplayName("When the file is read again from the reported position")
+    void continuesSequencesAfterRestart() throws IOException {
+        RoutingPublisher publisher = publisher(10);
+        publisher.publish(message("8=FIX.4.4|56=A|"));
+        publisher.publish(message("heartbeat"));
+        publisher.markPosition(20);
+        publisher.publish(message("8=FIX.4.4|56=A|"));
+        publisher.publish(message("heartbeat"));
+        publisher.publish(message("8=FIX.4.4|56=B|"));
+        publisher.markPosition(30);
+        publisher.flush();
+        List<Long> sequencesOfA = sequences("A");
+        List<Long> sequencesOfB = sequences("B");
+        List<Long> sequencesOfFile = sequences("file");
+        long[] restartPosition = positions.stream().filter(position -> position[0] == 20).findFirst().orElseThrow();
+
+        Mockito.reset(routerMock);
+        RoutingPublisher restarted = publisher(10, restartPosition[1]);
+        restarted.publish(message("8=FIX.4.4|56=A|"));
+        restarted.publish(message("heartbeat"));
+        restarted.publish(message("8=FIX.4.4|56=B|"));
+        restarted.markPosition(30);
+        restarted.flush();
+
+        // the messages after the position get the same sequences as before the restart
+        assertEquals(sequencesOfA.subList(1, 2), sequences("A"));
+        assertEquals(sequencesOfB, sequences("B"));
+        assertEquals(sequencesOfFile.subList(1, 2), sequences("file"));
+        assertEquals(5, positions.get(positions.size() - 1)[1]);
+    }
+
+    private RoutingPublisher publisher(int maxRoutes) throws IOException {
+        return publisher(maxRoutes, 0);
+    }
+
+    private RoutingPublisher publisher(int maxRoutes, long firstSequence) throws IOException {
+        RoutingRule rule = new RoutingRule();
+        rule.setFixTag(56);
+        rule.setDirection(Direction.SECOND);
+        RouteResolver resolver = new RouteResolver(Collections.singletonList(rule), (byte)'|', StandardCharsets.UTF_8);
+        return new RoutingPublisher("file", firstSequence, resolver, maxRoutes, (offset, sequence) -> positions.add(new long[] { offset, sequence }),
+                (alias, direction, routeSequence, listener) -> {
+                    opened.add(alias + '/' + direction);
+                    return new LogPublisher(alias, direction, routerMock, new BatchLimits(2, 1000, 2_000), routeSequence, listener,
+                            null, null, null, null);
+                });
+    }
+
+    /**
+     * @return the sequences of the messages sent with the session alias
+     */
+    private List<Long> sequences(String alias) throws IOException {
+        ArgumentCaptor<RawMessageBatch> captor = ArgumentCaptor.forClass(RawMessageBatch.class);
+        Mockito.verify(routerMock, Mockito.atLeastOnce()).sendAll(captor.capture(), ArgumentMatchers.any());
+        return captor.getAllValues().stream()
+                .flatMap(batch -> batch.getMessagesList().stream())
+                .map(message -> message.getMetadata().getId())
+                .filter(id -> alias.equals(id.getConnectionId().getSessionAlias()))
+                .map(MessageID::getSequence)
+                .collect(Collectors.toList());
+    }
+
+    private static ByteString message(String text) {
+        return ByteString.copyFrom(text, StandardCharsets.UTF_8);
+    }
+}
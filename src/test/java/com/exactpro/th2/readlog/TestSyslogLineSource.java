@@ -0,0 +1,145 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.readlog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Syslog listener")
+public class TestSyslogLineSource {
+    private static final String FIRST = "<34>1 2003-10-11T22:14:15.003Z host app - ID47 - first message";
+    private static final String SECOND = "<165>1 2003-08-24T05:14:15.000003-07:00 host app 8710 - - second message";
+
+    @Test
+    @DisplayName("When messages are received over UDP")
+    void receivesDatagrams() throws Exception {
+        try (SyslogLineSource source = start(false, 1024);
+             DatagramSocket socket = new DatagramSocket()) {
+            InetSocketAddress address = (InetSocketAddress)source.getLocalAddress();
+            for (String message : List.of(FIRST, SECOND + "\n")) {
+                byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+                socket.send(new DatagramPacket(bytes, bytes.length, InetAddress.getLoopbackAddress(), address.getPort()));
+            }
+
+            assertEquals(List.of(FIRST, SECOND), read(source, 2));
+        }
+    }
+
+    @Test
+    @DisplayName("When messages are received over TCP with octet counting")
+    void receivesOctetCountedMessages() throws Exception {
+        try (SyslogLineSource source = start(true, 1024);
+             Socket socket = connect(source)) {
+            OutputStream output = socket.getOutputStream();
+            String frames = frame(FIRST) + frame(SECOND);
+            // the frames are split across several writes
+            int middle = frames.length() / 3;
+            write(output, frames.substring(0, middle));
+            output.flush();
+            Thread.sleep(50);
+            write(output, frames.substring(middle));
+            output.flush();
+
+            assertEquals(List.of(FIRST, SECOND), read(source, 2));
+        }
+    }
+
+    @Test
+    @DisplayName("When messages are received over TCP with line feed framing")
+    void receivesLineFeedFramedMessages() throws Exception {
+        try (SyslogLineSource source = start(true, 1024);
+             Socket socket = connect(source)) {
+            OutputStream output = socket.getOutputStream();
+            write(output, FIRST.substring(0, 10));
+            output.flush();
+            Thread.sleep(50);
+            write(output, FIRST.substring(10) + "\n" + SECOND + "\r\n");
+            output.flush();
+
+            assertEquals(List.of(FIRST, SECOND), read(source, 2));
+        }
+    }
+
+    @Test
+    @DisplayName("When the framing differs between messages and the connection is closed")
+    void receivesMixedFraming() throws Exception {
+        try (SyslogLineSource source = start(true, 1024)) {
+            try (Socket socket = connect(source)) {
+                write(socket.getOutputStream(), FIRST + "\n" + frame(SECOND) + "<13>1 - - - - - - last");
+            }
+
+            assertEquals(List.of(FIRST, SECOND, "<13>1 - - - - - - last"), read(source, 3));
+        }
+    }
+
+    @Test
+    @DisplayName("When the message is longer than the maximum")
+    void skipsLongMessages() throws Exception {
+        try (SyslogLineSource source = start(true, 70)) {
+            try (Socket socket = connect(source)) {
+                write(socket.getOutputStream(), frame(SECOND + SECOND) + frame(FIRST) + SECOND + SECOND + "\n" + FIRST + "\n");
+            }
+
+            assertEquals(List.of(FIRST, FIRST), read(source, 2));
+        }
+    }
+
+    private static SyslogLineSource start(boolean tcp, int maxMessageBytes) throws IOException {
+        return new SyslogLineSource(tcp, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), maxMessageBytes, 10).start();
+    }
+
+    private static Socket connect(SyslogLineSource source) throws IOException {
+        return new Socket(InetAddress.getLoopbackAddress(), ((InetSocketAddress)source.getLocalAddress()).getPort());
+    }
+
+    private static String frame(String message) {
+        return message.getBytes(StandardCharsets.UTF_8).length + " " + message;
+    }
+
+    private static void write(OutputStream output, String data) throws IOException {
+        output.write(data.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<String> read(LineSource source, int count) throws IOException, InterruptedException {
+        List<String> lines = new ArrayList<>();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (lines.size() < count) {
+            if (source.readNextLine()) {
+                lines.add(new String(source.getLineBytes(), 0, source.getLineLength(), StandardCharsets.UTF_8));
+            } else {
+                assertTrue(System.nanoTime() < deadline, "Only " + lines + " received in time");
+                Thread.sleep(1);
+            }
+        }
+        return lines;
+    }
+}
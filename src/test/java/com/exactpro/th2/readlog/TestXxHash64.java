@@ -0,0 +1,50 @@
+/*
+ * Copyright 2020-2020 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.readlog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("xxHash64")
+public class TestXxHash64 {
+    @Test
+    @DisplayName("When the reference values are hashed")
+    void matchesReferenceValues() {
+        assertEquals(0xEF46DB3751D8E999L, hash(""));
+        assertEquals(0xD24EC4F1A98C6E5BL, hash("a"));
+        assertEquals(0x44BC2CF5AD770999L, hash("abc"));
+        // longer than 32 bytes
+        assertEquals(0xFBCEA83C8A378BF1L, hash("Nobody inspects the spammish repetition"));
+    }
+
+    @Test
+    @DisplayName("When a part of the array is hashed")
+    void hashesRange() {
+        byte[] data = "xxNobody inspects the spammish repetitionxx".getBytes(StandardCharsets.US_ASCII);
+
+        assertEquals(hash("Nobody inspects the spammish repetition"), XxHash64.hash(data, 2, data.length - 4, 0));
+    }
+
+    private static long hash(String value) {
+        byte[] data = value.getBytes(StandardCharsets.US_ASCII);
+        return XxHash64.hash(data, 0, data.length, 0);
+    }
+}